@@ -0,0 +1,131 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonarsource.analyzer.commons.regex.RegexParseResult;
+import org.sonarsource.analyzer.commons.regex.ast.DisjunctionTree;
+import org.sonarsource.analyzer.commons.regex.ast.RegexBaseVisitor;
+import org.sonarsource.analyzer.commons.regex.ast.RegexTree;
+import org.sonarsource.analyzer.commons.regex.ast.RepetitionTree;
+import org.sonarsource.analyzer.commons.regex.helpers.AbstractAutomataChecker;
+import org.sonarsource.analyzer.commons.regex.helpers.IntersectAutomataChecker;
+import org.sonarsource.analyzer.commons.regex.helpers.SubAutomaton;
+import org.sonarsource.analyzer.commons.regex.helpers.SupersetAutomataChecker;
+
+/**
+ * The intersection and superset checks on the sub-automata compared by the finders, from the regex corpus of each
+ * dialect: each pair of alternatives of a disjunction, and the element of each open-ended repetition with its
+ * continuation. As in the finders, a checker, and so its cache, is shared by all the checks on a regex. Each invocation
+ * checks the whole corpus and returns the number of positive answers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutomataCheckerBenchmark {
+
+  @Param({"JAVA", "PHP", "PYTHON"})
+  public RegexDialect dialect;
+
+  private AutomataPair[][] pairsByRegex;
+
+  @Setup
+  public void setup() {
+    pairsByRegex = Arrays.stream(dialect.parseAll(dialect.corpus()))
+      .map(AutomataCheckerBenchmark::pairs)
+      .toArray(AutomataPair[][]::new);
+  }
+
+  @Benchmark
+  public int intersect() {
+    int count = 0;
+    for (AutomataPair[] pairs : pairsByRegex) {
+      count += check(new IntersectAutomataChecker(false), pairs);
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int superset() {
+    int count = 0;
+    for (AutomataPair[] pairs : pairsByRegex) {
+      count += check(new SupersetAutomataChecker(false), pairs);
+    }
+    return count;
+  }
+
+  static int check(AbstractAutomataChecker checker, AutomataPair[] pairs) {
+    int count = 0;
+    for (AutomataPair pair : pairs) {
+      if (checker.check(pair.auto1(), pair.auto2())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  static AutomataPair[] pairs(RegexParseResult regex) {
+    List<AutomataPair> pairs = new ArrayList<>();
+    new RegexBaseVisitor() {
+      @Override
+      public void visitDisjunction(DisjunctionTree tree) {
+        List<RegexTree> alternatives = tree.getAlternatives();
+        for (int i = 0; i < alternatives.size(); i++) {
+          for (int j = i + 1; j < alternatives.size(); j++) {
+            pairs.add(new AutomataPair(alternative(alternatives.get(i)), alternative(alternatives.get(j))));
+          }
+        }
+        super.visitDisjunction(tree);
+      }
+
+      @Override
+      public void visitRepetition(RepetitionTree tree) {
+        if (tree.getQuantifier().isOpenEnded()) {
+          pairs.add(new AutomataPair(
+            new SubAutomaton(tree.getElement(), tree.continuation(), false),
+            new SubAutomaton(tree.continuation(), regex.getFinalState(), false)));
+        }
+        super.visitRepetition(tree);
+      }
+    }.visit(regex);
+    return pairs.toArray(new AutomataPair[0]);
+  }
+
+  private static SubAutomaton alternative(RegexTree alternative) {
+    return new SubAutomaton(alternative, alternative.continuation(), false);
+  }
+
+  record AutomataPair(SubAutomaton auto1, SubAutomaton auto2) {
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, typically of the released version and of the current
+ * branch, and fails when a benchmark is slower, or allocates more when both runs used {@code -prof gc}, by more than a
+ * threshold.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.sonarsource.analyzer.commons.benchmarks.BaselineComparison \
+ *   [--threshold 10] baseline.json current.json
+ * </pre>
+ */
+public final class BaselineComparison {
+
+  static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+  private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+  // allocation measures are precise, but can vary by a few bytes between runs
+  private static final double ALLOCATION_TOLERANCE_BYTES = 8.0;
+
+  private final List<String> lines = new ArrayList<>();
+  private final List<String> regressions = new ArrayList<>();
+
+  private BaselineComparison() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    double threshold = DEFAULT_THRESHOLD_PERCENT;
+    int first = 0;
+    if (args.length == 4 && args[0].equals("--threshold")) {
+      threshold = Double.parseDouble(args[1]);
+      first = 2;
+    } else if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: BaselineComparison [--threshold <percent>] <baseline.json> <current.json>");
+    }
+    BaselineComparison comparison;
+    try (Reader baseline = Files.newBufferedReader(Path.of(args[first]), UTF_8);
+      Reader current = Files.newBufferedReader(Path.of(args[first + 1]), UTF_8)) {
+      comparison = compare(baseline, current, threshold);
+    }
+    comparison.lines().forEach(System.out::println);
+    if (!comparison.regressions().isEmpty()) {
+      System.out.println();
+      System.out.println(comparison.regressions().size() + " regression(s) above " + threshold + "%:");
+      comparison.regressions().forEach(System.out::println);
+      System.exit(1);
+    }
+  }
+
+  static BaselineComparison compare(Reader baselineJson, Reader currentJson, double thresholdPercent) {
+    Map<String, Result> baseline = parse(baselineJson);
+    Map<String, Result> current = parse(currentJson);
+    BaselineComparison comparison = new BaselineComparison();
+    comparison.lines.add(String.format(Locale.ROOT, "%-90s %14s %14s %9s %12s %12s %9s",
+      "Benchmark", "Baseline", "Current", "Change", "Baseline B/op", "Current B/op", "Change"));
+    current.forEach((key, result) -> {
+      Result base = baseline.get(key);
+      if (base == null) {
+        comparison.lines.add(String.format(Locale.ROOT, "%-90s %14s %14.3f %9s", key, "-", result.score, "new"));
+      } else {
+        comparison.compare(key, base, result, thresholdPercent);
+      }
+    });
+    baseline.keySet().stream()
+      .filter(key -> !current.containsKey(key))
+      .forEach(key -> comparison.lines.add(String.format(Locale.ROOT, "%-90s %14.3f %14s %9s", key, baseline.get(key).score, "-", "removed")));
+    return comparison;
+  }
+
+  private void compare(String key, Result base, Result result, double thresholdPercent) {
+    double change = percentChange(base.score, result.score);
+    // for throughput, higher is better, for the other modes the score is a time
+    double slowdown = base.isThroughput() ? -change : change;
+    if (slowdown > thresholdPercent) {
+      regressions.add(String.format(Locale.ROOT, "%s: %.1f%% slower (%.3f -> %.3f %s)", key, slowdown, base.score, result.score, result.unit));
+    }
+    String line = String.format(Locale.ROOT, "%-90s %14.3f %14.3f %+8.1f%%", key, base.score, result.score, change);
+    if (base.allocation != null && result.allocation != null) {
+      double allocationChange = percentChange(base.allocation, result.allocation);
+      line += String.format(Locale.ROOT, " %12.1f %12.1f %+8.1f%%", base.allocation, result.allocation, allocationChange);
+      if (allocationChange > thresholdPercent && result.allocation - base.allocation > ALLOCATION_TOLERANCE_BYTES) {
+        regressions.add(String.format(Locale.ROOT, "%s: %.1f%% more allocated (%.1f -> %.1f B/op)", key, allocationChange, base.allocation, result.allocation));
+      }
+    }
+    lines.add(line);
+  }
+
+  private static double percentChange(double base, double value) {
+    if (base == 0.0) {
+      return value == 0.0 ? 0.0 : 100.0;
+    }
+    return (value - base) * 100.0 / base;
+  }
+
+  List<String> lines() {
+    return lines;
+  }
+
+  List<String> regressions() {
+    return regressions;
+  }
+
+  /**
+   * @return results by name of benchmark and parameters
+   */
+  private static Map<String, Result> parse(Reader json) {
+    Map<String, Result> results = new LinkedHashMap<>();
+    for (JsonElement element : JsonParser.parseReader(json).getAsJsonArray()) {
+      JsonObject benchmark = element.getAsJsonObject();
+      StringBuilder key = new StringBuilder(benchmark.get("benchmark").getAsString());
+      JsonObject params = benchmark.getAsJsonObject("params");
+      if (params != null) {
+        Map<String, String> sortedParams = new TreeMap<>();
+        params.entrySet().forEach(param -> sortedParams.put(param.getKey(), param.getValue().getAsString()));
+        sortedParams.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+      }
+      JsonObject primaryMetric = benchmark.getAsJsonObject("primaryMetric");
+      results.put(key.toString(), new Result(
+        benchmark.get("mode").getAsString(),
+        primaryMetric.get("score").getAsDouble(),
+        primaryMetric.get("scoreUnit").getAsString(),
+        allocation(benchmark.getAsJsonObject("secondaryMetrics"))));
+    }
+    return results;
+  }
+
+  @Nullable
+  private static Double allocation(@Nullable JsonObject secondaryMetrics) {
+    if (secondaryMetrics == null) {
+      return null;
+    }
+    // older JMH versions prefix the names of profiler metrics with a middle dot
+    for (Map.Entry<String, JsonElement> metric : secondaryMetrics.entrySet()) {
+      if (metric.getKey().equals(ALLOCATION_METRIC) || metric.getKey().equals("·" + ALLOCATION_METRIC)) {
+        return metric.getValue().getAsJsonObject().get("score").getAsDouble();
+      }
+    }
+    return null;
+  }
+
+  private record Result(String mode, double score, String unit, @Nullable Double allocation) {
+    boolean isThroughput() {
+      return mode.equals("thrpt");
+    }
+  }
+}
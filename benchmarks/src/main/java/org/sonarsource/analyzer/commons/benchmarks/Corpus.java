@@ -0,0 +1,48 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Input data of the benchmarks, read from the resources of this module: one value per line, empty lines and lines
+ * starting with "# " are ignored.
+ */
+final class Corpus {
+
+  private Corpus() {
+  }
+
+  static String[] load(String resourceName) {
+    try (InputStream input = Corpus.class.getResourceAsStream(resourceName)) {
+      if (input == null) {
+        throw new IllegalStateException("Missing corpus: " + resourceName);
+      }
+      return new BufferedReader(new InputStreamReader(input, UTF_8)).lines()
+        .filter(line -> !line.isEmpty() && !line.startsWith("# "))
+        .toArray(String[]::new);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonarsource.analyzer.commons.appsec.IpAddressClassifier;
+import org.sonarsource.analyzer.commons.appsec.IpLiteral;
+
+/**
+ * Classification of IP address literals found in source code, on a corpus of IPv4, IPv6 and CIDR literals, and of
+ * strings which are not addresses. Each invocation processes the whole corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IpAddressClassifierBenchmark {
+
+  private final String[] literals = Corpus.load("ip-literals.txt");
+
+  @Benchmark
+  public void isReserved(Blackhole blackhole) {
+    for (String literal : literals) {
+      blackhole.consume(IpAddressClassifier.isReserved(literal));
+    }
+  }
+
+  /**
+   * Typical exemption check of a hardcoded IP rule, one literal being parsed for each predicate.
+   */
+  @Benchmark
+  public void severalPredicates(Blackhole blackhole) {
+    for (String literal : literals) {
+      blackhole.consume(IpAddressClassifier.isLoopback(literal)
+        || IpAddressClassifier.isAnyAddress(literal)
+        || IpAddressClassifier.isBroadcast(literal)
+        || IpAddressClassifier.isDocumentation(literal));
+    }
+  }
+
+  /**
+   * Same check as {@link #severalPredicates(Blackhole)}, each literal being parsed once.
+   */
+  @Benchmark
+  public void severalPredicatesOnParsedLiteral(Blackhole blackhole) {
+    for (String literal : literals) {
+      IpLiteral ip = IpLiteral.parse(literal);
+      blackhole.consume(ip.isLoopback() || ip.isAnyAddress() || ip.isBroadcast() || ip.isDocumentation());
+    }
+  }
+}
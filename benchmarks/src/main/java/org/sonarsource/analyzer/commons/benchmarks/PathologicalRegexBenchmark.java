@@ -0,0 +1,123 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonarsource.analyzer.commons.regex.MatchType;
+import org.sonarsource.analyzer.commons.regex.RegexParseResult;
+import org.sonarsource.analyzer.commons.regex.helpers.IntersectAutomataChecker;
+import org.sonarsource.analyzer.commons.regex.helpers.SupersetAutomataChecker;
+
+/**
+ * Known pathological regexes, for the regex engine or for the analysis, measured one by one so that a slow regex is not
+ * hidden in the total of a corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathologicalRegexBenchmark {
+
+  /**
+   * Regexes as passed to {@code Pattern.compile}.
+   */
+  public enum PathologicalRegex {
+    NESTED_QUANTIFIERS("(a+)+b"),
+    OVERLAPPING_ALTERNATIVES("(a|a)*b"),
+    ALTERNATIVES_OF_DIFFERENT_LENGTHS("(a|aa)+$"),
+    RELUCTANT_OVERLAPPING_ALTERNATIVES("(a|ab)*?c"),
+    WORDS_AND_OPTIONAL_SPACES("^(\\w+\\s?)*$"),
+    CONSECUTIVE_DOT_STARS(".*a.*a.*a.*a.*a.*x"),
+    MORE_REPETITIONS_THAN_TRACKED("\\w*\\d*\\w*\\d*\\w*\\d*\\w*\\d*\\w*\\d*\\w*\\d*x"),
+    FINITE_REPETITION_OF_DOT_STAR("(.*a){12}"),
+    OWASP_EMAIL("^([a-zA-Z0-9])(([\\-.]|[_]+)?([a-zA-Z0-9]+))*(@){1}[a-z0-9]+[.]{1}(([a-z]{2,3})|([a-z]{2,3}[.]{1}[a-z]{2,3}))$"),
+    OWASP_JAVA_CLASS_NAME("^(([a-z])+.)+[A-Z]([a-z])+$"),
+    MANY_ALTERNATIVES("(?:get|set|is|has|can|should|will|add|remove|put|clear|create|delete|update|find|load|save|read|write"
+      + "|open|close|start|stop|init|reset|parse|format|to|from|as|with)\\w*\\("),
+    LOOKAROUNDS_IN_REPETITION("^(?:(?=\\w)\\w+(?<=\\w)\\s*)+$"),
+    BACK_REFERENCES("^(\\w+)\\s+(?:\\1\\s+)*\\1$");
+
+    private final String regex;
+
+    PathologicalRegex(String regex) {
+      this.regex = regex;
+    }
+
+    /**
+     * The content of the Java string literal of the regex.
+     */
+    String javaStringLiteralContent() {
+      return regex.replace("\\", "\\\\");
+    }
+  }
+
+  @Param({
+    "NESTED_QUANTIFIERS", "OVERLAPPING_ALTERNATIVES", "ALTERNATIVES_OF_DIFFERENT_LENGTHS", "RELUCTANT_OVERLAPPING_ALTERNATIVES",
+    "WORDS_AND_OPTIONAL_SPACES", "CONSECUTIVE_DOT_STARS", "MORE_REPETITIONS_THAN_TRACKED", "FINITE_REPETITION_OF_DOT_STAR",
+    "OWASP_EMAIL", "OWASP_JAVA_CLASS_NAME", "MANY_ALTERNATIVES", "LOOKAROUNDS_IN_REPETITION", "BACK_REFERENCES"})
+  public PathologicalRegex regex;
+
+  private String source;
+  private RegexParseResult parseResult;
+  private AutomataCheckerBenchmark.AutomataPair[] pairs;
+  private int issues;
+
+  @Setup
+  public void setup() {
+    source = regex.javaStringLiteralContent();
+    parseResult = RegexDialect.JAVA.parse(source);
+    if (parseResult.hasSyntaxErrors()) {
+      throw new IllegalStateException("Invalid regex " + regex + ": " + parseResult.getSyntaxErrors());
+    }
+    pairs = AutomataCheckerBenchmark.pairs(parseResult);
+  }
+
+  @Benchmark
+  public RegexParseResult parse() {
+    return RegexDialect.JAVA.parse(source);
+  }
+
+  @Benchmark
+  public int redos() {
+    issues = 0;
+    new RegexFinderBenchmark.BenchmarkRedosFinder().checkRegex(parseResult, MatchType.BOTH, (element, message, cost, secondaries) -> issues++);
+    return issues;
+  }
+
+  @Benchmark
+  public int intersect() {
+    return AutomataCheckerBenchmark.check(new IntersectAutomataChecker(false), pairs);
+  }
+
+  @Benchmark
+  public int superset() {
+    return AutomataCheckerBenchmark.check(new SupersetAutomataChecker(false), pairs);
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonarsource.analyzer.commons.collections.IntPMap;
+import org.sonarsource.analyzer.commons.collections.PCollections;
+import org.sonarsource.analyzer.commons.collections.PCollections.Implementation;
+import org.sonarsource.analyzer.commons.collections.PMap;
+
+/**
+ * Persistent maps with int keys, as symbolic value ids, compared to a mutable {@link HashMap}. As the latter is updated
+ * in place, its update time is a lower bound, which does not include the copy a persistent use would require.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistentMapBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  public int size;
+
+  @Param({"AVL_TREE", "HASH_TRIE", "INT_TRIE", "HASH_MAP"})
+  public Backend backend;
+
+  private int[] keys;
+  private int missingKey;
+  private int nextKey;
+  private Object map;
+  // equal to map, but built in another order
+  private Object equalMap;
+
+  @Setup
+  public void setup() {
+    int[] distinctKeys = new Random(42).ints().distinct().limit(size + 1L).toArray();
+    keys = new int[size];
+    System.arraycopy(distinctKeys, 0, keys, 0, size);
+    missingKey = distinctKeys[size];
+    map = build(keys);
+    int[] reversedKeys = new int[size];
+    for (int i = 0; i < size; i++) {
+      reversedKeys[i] = keys[size - 1 - i];
+    }
+    equalMap = build(reversedKeys);
+  }
+
+  private Object build(int[] keysToPut) {
+    Object result = backend.empty();
+    for (int key : keysToPut) {
+      result = backend.put(result, key, key);
+    }
+    return result;
+  }
+
+  private int nextKey() {
+    nextKey = nextKey + 1 == size ? 0 : (nextKey + 1);
+    return keys[nextKey];
+  }
+
+  @Benchmark
+  public Object build() {
+    return build(keys);
+  }
+
+  @Benchmark
+  public Object getHit() {
+    return backend.get(map, nextKey());
+  }
+
+  @Benchmark
+  public Object getMiss() {
+    return backend.get(map, missingKey);
+  }
+
+  @Benchmark
+  public Object putAndRemove() {
+    return backend.remove(backend.put(map, missingKey, missingKey), missingKey);
+  }
+
+  @Benchmark
+  public boolean equalsOtherInstance() {
+    return map.equals(equalMap);
+  }
+
+  @SuppressWarnings("unchecked")
+  public enum Backend {
+    AVL_TREE {
+      @Override
+      Object empty() {
+        return PCollections.emptyMap(Implementation.AVL_TREE);
+      }
+    },
+    HASH_TRIE {
+      @Override
+      Object empty() {
+        return PCollections.emptyMap(Implementation.HASH_TRIE);
+      }
+    },
+    INT_TRIE {
+      @Override
+      Object empty() {
+        return PCollections.emptyIntMap();
+      }
+
+      @Override
+      Object put(Object map, int key, Integer value) {
+        return ((IntPMap<Integer>) map).put(key, value);
+      }
+
+      @Override
+      Object remove(Object map, int key) {
+        return ((IntPMap<Integer>) map).remove(key);
+      }
+
+      @Override
+      Object get(Object map, int key) {
+        return ((IntPMap<Integer>) map).get(key);
+      }
+    },
+    HASH_MAP {
+      @Override
+      Object empty() {
+        return new HashMap<Integer, Integer>();
+      }
+
+      @Override
+      Object put(Object map, int key, Integer value) {
+        ((Map<Integer, Integer>) map).put(key, value);
+        return map;
+      }
+
+      @Override
+      Object remove(Object map, int key) {
+        ((Map<Integer, Integer>) map).remove(key);
+        return map;
+      }
+
+      @Override
+      Object get(Object map, int key) {
+        return ((Map<Integer, Integer>) map).get(key);
+      }
+    };
+
+    abstract Object empty();
+
+    Object put(Object map, int key, Integer value) {
+      return ((PMap<Integer, Integer>) map).put(key, value);
+    }
+
+    Object remove(Object map, int key) {
+      return ((PMap<Integer, Integer>) map).remove(key);
+    }
+
+    Object get(Object map, int key) {
+      return ((PMap<Integer, Integer>) map).get(key);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonarsource.analyzer.commons.collections.PCollections;
+import org.sonarsource.analyzer.commons.collections.PStack;
+import org.sonarsource.analyzer.commons.collections.PVector;
+
+/**
+ * Stack machine operations on {@link PStack}, a linked list, and on {@link PVector}, a trie, used as a stack.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistentStackBenchmark {
+
+  @Param({"10", "1000"})
+  public int size;
+
+  private PStack<Integer> stack;
+  private PVector<Integer> vector;
+
+  @Setup
+  public void setup() {
+    stack = pushAll();
+    vector = appendAll();
+  }
+
+  @Benchmark
+  public PStack<Integer> pushAll() {
+    PStack<Integer> result = PCollections.emptyStack();
+    for (int i = 0; i < size; i++) {
+      result = result.push(i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public PStack<Integer> popAll() {
+    PStack<Integer> result = stack;
+    while (!result.isEmpty()) {
+      result = result.pop();
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Integer peekBottom() {
+    return stack.peek(size - 1);
+  }
+
+  @Benchmark
+  public int stackSize() {
+    return stack.size();
+  }
+
+  @Benchmark
+  public PVector<Integer> appendAll() {
+    PVector<Integer> result = PCollections.emptyVector();
+    for (int i = 0; i < size; i++) {
+      result = result.append(i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public PVector<Integer> removeLastAll() {
+    PVector<Integer> result = vector;
+    while (!result.isEmpty()) {
+      result = result.removeLast();
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Integer getFirst() {
+    return vector.get(0);
+  }
+
+  @Benchmark
+  public int vectorSize() {
+    return vector.size();
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.sonarsource.analyzer.commons.regex.CharacterParser;
+import org.sonarsource.analyzer.commons.regex.RegexParseResult;
+import org.sonarsource.analyzer.commons.regex.RegexParser;
+import org.sonarsource.analyzer.commons.regex.RegexSource;
+import org.sonarsource.analyzer.commons.regex.ast.FlagSet;
+import org.sonarsource.analyzer.commons.regex.ast.IndexRange;
+import org.sonarsource.analyzer.commons.regex.ast.SourceCharacter;
+import org.sonarsource.analyzer.commons.regex.java.JavaRegexSource;
+import org.sonarsource.analyzer.commons.regex.php.PhpRegexSource;
+import org.sonarsource.analyzer.commons.regex.python.PythonRegexSource;
+
+/**
+ * The regex dialects supported by the parser, each with its corpus of regexes collected from open-source projects, as
+ * written in the string literals of the language:
+ * <ul>
+ *   <li>JAVA: content of double-quoted string literals, so backslashes are doubled</li>
+ *   <li>PHP: pattern between the delimiters of single-quoted string literals</li>
+ *   <li>PYTHON: content of raw string literals</li>
+ * </ul>
+ */
+public enum RegexDialect {
+  JAVA("regexes-java.txt", JavaRegexSource::new),
+  PHP("regexes-php.txt", source -> new PhpRegexSource(source, '\'')),
+  PYTHON("regexes-python.txt", PythonRawStringRegexSource::new);
+
+  private final String corpus;
+  private final Function<String, RegexSource> sourceFactory;
+
+  RegexDialect(String corpus, Function<String, RegexSource> sourceFactory) {
+    this.corpus = corpus;
+    this.sourceFactory = sourceFactory;
+  }
+
+  String[] corpus() {
+    return Corpus.load(corpus);
+  }
+
+  RegexParseResult parse(String regex) {
+    return new RegexParser(sourceFactory.apply(regex), new FlagSet()).parse();
+  }
+
+  RegexParseResult[] parseAll(String[] regexes) {
+    return Arrays.stream(regexes).map(this::parse).toArray(RegexParseResult[]::new);
+  }
+
+  /**
+   * The Python analyzer provides its own sources, this one only supports raw strings, where there's no escape sequence.
+   */
+  private static final class PythonRawStringRegexSource extends PythonRegexSource {
+
+    PythonRawStringRegexSource(String source) {
+      super(source);
+    }
+
+    @Override
+    public CharacterParser createCharacterParser() {
+      return new RawStringCharacterParser(this);
+    }
+  }
+
+  private static final class RawStringCharacterParser implements CharacterParser {
+
+    private final RegexSource source;
+    private final String text;
+    private int index;
+    @Nullable
+    private SourceCharacter current;
+
+    RawStringCharacterParser(RegexSource source) {
+      this.source = source;
+      this.text = source.getSourceText();
+      resetTo(0);
+    }
+
+    @Override
+    public void moveNext() {
+      resetTo(current == null ? index : (index + 1));
+    }
+
+    @Override
+    public SourceCharacter getCurrent() {
+      if (current == null) {
+        throw new NoSuchElementException();
+      }
+      return current;
+    }
+
+    @Override
+    public boolean isAtEnd() {
+      return current == null;
+    }
+
+    @Override
+    public void resetTo(int index) {
+      this.index = index;
+      current = index < text.length() ? new SourceCharacter(source, new IndexRange(index, index + 1), text.charAt(index)) : null;
+    }
+  }
+}
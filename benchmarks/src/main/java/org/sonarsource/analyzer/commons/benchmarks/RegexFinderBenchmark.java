@@ -0,0 +1,154 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonarsource.analyzer.commons.regex.MatchType;
+import org.sonarsource.analyzer.commons.regex.RegexIssueReporter;
+import org.sonarsource.analyzer.commons.regex.RegexParseResult;
+import org.sonarsource.analyzer.commons.regex.finders.AnchorPrecedenceFinder;
+import org.sonarsource.analyzer.commons.regex.finders.ComplexRegexFinder;
+import org.sonarsource.analyzer.commons.regex.finders.DuplicatesInCharacterClassFinder;
+import org.sonarsource.analyzer.commons.regex.finders.EmptyAlternativeFinder;
+import org.sonarsource.analyzer.commons.regex.finders.EmptyGroupFinder;
+import org.sonarsource.analyzer.commons.regex.finders.EmptyStringRepetitionFinder;
+import org.sonarsource.analyzer.commons.regex.finders.FailingLookaheadFinder;
+import org.sonarsource.analyzer.commons.regex.finders.GraphemeInClassFinder;
+import org.sonarsource.analyzer.commons.regex.finders.ImpossibleBackReferenceFinder;
+import org.sonarsource.analyzer.commons.regex.finders.ImpossibleBoundaryFinder;
+import org.sonarsource.analyzer.commons.regex.finders.MultipleWhitespaceFinder;
+import org.sonarsource.analyzer.commons.regex.finders.PossessiveQuantifierContinuationFinder;
+import org.sonarsource.analyzer.commons.regex.finders.RedosFinder;
+import org.sonarsource.analyzer.commons.regex.finders.RedundantRegexAlternativesFinder;
+import org.sonarsource.analyzer.commons.regex.finders.ReluctantQuantifierFinder;
+import org.sonarsource.analyzer.commons.regex.finders.ReluctantQuantifierWithEmptyContinuationFinder;
+import org.sonarsource.analyzer.commons.regex.finders.SingleCharCharacterClassFinder;
+import org.sonarsource.analyzer.commons.regex.finders.SingleCharacterAlternationFinder;
+import org.sonarsource.analyzer.commons.regex.finders.SuperfluousCurlyBraceFinder;
+import org.sonarsource.analyzer.commons.regex.finders.UnicodeUnawareCharClassFinder;
+import org.sonarsource.analyzer.commons.regex.finders.UnquantifiedNonCapturingGroupFinder;
+import org.sonarsource.analyzer.commons.regex.finders.VerboseRegexFinder;
+
+/**
+ * Each finder of the regex-parsing module on the pre-parsed regex corpus of each dialect, with a new finder instance
+ * per regex as done by the rules. Each invocation checks the whole corpus and returns the number of issues.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexFinderBenchmark {
+
+  // default threshold of the rules on regex complexity
+  private static final int MAX_COMPLEXITY = 20;
+  private static final RegexIssueReporter.InvocationIssue IGNORED_INVOCATION_ISSUE = (message, cost, secondaries) -> {
+  };
+
+  public enum Finder {
+    ANCHOR_PRECEDENCE((regex, reporter) -> new AnchorPrecedenceFinder(reporter).visit(regex)),
+    COMPLEX_REGEX((regex, reporter) -> new ComplexRegexFinder(reporter, MAX_COMPLEXITY).visit(regex)),
+    DUPLICATES_IN_CHARACTER_CLASS((regex, reporter) -> new DuplicatesInCharacterClassFinder(reporter).visit(regex)),
+    EMPTY_ALTERNATIVE((regex, reporter) -> new EmptyAlternativeFinder(reporter).visit(regex)),
+    EMPTY_GROUP((regex, reporter) -> new EmptyGroupFinder(reporter).visit(regex)),
+    EMPTY_STRING_REPETITION((regex, reporter) -> new EmptyStringRepetitionFinder(reporter).visit(regex)),
+    FAILING_LOOKAHEAD((regex, reporter) -> new FailingLookaheadFinder(reporter, regex.getFinalState()).visit(regex)),
+    GRAPHEME_IN_CLASS((regex, reporter) -> new GraphemeInClassFinder(reporter).visit(regex)),
+    IMPOSSIBLE_BACK_REFERENCE((regex, reporter) -> new ImpossibleBackReferenceFinder(reporter).visit(regex)),
+    IMPOSSIBLE_BOUNDARY((regex, reporter) -> new ImpossibleBoundaryFinder(reporter).visit(regex)),
+    MULTIPLE_WHITESPACE((regex, reporter) -> new MultipleWhitespaceFinder(reporter).visit(regex)),
+    POSSESSIVE_QUANTIFIER_CONTINUATION((regex, reporter) -> new PossessiveQuantifierContinuationFinder(reporter, regex.getFinalState()).visit(regex)),
+    REDOS((regex, reporter) -> new BenchmarkRedosFinder().checkRegex(regex, MatchType.BOTH, reporter)),
+    REDUNDANT_REGEX_ALTERNATIVES((regex, reporter) -> new RedundantRegexAlternativesFinder(reporter).visit(regex)),
+    RELUCTANT_QUANTIFIER((regex, reporter) -> new ReluctantQuantifierFinder(reporter).visit(regex)),
+    RELUCTANT_QUANTIFIER_WITH_EMPTY_CONTINUATION((regex, reporter) -> new ReluctantQuantifierWithEmptyContinuationFinder(reporter).visit(regex)),
+    SINGLE_CHAR_CHARACTER_CLASS((regex, reporter) -> new SingleCharCharacterClassFinder(reporter).visit(regex)),
+    SINGLE_CHARACTER_ALTERNATION((regex, reporter) -> new SingleCharacterAlternationFinder(reporter).visit(regex)),
+    SUPERFLUOUS_CURLY_BRACE((regex, reporter) -> new SuperfluousCurlyBraceFinder(reporter).visit(regex)),
+    UNICODE_UNAWARE_CHAR_CLASS((regex, reporter) -> new UnicodeUnawareCharClassFinder(reporter, IGNORED_INVOCATION_ISSUE).visit(regex)),
+    UNQUANTIFIED_NON_CAPTURING_GROUP((regex, reporter) -> new UnquantifiedNonCapturingGroupFinder(reporter).visit(regex)),
+    VERBOSE_REGEX((regex, reporter) -> new VerboseRegexFinder(reporter).visit(regex));
+
+    private final Check check;
+
+    Finder(Check check) {
+      this.check = check;
+    }
+
+    void check(RegexParseResult regex, RegexIssueReporter.ElementIssue reporter) {
+      check.check(regex, reporter);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Check {
+    void check(RegexParseResult regex, RegexIssueReporter.ElementIssue reporter);
+  }
+
+  @Param({"JAVA", "PHP", "PYTHON"})
+  public RegexDialect dialect;
+
+  @Param({
+    "ANCHOR_PRECEDENCE", "COMPLEX_REGEX", "DUPLICATES_IN_CHARACTER_CLASS", "EMPTY_ALTERNATIVE", "EMPTY_GROUP", "EMPTY_STRING_REPETITION",
+    "FAILING_LOOKAHEAD", "GRAPHEME_IN_CLASS", "IMPOSSIBLE_BACK_REFERENCE", "IMPOSSIBLE_BOUNDARY", "MULTIPLE_WHITESPACE",
+    "POSSESSIVE_QUANTIFIER_CONTINUATION", "REDOS", "REDUNDANT_REGEX_ALTERNATIVES", "RELUCTANT_QUANTIFIER",
+    "RELUCTANT_QUANTIFIER_WITH_EMPTY_CONTINUATION", "SINGLE_CHAR_CHARACTER_CLASS", "SINGLE_CHARACTER_ALTERNATION",
+    "SUPERFLUOUS_CURLY_BRACE", "UNICODE_UNAWARE_CHAR_CLASS", "UNQUANTIFIED_NON_CAPTURING_GROUP", "VERBOSE_REGEX"})
+  public Finder finder;
+
+  private RegexParseResult[] regexes;
+  private int issues;
+
+  @Setup
+  public void setup() {
+    regexes = dialect.parseAll(dialect.corpus());
+  }
+
+  @Benchmark
+  public int check() {
+    issues = 0;
+    RegexIssueReporter.ElementIssue reporter = (element, message, cost, secondaries) -> issues++;
+    for (RegexParseResult regex : regexes) {
+      finder.check(regex, reporter);
+    }
+    return issues;
+  }
+
+  /**
+   * Reports all the backtracking types, so the issue reporting is always measured.
+   */
+  static final class BenchmarkRedosFinder extends RedosFinder {
+
+    @Override
+    protected Optional<String> message(BacktrackingType foundBacktrackingType, boolean regexContainsBackReference) {
+      return foundBacktrackingType == BacktrackingType.NO_ISSUE ? Optional.empty() : Optional.of(foundBacktrackingType.name());
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonarsource.analyzer.commons.HumanLanguageDetector;
+import org.sonarsource.analyzer.commons.ShannonEntropy;
+import org.sonarsource.analyzer.commons.appsec.SecretClassifier;
+
+/**
+ * The checks applied by secret detection rules to each candidate string literal, on a corpus mixing placeholders,
+ * identifiers, sentences and secret-looking values. Each invocation processes the whole corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecretDetectionBenchmark {
+
+  private final String[] candidates = Corpus.load("secret-candidates.txt");
+
+  @Benchmark
+  public void isKnownNonSecret(Blackhole blackhole) {
+    for (String candidate : candidates) {
+      blackhole.consume(SecretClassifier.isKnownNonSecret(candidate));
+    }
+  }
+
+  @Benchmark
+  public void shannonEntropy(Blackhole blackhole) {
+    for (String candidate : candidates) {
+      blackhole.consume(ShannonEntropy.calculate(candidate));
+    }
+  }
+
+  @Benchmark
+  public void humanLanguageScore(Blackhole blackhole) {
+    for (String candidate : candidates) {
+      blackhole.consume(HumanLanguageDetector.humanLanguageScore(candidate));
+    }
+  }
+}
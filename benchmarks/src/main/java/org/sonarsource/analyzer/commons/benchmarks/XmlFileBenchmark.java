@@ -0,0 +1,161 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import com.sonarsource.scanner.engine.sensor.test.fixtures.TestInputFileBuilder;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.xpath.XPathExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Creation of {@link XmlFile}, with its namespace aware DOM and the locations of all its nodes, and the operations of
+ * the checks on it, for each generated {@link XmlShape}. Each invocation processes all the files of the shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlFileBenchmark {
+
+  @Param({"DEEP_NESTING", "MANY_ATTRIBUTES", "LONG_TEXT", "LARGE_CDATA", "MANY_SMALL_FILES"})
+  public XmlShape shape;
+
+  private String[] contents;
+  private InputFile[] inputFiles;
+  private XmlFile[] xmlFiles;
+  private final XPathCheck check = new XPathCheck();
+
+  @Setup
+  public void setup() {
+    contents = shape.files();
+    inputFiles = new InputFile[contents.length];
+    xmlFiles = new XmlFile[contents.length];
+    for (int i = 0; i < contents.length; i++) {
+      inputFiles[i] = TestInputFileBuilder.create("module", "file" + i + ".xml")
+        .setModuleBaseDir(Path.of("."))
+        .setCharset(StandardCharsets.UTF_8)
+        .setContents(contents[i])
+        .build();
+      xmlFiles[i] = XmlFile.create(contents[i]);
+    }
+  }
+
+  @Benchmark
+  public void createFromString(Blackhole blackhole) {
+    for (String content : contents) {
+      blackhole.consume(XmlFile.create(content));
+    }
+  }
+
+  @Benchmark
+  public void createFromInputFile(Blackhole blackhole) throws IOException {
+    for (InputFile inputFile : inputFiles) {
+      blackhole.consume(XmlFile.create(inputFile));
+    }
+  }
+
+  /**
+   * The namespace unaware DOM is built on demand by parsing the file a second time.
+   */
+  @Benchmark
+  public void createWithNamespaceUnawareDocument(Blackhole blackhole) {
+    for (String content : contents) {
+      blackhole.consume(XmlFile.create(content).getNamespaceUnawareDocument());
+    }
+  }
+
+  /**
+   * Reads the locations of all the elements and attributes, as checks do to report issues.
+   */
+  @Benchmark
+  public void locations(Blackhole blackhole) {
+    for (XmlFile xmlFile : xmlFiles) {
+      visitLocations(xmlFile.getDocument().getDocumentElement(), blackhole);
+    }
+  }
+
+  private static void visitLocations(Element element, Blackhole blackhole) {
+    blackhole.consume(XmlFile.startLocation(element));
+    blackhole.consume(XmlFile.endLocation(element));
+    blackhole.consume(XmlFile.nameLocation(element));
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      blackhole.consume(XmlFile.attributeNameLocation(attribute));
+      blackhole.consume(XmlFile.attributeValueLocation(attribute));
+    }
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        visitLocations((Element) child, blackhole);
+      }
+    }
+  }
+
+  @Benchmark
+  public void evaluateXPath(Blackhole blackhole) {
+    for (XmlFile xmlFile : xmlFiles) {
+      check.scanFile(xmlFile);
+      blackhole.consume(check.results);
+    }
+  }
+
+  /**
+   * Evaluates the kind of expressions found in XPath based rules: on all elements, with a predicate on attributes, and
+   * relative to each node of a first result.
+   */
+  private static final class XPathCheck extends SimpleXPathBasedCheck {
+
+    private final XPathExpression allElements = getXPathExpression("//*");
+    private final XPathExpression elementsWithAttribute = getXPathExpression("//*[@id or @name]");
+    private final XPathExpression textChildren = getXPathExpression("text()[normalize-space(.) != '']");
+    private final List<Node> results = new ArrayList<>();
+
+    @Override
+    public void scanFile(XmlFile file) {
+      results.clear();
+      results.addAll(evaluateAsList(allElements, file.getDocument()));
+      for (Node node : evaluateAsList(elementsWithAttribute, file.getDocument())) {
+        results.addAll(evaluateAsList(textChildren, node));
+      }
+    }
+  }
+}
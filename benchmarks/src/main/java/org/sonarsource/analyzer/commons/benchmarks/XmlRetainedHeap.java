@@ -0,0 +1,75 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.lang.ref.Reference;
+import java.util.Locale;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+/**
+ * Prints the heap retained by an {@link XmlFile} of each generated {@link XmlShape}, once created and once its
+ * namespace unaware DOM is built too. JMH reports what is allocated per operation, not what stays reachable while the
+ * checks run on the file.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.sonarsource.analyzer.commons.benchmarks.XmlRetainedHeap
+ * </pre>
+ */
+public final class XmlRetainedHeap {
+
+  // enough files for the measure not to depend on the heap fluctuations
+  private static final int MIN_FILES = 500;
+  private static final int GC_RUNS = 5;
+
+  private XmlRetainedHeap() {
+  }
+
+  public static void main(String[] args) {
+    System.out.println(String.format(Locale.ROOT, "%-20s %12s %20s %30s", "shape", "chars/file", "retained bytes/file", "with namespace unaware DOM"));
+    for (XmlShape shape : XmlShape.values()) {
+      String[] contents = shape.files();
+      int count = ((MIN_FILES + contents.length - 1) / contents.length) * contents.length;
+      long chars = 0;
+      for (String content : contents) {
+        chars += content.length();
+      }
+      XmlFile[] xmlFiles = new XmlFile[count];
+
+      long initial = usedHeap();
+      for (int i = 0; i < count; i++) {
+        xmlFiles[i] = XmlFile.create(contents[i % contents.length]);
+      }
+      long created = usedHeap();
+      for (XmlFile xmlFile : xmlFiles) {
+        xmlFile.getNamespaceUnawareDocument();
+      }
+      long withNamespaceUnaware = usedHeap();
+      Reference.reachabilityFence(xmlFiles);
+
+      System.out.println(String.format(Locale.ROOT, "%-20s %12d %20d %30d", shape, chars / contents.length,
+        (created - initial) / count, (withNamespaceUnaware - initial) / count));
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < GC_RUNS; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
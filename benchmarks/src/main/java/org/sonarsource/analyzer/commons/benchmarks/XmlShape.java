@@ -0,0 +1,113 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.util.stream.IntStream;
+
+/**
+ * Generated XML files stressing the parsing and location tracking of the xml-parsing module in different ways. The
+ * files are generated deterministically and always start with an XML declaration.
+ */
+public enum XmlShape {
+  /** One file with a chain of 256 nested elements. */
+  DEEP_NESTING {
+    @Override
+    public String[] files() {
+      StringBuilder xml = new StringBuilder(XML_DECLARATION);
+      int depth = 256;
+      for (int i = 0; i < depth; i++) {
+        xml.append(indent(i)).append("<level depth=\"").append(i).append("\">\n");
+      }
+      xml.append(indent(depth)).append("<item id=\"leaf\">text</item>\n");
+      for (int i = depth - 1; i >= 0; i--) {
+        xml.append(indent(i)).append("</level>\n");
+      }
+      return new String[] {xml.toString()};
+    }
+  },
+  /** One file with 200 elements of 50 attributes each, some values spanning several lines. */
+  MANY_ATTRIBUTES {
+    @Override
+    public String[] files() {
+      StringBuilder xml = new StringBuilder(XML_DECLARATION).append("<items>\n");
+      for (int i = 0; i < 200; i++) {
+        xml.append("  <item id=\"item").append(i).append('"');
+        for (int j = 0; j < 50; j++) {
+          xml.append(j % 10 == 0 ? "\n    " : " ").append("a").append(j).append("='value ").append(i).append(' ').append(j);
+          xml.append(j % 25 == 0 ? "\n      continued'" : "'");
+        }
+        xml.append("/>\n");
+      }
+      return new String[] {xml.append("</items>\n").toString()};
+    }
+  },
+  /** One file with a single text node of 2000 lines, with entity and character references. */
+  LONG_TEXT {
+    @Override
+    public String[] files() {
+      StringBuilder xml = new StringBuilder(XML_DECLARATION).append("<description>\n");
+      IntStream.range(0, 2000).forEach(i -> xml.append("Line ").append(i).append(" of a long text &amp; some &lt;escaped&gt; markup &#x263A;\n"));
+      return new String[] {xml.append("</description>\n").toString()};
+    }
+  },
+  /** One file with a CDATA section of 2000 lines of script. */
+  LARGE_CDATA {
+    @Override
+    public String[] files() {
+      StringBuilder xml = new StringBuilder(XML_DECLARATION).append("<script><![CDATA[\n");
+      IntStream.range(0, 2000).forEach(i -> xml.append("  if (a < ").append(i).append(" && b > 0) { call(\"<tag>\", '&'); }\n"));
+      return new String[] {xml.append("]]></script>\n").toString()};
+    }
+  },
+  /** 100 files of about 20 lines, with namespaces, comments and a processing instruction, like small configuration files. */
+  MANY_SMALL_FILES {
+    @Override
+    public String[] files() {
+      return IntStream.range(0, 100)
+        .mapToObj(i -> XML_DECLARATION
+          + "<?xml-stylesheet type=\"text/xsl\" href=\"style.xsl\"?>\n"
+          + "<beans xmlns=\"http://www.springframework.org/schema/beans\"\n"
+          + "       xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+          + "       xsi:schemaLocation=\"http://www.springframework.org/schema/beans beans.xsd\">\n"
+          + "  <!-- configuration " + i + " -->\n"
+          + "  <bean id=\"dataSource" + i + "\" class=\"org.example.DataSource\">\n"
+          + "    <property name=\"url\" value=\"jdbc:h2:mem:db" + i + "\"/>\n"
+          + "    <property name=\"user\" value=\"sa\"/>\n"
+          + "    <property name=\"timeout\">\n"
+          + "      <value>" + (i * 10) + "</value>\n"
+          + "    </property>\n"
+          + "  </bean>\n"
+          + "  <bean id=\"service" + i + "\" class=\"org.example.Service\">\n"
+          + "    <constructor-arg ref=\"dataSource" + i + "\"/>\n"
+          + "    <property name=\"description\"><![CDATA[Service <" + i + ">]]></property>\n"
+          + "  </bean>\n"
+          + "</beans>\n")
+        .toArray(String[]::new);
+    }
+  };
+
+  private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+  /**
+   * Generates the files of this shape, their number depends on the shape.
+   */
+  public abstract String[] files();
+
+  private static String indent(int depth) {
+    return " ".repeat(depth % 16);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonarsource.analyzer.commons.benchmarks.XmlShape;
+
+/**
+ * The moves of {@link XmlFilePosition} done by the parser to compute the locations of the nodes, on the first file of
+ * each generated {@link XmlShape}. In this package because the class is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlFilePositionBenchmark {
+
+  @Param({"DEEP_NESTING", "MANY_ATTRIBUTES", "LONG_TEXT", "LARGE_CDATA", "MANY_SMALL_FILES"})
+  public XmlShape shape;
+
+  private String content;
+  private XmlFilePosition start;
+  // positions of all the '<' followed by a letter, as at the start of the elements
+  private XmlFilePosition[] startTags;
+
+  @Setup
+  public void setup() throws XMLStreamException {
+    content = shape.files()[0];
+    start = new XmlFilePosition(content);
+    List<XmlFilePosition> positions = new ArrayList<>();
+    XmlFilePosition position = start;
+    int offset = 0;
+    int next;
+    while ((next = nextStartTag(offset)) != -1) {
+      position = position.shift(next - offset);
+      positions.add(position);
+      offset = next;
+    }
+    startTags = positions.toArray(new XmlFilePosition[0]);
+  }
+
+  private int nextStartTag(int from) {
+    int index = content.indexOf('<', from + 1);
+    while (index != -1 && index + 1 < content.length() && !Character.isLetter(content.charAt(index + 1))) {
+      index = content.indexOf('<', index + 1);
+    }
+    return index;
+  }
+
+  /**
+   * Moving through the whole file one character at a time, as done to skip the text of the nodes.
+   */
+  @Benchmark
+  public XmlFilePosition shiftToEnd() throws XMLStreamException {
+    return start.shift(content.length());
+  }
+
+  @Benchmark
+  public void moveAfterClosingBracket(Blackhole blackhole) throws XMLStreamException {
+    for (XmlFilePosition startTag : startTags) {
+      blackhole.consume(startTag.moveAfterClosingBracket());
+    }
+  }
+
+  @Benchmark
+  public void moveBeforeNextEndTag(Blackhole blackhole) throws XMLStreamException {
+    for (XmlFilePosition startTag : startTags) {
+      blackhole.consume(startTag.moveBefore("</"));
+    }
+  }
+}
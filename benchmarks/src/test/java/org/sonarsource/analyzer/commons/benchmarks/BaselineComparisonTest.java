@@ -0,0 +1,89 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.benchmarks;
+
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BaselineComparisonTest {
+
+  private static String result(String benchmark, String mode, double score, double allocation) {
+    return """
+      {
+        "benchmark": "%s",
+        "mode": "%s",
+        "params": { "size": "10", "backend": "AVL_TREE" },
+        "primaryMetric": { "score": %s, "scoreError": 0.5, "scoreUnit": "ns/op" },
+        "secondaryMetrics": {
+          "gc.alloc.rate": { "score": 1234.0, "scoreUnit": "MB/sec" },
+          "gc.alloc.rate.norm": { "score": %s, "scoreUnit": "B/op" }
+        }
+      }
+      """.formatted(benchmark, mode, score, allocation);
+  }
+
+  private static BaselineComparison compare(String baseline, String current) {
+    return BaselineComparison.compare(new StringReader("[" + baseline + "]"), new StringReader("[" + current + "]"),
+      BaselineComparison.DEFAULT_THRESHOLD_PERCENT);
+  }
+
+  @Test
+  void no_regression() {
+    BaselineComparison comparison = compare(
+      result("a.B.get", "avgt", 100.0, 48.0) + "," + result("a.B.put", "thrpt", 10.0, 0.0),
+      result("a.B.get", "avgt", 105.0, 48.0) + "," + result("a.B.put", "thrpt", 12.0, 0.0));
+    assertThat(comparison.regressions()).isEmpty();
+    assertThat(comparison.lines()).hasSize(3);
+    assertThat(comparison.lines().get(1))
+      .startsWith("a.B.get backend=AVL_TREE size=10")
+      .contains("100.000", "105.000", "+5.0%", "48.0");
+  }
+
+  @Test
+  void slower_or_more_allocations() {
+    BaselineComparison comparison = compare(
+      result("a.B.get", "avgt", 100.0, 48.0) + "," + result("a.B.put", "thrpt", 10.0, 100.0),
+      result("a.B.get", "avgt", 120.0, 48.0) + "," + result("a.B.put", "thrpt", 10.0, 200.0));
+    assertThat(comparison.regressions()).containsExactly(
+      "a.B.get backend=AVL_TREE size=10: 20.0% slower (100.000 -> 120.000 ns/op)",
+      "a.B.put backend=AVL_TREE size=10: 100.0% more allocated (100.0 -> 200.0 B/op)");
+
+    comparison = compare(result("a.B.put", "thrpt", 10.0, 0.0), result("a.B.put", "thrpt", 8.0, 4.0));
+    assertThat(comparison.regressions()).containsExactly("a.B.put backend=AVL_TREE size=10: 20.0% slower (10.000 -> 8.000 ns/op)");
+  }
+
+  @Test
+  void new_and_removed_benchmarks() {
+    BaselineComparison comparison = compare(result("a.B.old", "avgt", 1.0, 0.0), result("a.B.new", "avgt", 1.0, 0.0));
+    assertThat(comparison.regressions()).isEmpty();
+    assertThat(comparison.lines()).hasSize(3);
+    assertThat(comparison.lines().get(1)).startsWith("a.B.new").endsWith("new");
+    assertThat(comparison.lines().get(2)).startsWith("a.B.old").endsWith("removed");
+  }
+
+  @Test
+  void without_gc_profiler() {
+    String baseline = "[{\"benchmark\": \"a.B.get\", \"mode\": \"avgt\", \"primaryMetric\": {\"score\": 1.0, \"scoreUnit\": \"ns/op\"}}]";
+    String current = "[{\"benchmark\": \"a.B.get\", \"mode\": \"avgt\", \"primaryMetric\": {\"score\": 1.0, \"scoreUnit\": \"ns/op\"}, "
+      + "\"secondaryMetrics\": {\"·gc.alloc.rate.norm\": {\"score\": 1000.0, \"scoreUnit\": \"B/op\"}}}]";
+    BaselineComparison comparison = BaselineComparison.compare(new StringReader(baseline), new StringReader(current), 10.0);
+    assertThat(comparison.regressions()).isEmpty();
+    assertThat(comparison.lines().get(1)).startsWith("a.B.get ").endsWith("+0.0%");
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Progress report of an analysis where files are analyzed concurrently by several worker threads.
+ * <p>
+ * Contrary to {@link ProgressReport}, which follows a single current file, worker threads call
+ * {@link #fileStarted(String, long)} and {@link #fileFinished(String)} without sharing a global lock: they only lock
+ * the bin of the file in a {@link ConcurrentHashMap}, and update {@link LongAdder} counters. Every period, the
+ * report logs the number of analyzed files, the throughput over the last period (files/s and bytes/s), the estimated
+ * remaining time, and the in-flight files that have been analyzed for the longest time, to spot stuck files.
+ * <p>
+ * Files are identified by their name: the same name should not be in flight twice at the same time.
+ */
+public class ConcurrentProgressReport implements Runnable {
+
+  static final int DEFAULT_SLOWEST_FILES = 3;
+
+  private final long period;
+  private final Logger logger;
+  private final String adjective;
+  private final int slowestFiles;
+  private final LongSupplier nanoClock;
+  private final Thread thread;
+
+  private final LongAdder finishedFiles = new LongAdder();
+  private final LongAdder finishedBytes = new LongAdder();
+  private final Map<String, InFlightFile> inFlightFiles = new ConcurrentHashMap<>();
+
+  private volatile long count;
+  private volatile long startNanos;
+  private volatile boolean success = false;
+  // See ProgressReport#interrupted
+  private final AtomicBoolean interrupted = new AtomicBoolean();
+
+  // only accessed by the report thread
+  private long lastReportNanos;
+  private long lastFinishedFiles;
+  private long lastFinishedBytes;
+
+  public ConcurrentProgressReport(String threadName, long period, Logger logger, String adjective) {
+    this(threadName, period, logger, adjective, DEFAULT_SLOWEST_FILES, System::nanoTime);
+  }
+
+  public ConcurrentProgressReport(String threadName, long period, String adjective) {
+    this(threadName, period, LoggerFactory.getLogger(ConcurrentProgressReport.class), adjective);
+  }
+
+  public ConcurrentProgressReport(String threadName, long period) {
+    this(threadName, period, "analyzed");
+  }
+
+  ConcurrentProgressReport(String threadName, long period, Logger logger, String adjective, int slowestFiles, LongSupplier nanoClock) {
+    this.period = period;
+    this.logger = logger;
+    this.adjective = adjective;
+    this.slowestFiles = slowestFiles;
+    this.nanoClock = nanoClock;
+    thread = new Thread(this);
+    thread.setName(threadName);
+    thread.setDaemon(true);
+  }
+
+  @Override
+  public void run() {
+    log(count + " source " + pluralizeFile(count) + " to be " + adjective);
+    while (!(interrupted.get() || Thread.currentThread().isInterrupted())) {
+      try {
+        Thread.sleep(period);
+        log(progressMessage());
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+        thread.interrupt();
+        break;
+      }
+    }
+    if (success) {
+      log(count + "/" + count + " source " + pluralizeFile(count) + " " + pluralizeHas(count) + " been " + adjective);
+    }
+  }
+
+  public synchronized void start(long fileCount) {
+    initialize(fileCount);
+    thread.start();
+  }
+
+  /**
+   * Can be called concurrently by the worker threads.
+   */
+  public void fileStarted(String filename, long sizeInBytes) {
+    inFlightFiles.put(filename, new InFlightFile(filename, nanoClock.getAsLong(), sizeInBytes));
+  }
+
+  /**
+   * Can be called concurrently by the worker threads.
+   */
+  public void fileFinished(String filename) {
+    InFlightFile file = inFlightFiles.remove(filename);
+    if (file != null) {
+      finishedBytes.add(file.sizeInBytes());
+    }
+    finishedFiles.increment();
+  }
+
+  public synchronized void stop() {
+    interrupted.set(true);
+    success = true;
+    thread.interrupt();
+    join();
+  }
+
+  public synchronized void cancel() {
+    interrupted.set(true);
+    thread.interrupt();
+    join();
+  }
+
+  private void join() {
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  void initialize(long fileCount) {
+    count = fileCount;
+    long nanos = nanoClock.getAsLong();
+    startNanos = nanos;
+    lastReportNanos = nanos;
+    lastFinishedFiles = finishedFiles.sum();
+    lastFinishedBytes = finishedBytes.sum();
+  }
+
+  /**
+   * Builds the message of the current period, e.g.
+   * "42/100 files analyzed, 3.5 files/s, 120.4 KB/s, ETA 16s, 4 in progress, slowest: a.js (1m05s), b.js (12s), c.js (2s)"
+   */
+  String progressMessage() {
+    long now = nanoClock.getAsLong();
+    long files = finishedFiles.sum();
+    long bytes = finishedBytes.sum();
+    double periodSeconds = seconds(now - lastReportNanos);
+
+    StringBuilder message = new StringBuilder()
+      .append(files).append('/').append(count).append(' ').append(pluralizeFile(files)).append(' ').append(adjective)
+      .append(", ").append(formatRate(files - lastFinishedFiles, periodSeconds)).append(" files/s")
+      .append(", ").append(formatBytesRate(bytes - lastFinishedBytes, periodSeconds))
+      .append(", ETA ").append(eta(files, now));
+
+    List<InFlightFile> inFlight = new ArrayList<>(inFlightFiles.values());
+    message.append(", ").append(inFlight.size()).append(" in progress");
+    if (!inFlight.isEmpty() && slowestFiles > 0) {
+      inFlight.sort(Comparator.comparingLong(InFlightFile::startNanos));
+      message.append(", slowest: ");
+      for (int i = 0; i < Math.min(slowestFiles, inFlight.size()); i++) {
+        InFlightFile file = inFlight.get(i);
+        message.append(i == 0 ? "" : ", ").append(file.filename()).append(" (").append(formatDuration(now - file.startNanos())).append(')');
+      }
+    }
+
+    lastReportNanos = now;
+    lastFinishedFiles = files;
+    lastFinishedBytes = bytes;
+    return message.toString();
+  }
+
+  /**
+   * Remaining time at the average throughput since the start, steadier than the throughput of the last period.
+   */
+  private String eta(long files, long now) {
+    long remainingFiles = count - files;
+    if (remainingFiles <= 0) {
+      return "0s";
+    }
+    long elapsedNanos = now - startNanos;
+    if (files == 0 || elapsedNanos <= 0) {
+      return "unknown";
+    }
+    return formatDuration((long) ((double) elapsedNanos / files * remainingFiles));
+  }
+
+  private static double seconds(long nanos) {
+    return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+  }
+
+  private static String formatRate(long amount, double seconds) {
+    double rate = seconds <= 0 ? 0 : (amount / seconds);
+    return String.format(Locale.ROOT, "%.1f", rate);
+  }
+
+  static String formatBytesRate(long bytes, double seconds) {
+    double rate = seconds <= 0 ? 0 : (bytes / seconds);
+    if (rate < 1024) {
+      return String.format(Locale.ROOT, "%.0f B/s", rate);
+    } else if (rate < 1024 * 1024) {
+      return String.format(Locale.ROOT, "%.1f KB/s", rate / 1024);
+    }
+    return String.format(Locale.ROOT, "%.1f MB/s", rate / (1024 * 1024));
+  }
+
+  static String formatDuration(long nanos) {
+    long totalSeconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+    long hours = totalSeconds / 3600;
+    long minutes = (totalSeconds % 3600) / 60;
+    long seconds = totalSeconds % 60;
+    if (hours > 0) {
+      return String.format(Locale.ROOT, "%dh%02dm", hours, minutes);
+    } else if (minutes > 0) {
+      return String.format(Locale.ROOT, "%dm%02ds", minutes, seconds);
+    }
+    return seconds + "s";
+  }
+
+  private static String pluralizeFile(long count) {
+    if (count == 1L) {
+      return "file";
+    }
+    return "files";
+  }
+
+  private static String pluralizeHas(long count) {
+    if (count == 1L) {
+      return "has";
+    }
+    return "have";
+  }
+
+  private void log(String message) {
+    synchronized (logger) {
+      logger.info(message);
+      logger.notifyAll();
+    }
+  }
+
+  private record InFlightFile(String filename, long startNanos, long sizeInBytes) {
+  }
+
+}
@@ -42,12 +42,20 @@ public class EntropyDetector {
   }
 
   public boolean hasEnoughEntropy(String literal) {
+    return ShannonEntropy.calculate(literal) >= minEntropyThreshold(literal.length());
+  }
+
+  /**
+   * Minimum entropy a literal of the given length should have, for callers computing the entropy themselves,
+   * see {@link ShannonEntropy.Histogram}.
+   */
+  public double minEntropyThreshold(int literalLength) {
     double effectiveMinEntropyThreshold = minEntropyThreshold;
-    if (literal.length() < minimumSecretLengthForGivenEntropy) {
-      int missingCharacterCount = minimumSecretLengthForGivenEntropy - literal.length();
+    if (literalLength < minimumSecretLengthForGivenEntropy) {
+      int missingCharacterCount = minimumSecretLengthForGivenEntropy - literalLength;
       // increase the entropy threshold constraint when there's not enough characters
       effectiveMinEntropyThreshold *= Math.pow(entropyIncreaseFactorByMissingCharacter, missingCharacterCount);
     }
-    return ShannonEntropy.calculate(literal) >= effectiveMinEntropyThreshold;
+    return effectiveMinEntropyThreshold;
   }
 }
@@ -0,0 +1,212 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.issue.NewExternalIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+
+/**
+ * Imports the issues of external reports without loading them in memory: the reports are streamed record by record,
+ * see {@link JsonRecordReader} and {@link XmlRecordReader}, and the records are mapped to issues by the analyzer.
+ * Type, severity and remediation effort of the issues come from the {@link ExternalRuleLoader} of the linter.
+ * <pre>{@code
+ * ExternalReportImporter.xml("error", error -> new ExternalReportIssue(
+ *     error.attribute("source"), error.parent().attribute("name"), Integer.valueOf(error.attribute("line")), error.attribute("message")))
+ *   .importReports(context, "sonar.mylang.checkstyle.reportPaths", ruleLoader);
+ * }</pre>
+ *
+ * <p>Reports are parsed in parallel, while issues are saved from the calling thread, in the order of each report. At most
+ * {@value #MAX_PENDING_ISSUES} issues wait to be saved, so memory stays bounded whatever the size of the reports. A
+ * report which can't be read is logged and skipped.
+ */
+public final class ExternalReportImporter<R> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExternalReportImporter.class);
+
+  static final int MAX_PENDING_ISSUES = 1_024;
+  private static final int MAX_PARSING_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  private final RecordParser<R> parser;
+  private final Function<R, ExternalReportIssue> mapper;
+
+  @FunctionalInterface
+  private interface RecordParser<R> {
+    void parse(InputStream input, Consumer<R> consumer) throws IOException;
+  }
+
+  /**
+   * A parsed issue, the failure of a report, or the end of a report when both are null.
+   */
+  private record ReportEvent(File report, @Nullable ExternalReportIssue issue, @Nullable Throwable failure) {
+  }
+
+  private ExternalReportImporter(RecordParser<R> parser, Function<R, ExternalReportIssue> mapper) {
+    this.parser = parser;
+    this.mapper = mapper;
+  }
+
+  /**
+   * Imports UTF-8 JSON reports, see {@link JsonRecordReader} for the record path. The mapper returns null to ignore a
+   * record.
+   */
+  public static ExternalReportImporter<Map<String, Object>> json(String recordPath, Function<Map<String, Object>, ExternalReportIssue> mapper) {
+    return new ExternalReportImporter<>(
+      (input, consumer) -> JsonRecordReader.read(new InputStreamReader(input, StandardCharsets.UTF_8), recordPath, consumer),
+      mapper);
+  }
+
+  /**
+   * Imports XML reports, see {@link XmlRecordReader} for the records. The mapper returns null to ignore a record.
+   */
+  public static ExternalReportImporter<XmlRecordReader.Element> xml(String recordName, Function<XmlRecordReader.Element, ExternalReportIssue> mapper) {
+    return new ExternalReportImporter<>((input, consumer) -> XmlRecordReader.read(input, recordName, consumer), mapper);
+  }
+
+  /**
+   * Imports the reports of the property, see {@link ExternalReportProvider#getReportFiles}.
+   */
+  public void importReports(SensorContext context, String externalReportsProperty, ExternalRuleLoader ruleLoader) {
+    importReports(context, ExternalReportProvider.getReportFiles(context, externalReportsProperty), ruleLoader);
+  }
+
+  public void importReports(SensorContext context, List<File> reports, ExternalRuleLoader ruleLoader) {
+    if (reports.isEmpty()) {
+      return;
+    }
+    BlockingQueue<ReportEvent> events = new ArrayBlockingQueue<>(MAX_PENDING_ISSUES);
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(reports.size(), MAX_PARSING_THREADS), runnable -> {
+      Thread thread = new Thread(runnable, "external-report-importer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      for (File report : reports) {
+        executor.execute(() -> parse(report, events));
+      }
+      saveIssues(context, ruleLoader, events, reports.size());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void parse(File report, BlockingQueue<ReportEvent> events) {
+    try {
+      put(events, new ReportEvent(report, null, readReport(report, events)));
+    } catch (CancellationException e) {
+      // the import was interrupted
+    }
+  }
+
+  /**
+   * Queues the issues of the report, returns the failure which stopped the reading, if any.
+   */
+  @SuppressWarnings("java:S1181")
+  @Nullable
+  private Throwable readReport(File report, BlockingQueue<ReportEvent> events) {
+    try (InputStream input = new BufferedInputStream(Files.newInputStream(report.toPath()))) {
+      parser.parse(input, item -> {
+        ExternalReportIssue issue = mapper.apply(item);
+        if (issue != null) {
+          put(events, new ReportEvent(report, issue, null));
+        }
+      });
+      return null;
+    } catch (CancellationException e) {
+      throw e;
+    } catch (Throwable e) {
+      // errors of the parser or of the mapper too, e.g. StackOverflowError: the end of the report has to be queued, or
+      // the import would wait for it forever
+      return e;
+    }
+  }
+
+  private static void put(BlockingQueue<ReportEvent> events, ReportEvent event) {
+    try {
+      events.put(event);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("External report import interrupted");
+    }
+  }
+
+  private static void saveIssues(SensorContext context, ExternalRuleLoader ruleLoader, BlockingQueue<ReportEvent> events, int reportCount)
+    throws InterruptedException {
+    int remainingReports = reportCount;
+    while (remainingReports > 0) {
+      ReportEvent event = events.take();
+      if (event.issue() != null) {
+        saveIssue(context, ruleLoader, event.report(), event.issue());
+      } else {
+        remainingReports--;
+        if (event.failure() != null) {
+          LOG.error("Failed to import external issues report: {}", event.report().getAbsolutePath(), event.failure());
+        }
+      }
+    }
+  }
+
+  private static void saveIssue(SensorContext context, ExternalRuleLoader ruleLoader, File report, ExternalReportIssue issue) {
+    FileSystem fileSystem = context.fileSystem();
+    InputFile inputFile = fileSystem.inputFile(fileSystem.predicates().hasPath(issue.filePath()));
+    if (inputFile == null) {
+      LOG.debug("No input file found for {}. No {} issue will be imported from {}.", issue.filePath(), ruleLoader.linterKey(), report);
+      return;
+    }
+    NewExternalIssue newIssue = context.newExternalIssue()
+      .engineId(ruleLoader.linterKey())
+      .ruleId(issue.ruleKey())
+      .type(ruleLoader.ruleType(issue.ruleKey()))
+      .severity(ruleLoader.ruleSeverity(issue.ruleKey()))
+      .remediationEffortMinutes(ruleLoader.ruleConstantDebtMinutes(issue.ruleKey()));
+    NewIssueLocation location = newIssue.newLocation()
+      .on(inputFile)
+      .message(issue.message());
+    if (issue.line() != null) {
+      try {
+        location.at(inputFile.selectLine(issue.line()));
+      } catch (IllegalArgumentException e) {
+        LOG.debug("Invalid line {} in {}. No {} issue will be imported on it from {}.", issue.line(), issue.filePath(), ruleLoader.linterKey(), report);
+        return;
+      }
+    }
+    newIssue.at(location).save();
+  }
+}
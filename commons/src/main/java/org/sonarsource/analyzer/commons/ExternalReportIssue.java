@@ -0,0 +1,29 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import javax.annotation.Nullable;
+
+/**
+ * An issue of an external report, see {@link ExternalReportImporter}.
+ *
+ * @param ruleKey key of the rule in the {@link ExternalRuleLoader} of the linter
+ * @param filePath path of the file, absolute or relative to the base directory
+ * @param line 1-based line of the issue, or null for an issue on the whole file
+ */
+public record ExternalReportIssue(String ruleKey, String filePath, @Nullable Integer line, String message) {
+}
@@ -16,10 +16,6 @@
  */
 package org.sonarsource.analyzer.commons;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -27,8 +23,6 @@ import java.util.Map;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.batch.rule.Severity;
 import org.sonar.api.issue.impact.SoftwareQuality;
@@ -50,6 +44,7 @@ import org.sonar.api.utils.Version;
  * <li>severity (as in SQ API, e.g. "MAJOR")</li>
  * <li>type (as in SQ API, e.g. "BUG")</li>
  * </ul>
+ * The file is read by {@link ExternalRuleMetadataReader}, which also describes how to pre-compile it.
  */
 public class ExternalRuleLoader {
 
@@ -89,6 +84,10 @@ public class ExternalRuleLoader {
     loadMetadataFile(pathToMetadata);
   }
 
+  String linterKey() {
+    return linterKey;
+  }
+
   public boolean isCleanCodeImpactsAndAttributesSupported() {
     return isCleanCodeImpactsAndAttributesSupported;
   }
@@ -105,7 +104,7 @@ public class ExternalRuleLoader {
       rule.applyCodeAttributeAndImpact(newRule);
 
       if (rule.tags != null) {
-        newRule.setTags(rule.tags);
+        newRule.setTags(rule.tags.toArray(new String[0]));
       }
     }
 
@@ -144,19 +143,11 @@ public class ExternalRuleLoader {
   }
 
   private void loadMetadataFile(String pathToMetadata) {
-    InputStream inputStream = ExternalRuleLoader.class.getClassLoader().getResourceAsStream(pathToMetadata);
-    try (InputStreamReader inputStreamReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
-
-      List<Map<String, Object>> rules = new JsonParser().parseArray(inputStreamReader);
-      for (Map<String, Object> rule : rules) {
-        ExternalRule externalRule = isCleanCodeImpactsAndAttributesSupported ?
-          new ExternalRuleWithCodeAttribute(rule) : new ExternalRule(rule);
-        rulesMap.put(externalRule.key, externalRule);
-      }
-
-    } catch (IOException e) {
-      throw new IllegalStateException("Can't read resource: " + pathToMetadata, e);
-    }
+    ExternalRuleMetadataReader.read(pathToMetadata, rule -> {
+      ExternalRule externalRule = isCleanCodeImpactsAndAttributesSupported ?
+        new ExternalRuleWithCodeAttribute(rule) : new ExternalRule(rule);
+      rulesMap.put(externalRule.key, externalRule);
+    });
   }
 
   private static class ExternalRule {
@@ -172,22 +163,17 @@ public class ExternalRuleLoader {
     final String description;
 
     @CheckForNull
-    final String[] tags;
+    final List<String> tags;
 
     final Long constantDebtMinutes;
 
-    public ExternalRule(Map<String, Object> rule) {
-      this.key = (String) rule.get("key");
-      this.name = (String) rule.get("name");
-      this.url = (String) rule.get("url");
-      this.description = (String) rule.get("description");
-      this.constantDebtMinutes = (Long) rule.getOrDefault("constantDebtMinutes", DEFAULT_CONSTANT_DEBT_MINUTES);
-      JSONArray tagsAsList = (JSONArray) rule.get("tags");
-      if (tagsAsList != null) {
-        this.tags = (String[]) tagsAsList.toArray(new String[tagsAsList.size()]);
-      } else {
-        this.tags = null;
-      }
+    public ExternalRule(ExternalRuleMetadata rule) {
+      this.key = rule.key();
+      this.name = rule.name();
+      this.url = rule.url();
+      this.description = rule.description();
+      this.constantDebtMinutes = rule.constantDebtMinutes() != null ? rule.constantDebtMinutes() : DEFAULT_CONSTANT_DEBT_MINUTES;
+      this.tags = rule.tags();
       type = getType(rule);
       severity = getSeverity(rule);
     }
@@ -196,8 +182,8 @@ public class ExternalRuleLoader {
       // only supported by ExternalRuleWithCodeAttribute
     }
 
-    private static RuleType getType(Map<String, Object> rule) {
-      String strType = (String) rule.get("type");
+    private static RuleType getType(ExternalRuleMetadata rule) {
+      String strType = rule.type();
       if (strType != null) {
         return RuleType.valueOf(strType);
       } else {
@@ -205,8 +191,8 @@ public class ExternalRuleLoader {
       }
     }
 
-    private static Severity getSeverity(Map<String, Object> rule) {
-      String strSeverity = (String) rule.get("severity");
+    private static Severity getSeverity(ExternalRuleMetadata rule) {
+      String strSeverity = rule.severity();
       if (strSeverity != null) {
         return Severity.valueOf(strSeverity);
       } else {
@@ -239,7 +225,7 @@ public class ExternalRuleLoader {
     @CheckForNull
     final Map<SoftwareQuality, org.sonar.api.issue.impact.Severity> codeImpacts;
 
-    public ExternalRuleWithCodeAttribute(Map<String, Object> rule) {
+    public ExternalRuleWithCodeAttribute(ExternalRuleMetadata rule) {
       super(rule);
       codeAttribute = getCodeAttribute(rule);
       codeImpacts = getCodeImpacts(rule);
@@ -254,29 +240,20 @@ public class ExternalRuleLoader {
     }
 
     @Nullable
-    private static CleanCodeAttribute getCodeAttribute(Map<String, Object> rule) {
-      JSONObject code = (JSONObject) rule.get("code");
-      if (code != null) {
-        String attribute = (String) code.get("attribute");
-        if (attribute != null) {
-          return CleanCodeAttribute.valueOf(attribute);
-        }
-      }
-      return null;
+    private static CleanCodeAttribute getCodeAttribute(ExternalRuleMetadata rule) {
+      String attribute = rule.codeAttribute();
+      return attribute != null ? CleanCodeAttribute.valueOf(attribute) : null;
     }
 
     @Nullable
-    private static Map<SoftwareQuality, org.sonar.api.issue.impact.Severity> getCodeImpacts(Map<String, Object> rule) {
-      JSONObject code = (JSONObject) rule.get("code");
-      if (code != null) {
-        JSONObject impacts = (JSONObject) code.get("impacts");
-        if (impacts != null) {
-          Map<SoftwareQuality, org.sonar.api.issue.impact.Severity> map = new LinkedHashMap<>();
-          impacts.forEach(
-            (k, v) -> map.put(SoftwareQuality.valueOf((String) k),
-              org.sonar.api.issue.impact.Severity.valueOf((String) v)));
-          return map;
-        }
+    private static Map<SoftwareQuality, org.sonar.api.issue.impact.Severity> getCodeImpacts(ExternalRuleMetadata rule) {
+      Map<String, String> impacts = rule.codeImpacts();
+      if (impacts != null) {
+        Map<SoftwareQuality, org.sonar.api.issue.impact.Severity> map = new LinkedHashMap<>();
+        impacts.forEach(
+          (k, v) -> map.put(SoftwareQuality.valueOf(k),
+            org.sonar.api.issue.impact.Severity.valueOf(v)));
+        return map;
       }
       return null;
     }
@@ -0,0 +1,72 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The properties of an external rule as written in the metadata file of an {@link ExternalRuleLoader}, before they are
+ * converted to the plugin API types. Missing properties are null.
+ */
+record ExternalRuleMetadata(
+  @Nullable String key,
+  @Nullable String name,
+  @Nullable String url,
+  @Nullable String description,
+  @Nullable Long constantDebtMinutes,
+  @Nullable List<String> tags,
+  @Nullable String type,
+  @Nullable String severity,
+  @Nullable String codeAttribute,
+  @Nullable Map<String, String> codeImpacts) {
+
+  /**
+   * Reads the properties of a parsed JSON rule object.
+   *
+   * @throws ClassCastException when a property does not have the expected JSON type
+   */
+  static ExternalRuleMetadata of(Map<String, Object> rule) {
+    Map<String, Object> code = (Map<String, Object>) rule.get("code");
+    return new ExternalRuleMetadata(
+      (String) rule.get("key"),
+      (String) rule.get("name"),
+      (String) rule.get("url"),
+      (String) rule.get("description"),
+      (Long) rule.get("constantDebtMinutes"),
+      stringList(rule.get("tags")),
+      (String) rule.get("type"),
+      (String) rule.get("severity"),
+      code == null ? null : (String) code.get("attribute"),
+      code == null ? null : (Map<String, String>) code.get("impacts"));
+  }
+
+  @Nullable
+  private static List<String> stringList(@Nullable Object value) {
+    if (value == null) {
+      return null;
+    }
+    List<?> list = (List<?>) value;
+    List<String> strings = new ArrayList<>(list.size());
+    for (Object element : list) {
+      strings.add((String) element);
+    }
+    return strings;
+  }
+}
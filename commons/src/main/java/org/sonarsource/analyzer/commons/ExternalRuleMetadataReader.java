@@ -0,0 +1,374 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Reads the metadata file of an {@link ExternalRuleLoader}, one rule at a time: the JSON array is streamed, so only the
+ * rule being read is held as parsed JSON. Equal strings and tag lists are shared between the rules, external linters
+ * repeat the same few types, severities and tags over thousands of rules.
+ *
+ * <p>The metadata file can also be pre-compiled at build time by {@link #main(String[])}, next to the JSON file and with
+ * the same name followed by {@value #COMPILED_SUFFIX}, e.g. with the exec-maven-plugin once the resources are copied:
+ * <pre>{@code
+ * <execution>
+ *   <id>compile-eslint-rules</id>
+ *   <phase>process-classes</phase>
+ *   <goals>
+ *     <goal>java</goal>
+ *   </goals>
+ *   <configuration>
+ *     <mainClass>org.sonarsource.analyzer.commons.ExternalRuleMetadataReader</mainClass>
+ *     <arguments>
+ *       <argument>${project.build.outputDirectory}/org/sonar/l10n/javascript/rules/eslint/rules.json</argument>
+ *     </arguments>
+ *   </configuration>
+ * </execution>
+ * }</pre>
+ * When present, the compiled file is read instead of the JSON one: it starts with a table of the distinct strings, each
+ * decoded once, followed by the rules referring to them by index.
+ */
+public final class ExternalRuleMetadataReader {
+
+  public static final String COMPILED_SUFFIX = ".bin";
+
+  private static final int MAGIC = 0x45524d31;
+  private static final int NULL_INDEX = -1;
+
+  private ExternalRuleMetadataReader() {
+    // utility
+  }
+
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      throw new IllegalArgumentException("Usage: ExternalRuleMetadataReader <metadata-file> [<output-file>]");
+    }
+    Path metadataFile = Paths.get(args[0]).toAbsolutePath();
+    Path output = args.length > 1 ? Paths.get(args[1]).toAbsolutePath() : Paths.get(metadataFile + COMPILED_SUFFIX);
+    try (Reader reader = Files.newBufferedReader(metadataFile, StandardCharsets.UTF_8)) {
+      byte[] compiled = compile(reader);
+      Files.createDirectories(output.getParent());
+      Files.write(output, compiled);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the rules of the class path resource, from its compiled form when there is one.
+   */
+  static void read(String pathToMetadata, Consumer<ExternalRuleMetadata> consumer) {
+    ClassLoader classLoader = ExternalRuleMetadataReader.class.getClassLoader();
+    String compiledPath = pathToMetadata + COMPILED_SUFFIX;
+    try (InputStream compiled = classLoader.getResourceAsStream(compiledPath)) {
+      if (compiled != null) {
+        readCompiled(ByteBuffer.wrap(compiled.readAllBytes()), consumer);
+        return;
+      }
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalStateException("Can't read resource: " + compiledPath, e);
+    }
+    try (InputStream json = classLoader.getResourceAsStream(pathToMetadata)) {
+      if (json == null) {
+        throw new IOException("Resource not found in the classpath: " + pathToMetadata);
+      }
+      readJson(new InputStreamReader(json, StandardCharsets.UTF_8), consumer);
+    } catch (IOException e) {
+      throw new IllegalStateException("Can't read resource: " + pathToMetadata, e);
+    }
+  }
+
+  /**
+   * Streams the rules of a JSON array of rule objects to the consumer, in order.
+   *
+   * @throws IllegalArgumentException when the JSON is invalid or is not an array of objects
+   */
+  static void readJson(Reader reader, Consumer<ExternalRuleMetadata> consumer) throws IOException {
+    try {
+      new JSONParser().parse(reader, new RuleHandler(consumer, new Interner()));
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("Could not parse JSON", e);
+    }
+  }
+
+  static byte[] compile(Reader reader) throws IOException {
+    List<ExternalRuleMetadata> rules = new ArrayList<>();
+    readJson(reader, rules::add);
+    StringTable strings = new StringTable();
+    ByteArrayOutputStream ruleBytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(ruleBytes)) {
+      out.writeInt(rules.size());
+      for (ExternalRuleMetadata rule : rules) {
+        writeRule(out, strings, rule);
+      }
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(strings.values.size());
+      for (String value : strings.values) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+      }
+      ruleBytes.writeTo(out);
+    }
+    return bytes.toByteArray();
+  }
+
+  static void readCompiled(ByteBuffer in, Consumer<ExternalRuleMetadata> consumer) {
+    int magic = in.getInt();
+    if (magic != MAGIC) {
+      throw new IllegalStateException("Not compiled external rule metadata");
+    }
+    String[] strings = new String[in.getInt()];
+    for (int i = 0; i < strings.length; i++) {
+      byte[] utf8 = new byte[in.getInt()];
+      in.get(utf8);
+      strings[i] = new String(utf8, StandardCharsets.UTF_8);
+    }
+    Interner interner = new Interner();
+    int ruleCount = in.getInt();
+    for (int i = 0; i < ruleCount; i++) {
+      consumer.accept(readRule(in, strings, interner));
+    }
+  }
+
+  private static void writeRule(DataOutputStream out, StringTable strings, ExternalRuleMetadata rule) throws IOException {
+    out.writeInt(strings.indexOf(rule.key()));
+    out.writeInt(strings.indexOf(rule.name()));
+    out.writeInt(strings.indexOf(rule.url()));
+    out.writeInt(strings.indexOf(rule.description()));
+    out.writeBoolean(rule.constantDebtMinutes() != null);
+    if (rule.constantDebtMinutes() != null) {
+      out.writeLong(rule.constantDebtMinutes());
+    }
+    List<String> tags = rule.tags();
+    out.writeInt(tags == null ? NULL_INDEX : tags.size());
+    if (tags != null) {
+      for (String tag : tags) {
+        out.writeInt(strings.indexOf(tag));
+      }
+    }
+    out.writeInt(strings.indexOf(rule.type()));
+    out.writeInt(strings.indexOf(rule.severity()));
+    out.writeInt(strings.indexOf(rule.codeAttribute()));
+    Map<String, String> impacts = rule.codeImpacts();
+    out.writeInt(impacts == null ? NULL_INDEX : impacts.size());
+    if (impacts != null) {
+      for (Map.Entry<String, String> impact : impacts.entrySet()) {
+        out.writeInt(strings.indexOf(impact.getKey()));
+        out.writeInt(strings.indexOf(impact.getValue()));
+      }
+    }
+  }
+
+  private static ExternalRuleMetadata readRule(ByteBuffer in, String[] strings, Interner interner) {
+    String key = string(in, strings);
+    String name = string(in, strings);
+    String url = string(in, strings);
+    String description = string(in, strings);
+    Long constantDebtMinutes = in.get() != 0 ? in.getLong() : null;
+    List<String> tags = null;
+    int tagCount = in.getInt();
+    if (tagCount != NULL_INDEX) {
+      List<String> tagList = new ArrayList<>(tagCount);
+      for (int i = 0; i < tagCount; i++) {
+        tagList.add(string(in, strings));
+      }
+      tags = interner.internList(tagList);
+    }
+    String type = string(in, strings);
+    String severity = string(in, strings);
+    String codeAttribute = string(in, strings);
+    Map<String, String> impacts = null;
+    int impactCount = in.getInt();
+    if (impactCount != NULL_INDEX) {
+      impacts = new LinkedHashMap<>();
+      for (int i = 0; i < impactCount; i++) {
+        impacts.put(string(in, strings), string(in, strings));
+      }
+    }
+    return new ExternalRuleMetadata(key, name, url, description, constantDebtMinutes, tags, type, severity, codeAttribute, impacts);
+  }
+
+  @CheckForNull
+  private static String string(ByteBuffer in, String[] strings) {
+    int index = in.getInt();
+    return index == NULL_INDEX ? null : strings[index];
+  }
+
+  private static final class StringTable {
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    int indexOf(@Nullable String value) {
+      if (value == null) {
+        return NULL_INDEX;
+      }
+      return indexes.computeIfAbsent(value, v -> {
+        values.add(v);
+        return values.size() - 1;
+      });
+    }
+  }
+
+  /**
+   * Shares equal values read from the same file.
+   */
+  private static final class Interner {
+    private final Map<Object, Object> values = new HashMap<>();
+
+    <T> T intern(T value) {
+      return (T) values.computeIfAbsent(value, v -> v);
+    }
+
+    /**
+     * Interns immutable copies of the lists of strings, other lists are returned as they are.
+     */
+    <T> List<T> internList(List<T> list) {
+      for (Object element : list) {
+        if (!(element instanceof String)) {
+          return list;
+        }
+      }
+      return intern(List.copyOf(list));
+    }
+  }
+
+  /**
+   * Builds the JSON values of the rules from the parser events, and hands every rule to the consumer as soon as it is
+   * complete.
+   */
+  private static final class RuleHandler implements ContentHandler {
+
+    // marks the top level array, whose elements are not kept
+    private static final Object RULES = new Object();
+
+    private final Consumer<ExternalRuleMetadata> consumer;
+    private final Interner interner;
+    private final Deque<Object> containers = new ArrayDeque<>();
+    private final Deque<String> keys = new ArrayDeque<>();
+
+    RuleHandler(Consumer<ExternalRuleMetadata> consumer, Interner interner) {
+      this.consumer = consumer;
+      this.interner = interner;
+    }
+
+    @Override
+    public void startJSON() {
+      // nothing to do
+    }
+
+    @Override
+    public void endJSON() {
+      // nothing to do
+    }
+
+    @Override
+    public boolean startObject() {
+      checkInsideRules();
+      containers.push(new LinkedHashMap<String, Object>());
+      return true;
+    }
+
+    @Override
+    public boolean endObject() {
+      add(containers.pop());
+      return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+      keys.push(interner.intern(key));
+      return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+      keys.pop();
+      return true;
+    }
+
+    @Override
+    public boolean startArray() {
+      containers.push(containers.isEmpty() ? RULES : new ArrayList<>());
+      return true;
+    }
+
+    @Override
+    public boolean endArray() {
+      Object array = containers.pop();
+      if (array != RULES) {
+        add(interner.internList((List<Object>) array));
+      }
+      return true;
+    }
+
+    @Override
+    public boolean primitive(@Nullable Object value) {
+      checkInsideRules();
+      add(value instanceof String string ? interner.intern(string) : value);
+      return true;
+    }
+
+    private void checkInsideRules() {
+      if (containers.isEmpty()) {
+        throw new IllegalArgumentException("Expected a JSON array of rules");
+      }
+    }
+
+    private void add(@Nullable Object value) {
+      Object container = containers.peek();
+      if (container == RULES) {
+        if (!(value instanceof Map)) {
+          throw new IllegalArgumentException("Expected a JSON object for each rule, got: " + value);
+        }
+        consumer.accept(ExternalRuleMetadata.of((Map<String, Object>) value));
+      } else if (container instanceof Map) {
+        ((Map<String, Object>) container).put(keys.peek(), value);
+      } else {
+        ((List<Object>) container).add(value);
+      }
+    }
+  }
+}
@@ -17,35 +17,88 @@
 package org.sonarsource.analyzer.commons;
 
 import java.io.File;
-import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import org.sonar.api.utils.WildcardPattern;
+import java.util.stream.Stream;
 
 public class FileProvider {
 
   private final Path baseDir;
-  private final WildcardPattern pattern;
+  private final GlobMatcher pattern;
 
   public FileProvider(File baseDir, String pattern) {
     this.baseDir = baseDir.toPath();
-    this.pattern = WildcardPattern.create(pattern);
+    this.pattern = GlobMatcher.of(pattern);
   }
 
   public List<File> getMatchingFiles() {
-    try (var walk = Files.walk(baseDir)) {
-      return walk
-              .filter(p -> !Files.isDirectory(p) && pattern.match(toUnixString(baseDir.relativize(p))))
+    try (var files = streamMatchingFiles()) {
+      return files
+              .sorted()
               .map(Path::toFile)
               .collect(Collectors.toCollection(ArrayList::new));
-    } catch (IOException e) {
-      throw new IllegalStateException("Failed to get matching files.", e);
+    } catch (UncheckedIOException e) {
+      throw new IllegalStateException("Failed to get matching files.", e.getCause());
     }
   }
 
+  /**
+   * Walks the base directory in parallel, returning the matching files while the walk goes on, in no particular order.
+   * Only the directories which can contain matching files are listed: the walk starts from the fixed directories of
+   * the pattern (e.g. {@code src/main} for {@code src/main/resources/*.xml}) and skips the subtrees the pattern
+   * cannot match.
+   *
+   * <p>The returned stream has to be closed, it throws {@link UncheckedIOException} when a directory cannot be listed.
+   * The walk pauses when the consumer is behind, and stops only when the stream is closed or fully consumed:
+   * <pre>{@code
+   * try (Stream<Path> files = fileProvider.streamMatchingFiles()) {
+   *   files.forEach(...);
+   * }
+   * }</pre>
+   */
+  public Stream<Path> streamMatchingFiles() {
+    return streamMatchingFiles(directory -> {
+    });
+  }
+
+  /**
+   * @param onDescend notified, from the walker threads, of each directory listed below the start of the walk
+   */
+  Stream<Path> streamMatchingFiles(Consumer<Path> onDescend) {
+    Path start = baseDir;
+    for (String directory : pattern.fixedDirectoryPrefix()) {
+      if (!Files.isDirectory(start, LinkOption.NOFOLLOW_LINKS)) {
+        break;
+      }
+      start = start.resolve(directory);
+    }
+    if (!start.equals(baseDir) && !Files.isDirectory(start, LinkOption.NOFOLLOW_LINKS)) {
+      // the fixed directories do not exist, but the base directory does
+      return Stream.empty();
+    }
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    return ParallelFileWalker.walk(start,
+      directory -> {
+        boolean descend = pattern.mayMatchBelow(relativeUnixPath(directory));
+        if (descend) {
+          onDescend.accept(directory);
+        }
+        return descend;
+      },
+      file -> pattern.matches(relativeUnixPath(file)) && !Files.isDirectory(file),
+      parallelism);
+  }
+
+  private String relativeUnixPath(Path path) {
+    return toUnixString(baseDir.relativize(path));
+  }
+
   private static String toUnixString(Path path) {
     return path.toString().replace('\\', '/');
   }
@@ -0,0 +1,625 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * A framed variant of {@link LengthPrefixSerializer}, for payloads stored on disk: elements are grouped in blocks, each
+ * block is checksummed with CRC32C and optionally compressed with {@link Deflater}. Lengths are unsigned varints.
+ *
+ * <p>Layout:
+ * <pre>
+ *   magic number "LPF1",
+ *   blocks: sync marker (0xFA "LPB"), stored length (varint), flags (byte, 1 when deflated), elements length (varint),
+ *           CRC32C (big-endian int) of the preceding block header fields and of the stored bytes,
+ *           stored bytes: the elements, each one preceded by its length (varint), possibly deflated
+ * </pre>
+ * Map entries are saved as their key followed by their value, never split between two blocks. Blocks are at most
+ * {@value #MAX_BLOCK_LENGTH} bytes long.
+ *
+ * <p>Reading decompresses one block at a time. A block whose checksum does not match throws a
+ * {@link CorruptedBlockException}, unless a handler is given: the handler is then notified and reading resumes at the
+ * next block, so only the elements of the corrupted blocks are lost. As the stored length itself may be corrupted, the
+ * next block is searched from the byte following the start of the corrupted block, up to the next sync marker. Stored
+ * bytes containing a sync marker cost a failed attempt to read a block there, not a lost block.
+ */
+public final class FramedLengthPrefixSerializer {
+
+  public enum Compression {
+    NONE,
+    DEFLATE
+  }
+
+  static final byte[] MAGIC = {'L', 'P', 'F', '1'};
+  // its first byte appears only once, so a failed match never overlaps the next candidate
+  static final byte[] SYNC_MARKER = {(byte) 0xFA, 'L', 'P', 'B'};
+  static final int MAX_BLOCK_LENGTH = 256 * 1024 * 1024;
+  static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+  private static final int DEFLATED = 1;
+
+  private FramedLengthPrefixSerializer() {
+    // utility
+  }
+
+  public static byte[] serializeList(List<byte[]> toSerializeList, Compression compression) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Writer writer = new Writer(out, compression)) {
+      for (byte[] element : toSerializeList) {
+        writer.write(element);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  public static List<byte[]> unserializeList(byte[] data) throws IOException {
+    return unserializeList(new ByteArrayInputStream(data), null);
+  }
+
+  /**
+   * Reads the list, notifying the handler of the corrupted blocks instead of failing when it is not null.
+   */
+  public static List<byte[]> unserializeList(InputStream data, @Nullable Consumer<CorruptedBlockException> onCorruptedBlock) throws IOException {
+    List<byte[]> result = new ArrayList<>();
+    try (Reader reader = new Reader(data, onCorruptedBlock)) {
+      for (byte[] element = reader.next(); element != null; element = reader.next()) {
+        result.add(element);
+      }
+    }
+    return result;
+  }
+
+  public static byte[] serializeMap(Map<String, byte[]> toSerializeMap, Compression compression) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Writer writer = new Writer(out, compression)) {
+      for (Map.Entry<String, byte[]> entry : toSerializeMap.entrySet()) {
+        writer.write(entry.getKey(), entry.getValue());
+      }
+    }
+    return out.toByteArray();
+  }
+
+  public static Map<String, byte[]> unserializeMap(byte[] data) throws IOException {
+    return unserializeMap(new ByteArrayInputStream(data), null);
+  }
+
+  /**
+   * Reads the map, notifying the handler of the corrupted blocks instead of failing when it is not null.
+   */
+  public static Map<String, byte[]> unserializeMap(InputStream data, @Nullable Consumer<CorruptedBlockException> onCorruptedBlock) throws IOException {
+    Map<String, byte[]> result = new HashMap<>();
+    try (Reader reader = new Reader(data, onCorruptedBlock)) {
+      for (byte[] key = reader.next(); key != null; key = reader.next()) {
+        byte[] value = reader.next();
+        if (value == null) {
+          throw new EOFException();
+        }
+        result.put(new String(key, StandardCharsets.UTF_8), value);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Thrown, or given to the handler of the reader, when a block is corrupted or truncated.
+   */
+  public static final class CorruptedBlockException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int blockIndex;
+
+    CorruptedBlockException(int blockIndex, String message) {
+      this(blockIndex, message, null);
+    }
+
+    CorruptedBlockException(int blockIndex, String message, @Nullable Throwable cause) {
+      super("Corrupted block " + blockIndex + ": " + message, cause);
+      this.blockIndex = blockIndex;
+    }
+
+    /**
+     * Index of the corrupted block, starting at 0.
+     */
+    public int blockIndex() {
+      return blockIndex;
+    }
+  }
+
+  /**
+   * Writes elements, or map entries, to a stream. Elements are buffered until a block is full, closing the writer
+   * writes the last block and closes the stream.
+   */
+  public static final class Writer implements Closeable {
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final Buffer block = new Buffer();
+    private final Buffer header = new Buffer();
+    @Nullable
+    private final Deflater deflater;
+    @Nullable
+    private final Buffer deflated;
+    private final CRC32C checksum = new CRC32C();
+
+    public Writer(OutputStream out, Compression compression) throws IOException {
+      this(out, compression, DEFAULT_BLOCK_SIZE);
+    }
+
+    Writer(OutputStream out, Compression compression, int blockSize) throws IOException {
+      this.out = out;
+      this.blockSize = blockSize;
+      boolean deflate = compression == Compression.DEFLATE;
+      this.deflater = deflate ? new Deflater(Deflater.BEST_SPEED, true) : null;
+      this.deflated = deflate ? new Buffer() : null;
+      out.write(MAGIC);
+    }
+
+    public Writer write(byte[] element) throws IOException {
+      append(element);
+      return flushIfFull();
+    }
+
+    /**
+     * Writes a map entry, the key and the value are always in the same block.
+     */
+    public Writer write(String key, byte[] value) throws IOException {
+      append(key.getBytes(StandardCharsets.UTF_8));
+      append(value);
+      return flushIfFull();
+    }
+
+    private void append(byte[] element) {
+      block.writeVarint(element.length);
+      block.write(element, 0, element.length);
+    }
+
+    private Writer flushIfFull() throws IOException {
+      if (block.size() >= blockSize) {
+        writeBlock();
+      }
+      return this;
+    }
+
+    private void writeBlock() throws IOException {
+      if (block.size() > MAX_BLOCK_LENGTH) {
+        throw new IOException("Block of " + block.size() + " bytes exceeds the maximum of " + MAX_BLOCK_LENGTH + " bytes");
+      }
+      Buffer stored = block;
+      int flags = 0;
+      if (deflater != null && deflated != null) {
+        deflate(deflater, block, deflated);
+        if (deflated.size() < block.size()) {
+          stored = deflated;
+          flags = DEFLATED;
+        }
+      }
+      header.reset();
+      header.writeVarint(stored.size());
+      header.write(flags);
+      header.writeVarint(block.size());
+      checksum.reset();
+      checksum.update(header.bytes(), 0, header.size());
+      checksum.update(stored.bytes(), 0, stored.size());
+      int crc = (int) checksum.getValue();
+      header.write(crc >>> 24);
+      header.write(crc >>> 16);
+      header.write(crc >>> 8);
+      header.write(crc);
+      out.write(SYNC_MARKER);
+      out.write(header.bytes(), 0, header.size());
+      out.write(stored.bytes(), 0, stored.size());
+      block.reset();
+    }
+
+    private static void deflate(Deflater deflater, Buffer input, Buffer output) {
+      deflater.reset();
+      deflater.setInput(input.bytes(), 0, input.size());
+      deflater.finish();
+      output.reset();
+      while (!deflater.finished()) {
+        output.ensureCapacity(output.size() + 4096);
+        int count = deflater.deflate(output.bytes(), output.size(), output.bytes().length - output.size());
+        output.skip(count);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try (out) {
+        if (block.size() > 0) {
+          writeBlock();
+        }
+      } finally {
+        if (deflater != null) {
+          deflater.end();
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads elements one by one, decompressing one block at a time.
+   */
+  public static final class Reader implements Closeable {
+
+    private final InputStream in;
+    @Nullable
+    private final Consumer<CorruptedBlockException> onCorruptedBlock;
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32C checksum = new CRC32C();
+    private final Buffer header = new Buffer();
+    // bytes of the current block read before its stored bytes, to search them for the next block if it is corrupted
+    private final Buffer consumed = new Buffer();
+    // bytes read again before the stream, when searching for the next block
+    private byte[] pushedBack = new byte[0];
+    private int pushedBackPosition;
+    private byte[] block = new byte[0];
+    private int blockEnd;
+    private int position;
+    // end offset in the block of the last varint read from it
+    private int varintEnd;
+    private int blockIndex;
+    private boolean ended;
+
+    /**
+     * Reads the stream, notifying the handler of the corrupted blocks instead of throwing exceptions when it is not null.
+     */
+    public Reader(InputStream in, @Nullable Consumer<CorruptedBlockException> onCorruptedBlock) throws IOException {
+      this.in = in;
+      this.onCorruptedBlock = onCorruptedBlock;
+      byte[] magic = in.readNBytes(MAGIC.length);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException("Not a framed length-prefix stream");
+      }
+    }
+
+    /**
+     * Returns the next element, or null at the end of the stream.
+     */
+    @CheckForNull
+    public byte[] next() throws IOException {
+      while (position == blockEnd) {
+        if (ended || !readBlock()) {
+          return null;
+        }
+      }
+      int length = readVarint(block, position, blockEnd);
+      position = varintEnd;
+      byte[] element = Arrays.copyOfRange(block, position, position + length);
+      position += length;
+      return element;
+    }
+
+    /**
+     * Reads the next non-corrupted block, returns false at the end of the stream.
+     */
+    private boolean readBlock() throws IOException {
+      while (!ended) {
+        int index = blockIndex;
+        blockIndex++;
+        try {
+          return readBlock(index);
+        } catch (CorruptedBlockException e) {
+          if (onCorruptedBlock == null) {
+            throw e;
+          }
+          onCorruptedBlock.accept(e);
+        }
+      }
+      return false;
+    }
+
+    private boolean readBlock(int index) throws IOException {
+      header.reset();
+      consumed.reset();
+      blockEnd = 0;
+      position = 0;
+      int first = read();
+      if (first < 0) {
+        ended = true;
+        return false;
+      }
+      consumed.write(first);
+      int flags;
+      int elementsLength;
+      byte[] stored = new byte[0];
+      try {
+        boolean synced = first == (SYNC_MARKER[0] & 0xFF);
+        for (int i = 1; i < SYNC_MARKER.length; i++) {
+          synced &= readByte() == (SYNC_MARKER[i] & 0xFF);
+        }
+        if (!synced) {
+          throw unframed(index, "missing sync marker", null, stored);
+        }
+        int storedLength = readVarint(readByte());
+        flags = readByte();
+        header.write(flags);
+        elementsLength = readVarint(readByte());
+        if (storedLength > MAX_BLOCK_LENGTH || elementsLength > MAX_BLOCK_LENGTH) {
+          throw unframed(index, "invalid block length", null, stored);
+        }
+        int crc = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        stored = readNBytes(storedLength);
+        if (stored.length < storedLength) {
+          throw new EOFException();
+        }
+        checksum.reset();
+        checksum.update(header.bytes(), 0, header.size());
+        checksum.update(stored);
+        if ((int) checksum.getValue() != crc) {
+          // the stored length may be the corrupted part
+          throw unframed(index, "checksum mismatch", null, stored);
+        }
+      } catch (EOFException | InvalidVarintException e) {
+        throw unframed(index, "truncated or invalid header", e, stored);
+      }
+      block = (flags & DEFLATED) != 0 ? inflate(index, stored, elementsLength) : stored;
+      if (block.length != elementsLength) {
+        throw new CorruptedBlockException(index, "unexpected length " + block.length);
+      }
+      blockEnd = block.length;
+      validateElements(index);
+      return true;
+    }
+
+    /**
+     * The end of the corrupted block is unknown: without handler the reading stops, otherwise the next block is
+     * searched from the byte following the start of the corrupted block.
+     */
+    private CorruptedBlockException unframed(int index, String message, @Nullable Throwable cause, byte[] stored) throws IOException {
+      if (onCorruptedBlock == null) {
+        ended = true;
+      } else {
+        pushBack(Arrays.copyOfRange(consumed.bytes(), 1, consumed.size()), stored);
+        skipToSyncMarker();
+      }
+      return new CorruptedBlockException(index, message, cause);
+    }
+
+    private void skipToSyncMarker() throws IOException {
+      int matched = 0;
+      while (matched < SYNC_MARKER.length) {
+        int value = read();
+        if (value < 0) {
+          ended = true;
+          return;
+        }
+        if (value == (SYNC_MARKER[matched] & 0xFF)) {
+          matched++;
+        } else {
+          matched = value == (SYNC_MARKER[0] & 0xFF) ? 1 : 0;
+        }
+      }
+      pushBack(SYNC_MARKER);
+    }
+
+    private void pushBack(byte[]... parts) {
+      int remaining = pushedBack.length - pushedBackPosition;
+      int length = remaining;
+      for (byte[] part : parts) {
+        length += part.length;
+      }
+      byte[] bytes = new byte[length];
+      int offset = 0;
+      for (byte[] part : parts) {
+        System.arraycopy(part, 0, bytes, offset, part.length);
+        offset += part.length;
+      }
+      System.arraycopy(pushedBack, pushedBackPosition, bytes, offset, remaining);
+      pushedBack = bytes;
+      pushedBackPosition = 0;
+    }
+
+    private int read() throws IOException {
+      if (pushedBackPosition < pushedBack.length) {
+        int value = pushedBack[pushedBackPosition] & 0xFF;
+        pushedBackPosition++;
+        return value;
+      }
+      return in.read();
+    }
+
+    private byte[] readNBytes(int length) throws IOException {
+      int available = Math.min(length, pushedBack.length - pushedBackPosition);
+      if (available == 0) {
+        return in.readNBytes(length);
+      }
+      byte[] head = Arrays.copyOfRange(pushedBack, pushedBackPosition, pushedBackPosition + available);
+      pushedBackPosition += available;
+      if (available == length) {
+        return head;
+      }
+      byte[] tail = in.readNBytes(length - available);
+      byte[] bytes = Arrays.copyOf(head, available + tail.length);
+      System.arraycopy(tail, 0, bytes, available, tail.length);
+      return bytes;
+    }
+
+    private byte[] inflate(int index, byte[] stored, int elementsLength) throws CorruptedBlockException {
+      byte[] inflated = new byte[elementsLength];
+      inflater.reset();
+      inflater.setInput(stored);
+      try {
+        int count = 0;
+        while (count < elementsLength && !inflater.finished()) {
+          int inflatedCount = inflater.inflate(inflated, count, elementsLength - count);
+          if (inflatedCount == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          count += inflatedCount;
+        }
+        return count == elementsLength ? inflated : Arrays.copyOf(inflated, count);
+      } catch (DataFormatException e) {
+        throw new CorruptedBlockException(index, "invalid compressed data", e);
+      }
+    }
+
+    /**
+     * Checks that the elements fill the block exactly, so a valid checksum over invalid content never fails later.
+     */
+    private void validateElements(int index) throws CorruptedBlockException {
+      int offset = 0;
+      try {
+        while (offset < blockEnd) {
+          int length = readVarint(block, offset, blockEnd);
+          if (blockEnd - varintEnd < length) {
+            throw new InvalidVarintException();
+          }
+          offset = varintEnd + length;
+        }
+      } catch (InvalidVarintException e) {
+        blockEnd = 0;
+        throw new CorruptedBlockException(index, "invalid element length", e);
+      }
+    }
+
+    private int readByte() throws IOException {
+      int value = read();
+      if (value < 0) {
+        throw new EOFException();
+      }
+      consumed.write(value);
+      return value;
+    }
+
+    private int readVarint(int firstByte) throws IOException {
+      header.write(firstByte);
+      int value = firstByte & 0x7F;
+      int currentByte = firstByte;
+      for (int shift = 7; (currentByte & 0x80) != 0; shift += 7) {
+        if (shift > 28) {
+          throw new InvalidVarintException();
+        }
+        currentByte = readByte();
+        header.write(currentByte);
+        value |= (currentByte & 0x7F) << shift;
+      }
+      if (value < 0) {
+        throw new InvalidVarintException();
+      }
+      return value;
+    }
+
+    private int readVarint(byte[] bytes, int offset, int end) throws InvalidVarintException {
+      int value = 0;
+      int current = offset;
+      for (int shift = 0; ; shift += 7) {
+        if (current == end || shift > 28) {
+          throw new InvalidVarintException();
+        }
+        int currentByte = bytes[current] & 0xFF;
+        current++;
+        value |= (currentByte & 0x7F) << shift;
+        if ((currentByte & 0x80) == 0) {
+          break;
+        }
+      }
+      if (value < 0) {
+        throw new InvalidVarintException();
+      }
+      varintEnd = current;
+      return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try (in) {
+        inflater.end();
+      }
+    }
+  }
+
+  private static final class InvalidVarintException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    InvalidVarintException() {
+      super("Invalid varint");
+    }
+  }
+
+  /**
+   * Growable byte array, exposing its internal array to avoid copies.
+   */
+  private static final class Buffer {
+
+    private byte[] bytes = new byte[256];
+    private int size;
+
+    byte[] bytes() {
+      return bytes;
+    }
+
+    int size() {
+      return size;
+    }
+
+    void reset() {
+      size = 0;
+    }
+
+    void ensureCapacity(int capacity) {
+      if (capacity > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(capacity, 2 * bytes.length));
+      }
+    }
+
+    void skip(int count) {
+      size += count;
+    }
+
+    void write(int value) {
+      ensureCapacity(size + 1);
+      bytes[size] = (byte) value;
+      size++;
+    }
+
+    void write(byte[] source, int offset, int length) {
+      ensureCapacity(size + length);
+      System.arraycopy(source, offset, bytes, size, length);
+      size += length;
+    }
+
+    void writeVarint(int value) {
+      int remaining = value;
+      while ((remaining & ~0x7F) != 0) {
+        write((remaining & 0x7F) | 0x80);
+        remaining >>>= 7;
+      }
+      write(remaining);
+    }
+  }
+}
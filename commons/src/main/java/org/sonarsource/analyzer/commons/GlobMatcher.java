@@ -0,0 +1,341 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * A set of Ant globs, with the same syntax and semantics as {@code org.sonar.api.utils.WildcardPattern}, compiled into
+ * one automaton over path segments: a path is matched against all the globs in a single walk of its segments.
+ *
+ * <p>The automaton state reached after each directory is memoized, so matching the files of a directory already seen
+ * only walks their file name. At most {@value #MAX_MEMOIZED_DIRECTORIES} directories are memoized, the memo is cleared
+ * when it's full. The same states tell which directories cannot contain any matching file, so file tree
+ * walks can prune them. Instances are thread-safe and meant to be shared: create one per glob set, not per file.
+ */
+public final class GlobMatcher {
+
+  private static final char SEPARATOR = '/';
+  static final int MAX_MEMOIZED_DIRECTORIES = 10_000;
+
+  // kinds of automaton states, one state per glob segment plus one final state per glob
+  private static final byte SEGMENT = 0;
+  // "**" followed by a separator: zero or more segments
+  private static final byte ANY_SEGMENTS = 1;
+  // "**" at the end: one or more segments
+  private static final byte TRAILING_ANY_SEGMENTS = 2;
+  private static final byte FINAL = 3;
+  // final state of a glob ending with "**", accepting any further segment
+  private static final byte FINAL_ANY_SEGMENTS = 4;
+
+  private final byte[] kinds;
+  private final String[] segmentGlobs;
+  private final BitSet initialStates;
+  // globs using "**" inside a segment (e.g. "**.java") are not segment-aligned, they are matched as regular expressions
+  private final List<Pattern> unalignedGlobs;
+  private final List<String> fixedDirectoryPrefix;
+  private final Map<String, BitSet> directoryStates = new ConcurrentHashMap<>();
+
+  private GlobMatcher(Collection<String> globs) {
+    List<String[]> alignedGlobs = new ArrayList<>();
+    List<Pattern> regexGlobs = new ArrayList<>();
+    List<String> commonPrefix = null;
+    for (String glob : globs) {
+      String[] segments = segments(glob);
+      commonPrefix = commonPrefix(commonPrefix, segments);
+      if (Arrays.stream(segments).anyMatch(segment -> !"**".equals(segment) && segment.contains("**"))) {
+        regexGlobs.add(Pattern.compile(toRegexp(glob)));
+      } else {
+        alignedGlobs.add(segments);
+      }
+    }
+    int stateCount = alignedGlobs.stream().mapToInt(segments -> segments.length + 1).sum();
+    kinds = new byte[stateCount];
+    segmentGlobs = new String[stateCount];
+    initialStates = new BitSet(stateCount);
+    int state = 0;
+    for (String[] segments : alignedGlobs) {
+      int initialState = state;
+      for (int i = 0; i < segments.length; i++) {
+        boolean last = i == segments.length - 1;
+        if ("**".equals(segments[i])) {
+          kinds[state] = last ? TRAILING_ANY_SEGMENTS : ANY_SEGMENTS;
+        } else {
+          kinds[state] = SEGMENT;
+          segmentGlobs[state] = segments[i];
+        }
+        state++;
+      }
+      kinds[state] = kinds[state - 1] == TRAILING_ANY_SEGMENTS ? FINAL_ANY_SEGMENTS : FINAL;
+      state++;
+      addWithClosure(initialStates, initialState);
+    }
+    unalignedGlobs = regexGlobs;
+    fixedDirectoryPrefix = commonPrefix == null ? List.of() : List.copyOf(commonPrefix);
+  }
+
+  public static GlobMatcher of(String... globs) {
+    return new GlobMatcher(Arrays.asList(globs));
+  }
+
+  public static GlobMatcher of(Collection<String> globs) {
+    return new GlobMatcher(globs);
+  }
+
+  /**
+   * Returns true when at least one of the globs matches the path, a leading and a trailing {@code /} being ignored like
+   * in {@code WildcardPattern#match(String)}.
+   */
+  public boolean matches(String path) {
+    int start = path.startsWith("/") ? 1 : 0;
+    int end = (path.length() > start && path.endsWith("/")) ? (path.length() - 1) : path.length();
+    String value = path.substring(start, end);
+    for (Pattern unalignedGlob : unalignedGlobs) {
+      if (unalignedGlob.matcher(value).matches()) {
+        return true;
+      }
+    }
+    int lastSeparator = value.lastIndexOf(SEPARATOR);
+    BitSet states = lastSeparator < 0 ? initialStates : directoryState(value.substring(0, lastSeparator));
+    return accepts(states, value, lastSeparator + 1, value.length());
+  }
+
+  /**
+   * Returns false when no path below the directory can match, whatever its remaining segments.
+   *
+   * @param directory path of the directory, in the same form as the ones given to {@link #matches(String)}
+   */
+  boolean mayMatchBelow(String directory) {
+    if (!unalignedGlobs.isEmpty()) {
+      return true;
+    }
+    String value = directory.startsWith("/") ? directory.substring(1) : directory;
+    value = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    BitSet states = value.isEmpty() ? initialStates : directoryState(value);
+    for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+      if (kinds[state] != FINAL) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The leading directories common to all the globs and without wildcard, e.g. {@code [src, main]} for
+   * {@code src/main/*.ts} and {@code src/main/js/**}: every matching path is below them.
+   */
+  List<String> fixedDirectoryPrefix() {
+    return fixedDirectoryPrefix;
+  }
+
+  // Visible for testing
+  int memoizedDirectoryCount() {
+    return directoryStates.size();
+  }
+
+  private static List<String> commonPrefix(@Nullable List<String> commonPrefix, String[] segments) {
+    List<String> prefix = new ArrayList<>();
+    // the last segment is the file name
+    for (int i = 0; i < segments.length - 1 && isFixedDirectory(segments[i]); i++) {
+      prefix.add(segments[i]);
+    }
+    if (commonPrefix == null) {
+      return prefix;
+    }
+    int length = 0;
+    while (length < prefix.size() && length < commonPrefix.size() && prefix.get(length).equals(commonPrefix.get(length))) {
+      length++;
+    }
+    return commonPrefix.subList(0, length);
+  }
+
+  private static boolean isFixedDirectory(String segment) {
+    return !segment.isEmpty() && !".".equals(segment) && !"..".equals(segment) && segment.indexOf('*') < 0 && segment.indexOf('?') < 0;
+  }
+
+  private BitSet directoryState(String directory) {
+    BitSet states = directoryStates.get(directory);
+    if (states == null) {
+      int lastSeparator = directory.lastIndexOf(SEPARATOR);
+      BitSet parentStates = lastSeparator < 0 ? initialStates : directoryState(directory.substring(0, lastSeparator));
+      states = step(parentStates, directory, lastSeparator + 1, directory.length());
+      if (directoryStates.size() >= MAX_MEMOIZED_DIRECTORIES) {
+        // states are cheap to compute again, unlike the memory held by a matcher shared by long-lived components
+        directoryStates.clear();
+      }
+      directoryStates.put(directory, states);
+    }
+    return states;
+  }
+
+  private BitSet step(BitSet states, String path, int start, int end) {
+    BitSet next = new BitSet(kinds.length);
+    boolean withoutLineTerminator = !containsLineTerminator(path, start, end);
+    for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+      switch (kinds[state]) {
+        case SEGMENT:
+          if (matchesSegment(segmentGlobs[state], path, start, end)) {
+            addWithClosure(next, state + 1);
+          }
+          break;
+        case ANY_SEGMENTS:
+          if (withoutLineTerminator) {
+            addWithClosure(next, state);
+          }
+          break;
+        case TRAILING_ANY_SEGMENTS:
+          if (withoutLineTerminator) {
+            next.set(state + 1);
+          }
+          break;
+        case FINAL_ANY_SEGMENTS:
+          if (withoutLineTerminator) {
+            next.set(state);
+          }
+          break;
+        default:
+          // a final state does not accept more segments
+          break;
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Same as checking whether {@link #step} reaches a final state, without computing the next states.
+   */
+  private boolean accepts(BitSet states, String path, int start, int end) {
+    boolean withoutLineTerminator = !containsLineTerminator(path, start, end);
+    for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+      byte kind = kinds[state];
+      if ((kind == SEGMENT && kinds[state + 1] == FINAL && matchesSegment(segmentGlobs[state], path, start, end))
+        || ((kind == TRAILING_ANY_SEGMENTS || kind == FINAL_ANY_SEGMENTS) && withoutLineTerminator)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void addWithClosure(BitSet states, int state) {
+    states.set(state);
+    if (kinds[state] == ANY_SEGMENTS) {
+      // "**/" also matches zero segments
+      addWithClosure(states, state + 1);
+    }
+  }
+
+  /**
+   * Matches a segment of the path against a segment of a glob, made of literal characters, {@code *} (any sequence of
+   * characters) and {@code ?} (any character). Like in regular expressions, {@code ?} matches a whole code point.
+   */
+  static boolean matchesSegment(String glob, String path, int start, int end) {
+    int globIndex = 0;
+    int pathIndex = start;
+    // position of the last '*' and of the path character it was tried on, to backtrack when the rest does not match
+    int starIndex = -1;
+    int starPathIndex = 0;
+    while (pathIndex < end) {
+      if (globIndex < glob.length() && glob.charAt(globIndex) == '?') {
+        globIndex++;
+        pathIndex += Character.charCount(path.codePointAt(pathIndex));
+      } else if (globIndex < glob.length() && glob.charAt(globIndex) == '*') {
+        starIndex = globIndex;
+        starPathIndex = pathIndex;
+        globIndex++;
+      } else if (globIndex < glob.length() && glob.charAt(globIndex) == path.charAt(pathIndex)) {
+        globIndex++;
+        pathIndex++;
+      } else if (starIndex >= 0) {
+        globIndex = starIndex + 1;
+        starPathIndex++;
+        pathIndex = starPathIndex;
+      } else {
+        return false;
+      }
+    }
+    while (globIndex < glob.length() && glob.charAt(globIndex) == '*') {
+      globIndex++;
+    }
+    return globIndex == glob.length();
+  }
+
+  private static boolean containsLineTerminator(String path, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char ch = path.charAt(i);
+      if (ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Splits the glob on {@code /} and {@code \}, ignoring one leading separator.
+   */
+  private static String[] segments(String glob) {
+    int start = (glob.startsWith("/") || glob.startsWith("\\")) ? 1 : 0;
+    return glob.substring(start).split("[/\\\\]", -1);
+  }
+
+  /**
+   * Same translation as {@code WildcardPattern}, for the globs which cannot be matched segment by segment.
+   */
+  static String toRegexp(String glob) {
+    StringBuilder sb = new StringBuilder(glob.length());
+    sb.append('^');
+    int i = (glob.startsWith("/") || glob.startsWith("\\")) ? 1 : 0;
+    while (i < glob.length()) {
+      char ch = glob.charAt(i);
+      if ("()[]^$.{}+|".indexOf(ch) != -1) {
+        sb.append('\\').append(ch);
+      } else if (ch == '*') {
+        if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+          if (i + 2 < glob.length() && isSeparator(glob.charAt(i + 2))) {
+            sb.append("(?:.*/|)");
+            i += 2;
+          } else {
+            sb.append(".*");
+            i += 1;
+          }
+        } else {
+          sb.append("[^/]*?");
+        }
+      } else if (ch == '?') {
+        sb.append("[^/]");
+      } else if (isSeparator(ch)) {
+        sb.append('/');
+      } else {
+        sb.append(ch);
+      }
+      i++;
+    }
+    sb.append('$');
+    return sb.toString();
+  }
+
+  private static boolean isSeparator(char ch) {
+    return ch == '/' || ch == '\\';
+  }
+}
@@ -16,10 +16,6 @@
  */
 package org.sonarsource.analyzer.commons;
 
-import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class HumanLanguageDetector {
   private static final double[] WORD_FIRST_LETTER_FREQUENCIES = {2.6590433d, 1.2620203d, 1.5564419d, 0.9035879d, 0.7042806d, 1.1847413d, 0.4955763d, 0.9510469d, 1.7106735d,
     0.2684641d,
@@ -29,7 +25,9 @@ public class HumanLanguageDetector {
     0.0053191d, 0.2896774d,
     0.9860451d, 0.5045335d, 2.8780559d, 1.0164436d, 0.183349d, 0.0039651d, 1.6346942d, 3.5859066d, 1.9681061d, 0.0870041d, 0.0362143d, 0.207057d, 0.0560339d, 1.5560091d,
     0.0277812d};
-  private static final double[][] CHARACTER_PAIRS_FREQUENCIES = {
+  private static final int ALPHABET_SIZE = 26;
+  // flattened [first letter][second letter] matrix, indexed by (first * ALPHABET_SIZE + second)
+  private static final double[] CHARACTER_PAIRS_FREQUENCIES = flatten(new double[][] {
     {0.0929348d, 1.3457961d, 2.7854923d, 2.5539888d, 0.2209547d, 0.6705441d, 1.8441841d, 0.2415183d, 2.1081316d, 0.1513539d, 0.7217594d, 8.0951704d, 3.0899456d, 14.1108051d,
       0.0792523d, 1.3738109d, 0.0387682d, 8.5247815d, 6.357247d, 8.850255d, 1.0730911d, 1.0915589d, 0.4722228d, 0.1239866d, 1.5762482d, 0.218569d},
     {1.9067869d, 0.1279563d, 0.0739743d, 0.0265155d, 3.4357286d, 0.0049029d, 0.005839d, 0.0312368d, 0.956677d, 0.0743913d, 0.0039669d, 1.3367944d, 0.0346314d, 0.0176708d,
@@ -82,9 +80,7 @@ public class HumanLanguageDetector {
       0.6414934d, 0.1588797d, 0.0004128d, 0.1039721d, 0.4814257d, 0.1023695d, 0.0593967d, 0.0103587d, 0.0387865d, 0.0029518d, 0.005733d, 0.0142095d},
     {0.2393676d, 0.0081167d, 0.0035083d, 0.0052527d, 0.3775166d, 0.0012409d, 0.0050274d, 0.0330923d, 0.1787957d, 0.0006392d, 0.006042d, 0.0129057d, 0.0072316d, 0.0071939d,
       0.1036998d, 0.0025679d, 0.0009882d, 0.0047487d, 0.0052224d, 0.005546d, 0.0411031d, 0.0031899d, 0.0047273d, 0.0007615d, 0.0223349d, 0.0495398d},
-  };
-
-  private static final Pattern wordPattern = Pattern.compile("[a-z]++|[A-Z][a-z]++|[A-Za-z]++");
+  });
 
   private HumanLanguageDetector() {
     // utility class
@@ -98,51 +94,158 @@ public class HumanLanguageDetector {
    * @return 1.0 in average for random string, and above if it looks like language (ex: could be compared using > 1.5d)
    */
   public static double humanLanguageScore(String text) {
-    double totalScore = 0.0d;
-    double totalWeight = 0.0d;
-    int camelCaseSeparator = 0;
-    int lastFindingEnd = -1;
-    int allWorldLength = 0;
-    Matcher matcher = wordPattern.matcher(text);
-    while (matcher.find()) {
-      if (matcher.start() == lastFindingEnd) {
-        camelCaseSeparator++;
+    Accumulator accumulator = new Accumulator();
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      accumulator.accept(text.charAt(i));
+    }
+    return accumulator.score();
+  }
+
+  /**
+   * Incremental version of {@link #humanLanguageScore(String)}, for callers already scanning the text character by
+   * character, so the score is computed in the same pass as their other statistics.
+   * <p>
+   * Words are segmented as the regular expression {@code [a-z]++|[A-Z][a-z]++|[A-Za-z]++} would do it: a lower case
+   * sequence, a capitalized sequence, or a sequence of letters starting with at least two upper case letters.
+   * A word directly following another one (ex: "camelCase") counts as an implicit separator.
+   */
+  public static final class Accumulator {
+    private static final int OUTSIDE_WORD = 0;
+    // "[a-z]++" or the lower case part of "[A-Z][a-z]++"
+    private static final int LOWER_CASE_SEQUENCE = 1;
+    // "[A-Z]" not yet followed by a letter
+    private static final int SINGLE_UPPER_CASE = 2;
+    // "[A-Za-z]++" starting with two upper case letters
+    private static final int LETTER_SEQUENCE = 3;
+
+    private int state = OUTSIDE_WORD;
+    private int textLength = 0;
+    private double totalScore = 0.0d;
+    private double totalWeight = 0.0d;
+    private int camelCaseSeparator = 0;
+    private int allWorldLength = 0;
+
+    private int wordLength;
+    private char wordFirstChar;
+    private char wordLastChar;
+    private double wordPairsScore;
+
+    public void accept(char ch) {
+      textLength++;
+      boolean lowerCase = isLowerCase(ch);
+      boolean upperCase = isUpperCase(ch);
+      switch (state) {
+        case LOWER_CASE_SEQUENCE:
+          if (lowerCase) {
+            appendToWord(ch);
+          } else {
+            endWord();
+            if (upperCase) {
+              camelCaseSeparator++;
+              startWord(ch, SINGLE_UPPER_CASE);
+            }
+          }
+          break;
+        case SINGLE_UPPER_CASE:
+          if (lowerCase || upperCase) {
+            appendToWord(ch);
+            state = lowerCase ? LOWER_CASE_SEQUENCE : LETTER_SEQUENCE;
+          } else {
+            endWord();
+          }
+          break;
+        case LETTER_SEQUENCE:
+          if (lowerCase || upperCase) {
+            appendToWord(ch);
+          } else {
+            endWord();
+          }
+          break;
+        default:
+          if (lowerCase) {
+            startWord(ch, LOWER_CASE_SEQUENCE);
+          } else if (upperCase) {
+            startWord(ch, SINGLE_UPPER_CASE);
+          }
       }
-      String word = matcher.group().toLowerCase(Locale.ROOT);
-      allWorldLength += word.length();
-      double weight = word.length();
-      totalScore += wordScore(word) * weight;
-      totalWeight += weight;
-      lastFindingEnd = matcher.end();
     }
-    if (totalWeight == 0.0d) {
-      return 1.0d;
+
+    /**
+     * @return the human language score of all the accepted characters, see {@link #humanLanguageScore(String)}
+     */
+    public double score() {
+      if (state != OUTSIDE_WORD) {
+        endWord();
+      }
+      if (totalWeight == 0.0d) {
+        return 1.0d;
+      }
+      int separatorCount = textLength - allWorldLength + camelCaseSeparator;
+      int expectedSeparatorCount = textLength / 6;
+      int unexpectedSeparatorCount = Math.abs(separatorCount - expectedSeparatorCount);
+      return (((totalScore / totalWeight) * allWorldLength) + (0.1d * unexpectedSeparatorCount)) / (allWorldLength + unexpectedSeparatorCount);
+    }
+
+    private void startWord(char ch, int newState) {
+      state = newState;
+      wordLength = 1;
+      wordFirstChar = ch;
+      wordLastChar = ch;
+      wordPairsScore = 0.0d;
     }
-    int separatorCount = text.length() - allWorldLength + camelCaseSeparator;
-    int expectedSeparatorCount = text.length() / 6;
-    int unexpectedSeparatorCount = Math.abs(separatorCount - expectedSeparatorCount);
-    return (((totalScore / totalWeight) * allWorldLength) + (0.1d * unexpectedSeparatorCount)) / (allWorldLength + unexpectedSeparatorCount);
+
+    private void appendToWord(char ch) {
+      wordLength++;
+      wordPairsScore += pairScore(wordLastChar, ch);
+      wordLastChar = ch;
+    }
+
+    private void endWord() {
+      state = OUTSIDE_WORD;
+      allWorldLength += wordLength;
+      double weight = wordLength;
+      totalScore += wordScore(wordLength, wordFirstChar, wordLastChar, wordPairsScore) * weight;
+      totalWeight += weight;
+    }
+  }
+
+  private static boolean isLowerCase(char ch) {
+    return ch >= 'a' && ch <= 'z';
+  }
+
+  private static boolean isUpperCase(char ch) {
+    return ch >= 'A' && ch <= 'Z';
   }
 
+  /**
+   * Index of an ASCII letter in the alphabet, ignoring its case: setting the 0x20 bit turns 'A'..'Z' into 'a'..'z'.
+   */
   private static int index(char ch) {
-    return ch - 'a';
+    return (ch | 0x20) - 'a';
+  }
+
+  static double pairScore(char first, char second) {
+    return CHARACTER_PAIRS_FREQUENCIES[index(first) * ALPHABET_SIZE + index(second)];
   }
 
-  private static double wordScore(String word) {
-    if (word.length() == 1) {
+  static double wordScore(int wordLength, char firstChar, char lastChar, double pairsScore) {
+    if (wordLength == 1) {
       // returning the one letter statics gave a too high score to 'a',
       // so we decided to just always return a constant
       return 0.1d;
     }
-    char firstChar = word.charAt(0);
-    char lastChar = word.charAt(word.length() - 1);
     double firstCharScore = WORD_FIRST_LETTER_FREQUENCIES[index(firstChar)];
     double lastCharScore = WORD_LAST_LETTER_FREQUENCIES[index(lastChar)];
-    double pairsScore = 0.0d;
-    int numberOfPairs = word.length() - 1;
-    for (int i = 0; i < numberOfPairs; i++) {
-      pairsScore += CHARACTER_PAIRS_FREQUENCIES[index(word.charAt(i))][index(word.charAt(i + 1))];
-    }
+    int numberOfPairs = wordLength - 1;
     return (firstCharScore + lastCharScore + pairsScore) / (numberOfPairs + 2);
   }
+
+  private static double[] flatten(double[][] matrix) {
+    double[] result = new double[ALPHABET_SIZE * ALPHABET_SIZE];
+    for (int i = 0; i < ALPHABET_SIZE; i++) {
+      System.arraycopy(matrix[i], 0, result, i * ALPHABET_SIZE, ALPHABET_SIZE);
+    }
+    return result;
+  }
 }
@@ -24,15 +24,26 @@ import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 /**
- * Not designed for multi-threads
+ * Thread-safe: each thread parses with its own json-simple parser, which is not.
  */
 class JsonParser {
 
-  private final JSONParser parser = new JSONParser();
+  private final ThreadLocal<JSONParser> parsers = ThreadLocal.withInitial(JSONParser::new);
 
   Map<String, Object> parse(String data) {
     try {
-      return (Map<String, Object>) parser.parse(data);
+      return (Map<String, Object>) parsers.get().parse(data);
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("Could not parse JSON", e);
+    }
+  }
+
+  /**
+   * Parses any JSON value: {@link Map}, {@link List}, {@link String}, {@link Long}, {@link Double}, {@link Boolean} or null.
+   */
+  Object parseValue(String data) {
+    try {
+      return parsers.get().parse(data);
     } catch (ParseException e) {
       throw new IllegalArgumentException("Could not parse JSON", e);
     }
@@ -40,7 +51,7 @@ class JsonParser {
 
   List<Map<String, Object>> parseArray(Reader reader) throws IOException {
     try {
-      return (List<Map<String, Object>>) parser.parse(reader);
+      return (List<Map<String, Object>>) parsers.get().parse(reader);
     } catch (ParseException e) {
       throw new IllegalArgumentException("Could not parse JSON", e);
     }
@@ -0,0 +1,190 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Streams the records of a JSON report, e.g. the results of a SARIF file: only the record being read is held in memory,
+ * the rest of the document is skipped as it is parsed.
+ *
+ * <p>Records are the JSON objects found at the record path: keys separated by {@code /}, where {@code *} stands for the
+ * elements of an array. For instance {@code runs/*}{@code /results/*} for SARIF, or {@code *} for a report which is an
+ * array of issues. Records are handed in the document order, as maps of the same Java types as
+ * {@link JSONParser#parse(Reader)}.
+ */
+public final class JsonRecordReader {
+
+  private static final String ARRAY_ELEMENT = "*";
+
+  private JsonRecordReader() {
+    // utility
+  }
+
+  /**
+   * @throws IllegalArgumentException when the JSON is invalid
+   */
+  public static void read(Reader reader, String recordPath, Consumer<Map<String, Object>> consumer) throws IOException {
+    String[] path = recordPath.isEmpty() ? new String[0] : recordPath.split("/", -1);
+    try {
+      new JSONParser().parse(reader, new RecordHandler(path, consumer));
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("Could not parse JSON", e);
+    }
+  }
+
+  private static final class Frame {
+    final boolean array;
+    // only built inside a record
+    @Nullable
+    final Object value;
+    @Nullable
+    String key;
+
+    Frame(boolean array, @Nullable Object value) {
+      this.array = array;
+      this.value = value;
+    }
+
+    String segment() {
+      return array ? ARRAY_ELEMENT : key;
+    }
+  }
+
+  private static final class RecordHandler implements ContentHandler {
+
+    private static final int NO_RECORD = -1;
+
+    private final String[] path;
+    private final Consumer<Map<String, Object>> consumer;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    // number of frames outside the record being read
+    private int recordDepth = NO_RECORD;
+
+    RecordHandler(String[] path, Consumer<Map<String, Object>> consumer) {
+      this.path = path;
+      this.consumer = consumer;
+    }
+
+    @Override
+    public void startJSON() {
+      // nothing to do
+    }
+
+    @Override
+    public void endJSON() {
+      // nothing to do
+    }
+
+    @Override
+    public boolean startObject() {
+      if (recordDepth == NO_RECORD && isRecordLocation()) {
+        recordDepth = frames.size();
+      }
+      frames.push(new Frame(false, recordDepth == NO_RECORD ? null : new LinkedHashMap<String, Object>()));
+      return true;
+    }
+
+    @Override
+    public boolean endObject() {
+      end(frames.pop());
+      return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+      frames.element().key = key;
+      return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+      frames.element().key = null;
+      return true;
+    }
+
+    @Override
+    public boolean startArray() {
+      frames.push(new Frame(true, recordDepth == NO_RECORD ? null : new ArrayList<>()));
+      return true;
+    }
+
+    @Override
+    public boolean endArray() {
+      end(frames.pop());
+      return true;
+    }
+
+    @Override
+    public boolean primitive(@Nullable Object value) {
+      if (recordDepth != NO_RECORD) {
+        add(value);
+      }
+      return true;
+    }
+
+    private void end(Frame frame) {
+      if (frame.value == null) {
+        return;
+      }
+      if (frames.size() == recordDepth) {
+        recordDepth = NO_RECORD;
+        consumer.accept((Map<String, Object>) frame.value);
+      } else {
+        add(frame.value);
+      }
+    }
+
+    private void add(@Nullable Object value) {
+      Frame parent = frames.element();
+      if (parent.array) {
+        ((List<Object>) parent.value).add(value);
+      } else {
+        ((Map<String, Object>) parent.value).put(parent.key, value);
+      }
+    }
+
+    /**
+     * Whether the value starting now is at the record path.
+     */
+    private boolean isRecordLocation() {
+      if (frames.size() != path.length) {
+        return false;
+      }
+      Iterator<Frame> outermostFirst = frames.descendingIterator();
+      for (String segment : path) {
+        if (!segment.equals(outermostFirst.next().segment())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
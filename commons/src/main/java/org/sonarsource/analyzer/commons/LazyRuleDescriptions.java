@@ -0,0 +1,77 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.sonar.api.server.rule.RuleDescriptionSection;
+
+/**
+ * Descriptions of the rules registered by a {@link RuleMetadataLoader} after {@link RuleMetadataLoader#deferDescriptions()}:
+ * the HTML of a rule is read, and split into education sections, the first time it is requested, then kept.
+ *
+ * <p>The plugin API only accepts the description of a rule as a string set when the rule is defined, so those rules
+ * are defined with {@link #DEFERRED_HTML_DESCRIPTION}: products showing descriptions have to ask them here.
+ *
+ * <p>Thread-safe.
+ */
+public final class LazyRuleDescriptions {
+
+  /**
+   * The HTML description set on the rules whose description is deferred.
+   */
+  public static final String DEFERRED_HTML_DESCRIPTION = "<p>The description of this rule is loaded on demand.</p>";
+
+  private final Function<String, RuleMetadataIndex.HtmlDescription> reader;
+  private final boolean educationSectionsSupported;
+  private final Map<String, RuleMetadataIndex.HtmlDescription> descriptions = new ConcurrentHashMap<>();
+
+  LazyRuleDescriptions(Function<String, RuleMetadataIndex.HtmlDescription> reader, boolean educationSectionsSupported) {
+    this.reader = reader;
+    this.educationSectionsSupported = educationSectionsSupported;
+  }
+
+  /**
+   * The HTML description that would have been set on the rule, see {@link RuleMetadataLoader}. It is trimmed, like the
+   * descriptions set on the rules.
+   *
+   * @throws IllegalStateException when the description of the rule can't be read
+   */
+  public String htmlDescription(String ruleKey) {
+    return description(ruleKey).html().trim();
+  }
+
+  /**
+   * The education sections that would have been added to the rule, empty when its description is not in the education
+   * format or when the runtime doesn't support them.
+   *
+   * @throws IllegalStateException when the description of the rule can't be read
+   */
+  public List<RuleDescriptionSection> descriptionSections(String ruleKey) {
+    List<EducationDescription.Section> sections = description(ruleKey).educationSections();
+    if (sections == null || !educationSectionsSupported) {
+      return List.of();
+    }
+    return sections.stream().map(EducationRuleLoader::descriptionSection).toList();
+  }
+
+  private RuleMetadataIndex.HtmlDescription description(String ruleKey) {
+    return descriptions.computeIfAbsent(ruleKey, reader);
+  }
+}
@@ -16,22 +16,43 @@
  */
 package org.sonarsource.analyzer.commons;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
+import java.io.Closeable;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
 /**
  * A utility class to de/serialize a List<byte[]> and Map<String, byte[]> from/to byte[].
  * Simple length-prefixed serialization is used without any integrity checks.
  * Lengths are saved as int. Thus, the maximum size of an entry is Integer.MAX_VALUE.
+ *
+ * <p>Large payloads can be streamed: {@link Writer} writes elements one by one to a channel, {@link Reader} reads them
+ * one by one, from a channel or without copy from a buffer such as a memory-mapped file.
+ *
+ * <p>Maps can also be saved in an indexed layout, see {@link #serializeIndexedMap(Map)}, to look a key up without
+ * reading the other entries. {@link #unserializeMap(byte[])} and {@link #unserializeMap(InputStream)} read both layouts.
+ * See {@link FramedLengthPrefixSerializer} for a checksummed and compressed variant.
  */
 public class LengthPrefixSerializer {
 
@@ -50,14 +71,18 @@ public class LengthPrefixSerializer {
   }
 
   public static List<byte[]> unserializeList(byte[] data) throws IOException {
-    return unserializeList(new ByteArrayInputStream(data));
+    return unserializeList(Reader.of(ByteBuffer.wrap(data)));
   }
 
   public static List<byte[]> unserializeList(InputStream data) throws IOException {
+    return unserializeList(Reader.of(Channels.newChannel(data)));
+  }
+
+  private static List<byte[]> unserializeList(Reader reader) throws IOException {
     List<byte[]> result = new ArrayList<>();
-    try (DataInputStream dis = new DataInputStream(data)) {
-      while (dis.available() > 0) {
-        result.add(readBytes(dis));
+    try (reader) {
+      for (ByteBuffer element = reader.next(); element != null; element = reader.next()) {
+        result.add(toByteArray(element));
       }
     }
     return result;
@@ -75,26 +100,71 @@ public class LengthPrefixSerializer {
   }
 
   public static Map<String, byte[]> unserializeMap(byte[] data) throws IOException {
-    return unserializeMap(new ByteArrayInputStream(data));
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    int indexSize = IndexedMap.indexSize(buffer);
+    if (indexSize > data.length) {
+      throw new EOFException();
+    }
+    buffer.position(indexSize);
+    return unserializeMap(Reader.of(buffer));
   }
 
   public static Map<String, byte[]> unserializeMap(InputStream data) throws IOException {
+    InputStream input = data.markSupported() ? data : new BufferedInputStream(data);
+    input.mark(IndexedMap.HEADER_SIZE);
+    ByteBuffer header = ByteBuffer.wrap(input.readNBytes(IndexedMap.HEADER_SIZE));
+    input.reset();
+    input.skipNBytes(IndexedMap.indexSize(header));
+    return unserializeMap(Reader.of(Channels.newChannel(input)));
+  }
+
+  private static Map<String, byte[]> unserializeMap(Reader reader) throws IOException {
     Map<String, byte[]> result = new HashMap<>();
-    try (DataInputStream dis = new DataInputStream(data)) {
-      while (dis.available() > 0) {
-        String key = new String(readBytes(dis), StandardCharsets.UTF_8);
-        byte[] value = readBytes(dis);
-        result.put(key, value);
+    try (reader) {
+      for (ByteBuffer key = reader.next(); key != null; key = reader.next()) {
+        byte[] value = toByteArray(reader.nextValue());
+        result.put(StandardCharsets.UTF_8.decode(key).toString(), value);
       }
     }
     return result;
   }
 
-  private static byte[] readBytes(DataInputStream dis) throws IOException {
-    int length = dis.readInt();
-    validateLength(length);
-    byte[] bytes = new byte[length];
-    dis.readFully(bytes);
+  /**
+   * Serializes the map in the indexed layout of {@link IndexedMap}: entries are sorted by key and preceded by an index
+   * of their offsets. The entries themselves are saved like {@link #serializeMap(Map)} does.
+   */
+  public static byte[] serializeIndexedMap(Map<String, byte[]> toSerializeMap) throws IOException {
+    byte[][][] entries = toSerializeMap.entrySet().stream()
+      .map(entry -> new byte[][] {entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()})
+      .sorted((entry1, entry2) -> Arrays.compareUnsigned(entry1[0], entry2[0]))
+      .toArray(byte[][][]::new);
+    long size = IndexedMap.HEADER_SIZE + (long) Integer.BYTES * entries.length;
+    for (byte[][] entry : entries) {
+      size += 2L * Integer.BYTES + entry[0].length + entry[1].length;
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Map too large to be indexed: " + size + " bytes");
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int) size);
+    buffer.putInt(IndexedMap.MAGIC).putInt(entries.length);
+    int offset = IndexedMap.HEADER_SIZE + Integer.BYTES * entries.length;
+    for (byte[][] entry : entries) {
+      buffer.putInt(offset);
+      offset += 2 * Integer.BYTES + entry[0].length + entry[1].length;
+    }
+    for (byte[][] entry : entries) {
+      buffer.putInt(entry[0].length).put(entry[0]).putInt(entry[1].length).put(entry[1]);
+    }
+    return buffer.array();
+  }
+
+  private static byte[] toByteArray(ByteBuffer buffer) {
+    if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length) {
+      // buffer read from a channel, it is not shared
+      return buffer.array();
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
     return bytes;
   }
 
@@ -108,4 +178,443 @@ public class LengthPrefixSerializer {
       throw new IOException("Invalid length while unserializing: " + length);
     }
   }
+
+  /**
+   * Writes the elements of a list, or the keys and values of a map, one by one to a channel, in the same format as
+   * {@link #serializeList(List)} and {@link #serializeMap(Map)}. Small elements are buffered, closing the writer
+   * flushes them and closes the channel.
+   */
+  public static final class Writer implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    public Writer(WritableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    public Writer write(byte[] element) throws IOException {
+      return write(ByteBuffer.wrap(element));
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer, without changing its position.
+     */
+    public Writer write(ByteBuffer element) throws IOException {
+      int length = element.remaining();
+      if (buffer.remaining() < Integer.BYTES) {
+        flush();
+      }
+      buffer.putInt(length);
+      if (length <= buffer.remaining()) {
+        buffer.put(element.duplicate());
+      } else {
+        // large elements are written as is
+        flush();
+        writeFully(element.duplicate());
+      }
+      return this;
+    }
+
+    /**
+     * Writes a map entry.
+     */
+    public Writer write(String key, byte[] value) throws IOException {
+      return write(key.getBytes(StandardCharsets.UTF_8)).write(value);
+    }
+
+    public void flush() throws IOException {
+      buffer.flip();
+      writeFully(buffer);
+      buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try (channel) {
+        flush();
+      }
+    }
+  }
+
+  /**
+   * Reads the elements of a list, or the keys and values of a map, one by one, so a consumer can stop at the one it
+   * looks for without reading the others in memory.
+   *
+   * <p>Read from a buffer, e.g. a memory-mapped file (see {@link #map(Path)}), elements are read-only slices of the
+   * buffer: nothing is copied. Read from a channel, each element is read in its own buffer.
+   */
+  public static final class Reader implements Closeable {
+
+    @Nullable
+    private final ByteBuffer data;
+    @Nullable
+    private final ReadableByteChannel channel;
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+
+    private Reader(@Nullable ByteBuffer data, @Nullable ReadableByteChannel channel) {
+      this.data = data;
+      this.channel = channel;
+    }
+
+    /**
+     * Reads the data from its position to its limit. The data itself is not modified.
+     */
+    public static Reader of(ByteBuffer data) {
+      return new Reader(data.asReadOnlyBuffer(), null);
+    }
+
+    /**
+     * Reads the channel from its current position, closing the reader closes it.
+     */
+    public static Reader of(ReadableByteChannel channel) {
+      return new Reader(null, channel);
+    }
+
+    /**
+     * Reads the file through a read-only memory mapping, which stays valid after the reader is closed.
+     */
+    public static Reader map(Path file) throws IOException {
+      try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+        return of(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()));
+      }
+    }
+
+    /**
+     * Returns the next element, or null at the end of the data.
+     */
+    @CheckForNull
+    public ByteBuffer next() throws IOException {
+      int length = readLength();
+      if (length < 0) {
+        return null;
+      }
+      if (data != null) {
+        if (data.remaining() < length) {
+          throw new EOFException();
+        }
+        ByteBuffer element = data.slice(data.position(), length);
+        data.position(data.position() + length);
+        return element;
+      }
+      ByteBuffer element = ByteBuffer.allocate(length);
+      readFully(element);
+      return element.flip();
+    }
+
+    /**
+     * Scans the remaining map entries for the given key, returns its value or null when it is not found. Values of the
+     * other keys are skipped without being read when the data is a buffer or a seekable channel.
+     */
+    @CheckForNull
+    public ByteBuffer get(String key) throws IOException {
+      ByteBuffer expectedKey = ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8));
+      for (ByteBuffer currentKey = next(); currentKey != null; currentKey = next()) {
+        if (currentKey.equals(expectedKey)) {
+          return nextValue();
+        }
+        skipValue();
+      }
+      return null;
+    }
+
+    ByteBuffer nextValue() throws IOException {
+      ByteBuffer value = next();
+      if (value == null) {
+        throw new EOFException();
+      }
+      return value;
+    }
+
+    private void skipValue() throws IOException {
+      int length = readLength();
+      if (length < 0) {
+        throw new EOFException();
+      }
+      if (data != null) {
+        if (data.remaining() < length) {
+          throw new EOFException();
+        }
+        data.position(data.position() + length);
+      } else if (channel instanceof SeekableByteChannel seekableChannel) {
+        seekableChannel.position(seekableChannel.position() + length);
+      } else {
+        readFully(ByteBuffer.allocate(length));
+      }
+    }
+
+    /**
+     * Returns the next length, or -1 at the end of the data. Unlike {@link InputStream#available()}, the end of the data
+     * is only detected when nothing is left to read, even from non-buffered streams.
+     */
+    private int readLength() throws IOException {
+      int length;
+      if (data != null) {
+        if (!data.hasRemaining()) {
+          return -1;
+        }
+        if (data.remaining() < Integer.BYTES) {
+          throw new EOFException();
+        }
+        length = data.getInt();
+      } else {
+        lengthBuffer.clear();
+        if (read(lengthBuffer) < 0) {
+          return -1;
+        }
+        readFully(lengthBuffer);
+        length = lengthBuffer.getInt(0);
+      }
+      validateLength(length);
+      return length;
+    }
+
+    private int read(ByteBuffer buffer) throws IOException {
+      int count;
+      do {
+        count = channel.read(buffer);
+      } while (count == 0 && buffer.hasRemaining());
+      return count;
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        if (read(buffer) < 0) {
+          throw new EOFException();
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (channel != null) {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Read-only view of a serialized map, looking keys up by binary search over the entries sorted by key. Values are
+   * read-only slices of the data: untouched entries are neither copied nor decoded.
+   *
+   * <p>Layout written by {@link #serializeIndexedMap(Map)} and {@link #writeTo(WritableByteChannel)}, with big-endian
+   * ints:
+   * <pre>
+   *   magic number, entry count,
+   *   offset of each entry, in the order of their keys (compared as unsigned UTF-8 bytes),
+   *   entries: key length, key, value length, value
+   * </pre>
+   * The magic number is negative, so it's never mistaken for the first length of the unindexed layout of
+   * {@link #serializeMap(Map)}. That layout is also accepted: the index is then built in memory when the view is
+   * created, and {@link #writeTo(WritableByteChannel)} migrates the data to the indexed layout.
+   */
+  public static final class IndexedMap {
+
+    // 0x89 'L' 'P' '1'
+    static final int MAGIC = 0x894C5031;
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final ByteBuffer data;
+    private final int size;
+    // offsets of the entries of the unindexed layout, null for the indexed layout
+    @Nullable
+    private final int[] offsets;
+
+    private IndexedMap(ByteBuffer data, int size, @Nullable int[] offsets) {
+      this.data = data;
+      this.size = size;
+      this.offsets = offsets;
+    }
+
+    /**
+     * Reads the data from its position to its limit, in any of the two layouts. The data itself is not modified.
+     */
+    public static IndexedMap of(ByteBuffer data) throws IOException {
+      ByteBuffer slice = data.slice().asReadOnlyBuffer();
+      int indexSize = indexSize(slice);
+      if (indexSize > 0) {
+        int entryCount = slice.getInt(Integer.BYTES);
+        if (entryCount < 0 || slice.limit() < indexSize) {
+          throw new IOException("Invalid index while unserializing: " + entryCount + " entries");
+        }
+        return new IndexedMap(slice, entryCount, null);
+      }
+      int[] offsets = indexUnindexedLayout(slice);
+      return new IndexedMap(slice, offsets.length, offsets);
+    }
+
+    /**
+     * Reads the file through a read-only memory mapping.
+     */
+    public static IndexedMap map(Path file) throws IOException {
+      try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+        return of(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()));
+      }
+    }
+
+    /**
+     * Size of the header and index of the indexed layout starting at the position of the data, 0 for the unindexed one.
+     */
+    static int indexSize(ByteBuffer data) {
+      if (data.remaining() < HEADER_SIZE || data.getInt(data.position()) != MAGIC) {
+        return 0;
+      }
+      long size = HEADER_SIZE + (long) Integer.BYTES * Math.max(0, data.getInt(data.position() + Integer.BYTES));
+      return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Returns the value of the key, or null when there is none.
+     */
+    @CheckForNull
+    public ByteBuffer get(String key) throws IOException {
+      byte[] expectedKey = key.getBytes(StandardCharsets.UTF_8);
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int offset = offset(middle);
+        int comparison = compareKey(offset, expectedKey);
+        if (comparison < 0) {
+          low = middle + 1;
+        } else if (comparison > 0) {
+          high = middle - 1;
+        } else {
+          return element(valueOffset(offset));
+        }
+      }
+      return null;
+    }
+
+    public boolean containsKey(String key) throws IOException {
+      return get(key) != null;
+    }
+
+    /**
+     * Writes the map in the indexed layout, whatever the layout it was read from.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+      ByteBuffer index = ByteBuffer.allocate(HEADER_SIZE + Integer.BYTES * size);
+      index.putInt(MAGIC).putInt(size);
+      long entryOffset = index.capacity();
+      for (int i = 0; i < size; i++) {
+        if (entryOffset > Integer.MAX_VALUE) {
+          throw new IOException("Map too large to be indexed: " + entryOffset + " bytes");
+        }
+        index.putInt((int) entryOffset);
+        entryOffset += entryEnd(offset(i)) - offset(i);
+      }
+      writeFully(channel, index.flip());
+      for (int i = 0; i < size; i++) {
+        int offset = offset(i);
+        writeFully(channel, data.slice(offset, entryEnd(offset) - offset));
+      }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    }
+
+    private int offset(int entryIndex) throws IOException {
+      if (offsets != null) {
+        return offsets[entryIndex];
+      }
+      int offset = data.getInt(HEADER_SIZE + Integer.BYTES * entryIndex);
+      if (offset < 0 || offset > data.limit()) {
+        throw new IOException("Invalid offset while unserializing: " + offset);
+      }
+      return offset;
+    }
+
+    /**
+     * Reads the length at the given offset, checking that the element following it is within the data.
+     */
+    private int length(int offset) throws IOException {
+      if (data.limit() - offset < Integer.BYTES) {
+        throw new EOFException();
+      }
+      int length = data.getInt(offset);
+      validateLength(length);
+      if (data.limit() - offset - Integer.BYTES < length) {
+        throw new EOFException();
+      }
+      return length;
+    }
+
+    private int valueOffset(int entryOffset) throws IOException {
+      return entryOffset + Integer.BYTES + length(entryOffset);
+    }
+
+    private int entryEnd(int entryOffset) throws IOException {
+      int valueOffset = valueOffset(entryOffset);
+      return valueOffset + Integer.BYTES + length(valueOffset);
+    }
+
+    private ByteBuffer element(int offset) throws IOException {
+      return data.slice(offset + Integer.BYTES, length(offset));
+    }
+
+    private int compareKey(int entryOffset, byte[] expectedKey) throws IOException {
+      int keyLength = length(entryOffset);
+      int keyStart = entryOffset + Integer.BYTES;
+      int commonLength = Math.min(keyLength, expectedKey.length);
+      for (int i = 0; i < commonLength; i++) {
+        int comparison = Byte.compareUnsigned(data.get(keyStart + i), expectedKey[i]);
+        if (comparison != 0) {
+          return comparison;
+        }
+      }
+      return Integer.compare(keyLength, expectedKey.length);
+    }
+
+    private int compareKeys(int entryOffset1, int entryOffset2) {
+      ByteBuffer key1 = data.slice(entryOffset1 + Integer.BYTES, data.getInt(entryOffset1));
+      ByteBuffer key2 = data.slice(entryOffset2 + Integer.BYTES, data.getInt(entryOffset2));
+      int mismatch = key1.mismatch(key2);
+      if (mismatch < 0) {
+        return 0;
+      }
+      if (mismatch == key1.limit() || mismatch == key2.limit()) {
+        return Integer.compare(key1.limit(), key2.limit());
+      }
+      return Byte.compareUnsigned(key1.get(mismatch), key2.get(mismatch));
+    }
+
+    /**
+     * Returns the offsets of the entries of the unindexed layout, sorted by key. When a key is duplicated, the last entry
+     * wins, like in {@link #unserializeMap(byte[])}.
+     */
+    private static int[] indexUnindexedLayout(ByteBuffer data) throws IOException {
+      IndexedMap unsorted = new IndexedMap(data, 0, new int[0]);
+      IntStream.Builder offsets = IntStream.builder();
+      int offset = 0;
+      while (offset < data.limit()) {
+        offsets.add(offset);
+        offset = unsorted.entryEnd(offset);
+      }
+      Comparator<Integer> byKey = unsorted::compareKeys;
+      int[] sorted = offsets.build().boxed().sorted(byKey.thenComparing(Comparator.reverseOrder())).mapToInt(Integer::intValue).toArray();
+      IntStream.Builder unique = IntStream.builder();
+      for (int i = 0; i < sorted.length; i++) {
+        if (i == 0 || unsorted.compareKeys(sorted[i - 1], sorted[i]) != 0) {
+          unique.add(sorted[i]);
+        }
+      }
+      return unique.build().toArray();
+    }
+  }
 }
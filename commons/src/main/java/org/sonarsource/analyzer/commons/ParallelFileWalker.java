@@ -0,0 +1,182 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks a file tree with several threads, each one listing a different directory, descending only into the
+ * directories accepted by a predicate. The accepted files are returned as a stream which can be consumed while the
+ * walk goes on, in no particular order.
+ *
+ * <p>Like {@link Files#walk}, symbolic links to directories are not followed. I/O errors are thrown by the stream as
+ * {@link UncheckedIOException}, and the runtime exceptions of the predicates are thrown by the stream as is. At most {@value #MAX_PENDING_PATHS} accepted paths wait to be consumed: the walk pauses
+ * while the consumer is slower. The stream has to be closed, e.g. with try-with-resources, to stop the walk and its
+ * threads when it is not fully consumed.
+ */
+final class ParallelFileWalker {
+
+  static final int MAX_PENDING_PATHS = 1024;
+
+  private ParallelFileWalker() {
+  }
+
+  static Stream<Path> walk(Path directory, Predicate<Path> descend, Predicate<Path> accept, int parallelism) {
+    Walk walk = new Walk(descend, accept, parallelism);
+    walk.submit(directory);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(walk, Spliterator.NONNULL), false)
+      .onClose(walk::close);
+  }
+
+  private static final class Walk implements Iterator<Path> {
+
+    // marks the end of the walk in the queue, which otherwise holds paths and errors
+    private static final Object END = new Object();
+
+    private final Predicate<Path> descend;
+    private final Predicate<Path> accept;
+    private final ExecutorService executor;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(MAX_PENDING_PATHS);
+    // directories submitted and not fully listed yet, the walk ends when there's none left
+    private final AtomicInteger pendingDirectories = new AtomicInteger();
+    private volatile boolean closed;
+    private Object next;
+
+    Walk(Predicate<Path> descend, Predicate<Path> accept, int parallelism) {
+      this.descend = descend;
+      this.accept = accept;
+      this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+        Thread thread = new Thread(runnable, "file-walker");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    void submit(Path directory) {
+      pendingDirectories.incrementAndGet();
+      try {
+        executor.execute(() -> visit(directory));
+      } catch (RejectedExecutionException e) {
+        // the walk was closed, nobody reads the queue anymore
+        pendingDirectories.decrementAndGet();
+      }
+    }
+
+    private void visit(Path directory) {
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+        Iterator<Path> iterator = entries.iterator();
+        while (!closed && iterator.hasNext()) {
+          Path entry = iterator.next();
+          if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+            if (descend.test(entry)) {
+              submit(entry);
+            }
+          } else if (accept.test(entry)) {
+            // blocks while the consumer is behind, until the walk is closed
+            queue.put(entry);
+          }
+        }
+      } catch (IOException e) {
+        publish(new UncheckedIOException(e));
+      } catch (DirectoryIteratorException e) {
+        publish(new UncheckedIOException(e.getCause()));
+      } catch (RuntimeException e) {
+        // thrown by the predicates, or UncheckedIOException
+        publish(e);
+      } catch (InterruptedException e) {
+        // the walk was closed
+        Thread.currentThread().interrupt();
+      } finally {
+        if (pendingDirectories.decrementAndGet() == 0) {
+          publish(END);
+        }
+      }
+    }
+
+    private void publish(Object element) {
+      try {
+        queue.put(element);
+      } catch (InterruptedException e) {
+        // the walk was closed, nobody reads the queue anymore
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (closed) {
+        return false;
+      }
+      if (next == null) {
+        try {
+          next = queue.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          next = END;
+          close();
+          throw new IllegalStateException("Interrupted while walking the file tree", e);
+        }
+      }
+      if (next == END) {
+        executor.shutdown();
+        return false;
+      }
+      if (next instanceof RuntimeException error) {
+        next = END;
+        close();
+        throw error;
+      }
+      return true;
+    }
+
+    @Override
+    public Path next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Path path = (Path) next;
+      next = null;
+      return path;
+    }
+
+    void close() {
+      closed = true;
+      // interrupts the workers waiting for the consumer, directories not listed yet are dropped
+      executor.shutdownNow();
+      queue.clear();
+    }
+  }
+}
@@ -20,6 +20,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Optional;
 
 final class Resources {
 
@@ -39,21 +40,37 @@ final class Resources {
    * @throws IOException if an I/O error occurs.
    */
   static String toString(String path, Charset charset) throws IOException {
-    if (!path.startsWith("/")) {
-      // to make sure it is always going to be considered as absolute
-      path = "/" + path;
+    Optional<byte[]> bytes = toByteArrayIfExists(path);
+    if (bytes.isEmpty()) {
+      throw new IOException("Resource not found in the classpath: " + absolutePath(path));
     }
-    try (InputStream input = Resources.class.getResourceAsStream(path)) {
+    return new String(bytes.get(), charset);
+  }
+
+  /**
+   * Reads all bytes from a resource class path, in a single access to the class path.
+   *
+   * @param path the resource path to read from
+   * @return the bytes of the resource, empty if it does not exist
+   * @throws IOException if an I/O error occurs.
+   */
+  static Optional<byte[]> toByteArrayIfExists(String path) throws IOException {
+    try (InputStream input = Resources.class.getResourceAsStream(absolutePath(path))) {
       if (input == null) {
-        throw new IOException("Resource not found in the classpath: " + path);
+        return Optional.empty();
       }
       ByteArrayOutputStream out = new ByteArrayOutputStream();
       byte[] buffer = new byte[BUFFER_SIZE];
       for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
         out.write(buffer, 0, read);
       }
-      return new String(out.toByteArray(), charset);
+      return Optional.of(out.toByteArray());
     }
   }
 
+  private static String absolutePath(String path) {
+    // to make sure it is always going to be considered as absolute
+    return path.startsWith("/") ? path : ("/" + path);
+  }
+
 }
@@ -0,0 +1,343 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Pre-compiled metadata of a rule folder, saved in a single resource named {@value #FILE_NAME}: the JSON metadata files
+ * already parsed, and the HTML descriptions with their education sections already split. When that resource is in the
+ * resource folder of a {@link RuleMetadataLoader}, the loader reads it with a single class path access instead of one
+ * JSON and one HTML resource per rule. Rules missing from it are still read from their own files.
+ *
+ * <p>Generated at build time by {@link #main(String[])}, e.g. with the exec-maven-plugin once the resources are copied:
+ * <pre>{@code
+ * <execution>
+ *   <id>compile-rule-metadata-index</id>
+ *   <phase>process-classes</phase>
+ *   <goals>
+ *     <goal>java</goal>
+ *   </goals>
+ *   <configuration>
+ *     <mainClass>org.sonarsource.analyzer.commons.RuleMetadataIndex</mainClass>
+ *     <arguments>
+ *       <argument>${project.build.outputDirectory}/org/sonar/l10n/java/rules/java</argument>
+ *     </arguments>
+ *   </configuration>
+ * </execution>
+ * }</pre>
+ *
+ * <p>The resource is a {@link LengthPrefixSerializer.IndexedMap} whose keys are the file names: only the entries of the
+ * loaded rules are decoded. An invalid education description fails the build instead of the plugin startup.
+ */
+public final class RuleMetadataIndex {
+
+  public static final String FILE_NAME = "rule-metadata.index";
+
+  private static final String JSON_EXTENSION = ".json";
+  private static final String HTML_EXTENSION = ".html";
+
+  // tags of the values of the JSON trees
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte LONG = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte TRUE = 4;
+  private static final byte FALSE = 5;
+  private static final byte ARRAY = 6;
+  private static final byte OBJECT = 7;
+
+  private final String path;
+  private final LengthPrefixSerializer.IndexedMap entries;
+
+  /**
+   * The HTML description of a rule, and its education sections when it is in the education format. The HTML is then the
+   * fallback description, see {@link EducationRuleLoader#setEducationDescriptionFromHtml}.
+   */
+  record HtmlDescription(String html, @Nullable List<EducationDescription.Section> educationSections) {
+  }
+
+  private RuleMetadataIndex(String path, LengthPrefixSerializer.IndexedMap entries) {
+    this.path = path;
+    this.entries = entries;
+  }
+
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      throw new IllegalArgumentException("Usage: RuleMetadataIndex <rule-folder> [<output-file>]");
+    }
+    Path ruleFolder = Paths.get(args[0]).toAbsolutePath();
+    Path output = args.length > 1 ? Paths.get(args[1]).toAbsolutePath() : ruleFolder.resolve(FILE_NAME);
+    try {
+      Files.createDirectories(output.getParent());
+      Files.write(output, compile(ruleFolder));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Compiles the ".json" and ".html" files of the folder. JSON files which are not objects, e.g. quality profiles or
+   * external rules, are skipped.
+   */
+  static byte[] compile(Path ruleFolder) throws IOException {
+    Map<String, byte[]> compiled = new HashMap<>();
+    JsonParser jsonParser = new JsonParser();
+    List<Path> files;
+    try (Stream<Path> list = Files.list(ruleFolder)) {
+      files = list.filter(Files::isRegularFile).toList();
+    }
+    for (Path file : files) {
+      String fileName = file.getFileName().toString();
+      if (fileName.endsWith(JSON_EXTENSION)) {
+        Object metadata = parseJson(jsonParser, readString(file));
+        if (metadata instanceof Map) {
+          compiled.put(fileName, encode(out -> writeJson(out, metadata)));
+        }
+      } else if (fileName.endsWith(HTML_EXTENSION)) {
+        String ruleKey = fileName.substring(0, fileName.length() - HTML_EXTENSION.length());
+        String description = readString(file);
+        compiled.put(fileName, encode(out -> writeHtmlDescription(out, ruleKey, description)));
+      }
+    }
+    return LengthPrefixSerializer.serializeIndexedMap(compiled);
+  }
+
+  /**
+   * Returns the index of the resource folder, or null when it has none.
+   */
+  @CheckForNull
+  static RuleMetadataIndex load(String resourceFolder) {
+    String path = resourceFolder + '/' + FILE_NAME;
+    try {
+      Optional<byte[]> bytes = Resources.toByteArrayIfExists(path);
+      return bytes.isPresent() ? of(path, bytes.get()) : null;
+    } catch (IOException e) {
+      throw new IllegalStateException("Can't read resource: " + path, e);
+    }
+  }
+
+  static RuleMetadataIndex of(String path, byte[] compiled) throws IOException {
+    return new RuleMetadataIndex(path, LengthPrefixSerializer.IndexedMap.of(ByteBuffer.wrap(compiled)));
+  }
+
+  /**
+   * The parsed content of the JSON metadata file of the rule, or null when it is not in the index.
+   */
+  @CheckForNull
+  Map<String, Object> metadata(String ruleKey) {
+    ByteBuffer entry = entry(ruleKey + JSON_EXTENSION);
+    if (entry == null) {
+      return null;
+    }
+    try {
+      return (Map<String, Object>) readJson(entry);
+    } catch (RuntimeException e) {
+      throw new IllegalStateException("Can't read resource: " + path, e);
+    }
+  }
+
+  @CheckForNull
+  HtmlDescription htmlDescription(String ruleKey) {
+    ByteBuffer entry = entry(ruleKey + HTML_EXTENSION);
+    if (entry == null) {
+      return null;
+    }
+    try {
+      String html = readString(entry);
+      List<EducationDescription.Section> sections = null;
+      if (entry.get() == TRUE) {
+        int sectionCount = entry.getInt();
+        sections = new ArrayList<>(sectionCount);
+        for (int i = 0; i < sectionCount; i++) {
+          sections.add(new EducationDescription.Section(readString(entry), readString(entry), readNullableString(entry), readNullableString(entry)));
+        }
+      }
+      return new HtmlDescription(html, sections);
+    } catch (RuntimeException e) {
+      throw new IllegalStateException("Can't read resource: " + path, e);
+    }
+  }
+
+  @CheckForNull
+  private ByteBuffer entry(String fileName) {
+    try {
+      return entries.get(fileName);
+    } catch (IOException e) {
+      throw new IllegalStateException("Can't read resource: " + path, e);
+    }
+  }
+
+  private static String readString(Path file) throws IOException {
+    // same decoding as Resources.toString
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  @CheckForNull
+  private static Object parseJson(JsonParser jsonParser, String json) {
+    try {
+      return jsonParser.parseValue(json);
+    } catch (IllegalArgumentException e) {
+      // not rule metadata, reading it at runtime will report the error if it is needed
+      return null;
+    }
+  }
+
+  private interface Encoder {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  private static byte[] encode(Encoder encoder) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      encoder.write(out);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeHtmlDescription(DataOutputStream out, String ruleKey, String description) throws IOException {
+    if (!EducationDescription.isEducationFormat(description)) {
+      writeString(out, description);
+      out.writeByte(FALSE);
+      return;
+    }
+    List<EducationDescription.Section> sections = EducationDescription.sections(ruleKey, description);
+    writeString(out, EducationDescription.fallbackHtmlDescription(description));
+    out.writeByte(TRUE);
+    out.writeInt(sections.size());
+    for (EducationDescription.Section section : sections) {
+      writeString(out, section.key());
+      writeString(out, section.htmlContent());
+      writeNullableString(out, section.contextKey());
+      writeNullableString(out, section.contextDisplayName());
+    }
+  }
+
+  private static void writeJson(DataOutputStream out, @Nullable Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String string) {
+      out.writeByte(STRING);
+      writeString(out, string);
+    } else if (value instanceof Boolean bool) {
+      out.writeByte(bool ? TRUE : FALSE);
+    } else if (value instanceof Long || value instanceof Integer) {
+      out.writeByte(LONG);
+      out.writeLong(((Number) value).longValue());
+    } else if (value instanceof Number number) {
+      out.writeByte(DOUBLE);
+      out.writeDouble(number.doubleValue());
+    } else if (value instanceof List<?> list) {
+      out.writeByte(ARRAY);
+      out.writeInt(list.size());
+      for (Object element : list) {
+        writeJson(out, element);
+      }
+    } else if (value instanceof Map<?, ?> map) {
+      out.writeByte(OBJECT);
+      out.writeInt(map.size());
+      // sorted, so the index does not depend on the iteration order of the parsed objects
+      for (Map.Entry<?, ?> entry : new TreeMap<>(map).entrySet()) {
+        writeString(out, (String) entry.getKey());
+        writeJson(out, entry.getValue());
+      }
+    } else {
+      throw new IllegalArgumentException("Unexpected JSON value: " + value);
+    }
+  }
+
+  /**
+   * Reads a JSON value with the same Java types as {@link JsonParser}: {@link Map}, {@link List}, {@link String},
+   * {@link Long}, {@link Double}, {@link Boolean} or null.
+   */
+  @CheckForNull
+  private static Object readJson(ByteBuffer in) {
+    byte tag = in.get();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case LONG:
+        return in.getLong();
+      case DOUBLE:
+        return in.getDouble();
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case ARRAY:
+        int size = in.getInt();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readJson(in));
+        }
+        return list;
+      case OBJECT:
+        int entryCount = in.getInt();
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < entryCount; i++) {
+          String key = readString(in);
+          map.put(key, readJson(in));
+        }
+        return map;
+      default:
+        throw new IllegalStateException("Invalid JSON value tag: " + tag);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static void writeNullableString(DataOutputStream out, @Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  private static String readString(ByteBuffer in) {
+    byte[] bytes = new byte[in.getInt()];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @CheckForNull
+  private static String readNullableString(ByteBuffer in) {
+    return in.get() != 0 ? readString(in) : null;
+  }
+}
@@ -17,6 +17,7 @@
 package org.sonarsource.analyzer.commons;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -25,6 +26,12 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.issue.impact.Severity;
@@ -56,7 +63,12 @@ import javax.annotation.Nullable;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
- * Not designed for multi-threads
+ * Not designed for multi-threads: a loader must be used by one thread at a time. It reads, parses and splits the
+ * resources of the rules concurrently, but only modifies the repository from the calling thread, in the order of the
+ * rules.
+ *
+ * <p>When the resource folder contains a {@link RuleMetadataIndex}, the metadata of the rules is read from it instead
+ * of their own JSON and HTML files.
  */
 public class RuleMetadataLoader {
 
@@ -67,6 +79,10 @@ public class RuleMetadataLoader {
   private final JsonParser jsonParser;
   private final SonarRuntime sonarRuntime;
   private final EducationRuleLoader educationRuleLoader;
+  @Nullable
+  private final RuleMetadataIndex metadataIndex;
+  @Nullable
+  private LazyRuleDescriptions lazyDescriptions;
 
   private static final String OWASP_MOBILE_2024 = "OWASP Mobile Top 10 2024";
   private static final String OWASP_2025 = "OWASP Top 10 2025";
@@ -78,6 +94,13 @@ public class RuleMetadataLoader {
   private static final String IMPACTS = "impacts";
   private static final String LINEAR_FACTOR = "linearFactor";
   private static final String LINEAR_DESCRIPTION = "linearDesc";
+  private static final int MAX_LOADING_THREADS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+  /**
+   * The resources of a rule, read and parsed without modifying the rule. The description is null when it is deferred.
+   */
+  private record RuleResources(@Nullable RuleMetadataIndex.HtmlDescription htmlDescription, Map<String, Object> metadata) {
+  }
 
   /**
    * Without a resource folder, rules added with {@link #addRulesByAnnotatedClass} are described entirely by the
@@ -102,27 +125,134 @@ public class RuleMetadataLoader {
     this.activatedByDefault = activatedByDefault;
     this.sonarRuntime = sonarRuntime;
     this.educationRuleLoader = new EducationRuleLoader(sonarRuntime);
+    this.metadataIndex = resourceFolder == null ? null : RuleMetadataIndex.load(resourceFolder);
+  }
+
+  /**
+   * Makes the rules added from now on by {@link #addRulesByAnnotatedClass} and {@link #addRulesByRuleKey} be defined
+   * with their metadata only: their HTML description is neither read nor split into education sections, the rules get
+   * {@link LazyRuleDescriptions#DEFERRED_HTML_DESCRIPTION} instead. The returned descriptions read them on first access.
+   *
+   * <p>Meant for products which register many rules but show few descriptions. Rules created from a
+   * {@link RuleManifest} are not affected.
+   *
+   * @throws IllegalStateException when the loader has no resource folder
+   */
+  public LazyRuleDescriptions deferDescriptions() {
+    if (resourceFolder == null) {
+      throw new IllegalStateException("Resource folder is required to defer rule descriptions");
+    }
+    if (lazyDescriptions == null) {
+      lazyDescriptions = new LazyRuleDescriptions(this::readHtmlDescription, educationRuleLoader.isEducationRuleDescriptionSupported());
+    }
+    return lazyDescriptions;
   }
 
   public void addRulesByAnnotatedClass(NewRepository repository, List<Class<?>> ruleClasses) {
-    for (Class<?> ruleClass : ruleClasses) {
-      addRuleByAnnotatedClass(repository, ruleClass);
+    if (resourceFolder == null) {
+      for (Class<?> ruleClass : ruleClasses) {
+        setDefaultActivation(addAnnotatedRule(repository, ruleClass));
+      }
+      return;
     }
+    List<String> ruleKeys = ruleClasses.stream().map(RuleMetadataLoader::annotatedRuleKey).toList();
+    addRules(ruleKeys, i -> addAnnotatedRule(repository, ruleClasses.get(i)));
   }
 
   public void addRulesByRuleKey(NewRepository repository, List<String> ruleKeys) {
+    if (resourceFolder == null) {
+      if (!ruleKeys.isEmpty()) {
+        checkNotEmpty(ruleKeys.get(0));
+        throw new IllegalStateException("Resource folder is required to load a rule by its key: " + ruleKeys.get(0));
+      }
+      return;
+    }
+    addRules(ruleKeys, i -> repository.createRule(checkNotEmpty(ruleKeys.get(i))));
+  }
+
+  private static String checkNotEmpty(String ruleKey) {
+    if (ruleKey.isEmpty()) {
+      throw new IllegalStateException("Empty key");
+    }
+    return ruleKey;
+  }
+
+  /**
+   * Reads the resources of the rules concurrently, then creates the rules and sets their metadata in order, from the
+   * calling thread.
+   */
+  private void addRules(List<String> ruleKeys, IntFunction<NewRule> ruleFactory) {
+    ExecutorService executor = newLoadingExecutor(ruleKeys.size());
+    try {
+      List<Future<RuleResources>> resources = startReadingResources(executor, ruleKeys);
+      for (int i = 0; i < ruleKeys.size(); i++) {
+        NewRule rule = ruleFactory.apply(i);
+        setResources(rule, await(resources.get(i)));
+        setDefaultActivation(rule);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static ExecutorService newLoadingExecutor(int ruleCount) {
+    return Executors.newFixedThreadPool(Math.max(1, Math.min(ruleCount, MAX_LOADING_THREADS)), runnable -> {
+      Thread thread = new Thread(runnable, "rule-metadata-loader");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts reading the resources of the rules on the executor, in the order of the keys. Null or empty keys, which are
+   * reported when the rules are added, have no resources.
+   */
+  private List<Future<RuleResources>> startReadingResources(ExecutorService executor, List<String> ruleKeys) {
+    List<Future<RuleResources>> resources = new ArrayList<>(ruleKeys.size());
     for (String ruleKey : ruleKeys) {
-      addRuleByRuleKey(repository, ruleKey);
+      resources.add(ruleKey == null || ruleKey.isEmpty()
+        ? CompletableFuture.completedFuture(null)
+        : executor.submit(() -> readResources(ruleKey)));
+    }
+    return resources;
+  }
+
+  private RuleResources readResources(String ruleKey) {
+    RuleMetadataIndex.HtmlDescription htmlDescription = lazyDescriptions == null ? readHtmlDescription(ruleKey) : null;
+    return new RuleResources(htmlDescription, getMetadataFromFile(ruleKey));
+  }
+
+  private static RuleResources await(Future<RuleResources> resources) {
+    try {
+      return resources.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading rule metadata", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
     }
   }
 
-  private void addRuleByAnnotatedClass(NewRepository repository, Class<?> ruleClass) {
-    NewRule rule = addAnnotatedRule(repository, ruleClass);
-    if (resourceFolder != null) {
-      setDescriptionFromHtmlFile(rule);
-      setMetadataFromJsonFile(rule);
+  private void setResources(NewRule rule, RuleResources resources) {
+    RuleMetadataIndex.HtmlDescription htmlDescription = resources.htmlDescription();
+    if (htmlDescription == null) {
+      rule.setHtmlDescription(LazyRuleDescriptions.DEFERRED_HTML_DESCRIPTION);
+    } else {
+      rule.setHtmlDescription(educationRuleLoader.setEducationDescription(rule, htmlDescription));
     }
-    setDefaultActivation(rule);
+    setMetadataFromJson(rule, resources.metadata());
+  }
+
+  /**
+   * Returns the key of the {@code org.sonar.check.Rule} annotation of the class, or null when it has none.
+   */
+  @Nullable
+  private static String annotatedRuleKey(Class<?> ruleClass) {
+    org.sonar.check.Rule ruleAnnotation = AnnotationUtils.getAnnotation(ruleClass, org.sonar.check.Rule.class);
+    return ruleAnnotation == null ? null : ruleAnnotation.key();
   }
 
   private void setDefaultActivation(NewRule rule) {
@@ -166,33 +296,24 @@ public class RuleMetadataLoader {
     rule.addDeprecatedRuleKey(repoKey, deprecatedRuleKey.ruleKey());
   }
 
-  private void addRuleByRuleKey(NewRepository repository, String ruleKey) {
-    if (ruleKey.isEmpty()) {
-      throw new IllegalStateException("Empty key");
-    }
-    if (resourceFolder == null) {
-      throw new IllegalStateException("Resource folder is required to load a rule by its key: " + ruleKey);
-    }
-    NewRule rule = repository.createRule(ruleKey);
-    setDescriptionFromHtmlFile(rule);
-    setMetadataFromJsonFile(rule);
-    setDefaultActivation(rule);
-  }
-
   private void setDescriptionFromHtml(NewRule rule, String description) {
     description = educationRuleLoader.setEducationDescriptionFromHtml(rule, description);
     rule.setHtmlDescription(description);
   }
 
-  private void setDescriptionFromHtmlFile(NewRule rule) {
-    String htmlPath = resourceFolder + RESOURCE_SEP + rule.key() + ".html";
+  private RuleMetadataIndex.HtmlDescription readHtmlDescription(String ruleKey) {
+    RuleMetadataIndex.HtmlDescription indexedDescription = metadataIndex == null ? null : metadataIndex.htmlDescription(ruleKey);
+    if (indexedDescription != null) {
+      return indexedDescription;
+    }
+    String htmlPath = resourceFolder + RESOURCE_SEP + ruleKey + ".html";
     String description;
     try {
       description = Resources.toString(htmlPath, UTF_8);
     } catch (IOException e) {
       throw new IllegalStateException("Can't read resource: " + htmlPath, e);
     }
-    this.setDescriptionFromHtml(rule, description);
+    return educationRuleLoader.htmlDescription(ruleKey, description);
   }
 
   private void setMetadataFromJson(NewRule rule, Map<String, Object> ruleMetadata) {
@@ -224,13 +345,11 @@ public class RuleMetadataLoader {
     educationRuleLoader.setEducationMetadataFromJson(rule, ruleMetadata);
   }
 
-  private void setMetadataFromJsonFile(NewRule rule) {
-    Map<String, Object> ruleMetadata = getMetadataFromFile(rule.key());
-
-    this.setMetadataFromJson(rule, ruleMetadata);
-  }
-
   Map<String, Object> getMetadataFromFile(String ruleKey) {
+    Map<String, Object> indexedMetadata = metadataIndex == null ? null : metadataIndex.metadata(ruleKey);
+    if (indexedMetadata != null) {
+      return indexedMetadata;
+    }
     String jsonPath = resourceFolder + RESOURCE_SEP + ruleKey + ".json";
     try {
       return jsonParser.parse(Resources.toString(jsonPath, UTF_8));
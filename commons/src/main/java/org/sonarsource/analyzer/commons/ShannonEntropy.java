@@ -16,8 +16,7 @@
  */
 package org.sonarsource.analyzer.commons;
 
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 import javax.annotation.Nullable;
 
 public class ShannonEntropy {
@@ -31,15 +30,99 @@ public class ShannonEntropy {
     if (str == null || str.isEmpty()) {
       return 0.0d;
     }
+    Histogram histogram = new Histogram();
     int length = str.length();
-    return str.chars()
-      .boxed()
-      .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
-      .values()
-      .stream()
-      .map(Long::doubleValue)
-      .mapToDouble(count -> count / length)
-      .map(frequency -> -frequency * Math.log(frequency))
-      .sum() / LOG_2;
+    for (int i = 0; i < length; i++) {
+      histogram.add(str.charAt(i));
+    }
+    return histogram.entropy();
+  }
+
+  /**
+   * Character occurrences of a string, for callers already scanning it character by character, so the entropy is
+   * computed in the same pass as their other statistics. {@link #entropy()} returns the same value as
+   * {@link ShannonEntropy#calculate(String)} on the added characters.
+   *
+   * <p>The per-character terms are added with compensated summation, like {@link java.util.stream.DoubleStream#sum()},
+   * so that e.g. 2^k distinct characters have an entropy of exactly k. The terms are added in character order, the
+   * last bit of the result can therefore differ from a summation in another order.
+   */
+  public static final class Histogram {
+    private static final int ASCII_SIZE = 128;
+
+    private final int[] asciiCounts = new int[ASCII_SIZE];
+    // non ASCII characters are rare, they are only collected and counted once sorted
+    private char[] nonAsciiChars = null;
+    private int nonAsciiLength = 0;
+    private int length = 0;
+
+    public void add(char ch) {
+      length++;
+      if (ch < ASCII_SIZE) {
+        asciiCounts[ch]++;
+        return;
+      }
+      if (nonAsciiChars == null) {
+        nonAsciiChars = new char[16];
+      } else if (nonAsciiLength == nonAsciiChars.length) {
+        nonAsciiChars = Arrays.copyOf(nonAsciiChars, nonAsciiLength * 2);
+      }
+      nonAsciiChars[nonAsciiLength] = ch;
+      nonAsciiLength++;
+    }
+
+    public int length() {
+      return length;
+    }
+
+    public double entropy() {
+      if (length == 0) {
+        return 0.0d;
+      }
+      Sum sum = new Sum();
+      for (int count : asciiCounts) {
+        if (count != 0) {
+          sum.add(term(count));
+        }
+      }
+      if (nonAsciiLength > 0) {
+        char[] sorted = Arrays.copyOf(nonAsciiChars, nonAsciiLength);
+        Arrays.sort(sorted);
+        int count = 1;
+        for (int i = 1; i <= sorted.length; i++) {
+          if (i < sorted.length && sorted[i] == sorted[i - 1]) {
+            count++;
+          } else {
+            sum.add(term(count));
+            count = 1;
+          }
+        }
+      }
+      return sum.value() / LOG_2;
+    }
+
+    private double term(int count) {
+      double frequency = ((double) count) / length;
+      return -frequency * Math.log(frequency);
+    }
+  }
+
+  /**
+   * Kahan summation, as done by {@link java.util.stream.DoubleStream#sum()}.
+   */
+  private static final class Sum {
+    private double sum = 0.0d;
+    private double compensation = 0.0d;
+
+    void add(double value) {
+      double compensated = value - compensation;
+      double next = sum + compensated;
+      compensation = (next - sum) - compensated;
+      sum = next;
+    }
+
+    double value() {
+      return sum - compensation;
+    }
   }
 }
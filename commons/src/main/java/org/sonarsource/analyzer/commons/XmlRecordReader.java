@@ -0,0 +1,142 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streams the records of an XML report with StAX, e.g. the {@code error} elements of a Checkstyle report: only the
+ * record being read and the attributes of its ancestors are held in memory.
+ *
+ * <p>DTDs and external entities are not supported.
+ */
+public final class XmlRecordReader {
+
+  private XmlRecordReader() {
+    // utility
+  }
+
+  /**
+   * An element of the report: its attributes, and its text content for records, including the text of its descendants.
+   * The parent of an element is its enclosing element, whose text is not kept, or null for the root element.
+   */
+  public record Element(String name, Map<String, String> attributes, String text, @Nullable Element parent) {
+
+    @CheckForNull
+    public String attribute(String attributeName) {
+      return attributes.get(attributeName);
+    }
+  }
+
+  /**
+   * Hands the elements whose local name is the record name to the consumer, in the document order. Records nested in
+   * records are only part of the text of the outer record.
+   *
+   * @throws IllegalArgumentException when the XML is invalid
+   */
+  public static void read(InputStream input, String recordName, Consumer<Element> consumer) throws IOException {
+    XMLStreamReader reader = null;
+    try {
+      reader = inputFactory().createXMLStreamReader(input);
+      read(reader, recordName, consumer);
+    } catch (XMLStreamException e) {
+      if (e.getNestedException() instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IllegalArgumentException("Could not parse XML", e);
+    } finally {
+      close(reader);
+    }
+  }
+
+  private static void read(XMLStreamReader reader, String recordName, Consumer<Element> consumer) throws XMLStreamException {
+    Deque<Element> ancestors = new ArrayDeque<>();
+    Element record = null;
+    StringBuilder text = new StringBuilder();
+    int recordDepth = 0;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        if (record != null) {
+          recordDepth++;
+        } else {
+          Element element = new Element(reader.getLocalName(), attributes(reader), "", ancestors.peek());
+          if (element.name().equals(recordName)) {
+            record = element;
+            recordDepth = 1;
+          } else {
+            ancestors.push(element);
+          }
+        }
+      } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+        if (record != null) {
+          text.append(reader.getText());
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        if (record == null) {
+          ancestors.pop();
+        } else if (--recordDepth == 0) {
+          consumer.accept(new Element(record.name(), record.attributes(), text.toString(), record.parent()));
+          record = null;
+          text.setLength(0);
+        }
+      }
+    }
+  }
+
+  private static Map<String, String> attributes(XMLStreamReader reader) {
+    int count = reader.getAttributeCount();
+    if (count == 0) {
+      return Map.of();
+    }
+    Map<String, String> attributes = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+    }
+    return attributes;
+  }
+
+  private static XMLInputFactory inputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    return factory;
+  }
+
+  private static void close(@Nullable XMLStreamReader reader) {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        // nothing more to read
+      }
+    }
+  }
+}
@@ -24,8 +24,11 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import static org.sonarsource.analyzer.commons.appsec.DomainTrie.EXACT;
+import static org.sonarsource.analyzer.commons.appsec.DomainTrie.SUBDOMAINS;
 
 /**
  * Determines whether a cleartext-protocol URL should be considered safe and should not
@@ -63,106 +66,104 @@ import java.util.stream.Collectors;
  */
 public final class CleartextProtocolFilter {
 
-  // --- Internal / non-public hosts -------------------------------------------------------
-  private static final Pattern SAFE_HOSTS = Pattern.compile("(?:" +
-    // localhost
-    "^localhost|" +
-    // IPv4 loopback (127.0.0.0/8) — 2–4 octet forms (127.1, 127.0.1, 127.0.0.1)
-    "^127(?:\\.\\d+){1,3}|" +
-    // IPv4 loopback (127.0.0.0/8) written as a single hexadecimal literal (0x7f000000-0x7fffffff)
-    "^0x7f[0-9a-f]{6}|" +
-    // IPv6 loopback (::1)
-    "^\\[(?:0*:){7}:?0*1\\]|^\\[::1\\]|" +
-    // IPv4 link-local (169.254.0.0/16, RFC 3927) — AWS/Azure/GCP/OCI IMDS
-    "^169\\.254\\.\\d+\\.\\d+|" +
-    // AWS IPv6 IMDS (fd00:ec2::254)
-    "^\\[fd00:ec2::254\\]|" +
-    // Azure wireserver
-    "^168\\.63\\.129\\.16|" +
-    // Alibaba Cloud ECS IMDS
-    "^100\\.100\\.100\\.200|" +
+  // --- Internal / non-public addresses ---------------------------------------------------
+  // IPv4 loopback (127.0.0.0/8) and link-local (169.254.0.0/16, RFC 3927, AWS/Azure/GCP/OCI IMDS)
+  // ranges are checked on the dotted-decimal text, see isInternalAddress.
+  // Azure wireserver
+  @SuppressWarnings("java:S1313")
+  private static final long AZURE_WIRESERVER = ipv4Address("168.63.129.16");
+  // Alibaba Cloud ECS IMDS
+  @SuppressWarnings("java:S1313")
+  private static final long ALIBABA_CLOUD_IMDS = ipv4Address("100.100.100.200");
+  // IPv6 loopback (::1)
+  private static final IpAddressParser IPV6_LOOPBACK = ipv6Address("::1");
+  // AWS IPv6 IMDS (fd00:ec2::254)
+  private static final IpAddressParser AWS_IPV6_IMDS = ipv6Address("fd00:ec2::254");
+
+  private static final DomainTrie SAFE_DOMAINS = new DomainTrie()
+    // --- Internal / non-public hosts -------------------------------------------------------
+    .add("localhost", EXACT)
     // GCP/generic cloud IMDS hostnames
-    "^metadata\\.google\\.internal|^metadata\\.internal|" +
+    .add("metadata.google.internal", EXACT)
+    .add("metadata.internal", EXACT)
     // Docker internal hostnames
-    "^host\\.docker\\.internal|^gateway\\.docker\\.internal|" +
+    .add("host.docker.internal", EXACT)
+    .add("gateway.docker.internal", EXACT)
     // Kubernetes cluster-internal DNS (*.svc.cluster.local)
-    "\\.svc\\.cluster\\.local" +
-    ")(?=:|$)", Pattern.CASE_INSENSITIVE);
-
-  // --- Well-known namespace URI authorities ----------------------------------------------
-  // These authority (host) values appear in http:// URIs that are opaque identifiers in
-  // XML namespaces, JSON-LD contexts, RDF ontologies, and similar formats. The protocol
-  // prefix is mandated by the respective standard; no actual HTTP connection is implied.
-  private static final Pattern NAMESPACE_URI_AUTHORITIES = Pattern.compile("(?:" +
+    .add("svc.cluster.local", SUBDOMAINS)
+
+    // --- Well-known namespace URI authorities ----------------------------------------------
+    // These authority (host) values appear in http:// URIs that are opaque identifiers in
+    // XML namespaces, JSON-LD contexts, RDF ontologies, and similar formats. The protocol
+    // prefix is mandated by the respective standard; no actual HTTP connection is implied.
     // W3C XML Schema, XHTML, RDF, OWL, SPARQL
-    "^www\\.w3\\.org|" +
+    .add("www.w3.org", EXACT)
     // Android SDK XML namespaces
-    "^schemas\\.android\\.com|" +
+    .add("schemas.android.com", EXACT)
     // Microsoft XML schemas
-    "^schemas\\.microsoft\\.com|" +
+    .add("schemas.microsoft.com", EXACT)
     // SOAP / WS-* schemas
-    "^schemas\\.xmlsoap\\.org|" +
+    .add("schemas.xmlsoap.org", EXACT)
     // SAP namespaces
-    "^www\\.sap\\.com|" +
+    .add("www.sap.com", EXACT)
     // OGC / OpenGIS
-    "^www\\.opengis\\.net|" +
+    .add("www.opengis.net", EXACT)
     // HL7 FHIR
-    "^hl7\\.org|" +
+    .add("hl7.org", EXACT)
     // UCUM units
-    "^unitsofmeasure\\.org|" +
+    .add("unitsofmeasure.org", EXACT)
     // Dublin Core, BIBO
-    "^purl\\.org|" +
+    .add("purl.org", EXACT)
     // OASIS: SAML, WS-Security, OData
-    "^docs\\.oasis-open\\.org|" +
+    .add("docs.oasis-open.org", EXACT)
     // FOAF, vCard
-    "^xmlns\\.com|" +
+    .add("xmlns.com", EXACT)
     // JSON-LD
-    "^json-ld\\.org|" +
+    .add("json-ld.org", EXACT)
     // Schema.org structured data
-    "^schema\\.org|" +
+    .add("schema.org", EXACT)
     // Spring Framework XML schemas
-    "^www\\.springframework\\.org|" +
+    .add("www.springframework.org", EXACT)
     // MuleSoft Mule application XML schemas
-    "^www\\.mulesoft\\.org|" +
+    .add("www.mulesoft.org", EXACT)
     // Maven POM / XSD
-    "^maven\\.apache\\.org|" +
+    .add("maven.apache.org", EXACT)
     // Dublin Core legacy URIs
-    "^dublincore\\.org|" +
+    .add("dublincore.org", EXACT)
     // Open Graph Protocol
-    "^ogp\\.me|" +
+    .add("ogp.me", EXACT)
     // Apache Cocoon / XML project namespaces
-    "^xml\\.apache\\.org|" +
+    .add("xml.apache.org", EXACT)
     // Office Open XML (OOXML) — PhpSpreadsheet, PHPWord, etc.
-    "^schemas\\.openxmlformats\\.org|" +
+    .add("schemas.openxmlformats.org", EXACT)
     // RDF Schema
-    "^rdfs\\.org|" +
+    .add("rdfs.org", EXACT)
     // Google XML schemas
-    "^schemas\\.google\\.com|" +
+    .add("schemas.google.com", EXACT)
     // Amazon OpenSearch namespace
-    "^a9\\.com|" +
+    .add("a9.com", EXACT)
     // Adobe namespaces
-    "^ns\\.adobe\\.com|" +
+    .add("ns.adobe.com", EXACT)
     // IEEE Learning Technology Standards
-    "^ltsc\\.ieee\\.org|" +
+    .add("ltsc.ieee.org", EXACT)
     // DocBook XML
-    "^docbook\\.org|" +
+    .add("docbook.org", EXACT)
     // GraphML
-    "^graphml\\.graphdrawing\\.org|" +
+    .add("graphml.graphdrawing.org", EXACT)
     // JSON Schema
-    "^json-schema\\.org|" +
+    .add("json-schema.org", EXACT)
     // Eclipse EMF/Ecore
-    "^www\\.eclipse\\.org" +
-    ")(?=:|$)", Pattern.CASE_INSENSITIVE);
-
-  // --- IANA-reserved documentation / placeholder domains --------------------------------
-  // example.com/net/org are well-known IANA-delegated documentation domains.
-  // RFC 6761 reserves the .example, .test, and .localhost TLDs for documentation and testing.
-  private static final Pattern DOCUMENTATION_HOSTS = Pattern.compile("(?:" +
-    // example.com/net/org and subdomains
-    "(?:^|\\.)example\\.(?:com|net|org)|" +
-    // .example, .test, .localhost reserved TLDs (RFC 6761)
-    "\\.(?:example|test|localhost)" +
-    ")(?=:|$)", Pattern.CASE_INSENSITIVE);
+    .add("www.eclipse.org", EXACT)
+
+    // --- IANA-reserved documentation / placeholder domains --------------------------------
+    // example.com/net/org are well-known IANA-delegated documentation domains.
+    // RFC 6761 reserves the .example, .test, and .localhost TLDs for documentation and testing.
+    .add("example.com", EXACT | SUBDOMAINS)
+    .add("example.net", EXACT | SUBDOMAINS)
+    .add("example.org", EXACT | SUBDOMAINS)
+    .add("example", SUBDOMAINS)
+    .add("test", SUBDOMAINS)
+    .add("localhost", SUBDOMAINS);
 
   /**
    * Maps each cleartext scheme name (correctly capitalised) to its recommended secure alternative.
@@ -199,11 +200,7 @@ public final class CleartextProtocolFilter {
     .map(s -> s.toLowerCase(Locale.ROOT) + "://")
     .collect(Collectors.toUnmodifiableSet());
 
-  // Lenient fallback: extracts the authority from a cleartext URL without strict URI validation.
-  // Used when java.net.URI rejects the string (e.g. template placeholders) or returns a null
-  // host (e.g. underscores in hostnames).
-  private static final Pattern CLEARTEXT_AUTHORITY = Pattern.compile(
-    "^(?:" + String.join("|", CLEARTEXT_SCHEMES) + ")://(?:[^@\\s/?#]++@)?(?<rest>[^\\s/?#]++)", Pattern.CASE_INSENSITIVE);
+  private static final int MAX_SCHEME_LENGTH = CLEARTEXT_SCHEMES.stream().mapToInt(String::length).max().orElse(0);
 
   private CleartextProtocolFilter() {
   }
@@ -240,28 +237,43 @@ public final class CleartextProtocolFilter {
    * Returns {@code true} if {@code url} is safe to use without TLS and should NOT
    * trigger a cleartext-protocol security warning. Call this before raising an issue.
    *
-   * <p>Well-formed URLs are checked via {@link #isSafeWithoutTls(URI)}. When strict URI
-   * parsing fails (e.g. template placeholders like {@code ${port}}) or yields no host
-   * (e.g. underscores in hostnames), a lenient authority extraction is used as a fallback.
+   * <p>The authority is extracted in a single pass, without strict URI validation, so template
+   * placeholders (e.g. {@code ${port}}) and underscores in hostnames are supported. Single-label
+   * hostnames are only trusted when the whole URL is well-formed, see {@link #isSafeWithoutTls(URI)}.
    *
    * @param url the URL string as it appears in source code; must not be null
    */
   public static boolean isSafeWithoutTls(String url) {
     var stripped = url.strip();
-    try {
-      var uri = new URI(stripped);
-      if (uri.getScheme() != null && uri.getHost() != null) {
+    int authorityStart = cleartextAuthorityStart(stripped);
+    if (authorityStart < 0) {
+      return true;
+    }
+    int authorityEnd = authorityStart;
+    int userInfoEnd = -1;
+    while (authorityEnd < stripped.length() && !isAuthorityTerminator(stripped.charAt(authorityEnd))) {
+      if (userInfoEnd < 0 && stripped.charAt(authorityEnd) == '@') {
+        userInfoEnd = authorityEnd;
+      }
+      authorityEnd++;
+    }
+    if (userInfoEnd == authorityStart) {
+      // empty user info, e.g. "http://@localhost", is only skipped in well-formed URLs
+      URI uri = uriWithHost(stripped);
+      if (uri != null) {
         return isSafeWithoutTls(uri);
       }
-    } catch (URISyntaxException e) {
-      // fall through to lenient parsing
     }
-    var matcher = CLEARTEXT_AUTHORITY.matcher(stripped);
-    if (matcher.find()) {
-      return isSafeHost(matcher.group("rest"));
+    // the host follows the first '@' of a non-empty user info, unless nothing follows it
+    int hostStart = (userInfoEnd > authorityStart && userInfoEnd + 1 < authorityEnd) ? (userInfoEnd + 1) : authorityStart;
+    if (hostStart == authorityEnd) {
+      // bare cleartext scheme without authority
+      return false;
+    }
+    if (isSafeHost(stripped, hostStart, authorityEnd)) {
+      return true;
     }
-    var lower = stripped.toLowerCase(Locale.ROOT);
-    return CLEARTEXT_SCHEME_PREFIXES.stream().noneMatch(lower::startsWith);
+    return indexOf(stripped, '.', hostStart, authorityEnd) < 0 && hasSingleLabelHost(stripped);
   }
 
   /**
@@ -279,15 +291,107 @@ public final class CleartextProtocolFilter {
     if (host == null) {
       return false;
     }
-    return isSafeHost(host) || isSingleLabelHost(host);
+    return isSafeHost(host, 0, host.length()) || isSingleLabelHost(host);
+  }
+
+  /**
+   * Returns the index following {@code scheme://} when the url starts with a cleartext scheme, -1 otherwise.
+   * Most string literals are not URLs and are rejected on their first characters.
+   */
+  private static int cleartextAuthorityStart(String url) {
+    int colon = indexOf(url, ':', 0, Math.min(url.length(), MAX_SCHEME_LENGTH + 1));
+    if (colon <= 0 || !url.startsWith("//", colon + 1)) {
+      return -1;
+    }
+    for (int i = 0; i < colon; i++) {
+      // schemes are ASCII, and only ASCII letters are case-insensitive
+      if (url.charAt(i) > 0x7F) {
+        return -1;
+      }
+    }
+    return CLEARTEXT_SCHEMES.contains(url.substring(0, colon)) ? (colon + 3) : -1;
   }
 
-  private static boolean isSafeHost(String host) {
-    return isInternalHost(host) || isNamespaceUriAuthority(host) || isDocumentationHost(host);
+  private static boolean isAuthorityTerminator(char ch) {
+    return ch == '/' || ch == '?' || ch == '#' || ch == ' ' || (ch >= '\t' && ch <= '\r');
   }
 
-  // Single-integer IPv4 literal written in hexadecimal, e.g. 0x7f000001 (== 127.0.0.1).
-  private static final Pattern HEX_IP_LITERAL = Pattern.compile("^0[xX][0-9a-fA-F]++$");
+  /**
+   * The authority slice {@code [start, end)} may contain a port, e.g. {@code localhost:8080} or {@code [::1]:8080}.
+   */
+  private static boolean isSafeHost(CharSequence authority, int start, int end) {
+    int hostEnd = indexOf(authority, ':', start, end);
+    if (hostEnd < 0) {
+      hostEnd = end;
+    }
+    return isInternalAddress(authority, start, end, hostEnd) || SAFE_DOMAINS.matches(authority, start, hostEnd);
+  }
+
+  private static boolean isInternalAddress(CharSequence authority, int start, int end, int hostEnd) {
+    if (authority.charAt(start) == '[') {
+      int closingBracket = indexOf(authority, ']', start, end);
+      if (closingBracket < 0 || (closingBracket + 1 < end && authority.charAt(closingBracket + 1) != ':')) {
+        return false;
+      }
+      IpAddressParser address = IpAddressParser.parse(authority, start + 1, closingBracket);
+      return address != null && (isSameIpv6Address(address, IPV6_LOOPBACK) || isSameIpv6Address(address, AWS_IPV6_IMDS));
+    }
+    int decimalGroups = decimalGroupCount(authority, start, hostEnd);
+    // IPv4 loopback also in its 2–3 group short forms (127.1, 127.0.1)
+    if ((decimalGroups >= 2 && decimalGroups <= 4 && startsWith(authority, start, "127."))
+      || (decimalGroups == 4 && startsWith(authority, start, "169.254."))) {
+      return true;
+    }
+    long ipv4 = IpAddressParser.parseIpv4Address(authority, start, hostEnd);
+    return ipv4 == AZURE_WIRESERVER || ipv4 == ALIBABA_CLOUD_IMDS || isHexLoopback(authority, start, hostEnd);
+  }
+
+  // IPv4 loopback (127.0.0.0/8) written as a single hexadecimal literal (0x7f000000-0x7fffffff)
+  private static boolean isHexLoopback(CharSequence host, int start, int end) {
+    return end - start == 10 && isHexIpLiteral(host, start, end)
+      && host.charAt(start + 2) == '7' && (host.charAt(start + 3) == 'f' || host.charAt(start + 3) == 'F');
+  }
+
+  /**
+   * Number of dot-separated groups of decimal digits, -1 when there's anything else. Unlike IPv4 addresses, groups
+   * can have any number of digits.
+   */
+  private static int decimalGroupCount(CharSequence text, int start, int end) {
+    int groups = 1;
+    boolean emptyGroup = true;
+    for (int i = start; i < end; i++) {
+      char ch = text.charAt(i);
+      if (ch == '.' && !emptyGroup) {
+        groups++;
+        emptyGroup = true;
+      } else if (IpAddressParser.isDecimalDigit(ch)) {
+        emptyGroup = false;
+      } else {
+        return -1;
+      }
+    }
+    return emptyGroup ? -1 : groups;
+  }
+
+  private static boolean isSameIpv6Address(IpAddressParser address, IpAddressParser expected) {
+    return address.isIpv6() && address.high() == expected.high() && address.low() == expected.low()
+      && address.prefixLength() == IpAddressParser.IPV6_BITS;
+  }
+
+  private static boolean hasSingleLabelHost(String url) {
+    URI uri = uriWithHost(url);
+    return uri != null && isSingleLabelHost(uri.getHost());
+  }
+
+  @Nullable
+  private static URI uriWithHost(String url) {
+    try {
+      var uri = new URI(url);
+      return (uri.getScheme() != null && uri.getHost() != null) ? uri : null;
+    } catch (URISyntaxException e) {
+      return null;
+    }
+  }
 
   // Single-label hostnames (no dot) cannot resolve on the public internet; excludes IPv6
   // literals ("[...]") and numeric IP literals (decimal, e.g. 2130706433, and hexadecimal,
@@ -298,18 +402,48 @@ public final class CleartextProtocolFilter {
   }
 
   private static boolean isNumericIpLiteral(String host) {
-    return host.chars().allMatch(Character::isDigit) || HEX_IP_LITERAL.matcher(host).matches();
+    return host.chars().allMatch(Character::isDigit) || isHexIpLiteral(host, 0, host.length());
   }
 
-  private static boolean isInternalHost(String host) {
-    return SAFE_HOSTS.matcher(host).find();
+  // Single-integer IPv4 literal written in hexadecimal, e.g. 0x7f000001 (== 127.0.0.1).
+  private static boolean isHexIpLiteral(CharSequence host, int start, int end) {
+    if (end - start < 3 || host.charAt(start) != '0' || (host.charAt(start + 1) != 'x' && host.charAt(start + 1) != 'X')) {
+      return false;
+    }
+    for (int i = start + 2; i < end; i++) {
+      if (IpAddressParser.hexValue(host.charAt(i)) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean startsWith(CharSequence text, int start, String prefix) {
+    if (text.length() - start < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (text.charAt(start + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(CharSequence text, char ch, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (text.charAt(i) == ch) {
+        return i;
+      }
+    }
+    return -1;
   }
 
-  private static boolean isNamespaceUriAuthority(String host) {
-    return NAMESPACE_URI_AUTHORITIES.matcher(host).find();
+  private static long ipv4Address(String address) {
+    return IpAddressParser.parseIpv4Address(address, 0, address.length());
   }
 
-  private static boolean isDocumentationHost(String host) {
-    return DOCUMENTATION_HOSTS.matcher(host).find();
+  private static IpAddressParser ipv6Address(String address) {
+    return IpAddressParser.parse(address, 0, address.length());
   }
 }
@@ -0,0 +1,126 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+import java.util.Arrays;
+import java.util.Locale;
+import javax.annotation.Nullable;
+
+/**
+ * Trie of domain names keyed by their labels in reverse order ({@code com}, then {@code example}), matching a host
+ * name either exactly or as a subdomain of a stored domain in a single right-to-left pass, without allocating.
+ *
+ * <p>Matching is ASCII case-insensitive, like {@link java.util.regex.Pattern#CASE_INSENSITIVE}. Filled once when the
+ * owning constants are initialized, then only read.
+ */
+final class DomainTrie {
+
+  /** The domain itself matches. */
+  static final int EXACT = 1;
+  /** Any host ending with "." followed by the domain matches. */
+  static final int SUBDOMAINS = 2;
+
+  private final Node root = new Node("");
+
+  DomainTrie add(String domain, int matchFlags) {
+    String lowerCaseDomain = domain.toLowerCase(Locale.ROOT);
+    Node node = root;
+    int labelEnd = lowerCaseDomain.length();
+    int labelStart;
+    do {
+      labelStart = lowerCaseDomain.lastIndexOf('.', labelEnd - 1) + 1;
+      String label = lowerCaseDomain.substring(labelStart, labelEnd);
+      Node child = node.child(label, 0, label.length());
+      if (child == null) {
+        child = node.addChild(label);
+      }
+      node = child;
+      labelEnd = labelStart - 1;
+    } while (labelStart > 0);
+    node.flags |= matchFlags;
+    return this;
+  }
+
+  /**
+   * Returns true when the {@code [start, end)} slice of the text is one of the domains added with {@link #EXACT}, or
+   * a subdomain of one of the domains added with {@link #SUBDOMAINS}.
+   */
+  boolean matches(CharSequence text, int start, int end) {
+    Node node = root;
+    int labelEnd = end;
+    while (true) {
+      int labelStart = labelEnd;
+      while (labelStart > start && text.charAt(labelStart - 1) != '.') {
+        labelStart--;
+      }
+      node = node.child(text, labelStart, labelEnd);
+      if (node == null) {
+        return false;
+      }
+      if (labelStart == start) {
+        return (node.flags & EXACT) != 0;
+      }
+      if ((node.flags & SUBDOMAINS) != 0) {
+        return true;
+      }
+      labelEnd = labelStart - 1;
+    }
+  }
+
+  private static boolean equalsIgnoreAsciiCase(String lowerCaseLabel, CharSequence text, int start, int end) {
+    if (lowerCaseLabel.length() != end - start) {
+      return false;
+    }
+    for (int i = 0; i < lowerCaseLabel.length(); i++) {
+      char ch = text.charAt(start + i);
+      if (ch >= 'A' && ch <= 'Z') {
+        ch = (char) (ch + ('a' - 'A'));
+      }
+      if (ch != lowerCaseLabel.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class Node {
+    final String label;
+    int flags;
+    Node[] children = new Node[0];
+
+    Node(String label) {
+      this.label = label;
+    }
+
+    @Nullable
+    Node child(CharSequence text, int start, int end) {
+      for (Node child : children) {
+        if (equalsIgnoreAsciiCase(child.label, text, start, end)) {
+          return child;
+        }
+      }
+      return null;
+    }
+
+    Node addChild(String label) {
+      Node child = new Node(label);
+      children = Arrays.copyOf(children, children.length + 1);
+      children[children.length - 1] = child;
+      return child;
+    }
+  }
+}
@@ -16,13 +16,7 @@
  */
 package org.sonarsource.analyzer.commons.appsec;
 
-import java.math.BigInteger;
-import java.net.Inet6Address;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.util.List;
 import java.util.OptionalLong;
-import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 /**
@@ -59,6 +53,8 @@ import javax.annotation.Nullable;
  *   ctx.reportIssue(node, "Avoid hardcoded IP addresses.");
  * }
  * }</pre>
+ *
+ * <p>Each predicate parses the literal again: when combining several of them, parse it once with {@link IpLiteral#parse(String)}.
  */
 public final class IpAddressClassifier {
 
@@ -75,33 +71,30 @@ public final class IpAddressClassifier {
   // IPv4 special-purpose blocks per IANA, restricted to entries that are NOT
   // globally reachable.
   @SuppressWarnings("java:S1313")
-  private static final List<Block4> RESERVED_IPV4_BLOCKS = List.of(
-    block4("0.0.0.0/8", BlockKind.THIS_NETWORK),
-    block4("10.0.0.0/8", BlockKind.RFC1918_PRIVATE),
-    block4("172.16.0.0/12", BlockKind.RFC1918_PRIVATE),
-    block4("192.168.0.0/16", BlockKind.RFC1918_PRIVATE),
-    block4("100.64.0.0/10", BlockKind.CGNAT),
-    block4("127.0.0.0/8", BlockKind.LOOPBACK),
-    block4("169.254.0.0/16", BlockKind.LINK_LOCAL),
-    block4("192.0.0.0/24", BlockKind.IETF_PROTOCOL),
-    block4("192.0.2.0/24", BlockKind.DOCUMENTATION),
-    block4("198.51.100.0/24", BlockKind.DOCUMENTATION),
-    block4("203.0.113.0/24", BlockKind.DOCUMENTATION),
-    block4("198.18.0.0/15", BlockKind.BENCHMARKING),
-    block4("240.0.0.0/4", BlockKind.RESERVED_FUTURE));
-
-  private static final List<Block6> RESERVED_IPV6_BLOCKS = List.of(
-    block6("::1/128", BlockKind.LOOPBACK),
-    block6("2001:db8::/32", BlockKind.DOCUMENTATION),
-    block6("3fff::/20", BlockKind.DOCUMENTATION),
-    block6("fc00::/7", BlockKind.UNIQUE_LOCAL),
-    block6("fe80::/10", BlockKind.LINK_LOCAL));
-
-  // Lexical pre-filter for IPv6; prevents {@link InetAddress#getByName} from
-  // attempting a DNS lookup on strings outside the IPv6 alphabet. Dots are
-  // intentionally excluded: IPv4-mapped IPv6 literals (e.g. ::ffff:1.2.3.4)
-  // are not supported.
-  private static final Pattern IPV6_LIKE = Pattern.compile("[\\da-fA-F:]+(/\\d+)?");
+  private static final IpPrefixTrie RESERVED_IPV4_BLOCKS = compile(
+    block("0.0.0.0/8", BlockKind.THIS_NETWORK),
+    block("10.0.0.0/8", BlockKind.RFC1918_PRIVATE),
+    block("172.16.0.0/12", BlockKind.RFC1918_PRIVATE),
+    block("192.168.0.0/16", BlockKind.RFC1918_PRIVATE),
+    block("100.64.0.0/10", BlockKind.CGNAT),
+    block("127.0.0.0/8", BlockKind.LOOPBACK),
+    block("169.254.0.0/16", BlockKind.LINK_LOCAL),
+    block("192.0.0.0/24", BlockKind.IETF_PROTOCOL),
+    block("192.0.2.0/24", BlockKind.DOCUMENTATION),
+    block("198.51.100.0/24", BlockKind.DOCUMENTATION),
+    block("203.0.113.0/24", BlockKind.DOCUMENTATION),
+    block("198.18.0.0/15", BlockKind.BENCHMARKING),
+    block("240.0.0.0/4", BlockKind.RESERVED_FUTURE));
+
+  private static final IpPrefixTrie RESERVED_IPV6_BLOCKS = compile(
+    block("::1/128", BlockKind.LOOPBACK),
+    block("2001:db8::/32", BlockKind.DOCUMENTATION),
+    block("3fff::/20", BlockKind.DOCUMENTATION),
+    block("fc00::/7", BlockKind.UNIQUE_LOCAL),
+    block("fe80::/10", BlockKind.LINK_LOCAL));
+
+  private static final int IPV4_BITS = 32;
+  private static final long IPV4_MASK = 0xFFFFFFFFL;
 
   private IpAddressClassifier() {
   }
@@ -112,25 +105,7 @@ public final class IpAddressClassifier {
    * Package-private — boolean predicates ({@link #isReserved}, {@link #isInternetRoutable}, the per-kind variants) are the public surface.
    */
   static Classification classify(String literal) {
-    if (looksLikeIpv4(literal)) {
-      Range4 parsed = parseIpv4Cidr(literal);
-      if (parsed == null) {
-        return Classification.UNPARSEABLE;
-      }
-      return RESERVED_IPV4_BLOCKS.stream().anyMatch(b -> b.range.contains(parsed))
-        ? Classification.RESERVED
-        : Classification.PUBLIC;
-    }
-    if (literal.indexOf(':') >= 0 && IPV6_LIKE.matcher(literal).matches()) {
-      Range6 parsed = parseIpv6Cidr(literal);
-      if (parsed == null) {
-        return Classification.UNPARSEABLE;
-      }
-      return RESERVED_IPV6_BLOCKS.stream().anyMatch(b -> b.range.contains(parsed))
-        ? Classification.RESERVED
-        : Classification.PUBLIC;
-    }
-    return Classification.UNPARSEABLE;
+    return IpLiteral.parse(literal).classification();
   }
 
   /**
@@ -138,7 +113,7 @@ public final class IpAddressClassifier {
    * Examples: {@code "10.0.0.1"} → true; {@code "10.0.0.0/1"} → false (straddles a reserved boundary).
    */
   public static boolean isReserved(String literal) {
-    return classify(literal) == Classification.RESERVED;
+    return IpLiteral.parse(literal).isReserved();
   }
 
   /**
@@ -147,7 +122,7 @@ public final class IpAddressClassifier {
    * Package-private — exposed only for callers that need PUBLIC distinct from UNPARSEABLE (which {@code !isReserved} cannot tell apart).
    */
   static boolean isInternetRoutable(String literal) {
-    return classify(literal) == Classification.PUBLIC;
+    return IpLiteral.parse(literal).isInternetRoutable();
   }
 
   /**
@@ -155,7 +130,7 @@ public final class IpAddressClassifier {
    * Examples: {@code "127.0.0.1"} → true; {@code "::1"} → true; {@code "10.0.0.1"} → false.
    */
   public static boolean isLoopback(String literal) {
-    return matchesKind(literal, BlockKind.LOOPBACK);
+    return IpLiteral.parse(literal).isLoopback();
   }
 
   /**
@@ -163,7 +138,7 @@ public final class IpAddressClassifier {
    * Examples: {@code "169.254.169.254"} → true; {@code "fe80::1"} → true; {@code "10.0.0.1"} → false.
    */
   public static boolean isLinkLocal(String literal) {
-    return matchesKind(literal, BlockKind.LINK_LOCAL);
+    return IpLiteral.parse(literal).isLinkLocal();
   }
 
   /**
@@ -175,8 +150,7 @@ public final class IpAddressClassifier {
    * Does not cover CGNAT, link-local, loopback, or documentation; query those via their own predicates.
    */
   public static boolean isPrivate(String literal) {
-    return matchesKind(literal, BlockKind.RFC1918_PRIVATE)
-      || matchesKind(literal, BlockKind.UNIQUE_LOCAL);
+    return IpLiteral.parse(literal).isPrivate();
   }
 
   /**
@@ -189,7 +163,7 @@ public final class IpAddressClassifier {
    * Examples: {@code "192.0.2.10"} → true; {@code "3fff::1"} → true; {@code "10.0.0.1"} → false.
    */
   public static boolean isDocumentation(String literal) {
-    return matchesKind(literal, BlockKind.DOCUMENTATION);
+    return IpLiteral.parse(literal).isDocumentation();
   }
 
   /**
@@ -198,17 +172,7 @@ public final class IpAddressClassifier {
    * Returns false for the {@code /0} CIDR {@code 0.0.0.0/0} — use {@link #isUnrestrictedCidr(String)} for that.
    */
   public static boolean isAnyAddress(String literal) {
-    if (looksLikeIpv4(literal)) {
-      Range4 parsed = parseIpv4Cidr(literal);
-      return parsed != null && parsed.startInclusive == 0L && parsed.endInclusive == 0L;
-    }
-    if (literal.indexOf(':') >= 0 && IPV6_LIKE.matcher(literal).matches()) {
-      Range6 parsed = parseIpv6Cidr(literal);
-      return parsed != null
-        && parsed.startInclusive.signum() == 0
-        && parsed.endInclusive.signum() == 0;
-    }
-    return false;
+    return IpLiteral.parse(literal).isAnyAddress();
   }
 
   /**
@@ -216,13 +180,7 @@ public final class IpAddressClassifier {
    * IPv6 has no broadcast equivalent, so every IPv6 literal returns false.
    */
   public static boolean isBroadcast(String literal) {
-    if (!looksLikeIpv4(literal)) {
-      return false;
-    }
-    Range4 parsed = parseIpv4Cidr(literal);
-    return parsed != null
-      && parsed.startInclusive == 0xFFFFFFFFL
-      && parsed.endInclusive == 0xFFFFFFFFL;
+    return IpLiteral.parse(literal).isBroadcast();
   }
 
   /**
@@ -231,22 +189,7 @@ public final class IpAddressClassifier {
    * Plain singletons like {@code 0.0.0.0} return false — use {@link #isAnyAddress(String)} for the bind-anywhere sentinel.
    */
   public static boolean isUnrestrictedCidr(String literal) {
-    if (looksLikeIpv4(literal)) {
-      Range4 parsed = parseIpv4Cidr(literal);
-      return parsed != null
-        && parsed.startInclusive == 0L
-        && parsed.endInclusive == 0xFFFFFFFFL;
-    }
-    if (literal.indexOf(':') >= 0 && IPV6_LIKE.matcher(literal).matches()) {
-      Range6 parsed = parseIpv6Cidr(literal);
-      if (parsed == null) {
-        return false;
-      }
-      BigInteger maxIpv6 = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
-      return parsed.startInclusive.signum() == 0
-        && maxIpv6.equals(parsed.endInclusive);
-    }
-    return false;
+    return IpLiteral.parse(literal).isUnrestrictedCidr();
   }
 
   /**
@@ -255,10 +198,10 @@ public final class IpAddressClassifier {
    * Example: {@code "10.0.0.1"} → {@code OptionalLong.of(0x0A000001L)}; {@code "10.0.0.0/8"} → empty.
    */
   public static OptionalLong parseIpv4SingleAddress(@Nullable String literal) {
-    if (literal == null || literal.indexOf('/') >= 0 || !looksLikeIpv4(literal)) {
+    if (literal == null || literal.indexOf('/') >= 0) {
       return OptionalLong.empty();
     }
-    long addr = parseIpv4Address(literal);
+    long addr = IpAddressParser.parseIpv4Address(literal, 0, literal.length());
     return addr < 0 ? OptionalLong.empty() : OptionalLong.of(addr);
   }
 
@@ -271,142 +214,47 @@ public final class IpAddressClassifier {
     if (startInclusive > endInclusive) {
       throw new IllegalArgumentException("Inverted IPv4 range: start=" + startInclusive + " > end=" + endInclusive);
     }
-    Range4 range = new Range4(startInclusive, endInclusive);
-    return RESERVED_IPV4_BLOCKS.stream().anyMatch(b -> b.range.contains(range));
-  }
-
-  private static boolean matchesKind(String literal, BlockKind kind) {
-    if (looksLikeIpv4(literal)) {
-      Range4 parsed = parseIpv4Cidr(literal);
-      return parsed != null && RESERVED_IPV4_BLOCKS.stream()
-        .filter(b -> b.kind == kind)
-        .anyMatch(b -> b.range.contains(parsed));
-    }
-    if (literal.indexOf(':') >= 0 && IPV6_LIKE.matcher(literal).matches()) {
-      Range6 parsed = parseIpv6Cidr(literal);
-      return parsed != null && RESERVED_IPV6_BLOCKS.stream()
-        .filter(b -> b.kind == kind)
-        .anyMatch(b -> b.range.contains(parsed));
-    }
-    return false;
-  }
-
-  // ---------- IPv4 parsing ----------
-
-  private static boolean looksLikeIpv4(String literal) {
-    int dots = 0;
-    for (int i = 0; i < literal.length(); i++) {
-      if (literal.charAt(i) == '.') {
-        dots++;
-      }
-    }
-    return dots == 3;
-  }
-
-  private static Range4 parseIpv4Cidr(String literal) {
-    int slash = literal.indexOf('/');
-    String addressPart = slash < 0 ? literal : literal.substring(0, slash);
-    int prefix = slash < 0 ? 32 : parsePrefix(literal.substring(slash + 1), 32);
-    if (prefix < 0) {
-      return null;
-    }
-    long address = parseIpv4Address(addressPart);
-    if (address < 0) {
-      return null;
-    }
-    long hostBits = 32L - prefix;
-    long mask = (0xFFFFFFFFL << hostBits) & 0xFFFFFFFFL;
-    long start = address & mask;
-    long end = start | (0xFFFFFFFFL >>> prefix);
-    return new Range4(start, end);
-  }
-
-  private static long parseIpv4Address(String dotted) {
-    String[] parts = dotted.split("\\.", -1);
-    if (parts.length != 4) {
-      return -1L;
-    }
-    long result = 0L;
-    for (String part : parts) {
-      // Reject leading-zero octets so octal-looking literals (e.g. "0177.0.0.1") become UNPARSEABLE
-      // rather than being silently reinterpreted as decimal (0177 -> 177, hiding the loopback address).
-      if (part.isEmpty() || part.length() > 3 || (part.length() > 1 && part.charAt(0) == '0')) {
-        return -1L;
-      }
-      int octet;
-      try {
-        octet = Integer.parseInt(part);
-      } catch (NumberFormatException e) {
-        return -1L;
-      }
-      if (octet < 0 || octet > 255) {
-        return -1L;
-      }
-      result = (result << 8) | octet;
-    }
-    return result;
-  }
-
-  // ---------- IPv6 parsing ----------
-
-  private static Range6 parseIpv6Cidr(String literal) {
-    int slash = literal.indexOf('/');
-    String addressPart = slash < 0 ? literal : literal.substring(0, slash);
-    int prefix = slash < 0 ? 128 : parsePrefix(literal.substring(slash + 1), 128);
-    if (prefix < 0) {
-      return null;
-    }
-    BigInteger address = parseIpv6Address(addressPart);
-    if (address == null) {
-      return null;
+    if (startInclusive < 0L || endInclusive > IPV4_MASK) {
+      return false;
     }
-    BigInteger hostBits = BigInteger.ONE.shiftLeft(128 - prefix).subtract(BigInteger.ONE);
-    BigInteger start = address.andNot(hostBits);
-    BigInteger end = start.or(hostBits);
-    return new Range6(start, end);
+    // blocks are aligned ranges: one contains [start, end] if and only if it contains the prefix common to start and end
+    int commonPrefixLength = Long.numberOfLeadingZeros(startInclusive ^ endInclusive) - IPV4_BITS;
+    return reservedIpv4Kinds(startInclusive, commonPrefixLength) != 0;
   }
 
-  private static BigInteger parseIpv6Address(String literal) {
-    try {
-      InetAddress addr = InetAddress.getByName(literal);
-      if (!(addr instanceof Inet6Address)) {
-        return null;
-      }
-      return new BigInteger(1, addr.getAddress());
-    } catch (UnknownHostException e) {
-      return null;
-    }
+  /**
+   * Bit set of the {@link BlockKind} whose IPv4 block contains the range of addresses sharing the first
+   * {@code prefixLength} bits of the given 32-bit address.
+   */
+  static int reservedIpv4Kinds(long address, int prefixLength) {
+    return RESERVED_IPV4_BLOCKS.flagsContaining(address << IPV4_BITS, 0L, prefixLength);
   }
 
-  // ---------- common ----------
-
-  private static int parsePrefix(String text, int maxBits) {
-    int prefix;
-    try {
-      prefix = Integer.parseInt(text);
-    } catch (NumberFormatException e) {
-      return -1;
-    }
-    return (prefix < 0 || prefix > maxBits) ? -1 : prefix;
+  /**
+   * Bit set of the {@link BlockKind} whose IPv6 block contains the range of addresses sharing the first
+   * {@code prefixLength} bits of the given 128-bit address.
+   */
+  static int reservedIpv6Kinds(long high, long low, int prefixLength) {
+    return RESERVED_IPV6_BLOCKS.flagsContaining(high, low, prefixLength);
   }
 
-  private static Block4 block4(String cidr, BlockKind kind) {
-    Range4 range = parseIpv4Cidr(cidr);
-    if (range == null) {
-      throw new IllegalStateException("Invalid hardcoded IPv4 CIDR: " + cidr);
+  private static Block block(String cidr, BlockKind kind) {
+    IpLiteral range = IpLiteral.parse(cidr);
+    if (!range.isParseable()) {
+      throw new IllegalStateException("Invalid hardcoded CIDR: " + cidr);
     }
-    return new Block4(kind, range);
+    return new Block(kind, range);
   }
 
-  private static Block6 block6(String cidr, BlockKind kind) {
-    Range6 range = parseIpv6Cidr(cidr);
-    if (range == null) {
-      throw new IllegalStateException("Invalid hardcoded IPv6 CIDR: " + cidr);
+  private static IpPrefixTrie compile(Block... blocks) {
+    IpPrefixTrie trie = new IpPrefixTrie();
+    for (Block block : blocks) {
+      block.range.addTo(trie, block.kind.flag());
     }
-    return new Block6(kind, range);
+    return trie;
   }
 
-  private enum BlockKind {
+  enum BlockKind {
     THIS_NETWORK,
     RFC1918_PRIVATE,
     CGNAT,
@@ -416,55 +264,20 @@ public final class IpAddressClassifier {
     DOCUMENTATION,
     BENCHMARKING,
     RESERVED_FUTURE,
-    UNIQUE_LOCAL
-  }
-
-  private static final class Block4 {
-    final BlockKind kind;
-    final Range4 range;
+    UNIQUE_LOCAL;
 
-    Block4(BlockKind kind, Range4 range) {
-      this.kind = kind;
-      this.range = range;
+    int flag() {
+      return 1 << ordinal();
     }
   }
 
-  private static final class Block6 {
+  private static final class Block {
     final BlockKind kind;
-    final Range6 range;
+    final IpLiteral range;
 
-    Block6(BlockKind kind, Range6 range) {
+    Block(BlockKind kind, IpLiteral range) {
       this.kind = kind;
       this.range = range;
     }
   }
-
-  private static final class Range4 {
-    final long startInclusive;
-    final long endInclusive;
-
-    Range4(long startInclusive, long endInclusive) {
-      this.startInclusive = startInclusive;
-      this.endInclusive = endInclusive;
-    }
-
-    boolean contains(Range4 other) {
-      return startInclusive <= other.startInclusive && other.endInclusive <= endInclusive;
-    }
-  }
-
-  private static final class Range6 {
-    final BigInteger startInclusive;
-    final BigInteger endInclusive;
-
-    Range6(BigInteger startInclusive, BigInteger endInclusive) {
-      this.startInclusive = startInclusive;
-      this.endInclusive = endInclusive;
-    }
-
-    boolean contains(Range6 other) {
-      return startInclusive.compareTo(other.startInclusive) <= 0
-        && other.endInclusive.compareTo(endInclusive) <= 0;
-    }
-  }
 }
@@ -0,0 +1,307 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+/**
+ * Single-pass parser of IPv4 and IPv6 literals with an optional CIDR suffix, working on a slice of a
+ * {@link CharSequence} without regular expression, intermediate string or DNS lookup.
+ *
+ * <p>Accepted syntax:
+ * <ul>
+ *   <li>IPv4: four decimal octets, without leading zero (to avoid octal-vs-decimal ambiguity), e.g. {@code 10.0.0.1}</li>
+ *   <li>IPv6 (RFC 4291): eight groups of 1 to 4 hex digits, a single {@code ::} standing for one or more zero groups,
+ *   and optionally an embedded IPv4 address as the last 32 bits, e.g. {@code 2001:db8::1}, {@code 64:ff9b::192.0.2.33}</li>
+ *   <li>CIDR suffix: {@code /} followed by decimal digits, at most 32 for IPv4 and 128 for IPv6</li>
+ * </ul>
+ * Scope ids ({@code %eth0}), brackets and abbreviated IPv4 forms ({@code 127.1}) are not supported.
+ *
+ * <p>On success, the address is available as primitives: {@link #high()} and {@link #low()} hold the 128 bits of an
+ * IPv6 address, an IPv4 address is held in the 32 least significant bits of {@link #low()}.
+ */
+final class IpAddressParser {
+
+  static final int IPV4_BITS = 32;
+  static final int IPV6_BITS = 128;
+  private static final int IPV6_GROUPS = 8;
+  private static final int MAX_GROUP_DIGITS = 4;
+  private static final int MAX_OCTET_DIGITS = 3;
+
+  private final CharSequence text;
+  private final int end;
+  private int pos;
+
+  private boolean ipv6;
+  private long high;
+  private long low;
+  private int prefixLength;
+
+  private IpAddressParser(CharSequence text, int start, int end) {
+    this.text = text;
+    this.pos = start;
+    this.end = end;
+  }
+
+  /**
+   * Parses the {@code [start, end)} slice of the text, returns {@code null} when it is not a valid literal.
+   */
+  static IpAddressParser parse(CharSequence text, int start, int end) {
+    IpAddressParser parser = new IpAddressParser(text, start, end);
+    return parser.parseLiteral() ? parser : null;
+  }
+
+  /**
+   * Parses the {@code [start, end)} slice of the text as a plain dotted-quad IPv4 address, returns a negative value
+   * when it is not one.
+   */
+  static long parseIpv4Address(CharSequence text, int start, int end) {
+    IpAddressParser parser = new IpAddressParser(text, start, end);
+    long address = parser.parseIpv4();
+    return parser.pos == end ? address : -1L;
+  }
+
+  boolean isIpv6() {
+    return ipv6;
+  }
+
+  long high() {
+    return high;
+  }
+
+  long low() {
+    return low;
+  }
+
+  /**
+   * The CIDR suffix, or the address bit count when there's none.
+   */
+  int prefixLength() {
+    return prefixLength;
+  }
+
+  private boolean parseLiteral() {
+    // The first group is enough to know the address family: IPv4 octets are followed by '.', IPv6 groups by ':'
+    int lookahead = pos;
+    while (lookahead < end && lookahead - pos <= MAX_GROUP_DIGITS && hexValue(text.charAt(lookahead)) >= 0) {
+      lookahead++;
+    }
+    if (lookahead < end && text.charAt(lookahead) == '.') {
+      low = parseIpv4();
+      if (low < 0) {
+        return false;
+      }
+      prefixLength = IPV4_BITS;
+    } else if (lookahead < end && text.charAt(lookahead) == ':') {
+      ipv6 = true;
+      if (!parseIpv6()) {
+        return false;
+      }
+      prefixLength = IPV6_BITS;
+    } else {
+      return false;
+    }
+    return parsePrefix();
+  }
+
+  /**
+   * Reads four octets from the current position, returns a negative value when they are not valid.
+   */
+  private long parseIpv4() {
+    long address = 0L;
+    for (int i = 0; i < 4; i++) {
+      if (i > 0) {
+        if (pos >= end || text.charAt(pos) != '.') {
+          return -1L;
+        }
+        pos++;
+      }
+      int octet = parseOctet();
+      if (octet < 0) {
+        return -1L;
+      }
+      address = (address << 8) | octet;
+    }
+    return address;
+  }
+
+  private int parseOctet() {
+    int start = pos;
+    int value = 0;
+    while (pos < end && isDecimalDigit(text.charAt(pos))) {
+      if (pos - start == MAX_OCTET_DIGITS || (pos > start && value == 0)) {
+        // too many digits or leading zero
+        return -1;
+      }
+      value = value * 10 + (text.charAt(pos) - '0');
+      pos++;
+    }
+    return (pos == start || value > 255) ? -1 : value;
+  }
+
+  private boolean parseIpv6() {
+    // groups before and after "::" are accumulated separately, the zero groups are inserted in between at the end
+    long headHigh = 0L;
+    long headLow = 0L;
+    int headGroups = 0;
+    long tailHigh = 0L;
+    long tailLow = 0L;
+    int tailGroups = 0;
+    boolean compressed = false;
+    if (startsWithDoubleColon()) {
+      compressed = true;
+      pos += 2;
+    }
+    // after a single ':' a group is mandatory, after "::" the address can end
+    boolean groupRequired = !compressed;
+    while (groupRequired || !isAddressEnd()) {
+      int groups = headGroups + tailGroups;
+      long value;
+      int width;
+      if (isEmbeddedIpv4()) {
+        value = parseIpv4();
+        width = 2;
+        if (value < 0 || groups + width > IPV6_GROUPS || !isAddressEnd()) {
+          return false;
+        }
+      } else {
+        value = parseGroup();
+        width = 1;
+        if (value < 0 || groups + width > IPV6_GROUPS) {
+          return false;
+        }
+      }
+      int bits = 16 * width;
+      if (compressed) {
+        tailHigh = (tailHigh << bits) | (tailLow >>> (64 - bits));
+        tailLow = (tailLow << bits) | value;
+        tailGroups += width;
+      } else {
+        headHigh = (headHigh << bits) | (headLow >>> (64 - bits));
+        headLow = (headLow << bits) | value;
+        headGroups += width;
+      }
+      if (isAddressEnd()) {
+        break;
+      }
+      if (text.charAt(pos) != ':') {
+        return false;
+      }
+      if (startsWithDoubleColon()) {
+        if (compressed) {
+          return false;
+        }
+        compressed = true;
+        pos += 2;
+        groupRequired = false;
+      } else {
+        pos++;
+        groupRequired = true;
+      }
+    }
+    int groups = headGroups + tailGroups;
+    if (compressed ? (groups >= IPV6_GROUPS) : (groups != IPV6_GROUPS)) {
+      return false;
+    }
+    // shift the head groups to the most significant bits, leaving room for the compressed zeros and the tail
+    int shift = 16 * (IPV6_GROUPS - headGroups);
+    if (shift >= 64) {
+      high = headLow << (shift - 64);
+      low = 0L;
+    } else {
+      high = (headHigh << shift) | (shift == 0 ? 0L : (headLow >>> (64 - shift)));
+      low = headLow << shift;
+    }
+    high |= tailHigh;
+    low |= tailLow;
+    return true;
+  }
+
+  private long parseGroup() {
+    int start = pos;
+    long value = 0L;
+    while (pos < end && pos - start < MAX_GROUP_DIGITS) {
+      int digit = hexValue(text.charAt(pos));
+      if (digit < 0) {
+        break;
+      }
+      value = (value << 4) | digit;
+      pos++;
+    }
+    if (pos == start || (pos < end && hexValue(text.charAt(pos)) >= 0)) {
+      // empty group or more than 4 digits
+      return -1L;
+    }
+    return value;
+  }
+
+  private boolean parsePrefix() {
+    if (pos == end) {
+      return true;
+    }
+    if (text.charAt(pos) != '/') {
+      return false;
+    }
+    pos++;
+    int start = pos;
+    int maxBits = prefixLength;
+    int value = 0;
+    while (pos < end && isDecimalDigit(text.charAt(pos))) {
+      value = value * 10 + (text.charAt(pos) - '0');
+      if (value > maxBits) {
+        return false;
+      }
+      pos++;
+    }
+    if (pos == start || pos != end) {
+      return false;
+    }
+    prefixLength = value;
+    return true;
+  }
+
+  private boolean isEmbeddedIpv4() {
+    int lookahead = pos;
+    while (lookahead < end && lookahead - pos <= MAX_OCTET_DIGITS && isDecimalDigit(text.charAt(lookahead))) {
+      lookahead++;
+    }
+    return lookahead < end && text.charAt(lookahead) == '.';
+  }
+
+  private boolean startsWithDoubleColon() {
+    return pos + 1 < end && text.charAt(pos) == ':' && text.charAt(pos + 1) == ':';
+  }
+
+  private boolean isAddressEnd() {
+    return pos == end || text.charAt(pos) == '/';
+  }
+
+  static boolean isDecimalDigit(char ch) {
+    return ch >= '0' && ch <= '9';
+  }
+
+  static int hexValue(char ch) {
+    if (ch >= '0' && ch <= '9') {
+      return ch - '0';
+    }
+    if (ch >= 'a' && ch <= 'f') {
+      return ch - 'a' + 10;
+    }
+    if (ch >= 'A' && ch <= 'F') {
+      return ch - 'A' + 10;
+    }
+    return -1;
+  }
+}
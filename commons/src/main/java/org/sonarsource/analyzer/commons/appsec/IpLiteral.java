@@ -0,0 +1,182 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+import org.sonarsource.analyzer.commons.appsec.IpAddressClassifier.BlockKind;
+import org.sonarsource.analyzer.commons.appsec.IpAddressClassifier.Classification;
+
+/**
+ * An IP-address literal (plain or CIDR, IPv4 or IPv6) parsed once, answering all the {@link IpAddressClassifier}
+ * predicates without parsing it again. Rules combining several predicates on the same literal should prefer:
+ * <pre>{@code
+ * IpLiteral ip = IpLiteral.parse(literal);
+ * boolean exempt = ip.isLoopback() || ip.isAnyAddress() || ip.isBroadcast() || ip.isDocumentation();
+ * }</pre>
+ *
+ * <p>The reserved blocks containing the literal are looked up once, on the first predicate call.
+ */
+public final class IpLiteral {
+
+  private static final int IPV4_BITS = IpAddressParser.IPV4_BITS;
+  private static final long IPV4_MASK = 0xFFFFFFFFL;
+  private static final long IPV4_MAPPED_MARKER = 0xFFFFL;
+  private static final int UNKNOWN_KINDS = -1;
+
+  private static final IpLiteral UNPARSEABLE = new IpLiteral(false, false, 0L, 0L, 0);
+
+  private final boolean parseable;
+  private final boolean ipv6;
+  // first address of the range, IPv4 addresses are held in the 32 least significant bits of "low"
+  private final long high;
+  private final long low;
+  private final int prefixLength;
+  // bit set of the BlockKind containing the range, computed on demand
+  private int reservedKinds = UNKNOWN_KINDS;
+
+  private IpLiteral(boolean parseable, boolean ipv6, long high, long low, int prefixLength) {
+    this.parseable = parseable;
+    this.ipv6 = ipv6;
+    this.high = high;
+    this.low = low;
+    this.prefixLength = prefixLength;
+  }
+
+  /**
+   * Parses a plain or CIDR IPv4 or IPv6 literal, see {@link #parse(CharSequence, int, int)}.
+   */
+  public static IpLiteral parse(String literal) {
+    return parse(literal, 0, literal.length());
+  }
+
+  /**
+   * Parses the {@code [start, end)} slice of the text as a plain or CIDR IPv4 or IPv6 literal, so substrings of larger
+   * literals can be classified without being copied. Never fails: malformed literals return an instance whose
+   * {@link #isParseable()} is false and whose predicates are all false.
+   *
+   * <p>IPv4 octets with leading zeros and IPv4-mapped IPv6 addresses (e.g. {@code ::ffff:10.0.0.1}) are not supported.
+   */
+  public static IpLiteral parse(CharSequence text, int start, int end) {
+    IpAddressParser parser = IpAddressParser.parse(text, start, end);
+    if (parser == null) {
+      return UNPARSEABLE;
+    }
+    int prefix = parser.prefixLength();
+    if (!parser.isIpv6()) {
+      long address = IpPrefixTrie.maskHigh(parser.low() << IPV4_BITS, prefix) >>> IPV4_BITS;
+      return new IpLiteral(true, false, 0L, address, prefix);
+    }
+    if (parser.high() == 0L && (parser.low() >>> IPV4_BITS) == IPV4_MAPPED_MARKER) {
+      return UNPARSEABLE;
+    }
+    return new IpLiteral(true, true, IpPrefixTrie.maskHigh(parser.high(), prefix), IpPrefixTrie.maskLow(parser.low(), prefix), prefix);
+  }
+
+  public boolean isParseable() {
+    return parseable;
+  }
+
+  public boolean isIpv6() {
+    return ipv6;
+  }
+
+  /**
+   * The CIDR prefix length: 32 for IPv4 and 128 for IPv6 single addresses, 0 for unparseable literals.
+   */
+  public int prefixLength() {
+    return prefixLength;
+  }
+
+  Classification classification() {
+    if (!parseable) {
+      return Classification.UNPARSEABLE;
+    }
+    return reservedKinds() != 0 ? Classification.RESERVED : Classification.PUBLIC;
+  }
+
+  /** See {@link IpAddressClassifier#isReserved(String)}. */
+  public boolean isReserved() {
+    return classification() == Classification.RESERVED;
+  }
+
+  /** See {@link IpAddressClassifier#isInternetRoutable(String)}. */
+  boolean isInternetRoutable() {
+    return classification() == Classification.PUBLIC;
+  }
+
+  /** See {@link IpAddressClassifier#isLoopback(String)}. */
+  public boolean isLoopback() {
+    return isInBlock(BlockKind.LOOPBACK);
+  }
+
+  /** See {@link IpAddressClassifier#isLinkLocal(String)}. */
+  public boolean isLinkLocal() {
+    return isInBlock(BlockKind.LINK_LOCAL);
+  }
+
+  /** See {@link IpAddressClassifier#isPrivate(String)}. */
+  public boolean isPrivate() {
+    return isInBlock(BlockKind.RFC1918_PRIVATE) || isInBlock(BlockKind.UNIQUE_LOCAL);
+  }
+
+  /** See {@link IpAddressClassifier#isDocumentation(String)}. */
+  public boolean isDocumentation() {
+    return isInBlock(BlockKind.DOCUMENTATION);
+  }
+
+  /** See {@link IpAddressClassifier#isAnyAddress(String)}. */
+  public boolean isAnyAddress() {
+    return parseable && high == 0L && low == 0L && prefixLength == maxPrefixLength();
+  }
+
+  /** See {@link IpAddressClassifier#isBroadcast(String)}. */
+  public boolean isBroadcast() {
+    return parseable && !ipv6 && low == IPV4_MASK && prefixLength == IPV4_BITS;
+  }
+
+  /** See {@link IpAddressClassifier#isUnrestrictedCidr(String)}. */
+  public boolean isUnrestrictedCidr() {
+    return parseable && prefixLength == 0;
+  }
+
+  private int maxPrefixLength() {
+    return ipv6 ? IpPrefixTrie.MAX_PREFIX_LENGTH : IPV4_BITS;
+  }
+
+  private boolean isInBlock(BlockKind kind) {
+    return parseable && (reservedKinds() & kind.flag()) != 0;
+  }
+
+  private int reservedKinds() {
+    if (reservedKinds == UNKNOWN_KINDS) {
+      reservedKinds = ipv6
+        ? IpAddressClassifier.reservedIpv6Kinds(high, low, prefixLength)
+        : IpAddressClassifier.reservedIpv4Kinds(low, prefixLength);
+    }
+    return reservedKinds;
+  }
+
+  /**
+   * Inserts the range of this literal in the given trie, see {@link IpPrefixTrie} for the IPv4 alignment.
+   */
+  void addTo(IpPrefixTrie trie, int flags) {
+    if (ipv6) {
+      trie.add(high, low, prefixLength, flags);
+    } else {
+      trie.add(low << IPV4_BITS, 0L, prefixLength, flags);
+    }
+  }
+}
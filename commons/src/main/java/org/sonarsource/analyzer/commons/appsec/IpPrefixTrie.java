@@ -0,0 +1,139 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+import javax.annotation.Nullable;
+
+/**
+ * Binary radix trie of address prefixes (CIDR blocks), each prefix carrying a bit set of flags.
+ *
+ * <p>Addresses are 128-bit values held in two longs, most significant bits first: IPv4 addresses have to be shifted
+ * into the most significant 32 bits of {@code high}. Chains of single-child nodes are compressed, so a lookup visits
+ * at most one node per stored prefix on the path, whatever the prefix lengths.
+ *
+ * <p>Filled once when the owning constants are initialized, then only read.
+ */
+final class IpPrefixTrie {
+
+  static final int MAX_PREFIX_LENGTH = 128;
+
+  private final Node root = new Node(0L, 0L, 0, 0);
+
+  /**
+   * Associates the flags to the prefix made of the first {@code prefixLength} bits of the given address.
+   */
+  IpPrefixTrie add(long high, long low, int prefixLength, int flags) {
+    long maskedHigh = maskHigh(high, prefixLength);
+    long maskedLow = maskLow(low, prefixLength);
+    Node node = root;
+    while (node.prefixLength != prefixLength) {
+      boolean oneBit = bit(maskedHigh, maskedLow, node.prefixLength);
+      Node child = node.child(oneBit);
+      if (child == null) {
+        node.setChild(oneBit, new Node(maskedHigh, maskedLow, prefixLength, flags));
+        return this;
+      }
+      int common = Math.min(commonPrefixLength(child.high, child.low, maskedHigh, maskedLow), Math.min(child.prefixLength, prefixLength));
+      if (common < child.prefixLength) {
+        Node split = new Node(maskHigh(maskedHigh, common), maskLow(maskedLow, common), common, 0);
+        split.setChild(bit(child.high, child.low, common), child);
+        node.setChild(oneBit, split);
+        child = split;
+      }
+      node = child;
+    }
+    node.flags |= flags;
+    return this;
+  }
+
+  /**
+   * Returns the union of the flags of all the prefixes containing the whole range made of the addresses starting with
+   * the first {@code prefixLength} bits of the given address.
+   */
+  int flagsContaining(long high, long low, int prefixLength) {
+    int flags = 0;
+    Node node = root;
+    while (node != null && node.prefixLength <= prefixLength && commonPrefixLength(node.high, node.low, high, low) >= node.prefixLength) {
+      flags |= node.flags;
+      node = node.prefixLength == MAX_PREFIX_LENGTH ? null : node.child(bit(high, low, node.prefixLength));
+    }
+    return flags;
+  }
+
+  static long maskHigh(long high, int prefixLength) {
+    if (prefixLength >= 64) {
+      return high;
+    }
+    return prefixLength == 0 ? 0L : (high & (-1L << (64 - prefixLength)));
+  }
+
+  static long maskLow(long low, int prefixLength) {
+    if (prefixLength <= 64) {
+      return 0L;
+    }
+    return prefixLength == MAX_PREFIX_LENGTH ? low : (low & (-1L << (MAX_PREFIX_LENGTH - prefixLength)));
+  }
+
+  /**
+   * Number of leading bits shared by the two 128-bit values.
+   */
+  static int commonPrefixLength(long high1, long low1, long high2, long low2) {
+    long difference = high1 ^ high2;
+    if (difference != 0L) {
+      return Long.numberOfLeadingZeros(difference);
+    }
+    difference = low1 ^ low2;
+    return difference == 0L ? MAX_PREFIX_LENGTH : (64 + Long.numberOfLeadingZeros(difference));
+  }
+
+  private static boolean bit(long high, long low, int index) {
+    return index < 64
+      ? ((high >>> (63 - index)) & 1L) != 0L
+      : ((low >>> (127 - index)) & 1L) != 0L;
+  }
+
+  private static final class Node {
+    final long high;
+    final long low;
+    final int prefixLength;
+    int flags;
+    @Nullable
+    Node zero;
+    @Nullable
+    Node one;
+
+    Node(long high, long low, int prefixLength, int flags) {
+      this.high = high;
+      this.low = low;
+      this.prefixLength = prefixLength;
+      this.flags = flags;
+    }
+
+    @Nullable
+    Node child(boolean oneBit) {
+      return oneBit ? one : zero;
+    }
+
+    void setChild(boolean oneBit, Node child) {
+      if (oneBit) {
+        one = child;
+      } else {
+        zero = child;
+      }
+    }
+  }
+}
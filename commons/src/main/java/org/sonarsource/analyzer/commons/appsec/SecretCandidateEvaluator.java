@@ -0,0 +1,128 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+import org.sonarsource.analyzer.commons.EntropyDetector;
+import org.sonarsource.analyzer.commons.HumanLanguageDetector;
+import org.sonarsource.analyzer.commons.ShannonEntropy;
+
+/**
+ * Combines {@link SecretClassifier#isKnownNonSecret(String)},
+ * {@link EntropyDetector#hasEnoughEntropy(String)} and {@link HumanLanguageDetector#humanLanguageScore(String)}
+ * into a single evaluation of a secret candidate.
+ *
+ * <p>The candidate is scanned once to collect its character histogram and its human language score. The cheap
+ * rejections (too short value, exact-match value, low entropy, human language) are then applied before the skip
+ * regexes, which only run for the remaining candidates. A value is a secret candidate if and only if none of the three
+ * separate checks rejects it; when several would, the {@link Verdict} reports the first one in the above order.
+ */
+public final class SecretCandidateEvaluator {
+
+  // Same as the "^.{0,5}$" FAKE_VALUE skip pattern, which can not match across line terminators
+  private static final int MAX_TOO_SHORT_LENGTH = 5;
+
+  private final EntropyDetector entropyDetector;
+  private final double humanLanguageThreshold;
+
+  /**
+   * @param entropyDetector the entropy requirement a secret has to meet
+   * @param humanLanguageThreshold candidates with a {@link HumanLanguageDetector#humanLanguageScore(String)} above
+   *                               this value are rejected, use {@link Double#POSITIVE_INFINITY} to never reject them
+   */
+  public SecretCandidateEvaluator(EntropyDetector entropyDetector, double humanLanguageThreshold) {
+    this.entropyDetector = entropyDetector;
+    this.humanLanguageThreshold = humanLanguageThreshold;
+  }
+
+  public Verdict evaluate(String candidate) {
+    ShannonEntropy.Histogram histogram = new ShannonEntropy.Histogram();
+    HumanLanguageDetector.Accumulator humanLanguage = new HumanLanguageDetector.Accumulator();
+    boolean hasLineTerminator = false;
+    int length = candidate.length();
+    for (int i = 0; i < length; i++) {
+      char ch = candidate.charAt(i);
+      histogram.add(ch);
+      humanLanguage.accept(ch);
+      hasLineTerminator |= isLineTerminator(ch);
+    }
+    double entropy = histogram.entropy();
+    double humanLanguageScore = humanLanguage.score();
+
+    Outcome outcome;
+    if ((length <= MAX_TOO_SHORT_LENGTH && !hasLineTerminator) || SecretClassifier.isExactMatch(candidate)) {
+      outcome = Outcome.KNOWN_NON_SECRET;
+    } else if (entropy < entropyDetector.minEntropyThreshold(length)) {
+      outcome = Outcome.LOW_ENTROPY;
+    } else if (humanLanguageScore > humanLanguageThreshold) {
+      outcome = Outcome.HUMAN_LANGUAGE;
+    } else if (SecretClassifier.matchesSkipPattern(candidate)) {
+      outcome = Outcome.KNOWN_NON_SECRET;
+    } else {
+      outcome = Outcome.SECRET_CANDIDATE;
+    }
+    return new Verdict(outcome, entropy, humanLanguageScore);
+  }
+
+  /** Line terminators of {@link java.util.regex.Pattern}, not matched by "." */
+  private static boolean isLineTerminator(char ch) {
+    return ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
+  }
+
+  public enum Outcome {
+    /** None of the checks rejects the value, it should be reported. */
+    SECRET_CANDIDATE,
+    /** The value is a known non-secret, see {@link SecretClassifier#isKnownNonSecret(String)}. */
+    KNOWN_NON_SECRET,
+    /** The value has not enough entropy, see {@link EntropyDetector#hasEnoughEntropy(String)}. */
+    LOW_ENTROPY,
+    /** The value looks like human language, see {@link HumanLanguageDetector#humanLanguageScore(String)}. */
+    HUMAN_LANGUAGE
+  }
+
+  /**
+   * Result of {@link #evaluate(String)}. The scores are always computed, whatever the outcome.
+   */
+  public static final class Verdict {
+    private final Outcome outcome;
+    private final double entropy;
+    private final double humanLanguageScore;
+
+    private Verdict(Outcome outcome, double entropy, double humanLanguageScore) {
+      this.outcome = outcome;
+      this.entropy = entropy;
+      this.humanLanguageScore = humanLanguageScore;
+    }
+
+    public Outcome outcome() {
+      return outcome;
+    }
+
+    public boolean isSecretCandidate() {
+      return outcome == Outcome.SECRET_CANDIDATE;
+    }
+
+    /** The value of {@link ShannonEntropy#calculate(String)} for the candidate. */
+    public double entropy() {
+      return entropy;
+    }
+
+    /** The value of {@link HumanLanguageDetector#humanLanguageScore(String)} for the candidate. */
+    public double humanLanguageScore() {
+      return humanLanguageScore;
+    }
+  }
+}
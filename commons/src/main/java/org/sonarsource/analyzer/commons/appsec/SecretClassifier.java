@@ -192,12 +192,22 @@ public final class SecretClassifier {
     .flatMap(group -> group.patterns().stream())
     .toList();
 
+  private static final int ANY_LEADING_CHAR = -1;
+
+  // Prefilter aligned with ALL_PATTERNS: the lower case character a match has to start with, when the pattern is
+  // anchored on a literal character, so the matcher is not even created for candidates starting differently.
+  private static final int[] LEADING_CHARS = ALL_PATTERNS.stream()
+    .mapToInt(pattern -> leadingChar(pattern.pattern()))
+    .toArray();
+
   // Well-known placeholder secrets plus config/credential vocabulary, matched in full (case-insensitive).
   private static final ExactMatchGroup SECRET_VALUES = new ExactMatchGroup(Category.SECRET, Set.of(
     "hunter2", "letmein", "abc123",
     "changeme", "changeit", "unknown", "optional", "enabled", "disabled",
     "string", "random", "token"));
 
+  private static final int MAX_EXACT_MATCH_LENGTH = SECRET_VALUES.values().stream().mapToInt(String::length).max().orElse(0);
+
   // Context is an empty extension point today, so the analyzer sees instantiating it as pointless; the single shared
   // empty instance is intentional and lets empty() return a non-null context.
   @SuppressWarnings("java:S2440")
@@ -225,15 +235,7 @@ public final class SecretClassifier {
     if (candidate == null) {
       return false;
     }
-    if (SECRET_VALUES.values().contains(candidate.toLowerCase(Locale.ROOT))) {
-      return true;
-    }
-    for (Pattern pattern : ALL_PATTERNS) {
-      if (pattern.matcher(candidate).find()) {
-        return true;
-      }
-    }
-    return false;
+    return isExactMatch(candidate) || matchesSkipPattern(candidate);
   }
 
   /**
@@ -246,6 +248,85 @@ public final class SecretClassifier {
     return isKnownNonSecret(candidate, Context.empty());
   }
 
+  /**
+   * Whether the candidate is, case-insensitively, one of the exact-match values. Lower casing never shortens a string,
+   * so longer candidates are rejected without allocating their lower case version.
+   */
+  static boolean isExactMatch(String candidate) {
+    return candidate.length() <= MAX_EXACT_MATCH_LENGTH && SECRET_VALUES.values().contains(candidate.toLowerCase(Locale.ROOT));
+  }
+
+  /** Whether one of the skip patterns is found in the candidate, patterns anchored on another leading character are skipped. */
+  static boolean matchesSkipPattern(String candidate) {
+    int firstChar = candidate.isEmpty() ? ANY_LEADING_CHAR : toLowerCase(candidate.charAt(0));
+    for (int i = 0; i < LEADING_CHARS.length; i++) {
+      int leadingChar = LEADING_CHARS[i];
+      if ((leadingChar == ANY_LEADING_CHAR || leadingChar == firstChar) && ALL_PATTERNS.get(i).matcher(candidate).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the lower case character all the matches of the given regex start with, or {@link #ANY_LEADING_CHAR} when
+   * it can not be simply determined. Only regexes starting with {@code ^} followed by a literal character, which is not
+   * optional, and without top level alternative qualify.
+   */
+  static int leadingChar(String regex) {
+    if (regex.length() < 2 || regex.charAt(0) != '^' || hasTopLevelAlternative(regex)) {
+      return ANY_LEADING_CHAR;
+    }
+    int literal;
+    int next;
+    char ch = regex.charAt(1);
+    if (ch == '\\') {
+      if (regex.length() < 3 || Character.isLetterOrDigit(regex.charAt(2))) {
+        // character class like \d, \w or back reference
+        return ANY_LEADING_CHAR;
+      }
+      literal = regex.charAt(2);
+      next = 3;
+    } else if (Character.isLetterOrDigit(ch) || "_-:@%`<#&\"'/=,;!~ ".indexOf(ch) >= 0) {
+      literal = ch;
+      next = 2;
+    } else {
+      return ANY_LEADING_CHAR;
+    }
+    if (next < regex.length() && "?*{".indexOf(regex.charAt(next)) >= 0) {
+      // the literal character can be absent
+      return ANY_LEADING_CHAR;
+    }
+    return literal < 128 ? toLowerCase((char) literal) : ANY_LEADING_CHAR;
+  }
+
+  private static boolean hasTopLevelAlternative(String regex) {
+    int depth = 0;
+    boolean inCharacterClass = false;
+    for (int i = 0; i < regex.length(); i++) {
+      char ch = regex.charAt(i);
+      if (ch == '\\') {
+        i++;
+      } else if (inCharacterClass) {
+        inCharacterClass = ch != ']';
+      } else if (ch == '[') {
+        inCharacterClass = true;
+      } else if (ch == '(') {
+        depth++;
+      } else if (ch == ')') {
+        depth--;
+      } else if (ch == '|' && depth == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** ASCII only lower casing, the same as {@link Pattern#CASE_INSENSITIVE} without {@link Pattern#UNICODE_CASE}. */
+  private static int toLowerCase(char ch) {
+    return (ch >= 'A' && ch <= 'Z') ? (ch + ('a' - 'A')) : ch;
+  }
+
   /** Visible for testing: every configured skip pattern, so a coverage test can assert each one is exercised. */
   static List<Pattern> allPatterns() {
     return ALL_PATTERNS;
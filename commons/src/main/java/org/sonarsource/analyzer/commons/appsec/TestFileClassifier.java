@@ -16,16 +16,17 @@
  */
 package org.sonarsource.analyzer.commons.appsec;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.config.Configuration;
-import org.sonar.api.utils.WildcardPattern;
+import org.sonarsource.analyzer.commons.GlobMatcher;
 
 /**
  * Test-file heuristic for rule execution only; it never affects metrics, which use the platform
@@ -34,7 +35,8 @@ import org.sonar.api.utils.WildcardPattern;
  *
  * <p>Registered once with the project {@link Configuration} (which gates the heuristic) plus path
  * globs and, optionally, a {@code detector} for richer checks that reads a caller-supplied
- * {@link Context}. Per file, {@link #looksLikeTestFile(InputFile)} returns the classification.
+ * {@link Context}. Per file, {@link #looksLikeTestFile(InputFile)} returns the classification;
+ * {@link #testFiles(FileSystem)} classifies a whole file system at once.
  */
 public final class TestFileClassifier {
 
@@ -53,20 +55,18 @@ public final class TestFileClassifier {
   private static final Context EMPTY_CONTEXT = new EmptyContext();
 
   // Fallback when no patterns are registered: test directories only, to minimize false positives.
-  private static final List<WildcardPattern> DEFAULT_PATTERNS =
-    Stream.of("**/Test/**", "**/Tests/**", "**/test/**", "**/tests/**", "**/__tests__/**")
-      .map(WildcardPattern::create)
-      .toList();
+  private static final String[] DEFAULT_GLOBS = {"**/Test/**", "**/Tests/**", "**/test/**", "**/tests/**", "**/__tests__/**"};
 
   private static final Predicate<Context> NO_DETECTOR = context -> false;
 
-  private final List<WildcardPattern> patterns;
+  // all the globs compiled together, it memoizes the directories of the classified files
+  private final GlobMatcher patterns;
   private final Predicate<Context> detector;
   private final boolean testSourcesConfigured;
   // Warn once, here, so the heuristic behaves the same for every analyzer using this classifier.
   private final AtomicBoolean heuristicWarningEmitted = new AtomicBoolean(false);
 
-  private TestFileClassifier(List<WildcardPattern> patterns, Predicate<Context> detector, boolean testSourcesConfigured) {
+  private TestFileClassifier(GlobMatcher patterns, Predicate<Context> detector, boolean testSourcesConfigured) {
     this.patterns = patterns;
     this.detector = detector;
     this.testSourcesConfigured = testSourcesConfigured;
@@ -79,9 +79,7 @@ public final class TestFileClassifier {
 
   /** As {@link #of(Configuration, String...)}, plus a {@code detector} matched when no glob does. */
   public static TestFileClassifier of(Configuration configuration, Predicate<Context> detector, String... globs) {
-    List<WildcardPattern> patterns = globs.length == 0
-      ? DEFAULT_PATTERNS
-      : Arrays.stream(globs).map(WildcardPattern::create).toList();
+    GlobMatcher patterns = GlobMatcher.of(globs.length == 0 ? DEFAULT_GLOBS : globs);
     return new TestFileClassifier(patterns, detector, isTestSourceConfigured(configuration));
   }
 
@@ -97,9 +95,35 @@ public final class TestFileClassifier {
   // relativePath() is the only project-relative accessor
   @SuppressWarnings("deprecation")
   public boolean looksLikeTestFile(InputFile inputFile, Context context) {
-    String path = inputFile.relativePath();
-    boolean detected = !testSourcesConfigured
-      && (patterns.stream().anyMatch(pattern -> pattern.match(path)) || detector.test(context));
+    return !testSourcesConfigured && classify(patterns.matches(inputFile.relativePath()), context);
+  }
+
+  /**
+   * Path-only classification of all the files of the file system: the files for which
+   * {@link #looksLikeTestFile(InputFile)} is true, in the file system iteration order. The globs are matched in
+   * parallel, the detector is called on the calling thread only, so it does not have to be thread-safe.
+   */
+  @SuppressWarnings("deprecation")
+  public List<InputFile> testFiles(FileSystem fileSystem) {
+    if (testSourcesConfigured) {
+      return List.of();
+    }
+    List<InputFile> inputFiles = new ArrayList<>();
+    fileSystem.inputFiles(fileSystem.predicates().all()).forEach(inputFiles::add);
+    boolean[] pathMatches = new boolean[inputFiles.size()];
+    IntStream.range(0, pathMatches.length).parallel()
+      .forEach(i -> pathMatches[i] = patterns.matches(inputFiles.get(i).relativePath()));
+    List<InputFile> testFiles = new ArrayList<>();
+    for (int i = 0; i < pathMatches.length; i++) {
+      if (classify(pathMatches[i], Context.empty())) {
+        testFiles.add(inputFiles.get(i));
+      }
+    }
+    return List.copyOf(testFiles);
+  }
+
+  private boolean classify(boolean pathMatches, Context context) {
+    boolean detected = pathMatches || detector.test(context);
     if (detected && heuristicWarningEmitted.compareAndSet(false, true)) {
       LOG.warn(HEURISTIC_APPLIED_WARNING);
     }
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.jetbrains.annotations.Debug;
@@ -50,7 +51,7 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
   @SuppressWarnings("unchecked")
   @Override
   public AVLTree<K, V> add(K e) {
-    return put(e, e, this);
+    return put(e, e, this, null);
   }
 
   @Override
@@ -63,14 +64,14 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
   public AVLTree<K, V> put(K key, V value) {
     Objects.requireNonNull(key);
     Objects.requireNonNull(value);
-    return put(key, value, this);
+    return put(key, value, this, null);
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public AVLTree<K, V> remove(K key) {
     Objects.requireNonNull(key);
-    return remove(key, this);
+    return remove(key, this, null);
   }
 
   @SuppressWarnings("unchecked")
@@ -135,6 +136,91 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
     return this;
   }
 
+  @Override
+  public Builder<K, V> toBuilder() {
+    return new Builder<>(this);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public PMap<K, V> union(PMap<K, V> other, BinaryOperator<V> merge) {
+    if (other instanceof AVLTree<K, V> tree) {
+      return combine(this, tree, SetOperation.UNION, merge);
+    }
+    return PMap.super.union(other, merge);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public PMap<K, V> intersect(PMap<K, V> other, BinaryOperator<V> merge) {
+    if (other instanceof AVLTree<K, V> tree) {
+      return combine(this, tree, SetOperation.INTERSECTION, merge);
+    }
+    return PMap.super.intersect(other, merge);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public PMap<K, V> difference(PMap<K, V> other) {
+    if (other instanceof AVLTree<K, V> tree) {
+      return combine(this, tree, SetOperation.DIFFERENCE, null);
+    }
+    return PMap.super.difference(other);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void diff(PMap<K, V> other, DiffVisitor<K, V> visitor) {
+    if (other instanceof AVLTree<K, V> tree) {
+      diff(this, tree, visitor);
+    } else {
+      PMap.super.diff(other, visitor);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public PSet<K> union(PSet<K> other) {
+    if (other instanceof AVLTree<K, ?> tree) {
+      return combine(this, tree, SetOperation.UNION, (value, otherValue) -> value);
+    }
+    return PSet.super.union(other);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public PSet<K> intersect(PSet<K> other) {
+    if (other instanceof AVLTree<K, ?> tree) {
+      return combine(this, tree, SetOperation.INTERSECTION, (value, otherValue) -> value);
+    }
+    return PSet.super.intersect(other);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public PSet<K> difference(PSet<K> other) {
+    if (other instanceof AVLTree<K, ?> tree) {
+      return combine(this, tree, SetOperation.DIFFERENCE, null);
+    }
+    return PSet.super.difference(other);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void diff(PSet<K> other, Consumer<? super K> onlyInThis, Consumer<? super K> onlyInOther) {
+    if (other instanceof AVLTree<K, ?> tree) {
+      diff(this, tree, (key, value, otherValue) -> {
+        if (otherValue == null) {
+          onlyInThis.accept((K) key);
+        } else if (value == null) {
+          onlyInOther.accept((K) key);
+        }
+      });
+    } else {
+      PSet.super.diff(other, onlyInThis, onlyInOther);
+    }
+  }
+
   // Used by IntelliJ renderer, to ease debugging
   @VisibleForTesting
   Object[] toArray() {
@@ -207,9 +293,19 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
 
   protected abstract int height();
 
-  private static AVLTree put(Object key, Object value, AVLTree t) {
+  /**
+   * Cached in each node, so takes a constant time.
+   */
+  @Override
+  public abstract int size();
+
+  /**
+   * Nodes owned by the given builder token are modified in place, instead of being copied. As an owned node is always
+   * reached through owned nodes, an unowned node returned as is has not been modified.
+   */
+  private static AVLTree put(Object key, Object value, AVLTree t, @Nullable Object owner) {
     if (t.isEmpty()) {
-      return createNode(t, key, value, null, t);
+      return createNode(t, key, value, null, t, owner);
     }
     final int h = key.hashCode();
     final int c = t.key().hashCode();
@@ -219,29 +315,29 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
         if (value.equals(t.value())) {
           return t;
         }
-        return createNode(t.left(), key, value, nextInBucket, t.right());
+        return updateEntry(t, key, value, nextInBucket, owner);
       }
       final AVLTree nodeToReplace = searchInBucket(key, nextInBucket);
       if (nodeToReplace != null && value.equals(nodeToReplace.value())) {
         return t;
       }
-      return createNode(t.left(), key, value, createBucket(t.key(), t.value(), removeFromBucket(nextInBucket, nodeToReplace)), t.right());
+      return updateEntry(t, key, value, createBucket(t.key(), t.value(), removeFromBucket(nextInBucket, nodeToReplace)), owner);
     } else if (h < c) {
-      AVLTree left = put(key, value, t.left());
-      if (left == t.left()) {
+      AVLTree left = put(key, value, t.left(), owner);
+      if (left == t.left() && !isOwnedBy(t, owner)) {
         return t;
       }
-      return balance(left, t, t.right());
+      return balance(left, t, t.right(), owner);
     } else {
-      AVLTree right = put(key, value, t.right());
-      if (right == t.right()) {
+      AVLTree right = put(key, value, t.right(), owner);
+      if (right == t.right() && !isOwnedBy(t, owner)) {
         return t;
       }
-      return balance(t.left(), t, right);
+      return balance(t.left(), t, right, owner);
     }
   }
 
-  private static AVLTree remove(Object key, AVLTree t) {
+  private static AVLTree remove(Object key, AVLTree t, @Nullable Object owner) {
     if (t.isEmpty()) {
       return t;
     }
@@ -251,31 +347,31 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
       final AVLTree nextInBucket = t.nextInBucket();
       if (key.equals(t.key())) {
         if (nextInBucket != null) {
-          return createNode(t.left(), nextInBucket.key(), nextInBucket.value(), nextInBucket.nextInBucket(), t.right());
+          return updateEntry(t, nextInBucket.key(), nextInBucket.value(), nextInBucket.nextInBucket(), owner);
         }
-        return combineTrees(t.left(), t.right());
+        return combineTrees(t.left(), t.right(), owner);
       }
       final AVLTree nodeToRemove = searchInBucket(key, nextInBucket);
       if (nodeToRemove == null) {
         return t;
       }
-      return createNode(t.left(), t.key(), t.value(), removeFromBucket(nextInBucket, nodeToRemove), t.right());
+      return updateEntry(t, t.key(), t.value(), removeFromBucket(nextInBucket, nodeToRemove), owner);
     } else if (h < c) {
-      AVLTree left = remove(key, t.left());
-      if (left == t.left()) {
+      AVLTree left = remove(key, t.left(), owner);
+      if (left == t.left() && !isOwnedBy(t, owner)) {
         return t;
       }
-      return balance(left, t, t.right());
+      return balance(left, t, t.right(), owner);
     } else {
-      AVLTree right = remove(key, t.right());
-      if (right == t.right()) {
+      AVLTree right = remove(key, t.right(), owner);
+      if (right == t.right() && !isOwnedBy(t, owner)) {
         return t;
       }
-      return balance(t.left(), t, right);
+      return balance(t.left(), t, right, owner);
     }
   }
 
-  private static AVLTree combineTrees(AVLTree l, AVLTree r) {
+  private static AVLTree combineTrees(AVLTree l, AVLTree r, @Nullable Object owner) {
     if (l.isEmpty()) {
       return r;
     }
@@ -283,63 +379,277 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
       return l;
     }
     NodeRef oldNode = new NodeRef();
-    AVLTree newRight = removeMinBinding(r, oldNode);
-    return balance(l, oldNode.node, newRight);
+    AVLTree newRight = removeMinBinding(r, oldNode, owner);
+    return balance(l, oldNode.node, newRight, owner);
   }
 
   private static class NodeRef {
     AVLTree node;
   }
 
-  private static AVLTree removeMinBinding(AVLTree t, NodeRef noderemoved) {
+  private static AVLTree removeMinBinding(AVLTree t, NodeRef noderemoved, @Nullable Object owner) {
     assert !t.isEmpty();
     if (t.left().isEmpty()) {
       noderemoved.node = t;
       return t.right();
     }
-    return balance(removeMinBinding(t.left(), noderemoved), t, t.right());
+    return balance(removeMinBinding(t.left(), noderemoved, owner), t, t.right(), owner);
   }
 
-  private static AVLTree balance(AVLTree l, AVLTree oldNode, AVLTree r) {
+  private static AVLTree balance(AVLTree l, AVLTree oldNode, AVLTree r, @Nullable Object owner) {
     if (l.height() > r.height() + 2) {
       assert !l.isEmpty();
       AVLTree ll = l.left();
       AVLTree lr = l.right();
       if (ll.height() >= lr.height()) {
-        return createNode(ll, l, createNode(lr, oldNode, r));
+        return createNode(ll, l, createNode(lr, oldNode, r, owner), owner);
       }
       assert !lr.isEmpty();
       AVLTree lrl = lr.left();
       AVLTree lrr = lr.right();
-      return createNode(createNode(ll, l, lrl), lr, createNode(lrr, oldNode, r));
+      return createNode(createNode(ll, l, lrl, owner), lr, createNode(lrr, oldNode, r, owner), owner);
     }
     if (r.height() > l.height() + 2) {
       assert !r.isEmpty();
       AVLTree rl = r.left();
       AVLTree rr = r.right();
       if (rr.height() >= rl.height()) {
-        return createNode(createNode(l, oldNode, rl), r, rr);
+        return createNode(createNode(l, oldNode, rl, owner), r, rr, owner);
       }
       assert !rl.isEmpty();
       AVLTree rll = rl.left();
       AVLTree rlr = rl.right();
-      return createNode(createNode(l, oldNode, rll), rl, createNode(rlr, r, rr));
+      return createNode(createNode(l, oldNode, rll, owner), rl, createNode(rlr, r, rr, owner), owner);
+    }
+    return createNode(l, oldNode, r, owner);
+  }
+
+  private static boolean isOwnedBy(AVLTree t, @Nullable Object owner) {
+    return owner != null && t instanceof OwnedNode ownedNode && ownedNode.owner == owner;
+  }
+
+  private static AVLTree createNode(AVLTree newLeft, AVLTree oldTree, AVLTree newRight, @Nullable Object owner) {
+    if (isOwnedBy(oldTree, owner)) {
+      OwnedNode node = (OwnedNode) oldTree;
+      node.left = newLeft;
+      node.right = newRight;
+      node.height = incrementHeight(newLeft, newRight);
+      node.size = sizeOf(newLeft, node.nextInBucket, newRight);
+      return node;
+    }
+    return createNode(newLeft, oldTree.key(), oldTree.value(), oldTree.nextInBucket(), newRight, owner);
+  }
+
+  private static AVLTree createNode(AVLTree l, Object key, Object value, @Nullable AVLTree nextInBucket, AVLTree r, @Nullable Object owner) {
+    int height = incrementHeight(l, r);
+    return owner == null ? new Node(l, r, key, value, nextInBucket, height) : new OwnedNode(owner, l, r, key, value, nextInBucket, height);
+  }
+
+  private static AVLTree updateEntry(AVLTree t, Object key, Object value, @Nullable AVLTree nextInBucket, @Nullable Object owner) {
+    if (isOwnedBy(t, owner)) {
+      OwnedNode node = (OwnedNode) t;
+      node.key = key;
+      node.value = value;
+      node.nextInBucket = nextInBucket;
+      node.size = sizeOf(node.left, nextInBucket, node.right);
+      return node;
+    }
+    return createNode(t.left(), key, value, nextInBucket, t.right(), owner);
+  }
+
+  /**
+   * Split and join based set operation, see "Just Join for Parallel Ordered Sets" by Blelloch, Ferizovic and Sun.
+   * The other tree is split by the key of the root of the higher tree: when both trees have the same root, which is the
+   * case of trees derived from each other, the split is free and the recursion goes on with their subtrees, until it
+   * reaches subtrees which are the same instance.
+   */
+  private static AVLTree combine(AVLTree t1, AVLTree t2, SetOperation operation, @Nullable BinaryOperator merge) {
+    if (t1 == t2) {
+      return operation.keepCommon ? t1 : EMPTY;
+    }
+    if (t1.isEmpty()) {
+      return operation.keepOnlyInSecond ? t2 : EMPTY;
+    }
+    if (t2.isEmpty()) {
+      return operation.keepOnlyInFirst ? t1 : EMPTY;
+    }
+    AVLTree root;
+    AVLTree bucket;
+    Split split = new Split();
+    if (t1.height() >= t2.height()) {
+      root = t1;
+      split(t1.key().hashCode(), t2, split);
+      bucket = combineBuckets(t1, split.bucket, operation, merge);
+    } else {
+      root = t2;
+      split(t2.key().hashCode(), t1, split);
+      bucket = combineBuckets(split.bucket, t2, operation, merge);
+    }
+    AVLTree left;
+    AVLTree right;
+    if (root == t1) {
+      left = combine(t1.left(), split.left, operation, merge);
+      right = combine(t1.right(), split.right, operation, merge);
+    } else {
+      left = combine(split.left, t2.left(), operation, merge);
+      right = combine(split.right, t2.right(), operation, merge);
+    }
+    if (bucket == null) {
+      return concat(left, right);
+    }
+    if (bucket == root && left == root.left() && right == root.right()) {
+      return root;
+    }
+    return join(left, bucket, right);
+  }
+
+  /**
+   * @return the combined entries of buckets with the same hash code, one of them if it has exactly these entries, null if there's no entry
+   */
+  @Nullable
+  private static AVLTree combineBuckets(@Nullable AVLTree bucket1, @Nullable AVLTree bucket2, SetOperation operation, @Nullable BinaryOperator merge) {
+    if (bucket2 == null) {
+      return operation.keepOnlyInFirst ? bucket1 : null;
+    }
+    if (bucket1 == null) {
+      return operation.keepOnlyInSecond ? bucket2 : null;
+    }
+    List<Object> entries = new ArrayList<>();
+    for (AVLTree n = bucket1; n != null; n = n.nextInBucket()) {
+      AVLTree other = searchInBucket(n.key(), bucket2);
+      if (other == null ? operation.keepOnlyInFirst : operation.keepCommon) {
+        entries.add(n.key());
+        entries.add(other == null ? n.value() : SetOperation.merged(n.value(), other.value(), merge));
+      }
+    }
+    if (operation.keepOnlyInSecond) {
+      for (AVLTree n = bucket2; n != null; n = n.nextInBucket()) {
+        if (searchInBucket(n.key(), bucket1) == null) {
+          entries.add(n.key());
+          entries.add(n.value());
+        }
+      }
+    }
+    if (hasEntries(bucket1, entries)) {
+      return bucket1;
+    }
+    if (hasEntries(bucket2, entries)) {
+      return bucket2;
+    }
+    AVLTree result = null;
+    for (int i = entries.size() - 2; i >= 0; i -= 2) {
+      result = createBucket(entries.get(i), entries.get(i + 1), result);
+    }
+    return result;
+  }
+
+  private static boolean hasEntries(AVLTree bucket, List<Object> entries) {
+    int i = 0;
+    for (AVLTree n = bucket; n != null; n = n.nextInBucket()) {
+      if (i == entries.size() || n.key() != entries.get(i) || n.value() != entries.get(i + 1)) {
+        return false;
+      }
+      i += 2;
     }
-    return createNode(l, oldNode, r);
+    return i == entries.size();
   }
 
-  private static AVLTree createNode(AVLTree newLeft, AVLTree oldTree, AVLTree newRight) {
-    return new Node(newLeft, newRight, oldTree.key(), oldTree.value(), oldTree.nextInBucket(), incrementHeight(newLeft, newRight));
+  private static void diff(AVLTree t1, AVLTree t2, DiffVisitor visitor) {
+    if (t1 == t2) {
+      return;
+    }
+    if (t1.isEmpty()) {
+      t2.forEach((BiConsumer) (key, value) -> visitor.visit(key, null, value));
+      return;
+    }
+    if (t2.isEmpty()) {
+      t1.forEach((BiConsumer) (key, value) -> visitor.visit(key, value, null));
+      return;
+    }
+    Split split = new Split();
+    split(t1.key().hashCode(), t2, split);
+    diff(t1.left(), split.left, visitor);
+    for (AVLTree n = t1; n != null; n = n.nextInBucket()) {
+      AVLTree other = searchInBucket(n.key(), split.bucket);
+      if (other == null || !n.value().equals(other.value())) {
+        visitor.visit(n.key(), n.value(), other == null ? null : other.value());
+      }
+    }
+    for (AVLTree n = split.bucket; n != null; n = n.nextInBucket()) {
+      if (searchInBucket(n.key(), t1) == null) {
+        visitor.visit(n.key(), null, n.value());
+      }
+    }
+    diff(t1.right(), split.right, visitor);
   }
 
-  private static Node createNode(AVLTree l, Object key, Object value, @Nullable AVLTree nextInBucket, AVLTree r) {
-    return new Node(l, r, key, value, nextInBucket, incrementHeight(l, r));
+  private static class Split {
+    AVLTree left;
+    @Nullable
+    AVLTree bucket;
+    AVLTree right;
+  }
+
+  /**
+   * Splits the tree into the trees of the keys with lower and higher hash codes, and the node of the given hash code.
+   */
+  private static void split(int hash, AVLTree t, Split result) {
+    if (t.isEmpty()) {
+      result.left = t;
+      result.bucket = null;
+      result.right = t;
+      return;
+    }
+    final int c = t.key().hashCode();
+    if (hash == c) {
+      result.left = t.left();
+      result.bucket = t;
+      result.right = t.right();
+    } else if (hash < c) {
+      split(hash, t.left(), result);
+      result.right = join(result.right, t, t.right());
+    } else {
+      split(hash, t.right(), result);
+      result.left = join(t.left(), t, result.left);
+    }
+  }
+
+  /**
+   * @return tree with the keys of the left tree, the bucket of the given node and the keys of the right tree, whose hash codes are in this order
+   */
+  private static AVLTree join(AVLTree l, AVLTree node, AVLTree r) {
+    if (l.height() > r.height() + 2) {
+      return balance(l.left(), l, join(l.right(), node, r), null);
+    }
+    if (r.height() > l.height() + 2) {
+      return balance(join(l, node, r.left()), r, r.right(), null);
+    }
+    return createNode(l, node, r, null);
+  }
+
+  private static AVLTree concat(AVLTree l, AVLTree r) {
+    if (l.isEmpty()) {
+      return r;
+    }
+    if (r.isEmpty()) {
+      return l;
+    }
+    NodeRef min = new NodeRef();
+    AVLTree newRight = removeMinBinding(r, min, null);
+    return join(l, min.node, newRight);
   }
 
   private static int incrementHeight(AVLTree l, AVLTree r) {
     return (l.height() > r.height() ? l.height() : r.height()) + 1;
   }
 
+  /**
+   * @return number of entries of a node with the given children and bucket
+   */
+  private static int sizeOf(AVLTree l, @Nullable AVLTree nextInBucket, AVLTree r) {
+    return l.size() + 1 + (nextInBucket == null ? 0 : nextInBucket.size()) + r.size();
+  }
+
   /**
    * @return node from the given bucket, which contains given key, null if not found
    */
@@ -382,6 +692,7 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
     private final AVLTree left;
     private final AVLTree right;
     private final int height;
+    private final int size;
 
     private final Object key;
     private final Object value;
@@ -397,6 +708,7 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
       this.value = value;
       this.nextInBucket = nextInBucket;
       this.height = height;
+      this.size = sizeOf(left, nextInBucket, right);
     }
 
     @Override
@@ -429,6 +741,11 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
       return height;
     }
 
+    @Override
+    public int size() {
+      return size;
+    }
+
     @Override
     public boolean isEmpty() {
       return false;
@@ -450,7 +767,8 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
       }
       if (obj instanceof Node other) {
         return this.hashCode() == other.hashCode()
-          && Equals.compute(this, other);
+          && this.size == other.size()
+          && Equals.supersetOf(this, other);
       }
       return false;
     }
@@ -461,6 +779,138 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
     }
   }
 
+  /**
+   * Node created by a {@link Builder}, modified in place by this builder. It is never reachable from a persistent tree:
+   * {@link Builder#build()} copies it into a {@link Node}, whose final fields make the tree safe to publish.
+   */
+  private static final class OwnedNode extends AVLTree {
+    private final Object owner;
+    private AVLTree left;
+    private AVLTree right;
+    private int height;
+    private int size;
+
+    private Object key;
+    private Object value;
+    @Nullable
+    private AVLTree nextInBucket;
+
+    OwnedNode(Object owner, AVLTree left, AVLTree right, Object key, Object value, @Nullable AVLTree nextInBucket, int height) {
+      this.owner = owner;
+      this.left = left;
+      this.right = right;
+      this.key = key;
+      this.value = value;
+      this.nextInBucket = nextInBucket;
+      this.height = height;
+      this.size = sizeOf(left, nextInBucket, right);
+    }
+
+    @Override
+    protected AVLTree left() {
+      return left;
+    }
+
+    @Override
+    protected AVLTree right() {
+      return right;
+    }
+
+    @Override
+    protected AVLTree nextInBucket() {
+      return nextInBucket;
+    }
+
+    @Override
+    protected Object key() {
+      return key;
+    }
+
+    @Override
+    protected Object value() {
+      return value;
+    }
+
+    @Override
+    protected int height() {
+      return height;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return false;
+    }
+  }
+
+  /**
+   * @return the tree with its owned nodes copied into persistent nodes, the subtrees of the other nodes have no owned node
+   */
+  private static AVLTree freeze(AVLTree t) {
+    if (t instanceof OwnedNode node) {
+      return new Node(freeze(node.left), freeze(node.right), node.key, node.value, node.nextInBucket, node.height);
+    }
+    return t;
+  }
+
+  /**
+   * Nodes created by the builder are modified in place, until {@link #build()} copies them into persistent nodes.
+   */
+  static final class Builder<K, V> implements PMap.Builder<K, V>, PSet.Builder<K> {
+    private final Object owner = new Object();
+    private AVLTree<K, V> root;
+
+    private Builder(AVLTree<K, V> root) {
+      this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Builder<K, V> put(K key, V value) {
+      Objects.requireNonNull(key);
+      Objects.requireNonNull(value);
+      root = AVLTree.put(key, value, root, owner);
+      return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Builder<K, V> add(K e) {
+      root = AVLTree.put(e, e, root, owner);
+      return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Builder<K, V> remove(K key) {
+      Objects.requireNonNull(key);
+      root = AVLTree.remove(key, root, owner);
+      return this;
+    }
+
+    @Nullable
+    @Override
+    public V get(K key) {
+      return root.get(key);
+    }
+
+    @Override
+    public boolean contains(K e) {
+      return root.contains(e);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public AVLTree<K, V> build() {
+      root = freeze(root);
+      return root;
+    }
+  }
+
   private static final AVLTree EMPTY = new AVLTree() {
     @Override
     protected AVLTree left() {
@@ -492,6 +942,11 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
       return 0;
     }
 
+    @Override
+    public int size() {
+      return 0;
+    }
+
     @Override
     public boolean isEmpty() {
       return true;
@@ -513,40 +968,22 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
     }
   };
 
-  private static class Equals implements BiConsumer {
-    private final AVLTree tree;
-    private int sizeDifference;
+  private static class Equals {
 
-    public static boolean compute(AVLTree first, AVLTree second) {
-      Equals state = new Equals(first);
-      if (!state.supersetOf(second)) {
-        return false;
-      }
-      first.forEach(state);
-      return state.sizeDifference == 0;
-    }
-
-    private Equals(AVLTree tree) {
-      this.tree = tree;
+    private Equals() {
     }
 
     /**
-     * @return true if {@link #tree} is superset of given tree
+     * @return true if the tree contains all the entries of the given node, its bucket and its subtrees
      */
-    private boolean supersetOf(@Nullable AVLTree node) {
+    private static boolean supersetOf(AVLTree tree, @Nullable AVLTree node) {
       if (node == null || node.isEmpty()) {
         return true;
       }
-      sizeDifference++;
       return Objects.equals(node.value(), tree.get(node.key()))
-        && supersetOf(node.nextInBucket())
-        && supersetOf(node.left())
-        && supersetOf(node.right());
-    }
-
-    @Override
-    public void accept(Object key, Object value) {
-      sizeDifference--;
+        && supersetOf(tree, node.nextInBucket())
+        && supersetOf(tree, node.left())
+        && supersetOf(tree, node.right());
     }
   }
 
@@ -0,0 +1,1175 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * Hash array mapped trie, with bitmap-compressed nodes storing their entries inline (CHAMP layout).
+ *
+ * https://en.wikipedia.org/wiki/Hash_array_mapped_trie
+ *
+ * <p>Maps of at most {@value #SMALL_MAP_MAX_SIZE} entries are a single flat array of keys and values. Larger maps are a
+ * trie consuming the hash code of the keys 5 bits at a time, from the least significant bits; keys with the same hash
+ * code end in a collision node. A trie node holds a bitmap of its entries, a bitmap of its sub-nodes, and one array of
+ * both: an update copies one such array per level, at most 7 levels.
+ *
+ * <p>The trie is kept canonical: a sub-node left with a single entry is inlined in its parent. So the structure, the
+ * iteration order and the string representation only depend on the content, except for the relative order of keys
+ * with the same hash code, which is arbitrary but stable.
+ */
+final class HashTrie<K, V> implements PMap<K, V>, PSet<K> {
+
+  static final int SMALL_MAP_MAX_SIZE = 8;
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  private static final int HASH_SIZE = 32;
+
+  @SuppressWarnings("rawtypes")
+  private static final HashTrie EMPTY = new HashTrie<>(new Object[0], 0);
+
+  // flat array of keys and values in iteration order when the map is small, otherwise the root Node
+  private final Object root;
+  private final int size;
+  private int hashCode;
+
+  private HashTrie(Object root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * @return empty trie
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> HashTrie<K, V> create() {
+    return EMPTY;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public HashTrie<K, V> add(K e) {
+    Objects.requireNonNull(e);
+    return putEntry(e, e);
+  }
+
+  @Override
+  public boolean contains(K k) {
+    return get(k) != null;
+  }
+
+  @Override
+  public HashTrie<K, V> put(K key, V value) {
+    Objects.requireNonNull(key);
+    Objects.requireNonNull(value);
+    return putEntry(key, value);
+  }
+
+  private HashTrie<K, V> putEntry(Object key, Object value) {
+    Change change = new Change();
+    Object newRoot = put(root, size, key, value, change, null);
+    if (newRoot == root) {
+      return this;
+    }
+    return new HashTrie<>(newRoot, change.added ? (size + 1) : size);
+  }
+
+  @Override
+  public HashTrie<K, V> remove(K key) {
+    Objects.requireNonNull(key);
+    Change change = new Change();
+    Object newRoot = remove(root, key, change, null);
+    if (!change.removed) {
+      return this;
+    }
+    return create(newRoot, size - 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  @Override
+  public V get(K key) {
+    Objects.requireNonNull(key);
+    return (V) get(root, key);
+  }
+
+  @Override
+  public Builder<K, V> toBuilder() {
+    return new Builder<>(this);
+  }
+
+  @Override
+  public PMap<K, V> union(PMap<K, V> other, BinaryOperator<V> merge) {
+    if (other instanceof HashTrie<K, V> trie) {
+      return combine(trie, SetOperation.UNION, merge);
+    }
+    return PMap.super.union(other, merge);
+  }
+
+  @Override
+  public PMap<K, V> intersect(PMap<K, V> other, BinaryOperator<V> merge) {
+    if (other instanceof HashTrie<K, V> trie) {
+      return combine(trie, SetOperation.INTERSECTION, merge);
+    }
+    return PMap.super.intersect(other, merge);
+  }
+
+  @Override
+  public PMap<K, V> difference(PMap<K, V> other) {
+    if (other instanceof HashTrie<K, V> trie) {
+      return combine(trie, SetOperation.DIFFERENCE, null);
+    }
+    return PMap.super.difference(other);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void diff(PMap<K, V> other, DiffVisitor<K, V> visitor) {
+    if (other instanceof HashTrie<K, V> trie) {
+      diff(root, trie.root, (DiffVisitor<Object, Object>) visitor);
+    } else {
+      PMap.super.diff(other, visitor);
+    }
+  }
+
+  @Override
+  public PSet<K> union(PSet<K> other) {
+    if (other instanceof HashTrie<K, ?> trie) {
+      return combine(trie, SetOperation.UNION, (value, otherValue) -> value);
+    }
+    return PSet.super.union(other);
+  }
+
+  @Override
+  public PSet<K> intersect(PSet<K> other) {
+    if (other instanceof HashTrie<K, ?> trie) {
+      return combine(trie, SetOperation.INTERSECTION, (value, otherValue) -> value);
+    }
+    return PSet.super.intersect(other);
+  }
+
+  @Override
+  public PSet<K> difference(PSet<K> other) {
+    if (other instanceof HashTrie<K, ?> trie) {
+      return combine(trie, SetOperation.DIFFERENCE, null);
+    }
+    return PSet.super.difference(other);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void diff(PSet<K> other, Consumer<? super K> onlyInThis, Consumer<? super K> onlyInOther) {
+    if (other instanceof HashTrie<K, ?> trie) {
+      diff(root, trie.root, (key, value, otherValue) -> {
+        if (otherValue == null) {
+          onlyInThis.accept((K) key);
+        } else if (value == null) {
+          onlyInOther.accept((K) key);
+        }
+      });
+    } else {
+      PSet.super.diff(other, onlyInThis, onlyInOther);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private HashTrie<K, V> combine(HashTrie<?, ?> other, SetOperation operation, @Nullable BinaryOperator<?> merge) {
+    return combine(other, new Combiner(operation, (BinaryOperator<Object>) merge));
+  }
+
+  // Visible for testing
+  @SuppressWarnings("unchecked")
+  HashTrie<K, V> combine(HashTrie<?, ?> other, Combiner combiner) {
+    SetOperation operation = combiner.operation;
+    if (root == other.root) {
+      return operation.keepCommon ? this : EMPTY;
+    }
+    if (other.isEmpty()) {
+      return operation.keepOnlyInFirst ? this : EMPTY;
+    }
+    if (isEmpty()) {
+      return operation.keepOnlyInSecond ? (HashTrie<K, V>) other : EMPTY;
+    }
+    if (!(root instanceof Node node) || !(other.root instanceof Node otherNode)) {
+      return combineSmall((HashTrie<Object, Object>) other, operation, combiner.merge);
+    }
+    Node newRoot = combiner.combine(node, otherNode, 0);
+    if (newRoot == root) {
+      return this;
+    }
+    return create(newRoot, combiner.size(size, newRoot));
+  }
+
+  /**
+   * At least one of the tries is a flat array of at most {@value #SMALL_MAP_MAX_SIZE} entries: only these entries are
+   * iterated, to update the other trie.
+   */
+  @SuppressWarnings("unchecked")
+  private HashTrie<K, V> combineSmall(HashTrie<Object, Object> other, SetOperation operation, @Nullable BinaryOperator<Object> merge) {
+    HashTrie<Object, Object> self = (HashTrie<Object, Object>) this;
+    Builder<Object, Object> builder;
+    if (other.root instanceof Object[] && (operation != SetOperation.INTERSECTION || !(root instanceof Object[]))) {
+      builder = operation == SetOperation.INTERSECTION ? HashTrie.create().toBuilder() : self.toBuilder();
+      other.forEach((key, otherValue) -> {
+        Object value = self.get(key);
+        if (operation == SetOperation.UNION) {
+          builder.put(key, value == null ? otherValue : SetOperation.merged(value, otherValue, merge));
+        } else if (value != null) {
+          if (operation == SetOperation.INTERSECTION) {
+            builder.put(key, SetOperation.merged(value, otherValue, merge));
+          } else {
+            builder.remove(key);
+          }
+        }
+      });
+    } else {
+      builder = operation == SetOperation.UNION ? other.toBuilder() : self.toBuilder();
+      self.forEach((key, value) -> {
+        Object otherValue = other.get(key);
+        if (otherValue == null) {
+          if (operation == SetOperation.INTERSECTION) {
+            builder.remove(key);
+          } else if (operation == SetOperation.UNION) {
+            builder.put(key, value);
+          }
+        } else if (operation == SetOperation.DIFFERENCE) {
+          builder.remove(key);
+        } else {
+          builder.put(key, SetOperation.merged(value, otherValue, merge));
+        }
+      });
+    }
+    return (HashTrie<K, V>) builder.build();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void forEach(BiConsumer<K, V> action) {
+    forEach(root, (BiConsumer<Object, Object>) action);
+  }
+
+  @Override
+  public void forEach(Consumer<? super K> action) {
+    forEach((k, v) -> action.accept(k));
+  }
+
+  @Override
+  public PSet<K> keySet() {
+    return this;
+  }
+
+  @Override
+  public Iterator<K> iterator() {
+    return new FlatIterator<>(flatEntries(), false);
+  }
+
+  @Override
+  public Iterable<Map.Entry<K, V>> entries() {
+    return () -> new FlatIterator<>(flatEntries(), true);
+  }
+
+  private Object[] flatEntries() {
+    return root instanceof Object[] entries ? entries : flatten((Node) root, size);
+  }
+
+  @Override
+  public int hashCode() {
+    if (hashCode == 0) {
+      int[] sum = {0};
+      // same as AVLTree, the key is multiplied by 31 to avoid K ^ V == 0 when K == V in case of set
+      forEach((k, v) -> sum[0] += (31 * k.hashCode()) ^ v.hashCode());
+      hashCode = sum[0];
+    }
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof HashTrie<?, ?> other) || size != other.size || hashCode() != other.hashCode()) {
+      return false;
+    }
+    Object[] entries = flatEntries();
+    for (int i = 0; i < entries.length; i += 2) {
+      if (!entries[i + 1].equals(get(other.root, entries[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Same format as {@link AVLTree}, in iteration order.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    forEach((k, v) -> sb.append(' ').append(k).append("->").append(v));
+    return sb.toString();
+  }
+
+  /**
+   * @return the trie of the given root, flattened when it's small enough
+   */
+  @SuppressWarnings("unchecked")
+  private static <K, V> HashTrie<K, V> create(Object root, int size) {
+    if (size == 0) {
+      return EMPTY;
+    }
+    return new HashTrie<>(size <= SMALL_MAP_MAX_SIZE && root instanceof Node node ? flatten(node, size) : root, size);
+  }
+
+  @Nullable
+  private static Object get(Object root, Object key) {
+    if (root instanceof Object[] entries) {
+      int index = indexOf(entries, key);
+      return index < 0 ? null : entries[index + 1];
+    }
+    return ((Node) root).get(key, key.hashCode(), 0);
+  }
+
+  private static void forEach(Object root, BiConsumer<Object, Object> action) {
+    if (root instanceof Object[] entries) {
+      for (int i = 0; i < entries.length; i += 2) {
+        action.accept(entries[i], entries[i + 1]);
+      }
+    } else {
+      ((Node) root).forEach(action);
+    }
+  }
+
+  private static void diff(Object root1, Object root2, DiffVisitor<Object, Object> visitor) {
+    if (root1 == root2) {
+      return;
+    }
+    if (root1 instanceof Node node1 && root2 instanceof Node node2) {
+      diff(node1, node2, 0, visitor);
+      return;
+    }
+    forEach(root1, (key, value) -> {
+      Object otherValue = get(root2, key);
+      if (!value.equals(otherValue)) {
+        visitor.visit(key, value, otherValue);
+      }
+    });
+    forEach(root2, (key, otherValue) -> {
+      if (get(root1, key) == null) {
+        visitor.visit(key, null, otherValue);
+      }
+    });
+  }
+
+  /**
+   * Both nodes are at the same position, so they contain keys with the same hash code prefix.
+   */
+  private static void diff(Node node1, Node node2, int shift, DiffVisitor<Object, Object> visitor) {
+    if (node1 == node2) {
+      return;
+    }
+    if (!(node1 instanceof BitmapNode bitmapNode1) || !(node2 instanceof BitmapNode bitmapNode2)) {
+      diff(root(node1), root(node2), visitor);
+      return;
+    }
+    int bits = bitmapNode1.dataMap | bitmapNode1.nodeMap | bitmapNode2.dataMap | bitmapNode2.nodeMap;
+    while (bits != 0) {
+      int bit = Integer.lowestOneBit(bits);
+      bits ^= bit;
+      if (!bitmapNode1.contains(bit)) {
+        bitmapNode2.positionNode(bit, shift).forEach((key, otherValue) -> visitor.visit(key, null, otherValue));
+      } else if (!bitmapNode2.contains(bit)) {
+        bitmapNode1.positionNode(bit, shift).forEach((key, value) -> visitor.visit(key, value, null));
+      } else if ((bitmapNode1.dataMap & bitmapNode2.dataMap & bit) != 0) {
+        int i1 = 2 * BitmapNode.index(bitmapNode1.dataMap, bit);
+        int i2 = 2 * BitmapNode.index(bitmapNode2.dataMap, bit);
+        Object key = bitmapNode1.content[i1];
+        Object otherKey = bitmapNode2.content[i2];
+        if (!key.equals(otherKey)) {
+          visitor.visit(key, bitmapNode1.content[i1 + 1], null);
+          visitor.visit(otherKey, null, bitmapNode2.content[i2 + 1]);
+        } else if (!bitmapNode1.content[i1 + 1].equals(bitmapNode2.content[i2 + 1])) {
+          visitor.visit(key, bitmapNode1.content[i1 + 1], bitmapNode2.content[i2 + 1]);
+        }
+      } else {
+        diff(bitmapNode1.positionNode(bit, shift), bitmapNode2.positionNode(bit, shift), shift + BITS, visitor);
+      }
+    }
+  }
+
+  /**
+   * @return the content of a collision node, as the root of a small trie
+   */
+  private static Object root(Node node) {
+    return node.content;
+  }
+
+  private static int count(Node node) {
+    int[] count = {0};
+    node.forEach((key, value) -> count[0]++);
+    return count[0];
+  }
+
+  /**
+   * @return a node holding a single entry, at the given shift
+   */
+  private static Node singleton(Object key, Object value, int shift) {
+    int hash = key.hashCode();
+    if (shift >= HASH_SIZE) {
+      return new CollisionNode(hash, new Object[] {key, value});
+    }
+    return new BitmapNode(bit(hash, shift), 0, new Object[] {key, value});
+  }
+
+  /**
+   * @return the new root, which is the given one when nothing changed or when it has been modified in place
+   */
+  private static Object put(Object root, int size, Object key, Object value, Change change, @Nullable Object owner) {
+    if (root instanceof Object[] entries) {
+      int index = indexOf(entries, key);
+      if (index >= 0) {
+        if (value.equals(entries[index + 1])) {
+          return root;
+        }
+        change.replaced = true;
+        Object[] copy = entries.clone();
+        copy[index + 1] = value;
+        return copy;
+      }
+      if (size < SMALL_MAP_MAX_SIZE) {
+        change.added = true;
+        return insertPair(entries, insertionPoint(entries, key.hashCode()), key, value);
+      }
+      Node node = BitmapNode.EMPTY;
+      for (int i = 0; i < entries.length; i += 2) {
+        node = node.put(entries[i], entries[i + 1], entries[i].hashCode(), 0, change, owner);
+      }
+      return node.put(key, value, key.hashCode(), 0, change, owner);
+    }
+    return ((Node) root).put(key, value, key.hashCode(), 0, change, owner);
+  }
+
+  private static Object remove(Object root, Object key, Change change, @Nullable Object owner) {
+    if (root instanceof Object[] entries) {
+      int index = indexOf(entries, key);
+      if (index < 0) {
+        return root;
+      }
+      change.removed = true;
+      return removePair(entries, index);
+    }
+    return ((Node) root).remove(key, key.hashCode(), 0, change, owner);
+  }
+
+  private static int indexOf(Object[] entries, Object key) {
+    for (int i = 0; i < entries.length; i += 2) {
+      if (key.equals(entries[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Position of a new key in a flat array, so that the array has the iteration order of the trie.
+   */
+  private static int insertionPoint(Object[] entries, int hash) {
+    int order = order(hash);
+    int i = 0;
+    while (i < entries.length && Integer.compareUnsigned(order(entries[i].hashCode()), order) <= 0) {
+      i += 2;
+    }
+    return i;
+  }
+
+  /**
+   * The 5-bit chunks of the hash code in the order in which the trie consumes them, most significant first: tries are
+   * iterated in the unsigned order of these values.
+   */
+  private static int order(int hash) {
+    int order = 0;
+    for (int shift = 0; shift < HASH_SIZE - 2; shift += BITS) {
+      order = (order << BITS) | ((hash >>> shift) & MASK);
+    }
+    return (order << 2) | (hash >>> (HASH_SIZE - 2));
+  }
+
+  private static Object[] flatten(Node node, int size) {
+    Object[] entries = new Object[2 * size];
+    int[] index = {0};
+    node.forEach((k, v) -> {
+      entries[index[0]++] = k;
+      entries[index[0]++] = v;
+    });
+    return entries;
+  }
+
+  private static Object[] insertPair(Object[] array, int index, Object key, Object value) {
+    Object[] copy = new Object[array.length + 2];
+    System.arraycopy(array, 0, copy, 0, index);
+    copy[index] = key;
+    copy[index + 1] = value;
+    System.arraycopy(array, index, copy, index + 2, array.length - index);
+    return copy;
+  }
+
+  private static Object[] removePair(Object[] array, int index) {
+    Object[] copy = new Object[array.length - 2];
+    System.arraycopy(array, 0, copy, 0, index);
+    System.arraycopy(array, index + 2, copy, index, array.length - index - 2);
+    return copy;
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  private static Node merge(Object key0, Object value0, int hash0, Object key1, Object value1, int hash1, int shift, @Nullable Object owner) {
+    if (shift >= HASH_SIZE) {
+      return new CollisionNode(hash0, new Object[] {key0, value0, key1, value1});
+    }
+    int bit0 = bit(hash0, shift);
+    int bit1 = bit(hash1, shift);
+    if (bit0 == bit1) {
+      return bitmapNode(owner, 0, bit0, new Object[] {merge(key0, value0, hash0, key1, value1, hash1, shift + BITS, owner)});
+    }
+    boolean firstIsLower = Integer.compareUnsigned(bit0, bit1) < 0;
+    return bitmapNode(owner, bit0 | bit1, 0, firstIsLower ? new Object[] {key0, value0, key1, value1} : new Object[] {key1, value1, key0, value0});
+  }
+
+  private static BitmapNode bitmapNode(@Nullable Object owner, int dataMap, int nodeMap, Object[] content) {
+    return owner == null ? new BitmapNode(dataMap, nodeMap, content) : new OwnedBitmapNode(owner, dataMap, nodeMap, content);
+  }
+
+  private static class Change {
+    boolean added;
+    boolean replaced;
+    boolean removed;
+
+    boolean changed() {
+      return added || replaced || removed;
+    }
+  }
+
+  private abstract static class Node {
+    // for both kinds of nodes, the key-value pairs are first
+    final Object[] content;
+
+    Node(Object[] content) {
+      this.content = content;
+    }
+
+    @Nullable
+    abstract Object get(Object key, int hash, int shift);
+
+    /**
+     * @param owner token of the builder whose nodes can be modified in place, null to copy all the modified nodes
+     */
+    abstract Node put(Object key, Object value, int hash, int shift, Change change, @Nullable Object owner);
+
+    abstract Node remove(Object key, int hash, int shift, Change change, @Nullable Object owner);
+
+    abstract void forEach(BiConsumer<Object, Object> action);
+
+    /**
+     * A node with a single entry and no sub-node is inlined in its parent.
+     */
+    abstract boolean isSingleEntry();
+  }
+
+  private static class BitmapNode extends Node {
+
+    static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+    final int dataMap;
+    final int nodeMap;
+
+    /**
+     * @param content key-value pairs in the order of their bits, then sub-nodes in the reverse order of their bits
+     */
+    BitmapNode(int dataMap, int nodeMap, Object[] content) {
+      super(content);
+      this.dataMap = dataMap;
+      this.nodeMap = nodeMap;
+    }
+
+    boolean isOwnedBy(@Nullable Object owner) {
+      return false;
+    }
+
+    /**
+     * @return this node modified in place when it's owned by the given builder, otherwise a new node
+     */
+    private BitmapNode update(@Nullable Object owner, int index, Object element) {
+      if (isOwnedBy(owner)) {
+        content[index] = element;
+        return this;
+      }
+      Object[] copy = content.clone();
+      copy[index] = element;
+      return bitmapNode(owner, dataMap, nodeMap, copy);
+    }
+
+    static int index(int bitmap, int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private int nodePosition(int bit) {
+      return content.length - 1 - index(nodeMap, bit);
+    }
+
+    boolean contains(int bit) {
+      return ((dataMap | nodeMap) & bit) != 0;
+    }
+
+    /**
+     * @return the sub-node of the given bit, or a node holding the entry of the given bit
+     */
+    Node positionNode(int bit, int shift) {
+      if ((dataMap & bit) != 0) {
+        int i = 2 * index(dataMap, bit);
+        return singleton(content[i], content[i + 1], shift + BITS);
+      }
+      return (Node) content[nodePosition(bit)];
+    }
+
+    @Nullable
+    @Override
+    Object get(Object key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int i = 2 * index(dataMap, bit);
+        return key.equals(content[i]) ? content[i + 1] : null;
+      }
+      if ((nodeMap & bit) != 0) {
+        return ((Node) content[nodePosition(bit)]).get(key, hash, shift + BITS);
+      }
+      return null;
+    }
+
+    @Override
+    Node put(Object key, Object value, int hash, int shift, Change change, @Nullable Object owner) {
+      int bit = bit(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int i = 2 * index(dataMap, bit);
+        Object existingKey = content[i];
+        if (key.equals(existingKey)) {
+          if (value.equals(content[i + 1])) {
+            return this;
+          }
+          change.replaced = true;
+          return update(owner, i + 1, value);
+        }
+        change.added = true;
+        Node subNode = merge(existingKey, content[i + 1], existingKey.hashCode(), key, value, hash, shift + BITS, owner);
+        return dataToNode(bit, i, subNode, owner);
+      }
+      if ((nodeMap & bit) != 0) {
+        int position = nodePosition(bit);
+        Node subNode = (Node) content[position];
+        Node newSubNode = subNode.put(key, value, hash, shift + BITS, change, owner);
+        if (newSubNode == subNode) {
+          return this;
+        }
+        return update(owner, position, newSubNode);
+      }
+      change.added = true;
+      return bitmapNode(owner, dataMap | bit, nodeMap, insertPair(content, 2 * index(dataMap, bit), key, value));
+    }
+
+    @Override
+    Node remove(Object key, int hash, int shift, Change change, @Nullable Object owner) {
+      int bit = bit(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int i = 2 * index(dataMap, bit);
+        if (!key.equals(content[i])) {
+          return this;
+        }
+        change.removed = true;
+        return bitmapNode(owner, dataMap ^ bit, nodeMap, removePair(content, i));
+      }
+      if ((nodeMap & bit) != 0) {
+        int position = nodePosition(bit);
+        Node subNode = (Node) content[position];
+        Node newSubNode = subNode.remove(key, hash, shift + BITS, change, owner);
+        // checked first, as a sub-node modified in place is the same instance
+        if (newSubNode.isSingleEntry()) {
+          return nodeToData(bit, position, newSubNode.content[0], newSubNode.content[1], owner);
+        }
+        if (newSubNode == subNode) {
+          return this;
+        }
+        return update(owner, position, newSubNode);
+      }
+      return this;
+    }
+
+    private BitmapNode dataToNode(int bit, int dataIndex, Node subNode, @Nullable Object owner) {
+      int newNodeMap = nodeMap | bit;
+      Object[] copy = new Object[content.length - 1];
+      // the sub-node goes after the remaining pairs and the sub-nodes of higher bits
+      int newPosition = copy.length - 1 - index(newNodeMap, bit);
+      System.arraycopy(content, 0, copy, 0, dataIndex);
+      System.arraycopy(content, dataIndex + 2, copy, dataIndex, newPosition - dataIndex);
+      copy[newPosition] = subNode;
+      System.arraycopy(content, newPosition + 2, copy, newPosition + 1, copy.length - newPosition - 1);
+      return bitmapNode(owner, dataMap ^ bit, newNodeMap, copy);
+    }
+
+    private BitmapNode nodeToData(int bit, int position, Object key, Object value, @Nullable Object owner) {
+      int newDataMap = dataMap | bit;
+      int dataIndex = 2 * index(newDataMap, bit);
+      Object[] copy = new Object[content.length + 1];
+      System.arraycopy(content, 0, copy, 0, dataIndex);
+      copy[dataIndex] = key;
+      copy[dataIndex + 1] = value;
+      System.arraycopy(content, dataIndex, copy, dataIndex + 2, position - dataIndex);
+      System.arraycopy(content, position + 1, copy, position + 2, content.length - position - 1);
+      return bitmapNode(owner, newDataMap, nodeMap ^ bit, copy);
+    }
+
+    @Override
+    void forEach(BiConsumer<Object, Object> action) {
+      int bits = dataMap | nodeMap;
+      while (bits != 0) {
+        int bit = Integer.lowestOneBit(bits);
+        bits ^= bit;
+        if ((dataMap & bit) != 0) {
+          int i = 2 * index(dataMap, bit);
+          action.accept(content[i], content[i + 1]);
+        } else {
+          ((Node) content[nodePosition(bit)]).forEach(action);
+        }
+      }
+    }
+
+    @Override
+    boolean isSingleEntry() {
+      return nodeMap == 0 && content.length == 2;
+    }
+  }
+
+  /**
+   * Node created by a {@link Builder}, whose content is modified in place by this builder. It is never reachable from a
+   * persistent trie: {@link Builder#build()} copies it into a {@link BitmapNode}, created once its content is final.
+   */
+  private static final class OwnedBitmapNode extends BitmapNode {
+    private final Object owner;
+
+    OwnedBitmapNode(Object owner, int dataMap, int nodeMap, Object[] content) {
+      super(dataMap, nodeMap, content);
+      this.owner = owner;
+    }
+
+    @Override
+    boolean isOwnedBy(@Nullable Object owner) {
+      return this.owner == owner;
+    }
+  }
+
+  /**
+   * Keys whose hash codes are all equal, in a flat array of keys and values. Always copied, as collisions are rare.
+   */
+  private static final class CollisionNode extends Node {
+    final int hash;
+
+    CollisionNode(int hash, Object[] content) {
+      super(content);
+      this.hash = hash;
+    }
+
+    @Nullable
+    @Override
+    Object get(Object key, int hash, int shift) {
+      int index = indexOf(content, key);
+      return index < 0 ? null : content[index + 1];
+    }
+
+    @Override
+    Node put(Object key, Object value, int hash, int shift, Change change, @Nullable Object owner) {
+      int index = indexOf(content, key);
+      if (index < 0) {
+        change.added = true;
+        return new CollisionNode(this.hash, insertPair(content, content.length, key, value));
+      }
+      if (value.equals(content[index + 1])) {
+        return this;
+      }
+      change.replaced = true;
+      Object[] copy = content.clone();
+      copy[index + 1] = value;
+      return new CollisionNode(this.hash, copy);
+    }
+
+    @Override
+    Node remove(Object key, int hash, int shift, Change change, @Nullable Object owner) {
+      int index = indexOf(content, key);
+      if (index < 0) {
+        return this;
+      }
+      change.removed = true;
+      return new CollisionNode(this.hash, removePair(content, index));
+    }
+
+    @Override
+    void forEach(BiConsumer<Object, Object> action) {
+      for (int i = 0; i < content.length; i += 2) {
+        action.accept(content[i], content[i + 1]);
+      }
+    }
+
+    @Override
+    boolean isSingleEntry() {
+      return content.length == 2;
+    }
+  }
+
+  /**
+   * Combines two tries node by node: nodes at the same position hold keys with the same hash code prefix, nodes which
+   * are the same instance are not visited.
+   */
+  static final class Combiner {
+    private final SetOperation operation;
+    @Nullable
+    private final BinaryOperator<Object> merge;
+    // difference between the sizes of the result and of the first trie, ignoring the dropped shared nodes
+    private int sizeDelta;
+    // when a node shared by both tries is dropped, the size of the result is counted instead of the dropped node
+    private boolean sharedNodeDropped;
+    // entries iterated to compute the size of the result, visible for testing
+    int countedEntries;
+
+    Combiner(SetOperation operation, @Nullable BinaryOperator<Object> merge) {
+      this.operation = operation;
+      this.merge = merge;
+    }
+
+    /**
+     * @return the size of the result of {@link #combine(Node, Node, int)}, given the size of the first trie
+     */
+    int size(int firstSize, Node result) {
+      return sharedNodeDropped ? count(result) : (firstSize + sizeDelta);
+    }
+
+    private int count(Node node) {
+      int count = HashTrie.count(node);
+      countedEntries += count;
+      return count;
+    }
+
+    /**
+     * @return the combined node, which can be empty or hold a single entry, or the first node if it's the result
+     */
+    Node combine(Node node1, Node node2, int shift) {
+      if (!(node1 instanceof BitmapNode bitmapNode1) || !(node2 instanceof BitmapNode bitmapNode2)) {
+        return combineCollisions((CollisionNode) node1, (CollisionNode) node2);
+      }
+      int bits = bitmapNode1.dataMap | bitmapNode1.nodeMap | bitmapNode2.dataMap | bitmapNode2.nodeMap;
+      NodeContent result = new NodeContent(Integer.bitCount(bits));
+      while (bits != 0) {
+        int bit = Integer.lowestOneBit(bits);
+        bits ^= bit;
+        if (!bitmapNode1.contains(bit)) {
+          if (operation.keepOnlyInSecond) {
+            Node node = bitmapNode2.positionNode(bit, shift);
+            sizeDelta += count(node);
+            result.add(bit, node);
+          }
+        } else if (!bitmapNode2.contains(bit)) {
+          Node node = bitmapNode1.positionNode(bit, shift);
+          if (operation.keepOnlyInFirst) {
+            result.add(bit, node);
+          } else {
+            sizeDelta -= count(node);
+          }
+        } else if ((bitmapNode1.dataMap & bitmapNode2.dataMap & bit) != 0) {
+          combineEntries(bitmapNode1, bitmapNode2, bit, shift, result);
+        } else {
+          Node subNode1 = bitmapNode1.positionNode(bit, shift);
+          Node subNode2 = bitmapNode2.positionNode(bit, shift);
+          if (subNode1 != subNode2) {
+            result.add(bit, combine(subNode1, subNode2, shift + BITS));
+          } else if (operation.keepCommon) {
+            result.add(bit, subNode1);
+          } else {
+            sharedNodeDropped = true;
+          }
+        }
+      }
+      return result.toNode(bitmapNode1);
+    }
+
+    private void combineEntries(BitmapNode node1, BitmapNode node2, int bit, int shift, NodeContent result) {
+      int i1 = 2 * BitmapNode.index(node1.dataMap, bit);
+      int i2 = 2 * BitmapNode.index(node2.dataMap, bit);
+      Object key1 = node1.content[i1];
+      Object value1 = node1.content[i1 + 1];
+      Object key2 = node2.content[i2];
+      Object value2 = node2.content[i2 + 1];
+      if (key1.equals(key2)) {
+        if (operation.keepCommon) {
+          result.add(bit, key1, SetOperation.merged(value1, value2, merge));
+        } else {
+          sizeDelta--;
+        }
+        return;
+      }
+      if (operation.keepOnlyInFirst && operation.keepOnlyInSecond) {
+        sizeDelta++;
+        result.add(bit, HashTrie.merge(key1, value1, key1.hashCode(), key2, value2, key2.hashCode(), shift + BITS, null));
+      } else if (operation.keepOnlyInFirst) {
+        result.add(bit, key1, value1);
+      } else {
+        sizeDelta--;
+        if (operation.keepOnlyInSecond) {
+          sizeDelta++;
+          result.add(bit, key2, value2);
+        }
+      }
+    }
+
+    private Node combineCollisions(CollisionNode node1, CollisionNode node2) {
+      List<Object> entries = new ArrayList<>();
+      for (int i = 0; i < node1.content.length; i += 2) {
+        int index = indexOf(node2.content, node1.content[i]);
+        if (index < 0 ? operation.keepOnlyInFirst : operation.keepCommon) {
+          entries.add(node1.content[i]);
+          entries.add(index < 0 ? node1.content[i + 1] : SetOperation.merged(node1.content[i + 1], node2.content[index + 1], merge));
+        } else {
+          sizeDelta--;
+        }
+      }
+      if (operation.keepOnlyInSecond) {
+        for (int i = 0; i < node2.content.length; i += 2) {
+          if (indexOf(node1.content, node2.content[i]) < 0) {
+            sizeDelta++;
+            entries.add(node2.content[i]);
+            entries.add(node2.content[i + 1]);
+          }
+        }
+      }
+      Object[] content = entries.toArray();
+      return sameElements(content, node1.content) ? node1 : new CollisionNode(node1.hash, content);
+    }
+  }
+
+  /**
+   * Content of a bitmap node, filled in the order of the bits.
+   */
+  private static final class NodeContent {
+    private int dataMap;
+    private int nodeMap;
+    private final Object[] data;
+    private int dataLength;
+    private final Node[] nodes;
+    private int nodeCount;
+
+    NodeContent(int maxPositions) {
+      data = new Object[2 * maxPositions];
+      nodes = new Node[maxPositions];
+    }
+
+    void add(int bit, Object key, Object value) {
+      dataMap |= bit;
+      data[dataLength++] = key;
+      data[dataLength++] = value;
+    }
+
+    /**
+     * Keeps the trie canonical: an empty node is dropped, and a node with a single entry is inlined.
+     */
+    void add(int bit, Node node) {
+      if (node.content.length == 0) {
+        return;
+      }
+      if (node.isSingleEntry()) {
+        add(bit, node.content[0], node.content[1]);
+        return;
+      }
+      nodeMap |= bit;
+      nodes[nodeCount++] = node;
+    }
+
+    Node toNode(BitmapNode original) {
+      Object[] content = new Object[dataLength + nodeCount];
+      System.arraycopy(data, 0, content, 0, dataLength);
+      for (int i = 0; i < nodeCount; i++) {
+        content[content.length - 1 - i] = nodes[i];
+      }
+      if (dataMap == original.dataMap && nodeMap == original.nodeMap && sameElements(content, original.content)) {
+        return original;
+      }
+      return new BitmapNode(dataMap, nodeMap, content);
+    }
+  }
+
+  private static boolean sameElements(Object[] array1, Object[] array2) {
+    if (array1.length != array2.length) {
+      return false;
+    }
+    for (int i = 0; i < array1.length; i++) {
+      if (array1[i] != array2[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the trie with its owned nodes copied into persistent nodes, the other nodes have no owned sub-node
+   */
+  private static Object freeze(Object root) {
+    if (!(root instanceof OwnedBitmapNode node)) {
+      return root;
+    }
+    Object[] content = node.content;
+    for (int i = 2 * Integer.bitCount(node.dataMap); i < content.length; i++) {
+      content[i] = freeze(content[i]);
+    }
+    return new BitmapNode(node.dataMap, node.nodeMap, content);
+  }
+
+  /**
+   * Nodes created since the last {@link #build()} are owned by the builder, and modified in place instead of being
+   * copied. Building copies them into persistent nodes, so that the returned trie is never modified afterward.
+   */
+  static final class Builder<K, V> implements PMap.Builder<K, V>, PSet.Builder<K> {
+    private final Object owner = new Object();
+    private Object root;
+    private int size;
+    // last built trie, null when modified since
+    @Nullable
+    private HashTrie<K, V> result;
+
+    private Builder(HashTrie<K, V> trie) {
+      this.root = trie.root;
+      this.size = trie.size;
+      this.result = trie;
+    }
+
+    @Override
+    public Builder<K, V> put(K key, V value) {
+      Objects.requireNonNull(key);
+      Objects.requireNonNull(value);
+      putEntry(key, value);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> add(K e) {
+      Objects.requireNonNull(e);
+      putEntry(e, e);
+      return this;
+    }
+
+    private void putEntry(Object key, Object value) {
+      Change change = new Change();
+      root = HashTrie.put(root, size, key, value, change, owner);
+      if (change.added) {
+        size++;
+      }
+      if (change.changed()) {
+        result = null;
+      }
+    }
+
+    @Override
+    public Builder<K, V> remove(K key) {
+      Objects.requireNonNull(key);
+      Change change = new Change();
+      // unlike the trie, the builder stays a trie below the small map size, it's flattened by build()
+      root = HashTrie.remove(root, key, change, owner);
+      if (change.removed) {
+        size--;
+        result = null;
+      }
+      return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public V get(K key) {
+      Objects.requireNonNull(key);
+      return (V) HashTrie.get(root, key);
+    }
+
+    @Override
+    public boolean contains(K e) {
+      return get(e) != null;
+    }
+
+    @Override
+    public HashTrie<K, V> build() {
+      if (result == null) {
+        result = create(freeze(root), size);
+        root = result.root;
+      }
+      return result;
+    }
+  }
+
+  private static final class FlatIterator<E> implements Iterator<E> {
+    private final Object[] entries;
+    private final boolean mapEntries;
+    private int index;
+
+    FlatIterator(Object[] entries, boolean mapEntries) {
+      this.entries = entries;
+      this.mapEntries = mapEntries;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < entries.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object key = entries[index];
+      Object value = entries[index + 1];
+      index += 2;
+      return (E) (mapEntries ? new AbstractMap.SimpleImmutableEntry<>(key, value) : key);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import javax.annotation.Nullable;
+
+/**
+ * Persistent (functional) Map whose keys are primitive ints, which are never boxed.
+ *
+ * @param <V> the type of mapped values
+ */
+public interface IntPMap<V> {
+
+  /**
+   * @return new map with added key-value pair, or this if map already contains given key-value pair
+   */
+  IntPMap<V> put(int key, V value);
+
+  /**
+   * @return new map with removed key, or this if map does not contain given key
+   */
+  IntPMap<V> remove(int key);
+
+  /**
+   * @return value associated with given key, or null if not found
+   */
+  @Nullable
+  V get(int key);
+
+  /**
+   * @return true if this map contains a mapping for the given key
+   */
+  boolean containsKey(int key);
+
+  /**
+   * Performs the given action for each entry in this map, in the ascending order of keys, until all entries have been
+   * processed or the action throws an exception.
+   */
+  void forEach(EntryConsumer<V> action);
+
+  /**
+   * @return true if this map contains no elements
+   */
+  boolean isEmpty();
+
+  /**
+   * @return the number of mappings in this map
+   */
+  int size();
+
+  /**
+   * The string representation consists of a list of key-value mappings in the ascending order of keys.
+   *
+   * @return a string representation of this map
+   */
+  @Override
+  String toString();
+
+  /**
+   * @return a set view of the keys contained in the map.
+   */
+  IntPSet keySet();
+
+  /**
+   * Action performed on the entries of an {@link IntPMap}.
+   */
+  @FunctionalInterface
+  interface EntryConsumer<V> {
+    void accept(int key, V value);
+  }
+}
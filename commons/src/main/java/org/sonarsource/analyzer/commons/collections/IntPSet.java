@@ -0,0 +1,64 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Persistent (functional) Set whose elements are primitive ints, which are never boxed.
+ */
+public interface IntPSet {
+
+  /**
+   * @return new set with added element, or this if element already in the set
+   */
+  IntPSet add(int e);
+
+  /**
+   * @return new set with removed element, or this if set does not contain given element
+   */
+  IntPSet remove(int e);
+
+  /**
+   * @return true if this set contains the specified element
+   */
+  boolean contains(int e);
+
+  /**
+   * Performs the given action for each element of this set, in ascending order, until all elements have been processed
+   * or the action throws an exception.
+   */
+  void forEach(IntConsumer action);
+
+  /**
+   * @return true if this set contains no elements
+   */
+  boolean isEmpty();
+
+  /**
+   * @return the number of elements in this set
+   */
+  int size();
+
+  /**
+   * The string representation consists of a list of elements in ascending order.
+   *
+   * @return a string representation of this set
+   */
+  @Override
+  String toString();
+}
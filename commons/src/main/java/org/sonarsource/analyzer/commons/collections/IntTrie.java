@@ -0,0 +1,313 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.Objects;
+import java.util.function.IntConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * Big-endian Patricia trie, see "Fast Mergeable Integer Maps" by Chris Okasaki and Andy Gill.
+ *
+ * Each branch tests a single bit of the keys, the highest one which differs between the keys of its two subtrees, and
+ * stores the bits above it, which are common to all its keys. Lookups only compare ints, and take at most 33 steps.
+ * The shape of the trie only depends on its keys, so equal tries have the same structure.
+ *
+ * Elements of sets are mapped to a shared placeholder value.
+ */
+abstract class IntTrie<V> implements IntPMap<V>, IntPSet {
+
+  private static final Object PRESENT = new Object() {
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+  };
+
+  /**
+   * @return empty trie
+   */
+  @SuppressWarnings("unchecked")
+  static <V> IntTrie<V> create() {
+    return EMPTY;
+  }
+
+  @Override
+  public IntTrie<V> put(int key, V value) {
+    Objects.requireNonNull(value);
+    return put(this, key, value);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public IntTrie<V> add(int e) {
+    return containsKey(e) ? this : put(this, e, (V) PRESENT);
+  }
+
+  @Override
+  public IntTrie<V> remove(int key) {
+    return remove(this, key);
+  }
+
+  @Nullable
+  @Override
+  public V get(int key) {
+    IntTrie<V> t = this;
+    while (t instanceof Branch<V> branch) {
+      if (!branch.matches(key)) {
+        return null;
+      }
+      t = isLeft(key, branch.mask) ? branch.left : branch.right;
+    }
+    return t instanceof Leaf<V> leaf && leaf.key == key ? leaf.value : null;
+  }
+
+  @Override
+  public boolean containsKey(int key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public boolean contains(int e) {
+    return containsKey(e);
+  }
+
+  @Override
+  public IntPSet keySet() {
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    forEach((key, value) -> {
+      sb.append(' ').append(key);
+      if (value != PRESENT) {
+        sb.append("->").append(value);
+      }
+    });
+    return sb.toString();
+  }
+
+  private static <V> IntTrie<V> put(IntTrie<V> t, int key, V value) {
+    if (t instanceof Branch<V> branch) {
+      if (!branch.matches(key)) {
+        return join(key, new Leaf<>(key, value), branch.prefix, branch);
+      }
+      if (isLeft(key, branch.mask)) {
+        IntTrie<V> left = put(branch.left, key, value);
+        return left == branch.left ? branch : new Branch<>(branch.prefix, branch.mask, left, branch.right);
+      }
+      IntTrie<V> right = put(branch.right, key, value);
+      return right == branch.right ? branch : new Branch<>(branch.prefix, branch.mask, branch.left, right);
+    }
+    if (t instanceof Leaf<V> leaf) {
+      if (leaf.key != key) {
+        return join(key, new Leaf<>(key, value), leaf.key, leaf);
+      }
+      return value.equals(leaf.value) ? leaf : new Leaf<>(key, value);
+    }
+    return new Leaf<>(key, value);
+  }
+
+  private static <V> IntTrie<V> remove(IntTrie<V> t, int key) {
+    if (t instanceof Branch<V> branch) {
+      if (!branch.matches(key)) {
+        return branch;
+      }
+      if (isLeft(key, branch.mask)) {
+        IntTrie<V> left = remove(branch.left, key);
+        return left == branch.left ? branch : branch(branch.prefix, branch.mask, left, branch.right);
+      }
+      IntTrie<V> right = remove(branch.right, key);
+      return right == branch.right ? branch : branch(branch.prefix, branch.mask, branch.left, right);
+    }
+    return t instanceof Leaf<V> leaf && leaf.key == key ? create() : t;
+  }
+
+  /**
+   * @return trie with the keys of both given tries, whose prefixes differ
+   */
+  private static <V> IntTrie<V> join(int prefix1, IntTrie<V> t1, int prefix2, IntTrie<V> t2) {
+    int mask = Integer.highestOneBit(prefix1 ^ prefix2);
+    int prefix = prefix(prefix1, mask);
+    return isLeft(prefix1, mask) ? new Branch<>(prefix, mask, t1, t2) : new Branch<>(prefix, mask, t2, t1);
+  }
+
+  private static <V> IntTrie<V> branch(int prefix, int mask, IntTrie<V> left, IntTrie<V> right) {
+    if (left.isEmpty()) {
+      return right;
+    }
+    if (right.isEmpty()) {
+      return left;
+    }
+    return new Branch<>(prefix, mask, left, right);
+  }
+
+  /**
+   * @return the bits of the key above the given single-bit mask
+   */
+  private static int prefix(int key, int mask) {
+    return key & -(mask << 1);
+  }
+
+  /**
+   * The sign bit is flipped, so that negative keys are on the left side of the root, and keys are in ascending order.
+   */
+  private static boolean isLeft(int key, int mask) {
+    return ((key ^ Integer.MIN_VALUE) & mask) == 0;
+  }
+
+  private static final class Leaf<V> extends IntTrie<V> {
+    private final int key;
+    private final V value;
+
+    private Leaf(int key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public void forEach(EntryConsumer<V> action) {
+      action.accept(key, value);
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+      action.accept(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return 1;
+    }
+
+    @Override
+    public int hashCode() {
+      // same as AVLTree
+      return (31 * key) ^ value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return this == obj || (obj instanceof Leaf<?> other && key == other.key && value.equals(other.value));
+    }
+  }
+
+  private static final class Branch<V> extends IntTrie<V> {
+    private final int prefix;
+    private final int mask;
+    private final IntTrie<V> left;
+    private final IntTrie<V> right;
+    private final int size;
+    private int hashCode;
+
+    private Branch(int prefix, int mask, IntTrie<V> left, IntTrie<V> right) {
+      this.prefix = prefix;
+      this.mask = mask;
+      this.left = left;
+      this.right = right;
+      this.size = left.size() + right.size();
+    }
+
+    private boolean matches(int key) {
+      return prefix(key, mask) == prefix;
+    }
+
+    @Override
+    public void forEach(EntryConsumer<V> action) {
+      left.forEach(action);
+      right.forEach(action);
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+      left.forEach(action);
+      right.forEach(action);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public int hashCode() {
+      if (hashCode == 0) {
+        hashCode = left.hashCode() + right.hashCode();
+      }
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      // tries with the same keys have the same structure
+      return obj instanceof Branch<?> other
+        && prefix == other.prefix
+        && mask == other.mask
+        && size == other.size
+        && hashCode() == other.hashCode()
+        && left.equals(other.left)
+        && right.equals(other.right);
+    }
+  }
+
+  private static final IntTrie EMPTY = new IntTrie() {
+    @Override
+    public void forEach(EntryConsumer action) {
+      // nothing to do
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+      // nothing to do
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return true;
+    }
+
+    @Override
+    public int size() {
+      return 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return this == obj;
+    }
+  };
+}
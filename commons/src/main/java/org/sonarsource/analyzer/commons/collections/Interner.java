@@ -0,0 +1,58 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hash-consing table: returns a canonical instance for each group of equal values, such as persistent maps and sets
+ * representing the same program state. Interning is opt-in, and pays off when equal values are created many times and
+ * compared often: once interned, equal values are the same instance, so {@code equals} returns at its first
+ * reference comparison, and unequal values are distinguished by their cached hash codes.
+ *
+ * <p>Instances are only weakly referenced: a value which is no longer used elsewhere is removed from the table by the
+ * garbage collector. Values must be immutable, and their {@code hashCode} should be cheap, which is the case of
+ * {@link PMap} and {@link PSet}. This class is thread-safe.
+ *
+ * @param <T> the type of interned values
+ */
+public final class Interner<T> {
+
+  private final Map<T, WeakReference<T>> instances = new WeakHashMap<>();
+
+  /**
+   * @return an instance equal to the given value: the first interned one if it is still reachable, otherwise the given value
+   */
+  public synchronized T intern(T value) {
+    WeakReference<T> reference = instances.get(value);
+    T instance = reference == null ? null : reference.get();
+    if (instance == null) {
+      instances.put(value, new WeakReference<>(value));
+      instance = value;
+    }
+    return instance;
+  }
+
+  /**
+   * @return the number of interned instances which have not been garbage collected yet
+   */
+  public synchronized int size() {
+    return instances.size();
+  }
+}
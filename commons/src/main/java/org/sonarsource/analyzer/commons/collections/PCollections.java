@@ -18,6 +18,22 @@ package org.sonarsource.analyzer.commons.collections;
 
 public final class PCollections {
 
+  /**
+   * The implementations of {@link PMap} and {@link PSet}. Collections of different implementations are never equal.
+   */
+  public enum Implementation {
+    /**
+     * Balanced binary tree ordered by hash codes, the default. Each update copies O(log n) nodes.
+     */
+    AVL_TREE,
+    /**
+     * Hash array mapped trie: small collections are a single flat array, larger ones a trie of at most 7 levels whose
+     * nodes store their entries inline. Updates allocate fewer and smaller objects, at the price of copying arrays of
+     * up to 32 elements. Iteration and string representation follow the order of the trie, not the order of hash codes.
+     */
+    HASH_TRIE
+  }
+
   private PCollections() {
   }
 
@@ -42,6 +58,98 @@ public final class PCollections {
     return AVLTree.create();
   }
 
+  /**
+   * Returns a persistent set containing zero elements, with the given implementation.
+   *
+   * @param <E> the {@code PSet}'s element type
+   * @return an empty {@code PSet}
+   */
+  public static <E> PSet<E> emptySet(Implementation implementation) {
+    return implementation == Implementation.HASH_TRIE ? HashTrie.create() : AVLTree.create();
+  }
+
+  /**
+   * Returns a persistent map containing zero mappings, with the given implementation.
+   *
+   * @param <E> the {@code PMap}'s key type
+   * @param <V> the {@code PMap}'s value type
+   * @return an empty {@code PMap}
+   */
+  public static <E, V> PMap<E, V> emptyMap(Implementation implementation) {
+    return implementation == Implementation.HASH_TRIE ? HashTrie.create() : AVLTree.create();
+  }
+
+  /**
+   * Returns a builder of persistent map, to efficiently create a map from many mappings.
+   *
+   * @param <K> the {@code PMap}'s key type
+   * @param <V> the {@code PMap}'s value type
+   * @return an empty {@code PMap.Builder}
+   */
+  public static <K, V> PMap.Builder<K, V> mapBuilder() {
+    return PCollections.<K, V>emptyMap().toBuilder();
+  }
+
+  /**
+   * Returns a builder of persistent map with the given implementation, to efficiently create a map from many mappings.
+   *
+   * @param <K> the {@code PMap}'s key type
+   * @param <V> the {@code PMap}'s value type
+   * @return an empty {@code PMap.Builder}
+   */
+  public static <K, V> PMap.Builder<K, V> mapBuilder(Implementation implementation) {
+    return PCollections.<K, V>emptyMap(implementation).toBuilder();
+  }
+
+  /**
+   * Returns a builder of persistent set, to efficiently create a set from many elements.
+   *
+   * @param <E> the {@code PSet}'s element type
+   * @return an empty {@code PSet.Builder}
+   */
+  public static <E> PSet.Builder<E> setBuilder() {
+    return PCollections.<E>emptySet().toBuilder();
+  }
+
+  /**
+   * Returns a builder of persistent set with the given implementation, to efficiently create a set from many elements.
+   *
+   * @param <E> the {@code PSet}'s element type
+   * @return an empty {@code PSet.Builder}
+   */
+  public static <E> PSet.Builder<E> setBuilder(Implementation implementation) {
+    return PCollections.<E>emptySet(implementation).toBuilder();
+  }
+
+  /**
+   * Returns a persistent set of primitive ints containing zero elements.
+   *
+   * @return an empty {@code IntPSet}
+   */
+  public static IntPSet emptyIntSet() {
+    return IntTrie.create();
+  }
+
+  /**
+   * Returns a persistent map with primitive int keys containing zero mappings.
+   *
+   * @param <V> the {@code IntPMap}'s value type
+   * @return an empty {@code IntPMap}
+   */
+  public static <V> IntPMap<V> emptyIntMap() {
+    return IntTrie.create();
+  }
+
+  /**
+   * Returns a persistent vector containing zero elements.
+   *
+   * @param <E> the {@code PVector}'s element type
+   * @return an empty {@code PVector}
+   */
+  public static <E> PVector<E> emptyVector() {
+    return PersistentVector.create();
+  }
+
   /**
    * Returns a persistent stack containing zero elements.
    *
@@ -19,6 +19,7 @@ package org.sonarsource.analyzer.commons.collections;
 import java.util.Map;
 import javax.annotation.Nullable;
 import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 
 /**
  * Persistent (functional) Map.
@@ -55,6 +56,11 @@ public interface PMap<K, V> {
    */
   boolean isEmpty();
 
+  /**
+   * @return the number of mappings in this map
+   */
+  int size();
+
   /**
    * The string representation consists of a list of key-value mappings in the ascending order of hash codes of keys.
    * If two keys have same hash code, then their relative order is arbitrary, but stable.
@@ -71,6 +77,125 @@ public interface PMap<K, V> {
    */
   PSet<K> keySet();
 
+  /**
+   * Values of keys contained in both maps are combined by {@code merge.apply(value, otherValue)}, only when they are not
+   * equal. Parts of the structure shared by both maps are reused without being visited.
+   *
+   * @return map with the keys of this map and of the other map
+   */
+  default PMap<K, V> union(PMap<K, V> other, BinaryOperator<V> merge) {
+    Builder<K, V> builder = toBuilder();
+    other.forEach((key, otherValue) -> {
+      V value = get(key);
+      builder.put(key, value == null ? otherValue : SetOperation.merged(value, otherValue, merge));
+    });
+    return builder.build();
+  }
+
+  /**
+   * Values are combined by {@code merge.apply(value, otherValue)}, only when they are not equal. Parts of the structure
+   * shared by both maps are reused without being visited.
+   *
+   * @return map with the keys contained in both this map and the other map
+   */
+  default PMap<K, V> intersect(PMap<K, V> other, BinaryOperator<V> merge) {
+    Builder<K, V> builder = toBuilder();
+    forEach((key, value) -> {
+      V otherValue = other.get(key);
+      if (otherValue == null) {
+        builder.remove(key);
+      } else {
+        builder.put(key, SetOperation.merged(value, otherValue, merge));
+      }
+    });
+    return builder.build();
+  }
+
+  /**
+   * Parts of the structure shared by both maps are skipped without being visited.
+   *
+   * @return map with the mappings of this map whose keys are not contained in the other map
+   */
+  default PMap<K, V> difference(PMap<K, V> other) {
+    Builder<K, V> builder = toBuilder();
+    other.forEach((key, otherValue) -> builder.remove(key));
+    return builder.build();
+  }
+
+  /**
+   * Calls the visitor once for each key which is contained in only one of the maps, or which has different values in
+   * both maps, in no particular order. Parts of the structure shared by both maps are skipped without being visited, so
+   * comparing a map to a map derived from it takes a time proportional to the number of updates.
+   */
+  default void diff(PMap<K, V> other, DiffVisitor<K, V> visitor) {
+    forEach((key, value) -> {
+      V otherValue = other.get(key);
+      if (!value.equals(otherValue)) {
+        visitor.visit(key, value, otherValue);
+      }
+    });
+    other.forEach((key, otherValue) -> {
+      if (get(key) == null) {
+        visitor.visit(key, null, otherValue);
+      }
+    });
+  }
+
+  /**
+   * Receives the differences between two maps, see {@link #diff(PMap, DiffVisitor)}.
+   *
+   * @param <K> the type of keys maintained by the maps
+   * @param <V> the type of mapped values
+   */
+  @FunctionalInterface
+  interface DiffVisitor<K, V> {
+
+    /**
+     * @param value value associated with the key in the first map, or null if not found
+     * @param otherValue value associated with the key in the other map, or null if not found
+     */
+    void visit(K key, @Nullable V value, @Nullable V otherValue);
+  }
+
+  /**
+   * @return a builder initialized with the mappings of this map, to efficiently apply a batch of updates
+   */
+  Builder<K, V> toBuilder();
+
+  /**
+   * Transient (mutable) counterpart of a {@link PMap}: the parts of the structure created by the builder are modified in
+   * place instead of being copied on each update, until they are frozen by {@link #build()}.
+   * A builder is not thread-safe.
+   *
+   * @param <K> the type of keys maintained by the built map
+   * @param <V> the type of mapped values
+   */
+  interface Builder<K, V> {
+
+    /**
+     * @return this builder, with given key associated to given value
+     */
+    Builder<K, V> put(K key, V value);
+
+    /**
+     * @return this builder, without given key
+     */
+    Builder<K, V> remove(K key);
+
+    /**
+     * @return value associated with given key, or null if not found
+     */
+    @Nullable
+    V get(K key);
+
+    /**
+     * The builder can still be used afterward, further updates don't modify the returned map.
+     *
+     * @return persistent map with the mappings of this builder
+     */
+    PMap<K, V> build();
+  }
+
   /**
    * Returns a persistent map containing zero mappings.
    *
@@ -16,6 +16,7 @@
  */
 package org.sonarsource.analyzer.commons.collections;
 
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -47,6 +48,11 @@ public interface PSet<E> extends Iterable<E> {
    */
   boolean isEmpty();
 
+  /**
+   * @return the number of elements in this set
+   */
+  int size();
+
   /**
    * The string representation consists of a list of elements in the ascending order of hash codes.
    * If two elements have same hash code, then their relative order is arbitrary, but stable.
@@ -63,6 +69,98 @@ public interface PSet<E> extends Iterable<E> {
     return StreamSupport.stream(this.spliterator(), false);
   }
 
+  /**
+   * Parts of the structure shared by both sets are reused without being visited.
+   *
+   * @return set with the elements of this set and of the other set
+   */
+  default PSet<E> union(PSet<E> other) {
+    Builder<E> builder = toBuilder();
+    other.forEach(builder::add);
+    return builder.build();
+  }
+
+  /**
+   * Parts of the structure shared by both sets are reused without being visited.
+   *
+   * @return set with the elements contained in both this set and the other set
+   */
+  default PSet<E> intersect(PSet<E> other) {
+    Builder<E> builder = toBuilder();
+    forEach(e -> {
+      if (!other.contains(e)) {
+        builder.remove(e);
+      }
+    });
+    return builder.build();
+  }
+
+  /**
+   * Parts of the structure shared by both sets are skipped without being visited.
+   *
+   * @return set with the elements of this set which are not contained in the other set
+   */
+  default PSet<E> difference(PSet<E> other) {
+    Builder<E> builder = toBuilder();
+    other.forEach(builder::remove);
+    return builder.build();
+  }
+
+  /**
+   * Calls the consumers once for each element contained in only one of the sets, in no particular order. Parts of the
+   * structure shared by both sets are skipped without being visited, so comparing a set to a set derived from it takes
+   * a time proportional to the number of updates.
+   */
+  default void diff(PSet<E> other, Consumer<? super E> onlyInThis, Consumer<? super E> onlyInOther) {
+    forEach(e -> {
+      if (!other.contains(e)) {
+        onlyInThis.accept(e);
+      }
+    });
+    other.forEach(e -> {
+      if (!contains(e)) {
+        onlyInOther.accept(e);
+      }
+    });
+  }
+
+  /**
+   * @return a builder initialized with the elements of this set, to efficiently apply a batch of updates
+   */
+  Builder<E> toBuilder();
+
+  /**
+   * Transient (mutable) counterpart of a {@link PSet}: the parts of the structure created by the builder are modified in
+   * place instead of being copied on each update, until they are frozen by {@link #build()}.
+   * A builder is not thread-safe.
+   *
+   * @param <E> the type of elements maintained by the built set
+   */
+  interface Builder<E> {
+
+    /**
+     * @return this builder, with given element
+     */
+    Builder<E> add(E e);
+
+    /**
+     * @return this builder, without given element
+     */
+    Builder<E> remove(E e);
+
+    /**
+     * @return true if this builder contains the specified element
+     */
+    boolean contains(E e);
+
+    /**
+     * The builder can still be used afterward, further updates don't modify the returned set.
+     *
+     * @return persistent set with the elements of this builder
+     */
+    PSet<E> build();
+  }
+
   /**
    * Returns a persistent set containing zero elements.
    *
@@ -65,7 +65,7 @@ public interface PStack<E> extends Iterable<E> {
   boolean anyMatch(Predicate<E> predicate);
 
   /**
-   * Naive implementation has O(n) time complexity, where n is number of elements. More clever implementation could take advantage of PStack's immutability
+   * Takes a constant time, the size being stored in each element of the stack
    * @return number of elements in the stack
    */
   int size();
@@ -0,0 +1,94 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Persistent (functional) Vector: indexed sequence of elements, efficiently updated at its end.
+ *
+ * @param <E> the type of elements maintained by this vector
+ */
+public interface PVector<E> extends Iterable<E> {
+
+  /**
+   * @return new vector with given element added at the end
+   */
+  PVector<E> append(E e);
+
+  /**
+   * @return new vector without its last element
+   * @throws IllegalStateException if this vector is empty.
+   */
+  PVector<E> removeLast();
+
+  /**
+   * @return new vector with the element at given index replaced by given element, or this if it is already this element
+   * @throws IndexOutOfBoundsException if the index is out of range
+   */
+  PVector<E> set(int index, E e);
+
+  /**
+   * @return element at given index, 0 being the first element
+   * @throws IndexOutOfBoundsException if the index is out of range
+   */
+  E get(int index);
+
+  /**
+   * @return last element of this vector
+   * @throws IllegalStateException if this vector is empty.
+   */
+  E last();
+
+  /**
+   * Takes a constant time: the returned vector shares the elements of this vector.
+   *
+   * @return vector of the elements from index {@code fromIndex}, inclusive, to index {@code toIndex}, exclusive
+   * @throws IndexOutOfBoundsException if the indexes are out of range
+   */
+  PVector<E> subList(int fromIndex, int toIndex);
+
+  /**
+   * @return true if this vector contains no elements
+   */
+  boolean isEmpty();
+
+  /**
+   * @return number of elements in this vector
+   */
+  int size();
+
+  /**
+   * Two vectors are equal when they contain equal elements in the same order.
+   */
+  @Override
+  boolean equals(Object obj);
+
+  /**
+   * @return a string representation of this vector
+   */
+  @Override
+  String toString();
+
+  /**
+   * @return stream of the vector's elements, in index order
+   */
+  default Stream<E> stream() {
+    return StreamSupport.stream(this.spliterator(), false);
+  }
+}
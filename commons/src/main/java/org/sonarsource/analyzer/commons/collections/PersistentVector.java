@@ -0,0 +1,344 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * 32-way trie with a tail, as the persistent vector of Clojure.
+ *
+ * Elements are stored in leaves of 32 elements, which are reached by using the index 5 bits at a time, so that reading
+ * an element visits at most log32(n) nodes. The last 1 to 32 elements are stored in a separate tail array: appending or
+ * removing the last element usually only copies this tail.
+ *
+ * A vector is a view on the elements {@code [start, end)} of its trie of {@code count} elements, so that sub lists share
+ * the trie of their vector. Elements which are out of the view are not reachable from it, but are retained until the
+ * view is removed.
+ */
+final class PersistentVector<E> implements PVector<E> {
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+  private static final Object[] EMPTY_NODE = new Object[WIDTH];
+
+  private static final PersistentVector EMPTY = new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0], 0, 0);
+
+  private final int count;
+  private final int shift;
+  private final Object[] root;
+  private final Object[] tail;
+  private final int start;
+  private final int end;
+  private int hashCode;
+
+  private PersistentVector(int count, int shift, Object[] root, Object[] tail, int start, int end) {
+    this.count = count;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @return empty vector
+   */
+  @SuppressWarnings("unchecked")
+  static <E> PersistentVector<E> create() {
+    return EMPTY;
+  }
+
+  @Override
+  public PersistentVector<E> append(E e) {
+    Objects.requireNonNull(e);
+    if (end < count) {
+      // the element after the view is not reachable, so can be replaced
+      return withElement(end, e, end + 1);
+    }
+    return appendToTrie(e);
+  }
+
+  @Override
+  public PersistentVector<E> removeLast() {
+    if (isEmpty()) {
+      throw new IllegalStateException();
+    }
+    if (size() == 1) {
+      return create();
+    }
+    if (end < count) {
+      return new PersistentVector<>(count, shift, root, tail, start, end - 1);
+    }
+    return removeLastFromTrie();
+  }
+
+  @Override
+  public PersistentVector<E> set(int index, E e) {
+    Objects.requireNonNull(e);
+    if (e.equals(get(index))) {
+      return this;
+    }
+    return withElement(start + index, e, end);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public E get(int index) {
+    Objects.checkIndex(index, size());
+    int i = start + index;
+    return (E) leafFor(i)[i & MASK];
+  }
+
+  @Override
+  public E last() {
+    if (isEmpty()) {
+      throw new IllegalStateException();
+    }
+    return get(size() - 1);
+  }
+
+  @Override
+  public PersistentVector<E> subList(int fromIndex, int toIndex) {
+    Objects.checkFromToIndex(fromIndex, toIndex, size());
+    if (fromIndex == toIndex) {
+      return create();
+    }
+    if (fromIndex == 0 && toIndex == size()) {
+      return this;
+    }
+    return new PersistentVector<>(count, shift, root, tail, start + fromIndex, start + toIndex);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return start == end;
+  }
+
+  @Override
+  public int size() {
+    return end - start;
+  }
+
+  /**
+   * @return vector with the element at index {@code i} of the trie replaced, and the same start of view
+   */
+  private PersistentVector<E> withElement(int i, Object e, int newEnd) {
+    if (i >= tailOffset()) {
+      Object[] newTail = tail.clone();
+      newTail[i & MASK] = e;
+      return new PersistentVector<>(count, shift, root, newTail, start, newEnd);
+    }
+    return new PersistentVector<>(count, shift, set(shift, root, i, e), tail, start, newEnd);
+  }
+
+  private static Object[] set(int level, Object[] node, int i, Object e) {
+    Object[] result = node.clone();
+    if (level == 0) {
+      result[i & MASK] = e;
+    } else {
+      int index = (i >>> level) & MASK;
+      result[index] = set(level - BITS, (Object[]) node[index], i, e);
+    }
+    return result;
+  }
+
+  private PersistentVector<E> appendToTrie(Object e) {
+    if (count - tailOffset() < WIDTH) {
+      Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+      newTail[tail.length] = e;
+      return new PersistentVector<>(count + 1, shift, root, newTail, start, count + 1);
+    }
+    // the full tail is moved to the trie
+    Object[] newRoot;
+    int newShift = shift;
+    if ((count >>> BITS) > (1 << shift)) {
+      // no room left under the root
+      newRoot = new Object[WIDTH];
+      newRoot[0] = root;
+      newRoot[1] = newPath(shift, tail);
+      newShift += BITS;
+    } else {
+      newRoot = pushTail(shift, root, tail);
+    }
+    return new PersistentVector<>(count + 1, newShift, newRoot, new Object[] {e}, start, count + 1);
+  }
+
+  private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+    int index = ((count - 1) >>> level) & MASK;
+    Object[] result = parent.clone();
+    if (level == BITS) {
+      result[index] = tailNode;
+    } else {
+      Object[] child = (Object[]) parent[index];
+      result[index] = child == null ? newPath(level - BITS, tailNode) : pushTail(level - BITS, child, tailNode);
+    }
+    return result;
+  }
+
+  private static Object[] newPath(int level, Object[] node) {
+    if (level == 0) {
+      return node;
+    }
+    Object[] result = new Object[WIDTH];
+    result[0] = newPath(level - BITS, node);
+    return result;
+  }
+
+  private PersistentVector<E> removeLastFromTrie() {
+    if (count - tailOffset() > 1) {
+      return new PersistentVector<>(count - 1, shift, root, Arrays.copyOf(tail, tail.length - 1), start, end - 1);
+    }
+    // the last leaf of the trie becomes the tail
+    Object[] newTail = leafFor(count - 2);
+    Object[] newRoot = popTail(shift, root);
+    int newShift = shift;
+    if (newRoot == null) {
+      newRoot = EMPTY_NODE;
+    }
+    if (shift > BITS && newRoot[1] == null) {
+      newRoot = (Object[]) newRoot[0];
+      newShift -= BITS;
+    }
+    return new PersistentVector<>(count - 1, newShift, newRoot, newTail, start, end - 1);
+  }
+
+  @Nullable
+  private Object[] popTail(int level, Object[] node) {
+    int index = ((count - 2) >>> level) & MASK;
+    if (level > BITS) {
+      Object[] newChild = popTail(level - BITS, (Object[]) node[index]);
+      if (newChild == null && index == 0) {
+        return null;
+      }
+      Object[] result = node.clone();
+      result[index] = newChild;
+      return result;
+    }
+    if (index == 0) {
+      return null;
+    }
+    Object[] result = node.clone();
+    result[index] = null;
+    return result;
+  }
+
+  /**
+   * @return index of the first element of the tail in the trie
+   */
+  private int tailOffset() {
+    return count < WIDTH ? 0 : (((count - 1) >>> BITS) << BITS);
+  }
+
+  /**
+   * @return array containing the element at index {@code i} of the trie, at index {@code i & MASK}
+   */
+  private Object[] leafFor(int i) {
+    if (i >= tailOffset()) {
+      return tail;
+    }
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(i >>> level) & MASK];
+    }
+    return node;
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new VectorIterator();
+  }
+
+  private class VectorIterator implements Iterator<E> {
+    private int i = start;
+    private Object[] leaf = EMPTY_NODE;
+
+    @Override
+    public boolean hasNext() {
+      return i < end;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (i == start || (i & MASK) == 0) {
+        leaf = leafFor(i);
+      }
+      E e = (E) leaf[i & MASK];
+      i++;
+      return e;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void forEach(Consumer<? super E> action) {
+    Object[] leaf = EMPTY_NODE;
+    for (int i = start; i < end; i++) {
+      if (i == start || (i & MASK) == 0) {
+        leaf = leafFor(i);
+      }
+      action.accept((E) leaf[i & MASK]);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    if (hashCode == 0) {
+      // same as java.util.List
+      int result = 1;
+      for (E e : this) {
+        result = 31 * result + e.hashCode();
+      }
+      hashCode = result;
+    }
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof PVector<?> other) || size() != other.size() || hashCode() != other.hashCode()) {
+      return false;
+    }
+    Iterator<?> otherIterator = other.iterator();
+    for (E e : this) {
+      if (!e.equals(otherIterator.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(", ", "[", "]");
+    forEach(e -> joiner.add(e.toString()));
+    return joiner.toString();
+  }
+}
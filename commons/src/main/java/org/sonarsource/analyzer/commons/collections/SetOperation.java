@@ -0,0 +1,48 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+
+/**
+ * Set operations on persistent collections, defined by the entries they keep.
+ */
+enum SetOperation {
+  UNION(true, true, true),
+  INTERSECTION(false, false, true),
+  DIFFERENCE(true, false, false);
+
+  final boolean keepOnlyInFirst;
+  final boolean keepOnlyInSecond;
+  final boolean keepCommon;
+
+  SetOperation(boolean keepOnlyInFirst, boolean keepOnlyInSecond, boolean keepCommon) {
+    this.keepOnlyInFirst = keepOnlyInFirst;
+    this.keepOnlyInSecond = keepOnlyInSecond;
+    this.keepCommon = keepCommon;
+  }
+
+  /**
+   * Values of a key contained in both collections are merged only when they are not equal.
+   *
+   * @return value if it's equal to the other value, otherwise the non-null result of the merge function
+   */
+  static <V> V merged(V value, V otherValue, BinaryOperator<V> merge) {
+    return value.equals(otherValue) ? value : Objects.requireNonNull(merge.apply(value, otherValue));
+  }
+}
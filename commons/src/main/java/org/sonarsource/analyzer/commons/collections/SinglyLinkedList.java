@@ -29,16 +29,19 @@ final class SinglyLinkedList<E> implements PStack<E> {
   private final E element;
   @Nullable
   private final SinglyLinkedList<E> next;
+  private final int size;
   private int hashCode;
 
   private SinglyLinkedList(E element) {
     this.element = element;
     this.next = null;
+    this.size = 1;
   }
 
   private SinglyLinkedList(E element, SinglyLinkedList<E> next) {
     this.element = element;
     this.next = next;
+    this.size = next.size + 1;
   }
 
   @Override
@@ -128,7 +131,7 @@ final class SinglyLinkedList<E> implements PStack<E> {
 
   @Override
   public int size() {
-    return 1 + (next == null ? 0 : next.size());
+    return size;
   }
 
   @Override
@@ -0,0 +1,145 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ConcurrentProgressReportTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void progress_message() {
+    ConcurrentProgressReport report = reportWithClock(2);
+
+    report.fileStarted("a.js", 1000);
+    clock.addAndGet(5 * SECOND);
+    report.fileStarted("b.js", 3000);
+    report.fileStarted("c.js", 10);
+    report.fileStarted("d.js", 10);
+    clock.addAndGet(2 * SECOND);
+    report.fileFinished("b.js");
+    report.fileFinished("c.js");
+    clock.addAndGet(3 * SECOND);
+
+    assertThat(report.progressMessage())
+      .isEqualTo("2/10 files analyzed, 0.2 files/s, 301 B/s, ETA 40s, 2 in progress, slowest: a.js (10s), d.js (5s)");
+
+    clock.addAndGet(65 * SECOND);
+    report.fileFinished("d.js");
+    assertThat(report.progressMessage())
+      .isEqualTo("3/10 files analyzed, 0.0 files/s, 0 B/s, ETA 2m55s, 1 in progress, slowest: a.js (1m15s)");
+
+    report.fileFinished("a.js");
+    assertThat(report.progressMessage())
+      .isEqualTo("4/10 files analyzed, 0.0 files/s, 0 B/s, ETA 1m52s, 0 in progress");
+  }
+
+  @Test
+  public void unknown_eta_before_the_first_finished_file() {
+    ConcurrentProgressReport report = reportWithClock(3);
+    report.fileStarted("a.js", 10);
+    clock.addAndGet(SECOND);
+    assertThat(report.progressMessage()).isEqualTo("0/10 files analyzed, 0.0 files/s, 0 B/s, ETA unknown, 1 in progress, slowest: a.js (1s)");
+  }
+
+  @Test
+  public void finishing_a_file_which_was_not_started_only_counts_it() {
+    ConcurrentProgressReport report = reportWithClock(3);
+    clock.addAndGet(SECOND);
+    for (int i = 0; i < 10; i++) {
+      report.fileFinished("a.js");
+    }
+    assertThat(report.progressMessage()).isEqualTo("10/10 files analyzed, 10.0 files/s, 0 B/s, ETA 0s, 0 in progress");
+  }
+
+  @Test
+  public void formats() {
+    assertThat(ConcurrentProgressReport.formatBytesRate(2048, 2.0)).isEqualTo("1.0 KB/s");
+    assertThat(ConcurrentProgressReport.formatBytesRate(3 * 1024 * 1024, 1.0)).isEqualTo("3.0 MB/s");
+    assertThat(ConcurrentProgressReport.formatBytesRate(100, 0.0)).isEqualTo("0 B/s");
+    assertThat(ConcurrentProgressReport.formatDuration(0)).isEqualTo("0s");
+    assertThat(ConcurrentProgressReport.formatDuration(59 * SECOND)).isEqualTo("59s");
+    assertThat(ConcurrentProgressReport.formatDuration(61 * SECOND)).isEqualTo("1m01s");
+    assertThat(ConcurrentProgressReport.formatDuration(3723 * SECOND)).isEqualTo("1h02m");
+  }
+
+  @Test(timeout = 5000)
+  public void concurrent_workers() throws Exception {
+    Logger logger = mock(Logger.class);
+    ConcurrentProgressReport report = new ConcurrentProgressReport(ConcurrentProgressReportTest.class.getName(), 10, logger, "analyzed");
+    int threadCount = 8;
+    int filesPerThread = 1000;
+    report.start(threadCount * filesPerThread);
+
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      int worker = t;
+      workers.add(new Thread(() -> {
+        for (int i = 0; i < filesPerThread; i++) {
+          String filename = "file" + worker + "_" + i;
+          report.fileStarted(filename, 10);
+          report.fileFinished(filename);
+        }
+      }));
+    }
+    workers.forEach(Thread::start);
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    report.stop();
+
+    assertThat(report.progressMessage()).startsWith("8000/8000 files analyzed, ").endsWith(", ETA 0s, 0 in progress");
+    ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+    verify(logger, atLeast(2)).info(captor.capture());
+    List<String> messages = captor.getAllValues();
+    assertThat(messages.get(0)).isEqualTo("8000 source files to be analyzed");
+    assertThat(messages.get(messages.size() - 1)).isEqualTo("8000/8000 source files have been analyzed");
+  }
+
+  @Test(timeout = 5000)
+  public void cancel() {
+    Logger logger = mock(Logger.class);
+    ConcurrentProgressReport report = new ConcurrentProgressReport(ConcurrentProgressReportTest.class.getName(), 100, logger, "analyzed");
+    report.start(1);
+    report.cancel();
+
+    ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+    verify(logger, atLeast(0)).info(captor.capture());
+    assertThat(captor.getAllValues()).doesNotContain("1/1 source file has been analyzed");
+  }
+
+  private ConcurrentProgressReport reportWithClock(int slowestFiles) {
+    ConcurrentProgressReport report = new ConcurrentProgressReport("report", 1000, mock(Logger.class), "analyzed", slowestFiles, clock::get);
+    report.initialize(10);
+    return report;
+  }
+
+}
@@ -56,6 +56,25 @@ class EntropyDetectorTest {
     );
   }
 
+  @ParameterizedTest
+  @MethodSource("uniformStrings")
+  void testEntropyEqualToThreshold(String input, int entropy) {
+    // with a score increment of 1, the threshold of a long enough string is the sensibility
+    assertTrue(new EntropyDetector(entropy, DEFAULT_MIN_SECRET_LENGTH_FOR_GIVEN_ENTROPY, DEFAULT_ENTROPY_INCREASE_FACTOR_BY_MISSING_CHARACTER, 1.0).hasEnoughEntropy(input));
+    assertFalse(new EntropyDetector(Math.nextUp((double) entropy), DEFAULT_MIN_SECRET_LENGTH_FOR_GIVEN_ENTROPY, DEFAULT_ENTROPY_INCREASE_FACTOR_BY_MISSING_CHARACTER, 1.0).hasEnoughEntropy(input));
+  }
+
+  static Stream<Arguments> uniformStrings() {
+    String chars = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ+/";
+    return Stream.of(
+      Arguments.of(chars.substring(0, 8).repeat(4), 3),
+      Arguments.of(chars.substring(0, 16).repeat(2), 4),
+      Arguments.of(chars.substring(0, 32), 5),
+      Arguments.of(chars, 6),
+      Arguments.of(chars.repeat(3), 6)
+    );
+  }
+
   @Test
   void testLastLevelEntropySensibility() {
     EntropyDetector current = new EntropyDetector(10);
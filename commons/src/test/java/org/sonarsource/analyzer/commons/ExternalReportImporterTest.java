@@ -0,0 +1,188 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import com.sonarsource.scanner.engine.sensor.test.fixtures.SensorContextTester;
+import com.sonarsource.scanner.engine.sensor.test.fixtures.TestInputFileBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.issue.ExternalIssue;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.testfixtures.log.LogTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExternalReportImporterTest {
+
+  private static final String EXTERNAL_REPORTS_PROPERTY = "sonar.foo.mylinter.reportPaths";
+
+  @Rule
+  public final LogTester logTester = new LogTester().setLevel(Level.DEBUG);
+  @Rule
+  public final TemporaryFolder temp = new TemporaryFolder();
+
+  private SensorContextTester context;
+  private ExternalRuleLoader ruleLoader;
+
+  @Before
+  public void setup() throws IOException {
+    File baseDir = temp.newFolder("base");
+    context = SensorContextTester.create(baseDir);
+    for (String path : List.of("src/a.js", "src/b.js")) {
+      InputFile inputFile = TestInputFileBuilder.create("module", path)
+        .setModuleBaseDir(baseDir.toPath())
+        .setContents("line1\nline2\nline3\n")
+        .build();
+      context.fileSystem().add(inputFile);
+    }
+    ruleLoader = new ExternalRuleLoader("my-linter-key", "MyLinter", "org/sonarsource/analyzer/commons/mylinter.json", "mylang", null);
+  }
+
+  @Test
+  public void import_json_reports() throws IOException {
+    File report = report("report.json", """
+      { "runs": [ { "results": [
+        { "ruleId": "bug-rule", "file": "src/a.js", "line": 2, "message": "first" },
+        { "ruleId": "unknown-rule", "file": "src/b.js", "message": "second" },
+        { "ruleId": "ignored", "file": "src/b.js", "message": "third" }
+      ] } ] }
+      """);
+    ExternalReportImporter<Map<String, Object>> importer = ExternalReportImporter.json("runs/*/results/*", result -> "ignored".equals(result.get("ruleId")) ? null
+      : new ExternalReportIssue((String) result.get("ruleId"), (String) result.get("file"), line(result.get("line")), (String) result.get("message")));
+
+    importer.importReports(context, List.of(report), ruleLoader);
+
+    List<ExternalIssue> issues = new ArrayList<>(context.allExternalIssues());
+    assertThat(issues).hasSize(2);
+    ExternalIssue first = issues.get(0);
+    assertThat(first.engineId()).isEqualTo("my-linter-key");
+    assertThat(first.ruleId()).isEqualTo("bug-rule");
+    assertThat(first.type()).isEqualTo(RuleType.BUG);
+    assertThat(first.remediationEffort()).isEqualTo(42L);
+    assertThat(first.primaryLocation().message()).isEqualTo("first");
+    assertThat(first.primaryLocation().inputComponent().key()).isEqualTo("module:src/a.js");
+    assertThat(first.primaryLocation().textRange().start().line()).isEqualTo(2);
+    ExternalIssue second = issues.get(1);
+    assertThat(second.ruleId()).isEqualTo("unknown-rule");
+    assertThat(second.type()).isEqualTo(RuleType.CODE_SMELL);
+    assertThat(second.primaryLocation().textRange()).isNull();
+  }
+
+  @Test
+  public void import_xml_reports_in_parallel() throws IOException {
+    List<File> reports = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      StringBuilder xml = new StringBuilder("<checkstyle><file name=\"src/a.js\">");
+      for (int j = 0; j < 500; j++) {
+        xml.append("<error line=\"1\" message=\"report ").append(i).append(" issue ").append(j).append("\" source=\"bug-rule\"/>");
+      }
+      xml.append("</file></checkstyle>");
+      reports.add(report("report" + i + ".xml", xml.toString()));
+    }
+    context.settings().setProperty(EXTERNAL_REPORTS_PROPERTY, String.join(",", reports.stream().map(File::getAbsolutePath).toList()));
+
+    ExternalReportImporter.xml("error", error -> new ExternalReportIssue(error.attribute("source"), error.parent().attribute("name"),
+      line(error.attribute("line")), error.attribute("message")))
+      .importReports(context, EXTERNAL_REPORTS_PROPERTY, ruleLoader);
+
+    assertThat(context.allExternalIssues()).hasSize(5_000);
+    List<String> messages = context.allExternalIssues().stream().map(issue -> issue.primaryLocation().message()).toList();
+    for (int i = 0; i < 10; i++) {
+      String prefix = "report " + i + " ";
+      assertThat(messages.stream().filter(message -> message.startsWith(prefix)).toList())
+        .isSortedAccordingTo(Comparator.comparingInt(message -> Integer.parseInt(message.substring(message.lastIndexOf(' ') + 1))));
+    }
+  }
+
+  @Test
+  public void invalid_reports_and_issues_are_skipped() throws IOException {
+    File invalid = report("invalid.xml", "<checkstyle><file name=\"src/a.js\"><error source=\"bug-rule\" message=\"before\"/>");
+    File missing = new File(temp.getRoot(), "missing.xml");
+    File valid = report("valid.xml", """
+      <checkstyle>
+        <file name="src/unknown.js"><error source="bug-rule" message="unknown file"/></file>
+        <file name="src/a.js"><error line="42" source="bug-rule" message="invalid line"/><error source="bug-rule" message="valid"/></file>
+      </checkstyle>
+      """);
+
+    ExternalReportImporter.xml("error", error -> new ExternalReportIssue(error.attribute("source"), error.parent().attribute("name"),
+      line(error.attribute("line")), error.attribute("message")))
+      .importReports(context, List.of(invalid, missing, valid), ruleLoader);
+
+    assertThat(context.allExternalIssues()).extracting(issue -> issue.primaryLocation().message()).containsExactlyInAnyOrder("before", "valid");
+    assertThat(logTester.logs(Level.ERROR)).containsExactlyInAnyOrder(
+      "Failed to import external issues report: " + invalid.getAbsolutePath(),
+      "Failed to import external issues report: " + missing.getAbsolutePath());
+    assertThat(logTester.logs(Level.DEBUG)).contains(
+      "No input file found for src/unknown.js. No my-linter-key issue will be imported from " + valid + ".",
+      "Invalid line 42 in src/a.js. No my-linter-key issue will be imported on it from " + valid + ".");
+  }
+
+  @Test(timeout = 10_000)
+  public void errors_of_the_mapper_only_fail_their_report() throws IOException {
+    File failing = report("failing.xml", """
+      <checkstyle>
+        <file name="src/a.js"><error source="bug-rule" message="before"/><error source="bug-rule" message="error"/></file>
+      </checkstyle>
+      """);
+    File valid = report("valid.xml", "<checkstyle><file name=\"src/b.js\"><error source=\"bug-rule\" message=\"valid\"/></file></checkstyle>");
+
+    ExternalReportImporter.xml("error", error -> {
+      if ("error".equals(error.attribute("message"))) {
+        throw new AssertionError("mapper failure");
+      }
+      return new ExternalReportIssue(error.attribute("source"), error.parent().attribute("name"), null, error.attribute("message"));
+    }).importReports(context, List.of(failing, valid), ruleLoader);
+
+    assertThat(context.allExternalIssues()).extracting(issue -> issue.primaryLocation().message()).containsExactlyInAnyOrder("before", "valid");
+    assertThat(logTester.logs(Level.ERROR)).containsExactly("Failed to import external issues report: " + failing.getAbsolutePath());
+  }
+
+  @Test
+  public void no_report() {
+    ExternalReportImporter.json("*", result -> {
+      throw new IllegalStateException("No record expected");
+    }).importReports(context, EXTERNAL_REPORTS_PROPERTY, ruleLoader);
+
+    assertThat(context.allExternalIssues()).isEmpty();
+  }
+
+  private File report(String name, String content) throws IOException {
+    File report = temp.newFile(name);
+    Files.writeString(report.toPath(), content, StandardCharsets.UTF_8);
+    return report;
+  }
+
+  private static Integer line(Object line) {
+    if (line == null) {
+      return null;
+    }
+    return line instanceof Long number ? number.intValue() : Integer.valueOf((String) line);
+  }
+}
@@ -67,6 +67,19 @@ public class ExternalRuleLoaderTest {
     assertRule(loader, "identifiable-low-maintainability-rule", BUG, MINOR, 5L);
   }
 
+  @Test
+  public void test_compiled_metadata() {
+    ExternalRuleLoader jsonLoader = loadMyLinterJson(RUNTIME_10_1);
+    ExternalRuleLoader compiledLoader = new ExternalRuleLoader("my-linter-key", "MyLinter", "org/sonarsource/analyzer/commons/compiled/mylinter.json", "mylang", RUNTIME_10_1);
+
+    assertThat(compiledLoader.ruleKeys()).isEqualTo(jsonLoader.ruleKeys());
+    for (String ruleKey : jsonLoader.ruleKeys()) {
+      assertThat(compiledLoader.ruleType(ruleKey)).isEqualTo(jsonLoader.ruleType(ruleKey));
+      assertThat(compiledLoader.ruleSeverity(ruleKey)).isEqualTo(jsonLoader.ruleSeverity(ruleKey));
+      assertThat(compiledLoader.ruleConstantDebtMinutes(ruleKey)).isEqualTo(jsonLoader.ruleConstantDebtMinutes(ruleKey));
+    }
+  }
+
   @Test
   public void test_repository_10_0() {
     ExternalRuleLoader externalRuleLoader = loadMyLinterJson(RUNTIME_10_0);
@@ -0,0 +1,161 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExternalRuleMetadataReaderTest {
+
+  private static final Path METADATA_FILE = Paths.get("src/test/resources/org/sonarsource/analyzer/commons/mylinter.json");
+  private static final Path COMPILED_FILE = Paths.get("src/test/resources/org/sonarsource/analyzer/commons/compiled/mylinter.json.bin");
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void rules_are_streamed_in_order() throws IOException {
+    List<ExternalRuleMetadata> rules = readJson(Files.readString(METADATA_FILE));
+
+    List<Map<String, Object>> parsed;
+    try (Reader reader = Files.newBufferedReader(METADATA_FILE)) {
+      parsed = new JsonParser().parseArray(reader);
+    }
+    assertThat(rules).containsExactlyElementsOf(parsed.stream().map(ExternalRuleMetadata::of).toList());
+
+    ExternalRuleMetadata rule = rules.get(3);
+    assertThat(rule.key()).isEqualTo("identifiable-low-maintainability-rule");
+    assertThat(rule.type()).isEqualTo("BUG");
+    assertThat(rule.severity()).isEqualTo("MINOR");
+    assertThat(rule.codeAttribute()).isEqualTo("IDENTIFIABLE");
+    assertThat(rule.codeImpacts()).containsExactly(Map.entry("MAINTAINABILITY", "LOW"));
+    assertThat(rule.constantDebtMinutes()).isNull();
+    assertThat(rules.get(0).constantDebtMinutes()).isEqualTo(42L);
+    assertThat(rules.get(1).tags()).containsExactly("tag1", "tag2");
+  }
+
+  @Test
+  void equal_values_are_shared() throws IOException {
+    List<ExternalRuleMetadata> rules = readJson("[" +
+      "{ \"key\": \"a\", \"type\": \"BUG\", \"tags\": [\"x\", \"y\"], \"url\": \"http://example.com/rules\" }," +
+      "{ \"key\": \"b\", \"type\": \"BUG\", \"tags\": [\"x\", \"y\"], \"url\": \"http://example.com/rules\" }" +
+      "]");
+
+    assertThat(rules.get(1).type()).isSameAs(rules.get(0).type());
+    assertThat(rules.get(1).url()).isSameAs(rules.get(0).url());
+    assertThat(rules.get(1).tags()).isSameAs(rules.get(0).tags());
+
+    List<ExternalRuleMetadata> compiled = readCompiled(ExternalRuleMetadataReader.compile(new StringReader("[" +
+      "{ \"key\": \"a\", \"tags\": [\"x\", \"y\"] }," +
+      "{ \"key\": \"b\", \"tags\": [\"x\", \"y\"] }" +
+      "]")));
+    assertThat(compiled.get(1).tags()).isSameAs(compiled.get(0).tags());
+  }
+
+  @Test
+  void compiled_rules_are_the_same_as_json_rules() throws IOException {
+    String json = Files.readString(METADATA_FILE);
+    assertThat(readCompiled(ExternalRuleMetadataReader.compile(new StringReader(json)))).isEqualTo(readJson(json));
+
+    String missingProperties = "[{ \"key\": \"a\" }, { \"name\": \"b\", \"tags\": [], \"code\": { \"impacts\": {} } }, {}]";
+    assertThat(readCompiled(ExternalRuleMetadataReader.compile(new StringReader(missingProperties)))).isEqualTo(readJson(missingProperties));
+  }
+
+  @Test
+  void compiled_resource_is_read_instead_of_the_json_one() {
+    List<ExternalRuleMetadata> rules = new ArrayList<>();
+    // there is no JSON file next to the compiled one
+    ExternalRuleMetadataReader.read("org/sonarsource/analyzer/commons/compiled/mylinter.json", rules::add);
+    List<ExternalRuleMetadata> jsonRules = new ArrayList<>();
+    ExternalRuleMetadataReader.read("org/sonarsource/analyzer/commons/mylinter.json", jsonRules::add);
+
+    assertThat(rules).isNotEmpty().isEqualTo(jsonRules);
+  }
+
+  @Test
+  void main_compiles_the_metadata_file() throws IOException {
+    Path output = tempDir.resolve("out/mylinter.json.bin");
+    ExternalRuleMetadataReader.main(new String[] {METADATA_FILE.toString(), output.toString()});
+    assertThat(output).hasBinaryContent(Files.readAllBytes(COMPILED_FILE));
+
+    Path metadataFile = Files.copy(METADATA_FILE, tempDir.resolve("rules.json"));
+    ExternalRuleMetadataReader.main(new String[] {metadataFile.toString()});
+    assertThat(tempDir.resolve("rules.json" + ExternalRuleMetadataReader.COMPILED_SUFFIX)).hasSameBinaryContentAs(output);
+
+    String[] noArgument = new String[0];
+    assertThatThrownBy(() -> ExternalRuleMetadataReader.main(noArgument))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Usage: ExternalRuleMetadataReader <metadata-file> [<output-file>]");
+  }
+
+  @Test
+  void invalid_metadata() {
+    assertThatThrownBy(() -> readJson("[{ \"key\": "))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not parse JSON");
+    assertThatThrownBy(() -> readJson("{ \"key\": \"a\" }"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Expected a JSON array of rules");
+    assertThatThrownBy(() -> readJson("[{ \"key\": \"a\" }, \"b\"]"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Expected a JSON object for each rule, got: b");
+    assertThatThrownBy(() -> readJson("[{ \"key\": 42 }]"))
+      .isInstanceOf(ClassCastException.class);
+    assertThatThrownBy(() -> readJson("[{ \"key\": \"a\", \"tags\": [42] }]"))
+      .isInstanceOf(ClassCastException.class);
+
+    ByteBuffer notCompiled = ByteBuffer.wrap("[]".getBytes(StandardCharsets.UTF_8));
+    assertThatThrownBy(() -> ExternalRuleMetadataReader.readCompiled(notCompiled, rule -> {
+    }))
+      .isInstanceOf(RuntimeException.class);
+    ByteBuffer otherFormat = ByteBuffer.allocate(8);
+    assertThatThrownBy(() -> ExternalRuleMetadataReader.readCompiled(otherFormat, rule -> {
+    }))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Not compiled external rule metadata");
+    assertThatThrownBy(() -> ExternalRuleMetadataReader.read("org/sonarsource/analyzer/commons/missing.json", rule -> {
+    }))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Can't read resource: org/sonarsource/analyzer/commons/missing.json");
+  }
+
+  private static List<ExternalRuleMetadata> readJson(String json) throws IOException {
+    List<ExternalRuleMetadata> rules = new ArrayList<>();
+    ExternalRuleMetadataReader.readJson(new StringReader(json), rules::add);
+    return rules;
+  }
+
+  private static List<ExternalRuleMetadata> readCompiled(byte[] compiled) {
+    List<ExternalRuleMetadata> rules = new ArrayList<>();
+    ExternalRuleMetadataReader.readCompiled(ByteBuffer.wrap(compiled), rules::add);
+    return rules;
+  }
+}
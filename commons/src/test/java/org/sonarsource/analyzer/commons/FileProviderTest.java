@@ -17,8 +17,17 @@
 package org.sonarsource.analyzer.commons;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -28,6 +37,9 @@ public class FileProviderTest {
   private static final File baseDir = new File("src/test/resources/org/sonarsource/analyzer/commons/scanner").getAbsoluteFile();
   private static final File file = new File(baseDir, "dir/f1.txt");
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void noMatchedFile() {
     assertThat(getMatchingFiles("dir/xxx")).isEmpty();
@@ -44,6 +56,109 @@ public class FileProviderTest {
     assertThat(getMatchingFiles("**/f1.txt")).containsOnly(file, new File(baseDir, "dir/subdir/f1.txt"));
   }
 
+  @Test
+  public void fixedDirectories() {
+    assertThat(getMatchingFiles("dir/subdir/*.txt")).containsOnly(new File(baseDir, "dir/subdir/f1.txt"));
+    assertThat(getMatchingFiles("dir/subdir/**")).containsOnly(new File(baseDir, "dir/subdir/f1.txt"));
+    assertThat(getMatchingFiles("dir/xxx/**")).isEmpty();
+    assertThat(getMatchingFiles("dir/f1.txt/*")).isEmpty();
+    assertThat(getMatchingFiles("/dir/*.txt")).containsOnly(file);
+  }
+
+  @Test
+  public void sortedFiles() throws IOException {
+    File root = temporaryFolder.getRoot();
+    for (String path : List.of("b/1.xml", "a/2.xml", "a/c/3.xml", "a/c/3.txt", "d/4.xml")) {
+      Path filePath = root.toPath().resolve(path);
+      Files.createDirectories(filePath.getParent());
+      Files.createFile(filePath);
+    }
+    assertThat(scan("**/*.xml", root)).containsExactly(
+      new File(root, "a/2.xml"), new File(root, "a/c/3.xml"), new File(root, "b/1.xml"), new File(root, "d/4.xml"));
+  }
+
+  @Test
+  public void prunedDirectories() throws IOException {
+    File root = temporaryFolder.getRoot();
+    Path excluded = root.toPath().resolve("node_modules/lib/src");
+    Files.createDirectories(excluded);
+    Files.createFile(excluded.resolve("a.js"));
+    Files.createDirectories(root.toPath().resolve("src/main"));
+    Files.createFile(root.toPath().resolve("src/b.js"));
+
+    assertThat(listedDirectories(root, "src/**")).containsOnly(root.toPath().resolve("src/main"));
+    assertThat(scan("src/**", root)).containsOnly(new File(root, "src/b.js"));
+    // "*/*.js" may only match in the direct subdirectories
+    assertThat(listedDirectories(root, "*/*.js")).containsOnly(root.toPath().resolve("src"), root.toPath().resolve("node_modules"));
+    assertThat(scan("*/*.js", root)).containsOnly(new File(root, "src/b.js"));
+  }
+
+  private static Set<Path> listedDirectories(File root, String pattern) {
+    Set<Path> directories = ConcurrentHashMap.newKeySet();
+    try (var files = new FileProvider(root, pattern).streamMatchingFiles(directories::add)) {
+      files.forEach(file -> {
+      });
+    }
+    return directories;
+  }
+
+  @Test
+  public void streamMatchingFiles() {
+    try (var files = new FileProvider(baseDir, "**/*.txt").streamMatchingFiles()) {
+      assertThat(files.map(Path::toFile).collect(Collectors.toList()))
+        .containsOnly(file, new File(baseDir, "dir/subdir/f1.txt"));
+    }
+    try (var files = new FileProvider(new File("not found"), "**").streamMatchingFiles()) {
+      assertThatThrownBy(files::count).isInstanceOf(UncheckedIOException.class);
+    }
+  }
+
+  @Test
+  public void slowConsumer() throws Exception {
+    File root = temporaryFolder.getRoot();
+    int fileCount = 3 * ParallelFileWalker.MAX_PENDING_PATHS;
+    for (int i = 0; i < fileCount; i++) {
+      Path filePath = root.toPath().resolve("d" + (i % 10) + "/" + i + ".xml");
+      Files.createDirectories(filePath.getParent());
+      Files.createFile(filePath);
+    }
+    assertThat(scan("**/*.xml", root)).hasSize(fileCount);
+
+    try (var files = new FileProvider(root, "**/*.xml").streamMatchingFiles()) {
+      assertThat(files.iterator().next()).isNotNull();
+      // the walkers wait for the consumer
+      Thread.sleep(100);
+    }
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (walkerThreadsAlive() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(walkerThreadsAlive()).isFalse();
+  }
+
+  @Test
+  public void walkerErrors() {
+    Path root = baseDir.toPath();
+    try (var files = ParallelFileWalker.walk(root, dir -> true, path -> {
+      throw new IllegalArgumentException("accept failed");
+    }, 2)) {
+      assertThatThrownBy(files::count)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("accept failed");
+    }
+    try (var files = ParallelFileWalker.walk(root, dir -> {
+      throw new UncheckedIOException(new IOException("descend failed"));
+    }, path -> true, 2)) {
+      assertThatThrownBy(files::count)
+        .isInstanceOf(UncheckedIOException.class)
+        .hasRootCauseMessage("descend failed");
+    }
+  }
+
+  private static boolean walkerThreadsAlive() {
+    return Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> "file-walker".equals(thread.getName()) && thread.isAlive());
+  }
+
   @Test
   public void test_nonexistent() {
     var provider = new FileProvider(new File("not found"), "*/**");
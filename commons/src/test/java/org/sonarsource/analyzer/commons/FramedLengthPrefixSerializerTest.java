@@ -0,0 +1,217 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.sonarsource.analyzer.commons.FramedLengthPrefixSerializer.Compression;
+import org.sonarsource.analyzer.commons.FramedLengthPrefixSerializer.CorruptedBlockException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FramedLengthPrefixSerializerTest {
+
+  @ParameterizedTest
+  @EnumSource(Compression.class)
+  void list_round_trip(Compression compression) throws IOException {
+    List<byte[]> list = List.of(new byte[]{1, 2, 3}, new byte[0], new byte[200_000], "text".getBytes());
+
+    byte[] serialized = FramedLengthPrefixSerializer.serializeList(list, compression);
+
+    assertThat(FramedLengthPrefixSerializer.unserializeList(serialized)).containsExactlyElementsOf(list);
+    assertThat(FramedLengthPrefixSerializer.unserializeList(FramedLengthPrefixSerializer.serializeList(List.of(), compression))).isEmpty();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Compression.class)
+  void map_round_trip(Compression compression) throws IOException {
+    Map<String, byte[]> map = Map.of("key1", new byte[]{1, 2, 3}, "key2", new byte[]{4, 5, 6}, "é", new byte[300]);
+
+    byte[] serialized = FramedLengthPrefixSerializer.serializeMap(map, compression);
+
+    assertThat(FramedLengthPrefixSerializer.unserializeMap(serialized)).containsExactlyInAnyOrderEntriesOf(map);
+    assertThat(FramedLengthPrefixSerializer.unserializeMap(FramedLengthPrefixSerializer.serializeMap(Map.of(), compression))).isEmpty();
+  }
+
+  @Test
+  void compressible_blocks_are_deflated() throws IOException {
+    List<byte[]> list = List.of(new byte[10_000], new byte[10_000]);
+
+    assertThat(FramedLengthPrefixSerializer.serializeList(list, Compression.NONE)).hasSizeGreaterThan(20_000);
+    assertThat(FramedLengthPrefixSerializer.serializeList(list, Compression.DEFLATE)).hasSizeLessThan(1_000);
+  }
+
+  @Test
+  void incompressible_blocks_are_stored_as_is() throws IOException {
+    byte[] random = new byte[10_000];
+    new Random(42).nextBytes(random);
+
+    byte[] serialized = FramedLengthPrefixSerializer.serializeList(List.of(random), Compression.DEFLATE);
+
+    assertThat(serialized).hasSizeLessThan(random.length + 20);
+    assertThat(FramedLengthPrefixSerializer.unserializeList(serialized)).containsExactly(random);
+  }
+
+  @Test
+  void lengths_are_varints() throws IOException {
+    byte[] serialized = FramedLengthPrefixSerializer.serializeList(List.of(new byte[]{42}), Compression.NONE);
+
+    // magic, sync marker, stored length, flags, elements length, CRC32C, element length, element
+    assertThat(serialized).hasSize(4 + 4 + 1 + 1 + 1 + 4 + 1 + 1);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Compression.class)
+  void corrupted_block_throws_exception(Compression compression) throws IOException {
+    byte[] serialized = serializeInBlocks(elements(), compression);
+    serialized[serialized.length / 2] ^= 1;
+
+    assertThatThrownBy(() -> FramedLengthPrefixSerializer.unserializeList(serialized))
+      .isInstanceOf(CorruptedBlockException.class)
+      .hasMessageStartingWith("Corrupted block ");
+  }
+
+  @ParameterizedTest
+  @EnumSource(Compression.class)
+  void elements_of_other_blocks_are_recovered(Compression compression) throws IOException {
+    List<byte[]> elements = elements();
+    byte[] serialized = serializeInBlocks(elements, compression);
+    serialized[serialized.length / 2] ^= 1;
+
+    List<CorruptedBlockException> corruptedBlocks = new ArrayList<>();
+    List<byte[]> recovered = FramedLengthPrefixSerializer.unserializeList(new ByteArrayInputStream(serialized), corruptedBlocks::add);
+
+    assertThat(corruptedBlocks).hasSize(1);
+    assertThat(recovered).hasSizeBetween(elements.size() - 10, elements.size() - 1);
+    assertThat(elements).containsAll(recovered);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Compression.class)
+  void corrupted_stored_length_loses_its_block_only(Compression compression) throws IOException {
+    List<byte[]> elements = elements();
+    byte[] serialized = serializeInBlocks(elements, compression);
+    int secondBlock = indexOf(serialized, FramedLengthPrefixSerializer.SYNC_MARKER, FramedLengthPrefixSerializer.MAGIC.length + 1);
+
+    for (int mask : new int[] {0x01, 0x40, 0x80}) {
+      byte[] corrupted = serialized.clone();
+      corrupted[secondBlock + FramedLengthPrefixSerializer.SYNC_MARKER.length] ^= (byte) mask;
+
+      List<CorruptedBlockException> corruptedBlocks = new ArrayList<>();
+      List<byte[]> recovered = FramedLengthPrefixSerializer.unserializeList(new ByteArrayInputStream(corrupted), corruptedBlocks::add);
+
+      assertThat(corruptedBlocks).extracting(CorruptedBlockException::blockIndex).containsExactly(1);
+      List<byte[]> expected = new ArrayList<>(elements.subList(0, 10));
+      expected.addAll(elements.subList(20, 100));
+      assertThat(recovered).containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  void corrupted_sync_marker_loses_its_block_only() throws IOException {
+    List<byte[]> elements = elements();
+    byte[] serialized = serializeInBlocks(elements, Compression.NONE);
+    int secondBlock = indexOf(serialized, FramedLengthPrefixSerializer.SYNC_MARKER, FramedLengthPrefixSerializer.MAGIC.length + 1);
+    serialized[secondBlock + 2] ^= 1;
+
+    List<CorruptedBlockException> corruptedBlocks = new ArrayList<>();
+    List<byte[]> recovered = FramedLengthPrefixSerializer.unserializeList(new ByteArrayInputStream(serialized), corruptedBlocks::add);
+
+    assertThat(corruptedBlocks).extracting(CorruptedBlockException::getMessage).containsExactly("Corrupted block 1: missing sync marker");
+    assertThat(recovered).hasSize(90);
+  }
+
+  @Test
+  void truncated_stream_loses_its_last_block_only() throws IOException {
+    List<byte[]> elements = elements();
+    byte[] serialized = serializeInBlocks(elements, Compression.NONE);
+    byte[] truncated = Arrays.copyOf(serialized, serialized.length - 3);
+
+    assertThatThrownBy(() -> FramedLengthPrefixSerializer.unserializeList(truncated)).isInstanceOf(CorruptedBlockException.class);
+    List<CorruptedBlockException> corruptedBlocks = new ArrayList<>();
+    List<byte[]> recovered = FramedLengthPrefixSerializer.unserializeList(new ByteArrayInputStream(truncated), corruptedBlocks::add);
+    assertThat(corruptedBlocks).extracting(CorruptedBlockException::blockIndex).containsExactly(9);
+    assertThat(recovered).containsExactlyElementsOf(elements.subList(0, 90));
+  }
+
+  @Test
+  void map_entries_are_not_split_between_blocks() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (FramedLengthPrefixSerializer.Writer writer = new FramedLengthPrefixSerializer.Writer(out, Compression.NONE, 1)) {
+      for (int i = 0; i < 20; i++) {
+        writer.write("key" + i, new byte[]{(byte) i});
+      }
+    }
+    byte[] serialized = out.toByteArray();
+    serialized[serialized.length / 2] ^= 1;
+
+    Map<String, byte[]> recovered = FramedLengthPrefixSerializer.unserializeMap(new ByteArrayInputStream(serialized), e -> { });
+    assertThat(recovered).hasSize(19);
+    recovered.forEach((key, value) -> assertThat(key).isEqualTo("key" + value[0]));
+  }
+
+  @Test
+  void invalid_magic_number_throws_exception() throws IOException {
+    byte[] unframed = LengthPrefixSerializer.serializeList(List.of(new byte[]{1}));
+
+    assertThatThrownBy(() -> FramedLengthPrefixSerializer.unserializeList(unframed))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Not a framed length-prefix stream");
+  }
+
+  private static int indexOf(byte[] bytes, byte[] searched, int from) {
+    for (int i = from; i <= bytes.length - searched.length; i++) {
+      if (Arrays.equals(bytes, i, i + searched.length, searched, 0, searched.length)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static List<byte[]> elements() {
+    List<byte[]> elements = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      byte[] element = new byte[99];
+      Arrays.fill(element, (byte) i);
+      elements.add(element);
+    }
+    return elements;
+  }
+
+  /**
+   * Serializes 10 elements of 100 bytes per block.
+   */
+  private static byte[] serializeInBlocks(List<byte[]> elements, Compression compression) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (FramedLengthPrefixSerializer.Writer writer = new FramedLengthPrefixSerializer.Writer(out, compression, 1_000)) {
+      for (byte[] element : elements) {
+        writer.write(element);
+      }
+    }
+    return out.toByteArray();
+  }
+}
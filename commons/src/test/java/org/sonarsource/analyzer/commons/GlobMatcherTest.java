@@ -0,0 +1,159 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.utils.WildcardPattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlobMatcherTest {
+
+  @Test
+  void single_glob() {
+    GlobMatcher matcher = GlobMatcher.of("**/test/**");
+    assertThat(matcher.matches("test/A.java")).isTrue();
+    assertThat(matcher.matches("src/test/java/A.java")).isTrue();
+    assertThat(matcher.matches("/src/test/A.java/")).isTrue();
+    assertThat(matcher.matches("src/test")).isFalse();
+    assertThat(matcher.matches("src/mytest/A.java")).isFalse();
+    assertThat(matcher.matches("src/test.java")).isFalse();
+  }
+
+  @Test
+  void several_globs() {
+    GlobMatcher matcher = GlobMatcher.of("**/*Test.java", "**/tests/**", "src/?/*.js");
+    assertThat(matcher.matches("FooTest.java")).isTrue();
+    assertThat(matcher.matches("src/main/FooTest.java")).isTrue();
+    assertThat(matcher.matches("src/main/FooTest.javax")).isFalse();
+    assertThat(matcher.matches("a/tests/b/c.py")).isTrue();
+    assertThat(matcher.matches("src/a/b.js")).isTrue();
+    assertThat(matcher.matches("src/ab/b.js")).isFalse();
+    assertThat(matcher.matches("src/a/b/c.js")).isFalse();
+    assertThat(GlobMatcher.of().matches("a")).isFalse();
+  }
+
+  @Test
+  void double_star() {
+    assertThat(GlobMatcher.of("**").matches("")).isTrue();
+    assertThat(GlobMatcher.of("**").matches("a/b")).isTrue();
+    assertThat(GlobMatcher.of("src/**").matches("src")).isFalse();
+    assertThat(GlobMatcher.of("src/**").matches("src/a/b")).isTrue();
+    assertThat(GlobMatcher.of("src/**/a").matches("src/a")).isTrue();
+    assertThat(GlobMatcher.of("src/**/**/a").matches("src/b/c/a")).isTrue();
+    // not aligned on segments
+    assertThat(GlobMatcher.of("src/**.java").matches("src/a/B.java")).isTrue();
+    assertThat(GlobMatcher.of("src**").matches("src2/a")).isTrue();
+  }
+
+  @Test
+  void glob_syntax() {
+    assertThat(GlobMatcher.of("\\src\\*.c").matches("src/a.c")).isTrue();
+    assertThat(GlobMatcher.of("src\\*.c").matches("src\\a.c")).isFalse();
+    assertThat(GlobMatcher.of("a(b)[c]{d}+$^.|").matches("a(b)[c]{d}+$^.|")).isTrue();
+    assertThat(GlobMatcher.of("a.c").matches("abc")).isFalse();
+    assertThat(GlobMatcher.of("?").matches("😀")).isTrue();
+    assertThat(GlobMatcher.of("**/a").matches("x\ny/a")).isFalse();
+  }
+
+  @Test
+  void memoized_directories() {
+    GlobMatcher matcher = GlobMatcher.of("**/test/**", "src/*.js");
+    for (int i = 0; i < 3; i++) {
+      assertThat(matcher.matches("src/test/a/A" + i + ".java")).isTrue();
+      assertThat(matcher.matches("src/main/a/A" + i + ".java")).isFalse();
+      assertThat(matcher.matches("src/a" + i + ".js")).isTrue();
+    }
+  }
+
+  @Test
+  void pruned_directories() {
+    GlobMatcher matcher = GlobMatcher.of("*/*.js", "src/**/test/*.ts");
+    assertThat(matcher.mayMatchBelow("")).isTrue();
+    assertThat(matcher.mayMatchBelow("lib")).isTrue();
+    assertThat(matcher.mayMatchBelow("lib/a.js")).isFalse();
+    assertThat(matcher.mayMatchBelow("node_modules/lib")).isFalse();
+    assertThat(matcher.mayMatchBelow("/src/a/b/")).isTrue();
+    assertThat(matcher.mayMatchBelow("src/a/test")).isTrue();
+    assertThat(GlobMatcher.of("src/**").mayMatchBelow("src/a/b")).isTrue();
+    assertThat(GlobMatcher.of("a/b").mayMatchBelow("a/b")).isFalse();
+    assertThat(GlobMatcher.of("a/**.js").mayMatchBelow("b")).isTrue();
+    assertThat(GlobMatcher.of().mayMatchBelow("")).isFalse();
+  }
+
+  @Test
+  void memoized_directories_are_bounded() {
+    GlobMatcher matcher = GlobMatcher.of("**/test/**");
+    for (int i = 0; i < 3 * GlobMatcher.MAX_MEMOIZED_DIRECTORIES; i++) {
+      assertThat(matcher.matches("src/test/d" + i + "/A.java")).isTrue();
+      assertThat(matcher.matches("src/main/d" + i + "/A.java")).isFalse();
+      assertThat(matcher.memoizedDirectoryCount()).isLessThanOrEqualTo(GlobMatcher.MAX_MEMOIZED_DIRECTORIES);
+    }
+  }
+
+  @Test
+  void fixed_directory_prefix() {
+    assertThat(GlobMatcher.of("src/main/java/**/*.java").fixedDirectoryPrefix()).containsExactly("src", "main", "java");
+    assertThat(GlobMatcher.of("/src/main/*.ts", "src/main/js/**").fixedDirectoryPrefix()).containsExactly("src", "main");
+    assertThat(GlobMatcher.of("src/main/*.ts", "src/test/*.ts").fixedDirectoryPrefix()).containsExactly("src");
+    assertThat(GlobMatcher.of("src/main", "src/test").fixedDirectoryPrefix()).containsExactly("src");
+    assertThat(GlobMatcher.of("src/?/a", "src/./a", "**/a").fixedDirectoryPrefix()).isEmpty();
+    assertThat(GlobMatcher.of("a.txt").fixedDirectoryPrefix()).isEmpty();
+    assertThat(GlobMatcher.of().fixedDirectoryPrefix()).isEmpty();
+  }
+
+  @Test
+  void same_result_as_wildcard_pattern() {
+    String[] globParts = {"a", "b", "*", "?", "**", "/", "/", "\\", ".", "ab"};
+    String[] pathParts = {"a", "b", "/", "/", "ab", "ba", ".", "\n", "😀"};
+    Random random = new Random(31);
+    for (int i = 0; i < 2_000; i++) {
+      List<String> globs = new ArrayList<>();
+      List<WildcardPattern> patterns = new ArrayList<>();
+      int globCount = random.nextInt(4);
+      for (int j = 0; j < globCount; j++) {
+        String glob = randomString(random, globParts, 6);
+        globs.add(glob);
+        patterns.add(WildcardPattern.create(glob));
+      }
+      GlobMatcher matcher = GlobMatcher.of(globs);
+      for (int j = 0; j < 50; j++) {
+        String path = randomString(random, pathParts, 6);
+        boolean expected = patterns.stream().anyMatch(pattern -> pattern.match(path));
+        assertThat(matcher.matches(path)).as(globs + " " + path).isEqualTo(expected);
+        String value = path.startsWith("/") ? path.substring(1) : path;
+        value = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+        int lastSeparator = value.lastIndexOf('/');
+        if (expected && lastSeparator >= 0) {
+          assertThat(matcher.mayMatchBelow(value.substring(0, lastSeparator))).as(globs + " " + path).isTrue();
+        }
+      }
+    }
+  }
+
+  private static String randomString(Random random, String[] parts, int maxParts) {
+    StringBuilder sb = new StringBuilder();
+    int count = random.nextInt(maxParts + 1);
+    for (int i = 0; i < count; i++) {
+      sb.append(parts[random.nextInt(parts.length)]);
+    }
+    return sb.toString();
+  }
+}
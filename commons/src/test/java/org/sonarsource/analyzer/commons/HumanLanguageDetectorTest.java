@@ -16,7 +16,12 @@
  */
 package org.sonarsource.analyzer.commons;
 
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -80,4 +85,59 @@ class HumanLanguageDetectorTest {
   void testHumanLanguageScore(String text, Double expected) {
     assertThat(HumanLanguageDetector.humanLanguageScore(text)).isEqualTo(expected, offset(0.0000001));
   }
+
+  @Test
+  void same_score_as_regex_based_word_segmentation() {
+    String alphabet = "abcxyzABCXYZ019 _-./@`[{é";
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      StringBuilder text = new StringBuilder();
+      int length = random.nextInt(40);
+      for (int j = 0; j < length; j++) {
+        text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      String value = text.toString();
+      assertThat(HumanLanguageDetector.humanLanguageScore(value)).as(value).isEqualTo(regexBasedScore(value));
+    }
+  }
+
+  private static final Pattern WORD_PATTERN = Pattern.compile("[a-z]++|[A-Z][a-z]++|[A-Za-z]++");
+
+  /**
+   * Former regex based word segmentation, kept as a reference to ensure the scores are strictly identical.
+   */
+  private static double regexBasedScore(String text) {
+    double totalScore = 0.0d;
+    double totalWeight = 0.0d;
+    int camelCaseSeparator = 0;
+    int lastFindingEnd = -1;
+    int allWorldLength = 0;
+    Matcher matcher = WORD_PATTERN.matcher(text);
+    while (matcher.find()) {
+      if (matcher.start() == lastFindingEnd) {
+        camelCaseSeparator++;
+      }
+      String word = matcher.group().toLowerCase(Locale.ROOT);
+      allWorldLength += word.length();
+      double weight = word.length();
+      totalScore += regexBasedWordScore(word) * weight;
+      totalWeight += weight;
+      lastFindingEnd = matcher.end();
+    }
+    if (totalWeight == 0.0d) {
+      return 1.0d;
+    }
+    int separatorCount = text.length() - allWorldLength + camelCaseSeparator;
+    int expectedSeparatorCount = text.length() / 6;
+    int unexpectedSeparatorCount = Math.abs(separatorCount - expectedSeparatorCount);
+    return (((totalScore / totalWeight) * allWorldLength) + (0.1d * unexpectedSeparatorCount)) / (allWorldLength + unexpectedSeparatorCount);
+  }
+
+  private static double regexBasedWordScore(String word) {
+    double pairsScore = 0.0d;
+    for (int i = 0; i < word.length() - 1; i++) {
+      pairsScore += HumanLanguageDetector.pairScore(word.charAt(i), word.charAt(i + 1));
+    }
+    return HumanLanguageDetector.wordScore(word.length(), word.charAt(0), word.charAt(word.length() - 1), pairsScore);
+  }
 }
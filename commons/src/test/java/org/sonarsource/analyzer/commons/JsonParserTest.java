@@ -16,7 +16,10 @@
  */
 package org.sonarsource.analyzer.commons;
 
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -35,4 +38,20 @@ public class JsonParserTest {
   public void invalid_json() {
     new JsonParser().parse("{{}");
   }
+
+  @Test
+  public void parse_concurrently() {
+    JsonParser parser = new JsonParser();
+    List<Object> values = IntStream.range(0, 10_000).parallel()
+      .mapToObj(i -> parser.parse("{ \"value\" : " + i + ", \"list\" : [" + i + "] }").get("value"))
+      .collect(Collectors.toList());
+    assertThat(values).isEqualTo(IntStream.range(0, 10_000).mapToObj(i -> (Object) (long) i).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void parse_value() {
+    JsonParser parser = new JsonParser();
+    assertThat(parser.parseValue("[1, \"a\"]")).isEqualTo(List.of(1L, "a"));
+    assertThat(parser.parseValue("1.5")).isEqualTo(1.5);
+  }
 }
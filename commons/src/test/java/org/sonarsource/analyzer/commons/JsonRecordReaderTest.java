@@ -0,0 +1,90 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonRecordReaderTest {
+
+  private static final String SARIF = """
+    {
+      "version": "2.1.0",
+      "runs": [
+        {
+          "tool": { "driver": { "name": "linter", "rules": [ { "id": "r1" } ] } },
+          "results": [
+            { "ruleId": "r1", "message": { "text": "first" }, "locations": [ { "line": 1 } ] },
+            { "ruleId": "r2", "message": { "text": "second" }, "level": null }
+          ]
+        },
+        {
+          "results": [
+            { "ruleId": "r3", "fixed": true, "rank": 1.5 }
+          ]
+        },
+        { "results": [] }
+      ]
+    }
+    """;
+
+  @Test
+  void records_at_the_path_are_read_in_order() throws IOException {
+    List<Map<String, Object>> records = read(SARIF, "runs/*/results/*");
+
+    assertThat(records).extracting(result -> result.get("ruleId")).containsExactly("r1", "r2", "r3");
+    assertThat(records.get(0)).isEqualTo(new JsonParser().parse("""
+      { "ruleId": "r1", "message": { "text": "first" }, "locations": [ { "line": 1 } ] }
+      """));
+    assertThat(records.get(1)).containsEntry("level", null);
+    assertThat(records.get(2)).containsEntry("fixed", true).containsEntry("rank", 1.5);
+  }
+
+  @Test
+  void only_objects_at_the_path_are_records() throws IOException {
+    assertThat(read(SARIF, "runs/*/tool/driver")).extracting(driver -> driver.get("name")).containsExactly("linter");
+    assertThat(read(SARIF, "runs/*/tool/driver/rules/*")).containsExactly(Map.of("id", "r1"));
+    assertThat(read(SARIF, "runs/*")).hasSize(3);
+    assertThat(read(SARIF, "runs")).isEmpty();
+    assertThat(read(SARIF, "version")).isEmpty();
+    assertThat(read(SARIF, "runs/results/*")).isEmpty();
+    assertThat(read(SARIF, "*")).isEmpty();
+    assertThat(read(SARIF, "")).hasSize(1);
+    assertThat(read("[{ \"a\": 1 }, 2, [{ \"b\": 3 }], { \"c\": [] }]", "*"))
+      .containsExactly(Map.of("a", 1L), Map.of("c", List.of()));
+  }
+
+  @Test
+  void invalid_json() {
+    assertThatThrownBy(() -> read("{ \"runs\": [ { \"results\": [ {", "runs/*/results/*"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not parse JSON");
+  }
+
+  private static List<Map<String, Object>> read(String json, String recordPath) throws IOException {
+    List<Map<String, Object>> records = new ArrayList<>();
+    JsonRecordReader.read(new StringReader(json), recordPath, records::add);
+    return records;
+  }
+}
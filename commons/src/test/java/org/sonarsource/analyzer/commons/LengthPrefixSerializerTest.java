@@ -16,18 +16,36 @@
  */
 package org.sonarsource.analyzer.commons;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class LengthPrefixSerializerTest {
 
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
   @Test
   public void serializing_and_unserializing_list_of_bytes_returns_same_list() throws IOException {
     byte[] bytes = new byte[]{1, 2, 3, 4, 5};
@@ -108,4 +126,197 @@ public class LengthPrefixSerializerTest {
       .isInstanceOf(IOException.class)
       .hasMessage("Invalid length while unserializing: -1234");
   }
+
+  @Test
+  public void unserializing_a_stream_reads_until_its_end_even_when_nothing_is_available() throws IOException {
+    byte[] bytes = new byte[]{1, 2, 3};
+    byte[] serialized = LengthPrefixSerializer.serializeList(List.of(bytes, bytes));
+
+    assertThat(LengthPrefixSerializer.unserializeList(new NothingAvailableInputStream(serialized))).containsExactly(bytes, bytes);
+    byte[] serializedMap = LengthPrefixSerializer.serializeMap(Map.of("key", bytes));
+    assertThat(LengthPrefixSerializer.unserializeMap(new NothingAvailableInputStream(serializedMap))).containsOnlyKeys("key");
+  }
+
+  @Test
+  public void truncated_data_throws_exception() throws IOException {
+    byte[] serialized = LengthPrefixSerializer.serializeList(List.of(new byte[]{1, 2, 3}));
+
+    for (int length = 1; length < serialized.length; length++) {
+      byte[] truncated = Arrays.copyOf(serialized, length);
+      assertThatThrownBy(() -> LengthPrefixSerializer.unserializeList(truncated)).isInstanceOf(EOFException.class);
+      assertThatThrownBy(() -> LengthPrefixSerializer.unserializeList(new ByteArrayInputStream(truncated))).isInstanceOf(EOFException.class);
+    }
+    byte[] keyWithoutValue = LengthPrefixSerializer.serializeList(List.of("key".getBytes(StandardCharsets.UTF_8)));
+    assertThatThrownBy(() -> LengthPrefixSerializer.unserializeMap(keyWithoutValue)).isInstanceOf(EOFException.class);
+  }
+
+  @Test
+  public void writer_and_reader_stream_elements_through_channels() throws IOException {
+    byte[] small = new byte[]{1, 2, 3};
+    byte[] large = new byte[100_000];
+    Arrays.fill(large, (byte) 7);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (LengthPrefixSerializer.Writer writer = new LengthPrefixSerializer.Writer(Channels.newChannel(out))) {
+      writer.write(small).write(large).write(ByteBuffer.wrap(new byte[0])).write(small);
+    }
+    assertThat(out.toByteArray()).isEqualTo(LengthPrefixSerializer.serializeList(List.of(small, large, new byte[0], small)));
+
+    try (LengthPrefixSerializer.Reader reader = LengthPrefixSerializer.Reader.of(Channels.newChannel(new NothingAvailableInputStream(out.toByteArray())))) {
+      assertThat(reader.next()).isEqualTo(ByteBuffer.wrap(small));
+      assertThat(reader.next()).isEqualTo(ByteBuffer.wrap(large));
+      assertThat(reader.next()).isEqualTo(ByteBuffer.wrap(new byte[0]));
+      assertThat(reader.next()).isEqualTo(ByteBuffer.wrap(small));
+      assertThat(reader.next()).isNull();
+    }
+  }
+
+  @Test
+  public void reader_of_a_mapped_file_returns_read_only_slices() throws IOException {
+    File file = tmp.newFile();
+    try (LengthPrefixSerializer.Writer writer = new LengthPrefixSerializer.Writer(FileChannel.open(file.toPath(), StandardOpenOption.WRITE))) {
+      writer.write("key1", new byte[]{1, 2, 3}).write("key2", new byte[]{4, 5}).write("key3", new byte[]{6});
+    }
+
+    LengthPrefixSerializer.Reader reader = LengthPrefixSerializer.Reader.map(file.toPath());
+    ByteBuffer value = reader.get("key2");
+    assertThat(value).isEqualTo(ByteBuffer.wrap(new byte[]{4, 5}));
+    assertThat(value.isReadOnly()).isTrue();
+    assertThat(value.isDirect()).isTrue();
+    // the lookup stops right after the matching entry
+    assertThat(reader.next()).isEqualTo(ByteBuffer.wrap("key3".getBytes(StandardCharsets.UTF_8)));
+    assertThat(LengthPrefixSerializer.Reader.map(file.toPath()).get("unknown")).isNull();
+  }
+
+  @Test
+  public void get_skips_values_of_other_keys() throws IOException {
+    byte[] serialized = LengthPrefixSerializer.serializeMap(Map.of("key1", new byte[]{1}, "key2", new byte[]{2}));
+
+    assertThat(LengthPrefixSerializer.Reader.of(ByteBuffer.wrap(serialized)).get("key2")).isEqualTo(ByteBuffer.wrap(new byte[]{2}));
+    File file = tmp.newFile();
+    Files.write(file.toPath(), serialized);
+    try (LengthPrefixSerializer.Reader reader = LengthPrefixSerializer.Reader.of(FileChannel.open(file.toPath()))) {
+      assertThat(reader.get("key1")).isEqualTo(ByteBuffer.wrap(new byte[]{1}));
+    }
+    try (LengthPrefixSerializer.Reader reader = LengthPrefixSerializer.Reader.of(Channels.newChannel(new ByteArrayInputStream(serialized)))) {
+      assertThat(reader.get("key2")).isEqualTo(ByteBuffer.wrap(new byte[]{2}));
+    }
+  }
+
+  @Test
+  public void reader_of_a_buffer_does_not_modify_it() throws IOException {
+    ByteBuffer data = ByteBuffer.wrap(LengthPrefixSerializer.serializeList(List.of(new byte[]{1, 2})));
+
+    assertThat(LengthPrefixSerializer.Reader.of(data).next()).isEqualTo(ByteBuffer.wrap(new byte[]{1, 2}));
+    assertThat(data.position()).isZero();
+  }
+
+  @Test
+  public void indexed_map_looks_keys_up() throws IOException {
+    Map<String, byte[]> map = new HashMap<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 1_000; i++) {
+      byte[] value = new byte[random.nextInt(10)];
+      random.nextBytes(value);
+      map.put("key" + random.nextInt(100_000) + (i % 3 == 0 ? "é" : ""), value);
+    }
+    map.put("", new byte[0]);
+    map.put("z", new byte[]{1});
+    map.put("é", new byte[]{2});
+    byte[] serialized = LengthPrefixSerializer.serializeIndexedMap(map);
+
+    LengthPrefixSerializer.IndexedMap indexedMap = LengthPrefixSerializer.IndexedMap.of(ByteBuffer.wrap(serialized));
+    assertThat(indexedMap.size()).isEqualTo(map.size());
+    for (Map.Entry<String, byte[]> entry : map.entrySet()) {
+      assertThat(indexedMap.get(entry.getKey())).isEqualTo(ByteBuffer.wrap(entry.getValue()));
+    }
+    assertThat(indexedMap.get("unknown")).isNull();
+    assertThat(indexedMap.containsKey("key")).isFalse();
+    assertThat(indexedMap.containsKey("z")).isTrue();
+    assertThat(indexedMap.get("z").isReadOnly()).isTrue();
+  }
+
+  @Test
+  public void indexed_map_of_an_empty_map() throws IOException {
+    byte[] serialized = LengthPrefixSerializer.serializeIndexedMap(Map.of());
+
+    assertThat(LengthPrefixSerializer.IndexedMap.of(ByteBuffer.wrap(serialized)).size()).isZero();
+    assertThat(LengthPrefixSerializer.IndexedMap.of(ByteBuffer.wrap(serialized)).get("key")).isNull();
+    assertThat(LengthPrefixSerializer.unserializeMap(serialized)).isEmpty();
+    assertThat(LengthPrefixSerializer.IndexedMap.of(ByteBuffer.allocate(0)).size()).isZero();
+  }
+
+  @Test
+  public void unserializing_a_map_reads_both_layouts() throws IOException {
+    Map<String, byte[]> map = Map.of("key1", new byte[]{1, 2, 3}, "key2", new byte[]{4, 5, 6});
+    byte[] serialized = LengthPrefixSerializer.serializeIndexedMap(map);
+
+    assertThat(LengthPrefixSerializer.unserializeMap(serialized)).containsExactlyInAnyOrderEntriesOf(map);
+    assertThat(LengthPrefixSerializer.unserializeMap(new ByteArrayInputStream(serialized))).containsExactlyInAnyOrderEntriesOf(map);
+    assertThat(LengthPrefixSerializer.unserializeMap(new NothingAvailableInputStream(serialized))).containsExactlyInAnyOrderEntriesOf(map);
+  }
+
+  @Test
+  public void unindexed_map_files_are_migrated_to_the_indexed_layout() throws IOException {
+    Map<String, byte[]> map = Map.of("key1", new byte[]{1, 2, 3}, "key2", new byte[]{4, 5, 6}, "key3", new byte[0]);
+    File unindexedFile = tmp.newFile();
+    Files.write(unindexedFile.toPath(), LengthPrefixSerializer.serializeMap(map));
+
+    LengthPrefixSerializer.IndexedMap unindexed = LengthPrefixSerializer.IndexedMap.map(unindexedFile.toPath());
+    assertThat(unindexed.get("key2")).isEqualTo(ByteBuffer.wrap(new byte[]{4, 5, 6}));
+
+    File indexedFile = tmp.newFile();
+    try (FileChannel channel = FileChannel.open(indexedFile.toPath(), StandardOpenOption.WRITE)) {
+      unindexed.writeTo(channel);
+    }
+    assertThat(Files.readAllBytes(indexedFile.toPath())).isEqualTo(LengthPrefixSerializer.serializeIndexedMap(map));
+    LengthPrefixSerializer.IndexedMap indexed = LengthPrefixSerializer.IndexedMap.map(indexedFile.toPath());
+    assertThat(indexed.get("key1")).isEqualTo(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+    assertThat(indexed.get("key3")).isEqualTo(ByteBuffer.wrap(new byte[0]));
+  }
+
+  @Test
+  public void last_duplicated_key_wins_in_the_unindexed_layout() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (LengthPrefixSerializer.Writer writer = new LengthPrefixSerializer.Writer(Channels.newChannel(out))) {
+      writer.write("b", new byte[]{1}).write("a", new byte[]{2}).write("b", new byte[]{3});
+    }
+    LengthPrefixSerializer.IndexedMap indexedMap = LengthPrefixSerializer.IndexedMap.of(ByteBuffer.wrap(out.toByteArray()));
+
+    assertThat(indexedMap.size()).isEqualTo(2);
+    assertThat(indexedMap.get("b")).isEqualTo(ByteBuffer.wrap(new byte[]{3}));
+    assertThat(LengthPrefixSerializer.unserializeMap(out.toByteArray()).get("b")).containsExactly(3);
+  }
+
+  @Test
+  public void corrupted_indexed_map_throws_exception() throws IOException {
+    byte[] serialized = LengthPrefixSerializer.serializeIndexedMap(Map.of("key", new byte[]{1}));
+
+    byte[] truncated = Arrays.copyOf(serialized, serialized.length - 1);
+    assertThatThrownBy(() -> LengthPrefixSerializer.IndexedMap.of(ByteBuffer.wrap(truncated)).get("key")).isInstanceOf(EOFException.class);
+    byte[] invalidOffset = serialized.clone();
+    ByteBuffer.wrap(invalidOffset).putInt(8, -1);
+    assertThatThrownBy(() -> LengthPrefixSerializer.IndexedMap.of(ByteBuffer.wrap(invalidOffset)).get("key"))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Invalid offset while unserializing: -1");
+    byte[] invalidCount = serialized.clone();
+    ByteBuffer.wrap(invalidCount).putInt(4, 1000);
+    assertThatThrownBy(() -> LengthPrefixSerializer.IndexedMap.of(ByteBuffer.wrap(invalidCount)))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Invalid index while unserializing: 1000 entries");
+    assertThatThrownBy(() -> LengthPrefixSerializer.unserializeMap(invalidCount)).isInstanceOf(EOFException.class);
+  }
+
+  /**
+   * Like sockets or pipes, returns 0 from available() although there is data left.
+   */
+  private static class NothingAvailableInputStream extends FilterInputStream {
+    NothingAvailableInputStream(byte[] data) {
+      super(new ByteArrayInputStream(data));
+    }
+
+    @Override
+    public int available() {
+      return 0;
+    }
+  }
 }
@@ -0,0 +1,125 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RuleMetadataIndexTest {
+
+  private static final Path RULE_FOLDER = Paths.get("src/test/resources/org/sonarsource/analyzer/commons");
+  private static final Path EDUCATION_FOLDER = RULE_FOLDER.resolve("education");
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void json_metadata_is_parsed_at_build_time() throws IOException {
+    RuleMetadataIndex index = RuleMetadataIndex.of("index", RuleMetadataIndex.compile(RULE_FOLDER));
+
+    JsonParser jsonParser = new JsonParser();
+    for (String ruleKey : List.of("S100", "S110", "S123", "S2092", "taxonomy_rule")) {
+      String json = Files.readString(RULE_FOLDER.resolve(ruleKey + ".json"));
+      assertThat(index.metadata(ruleKey)).as(ruleKey).isEqualTo(jsonParser.parse(json));
+    }
+    // arrays are not rule metadata
+    assertThat(index.metadata("mylinter")).isNull();
+    assertThat(index.metadata("unknown")).isNull();
+  }
+
+  @Test
+  void html_descriptions_are_split_at_build_time() throws IOException {
+    RuleMetadataIndex index = RuleMetadataIndex.of("index", RuleMetadataIndex.compile(EDUCATION_FOLDER.resolve("valid")));
+
+    for (String ruleKey : List.of("S100", "S101", "S102", "S103", "S104", "S105", "S106")) {
+      String html = Files.readString(EDUCATION_FOLDER.resolve("valid").resolve(ruleKey + ".html"));
+      RuleMetadataIndex.HtmlDescription description = index.htmlDescription(ruleKey);
+      assertThat(description.html()).as(ruleKey).isEqualTo(EducationDescription.fallbackHtmlDescription(html));
+      assertThat(description.educationSections()).as(ruleKey).isEqualTo(EducationDescription.sections(ruleKey, html));
+    }
+    assertThat(index.htmlDescription("S101").html()).isEqualTo(Files.readString(EDUCATION_FOLDER.resolve("valid/S101_fallback.html")));
+    assertThat(index.htmlDescription("unknown")).isNull();
+  }
+
+  @Test
+  void html_descriptions_not_in_the_education_format_are_kept() throws IOException {
+    RuleMetadataIndex index = RuleMetadataIndex.of("index", RuleMetadataIndex.compile(RULE_FOLDER));
+
+    RuleMetadataIndex.HtmlDescription description = index.htmlDescription("S100");
+    assertThat(description.html()).isEqualTo(Files.readString(RULE_FOLDER.resolve("S100.html")));
+    assertThat(description.educationSections()).isNull();
+  }
+
+  @Test
+  void invalid_education_description_fails_the_build() {
+    assertThatThrownBy(() -> RuleMetadataIndex.compile(EDUCATION_FOLDER.resolve("invalid")))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Invalid education rule format for '");
+  }
+
+  @Test
+  void main_writes_the_index() throws IOException {
+    Path ruleFolder = tempDir.resolve("rules");
+    Files.createDirectories(ruleFolder);
+    Files.writeString(ruleFolder.resolve("S1.json"), "{\"title\": \"Rule S1\", \"tags\": [\"a\", \"b\"], \"score\": 1.5, \"count\": 3, \"flag\": true, \"none\": null}");
+    Files.writeString(ruleFolder.resolve("S1.html"), "<p>é</p>");
+
+    RuleMetadataIndex.main(new String[] {ruleFolder.toString()});
+    RuleMetadataIndex.main(new String[] {ruleFolder.toString(), tempDir.resolve("out/other.index").toString()});
+
+    byte[] compiled = Files.readAllBytes(ruleFolder.resolve(RuleMetadataIndex.FILE_NAME));
+    assertThat(tempDir.resolve("out/other.index")).hasBinaryContent(compiled);
+    RuleMetadataIndex index = RuleMetadataIndex.of("index", compiled);
+    assertThat(index.metadata("S1")).isEqualTo(new JsonParser().parse(Files.readString(ruleFolder.resolve("S1.json"))));
+    assertThat(index.htmlDescription("S1").html()).isEqualTo("<p>é</p>");
+    assertThatThrownBy(() -> RuleMetadataIndex.main(new String[0])).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void index_is_loaded_from_the_class_path() throws IOException {
+    assertThat(RuleMetadataIndex.load("org/sonarsource/analyzer/commons")).isNull();
+    RuleMetadataIndex index = RuleMetadataIndex.load("org/sonarsource/analyzer/commons/indexed");
+    assertThat(index).isNotNull();
+    assertThat(index.htmlDescription("S100").html()).isEqualTo(Files.readString(RULE_FOLDER.resolve("S100.html")));
+  }
+
+  @Test
+  void indexed_test_resources_are_up_to_date() throws IOException {
+    // regenerate with: RuleMetadataIndex.main(new String[] {RULE_FOLDER.toString(), RULE_FOLDER.resolve("indexed").resolve(RuleMetadataIndex.FILE_NAME).toString()})
+    assertThat(RULE_FOLDER.resolve("indexed").resolve(RuleMetadataIndex.FILE_NAME)).hasBinaryContent(RuleMetadataIndex.compile(RULE_FOLDER));
+  }
+
+  @Test
+  void corrupted_index_throws_exception() throws IOException {
+    byte[] compiled = RuleMetadataIndex.compile(RULE_FOLDER);
+    RuleMetadataIndex index = RuleMetadataIndex.of("index", Arrays.copyOf(compiled, compiled.length - 1));
+
+    // the last entry is cut short
+    assertThatThrownBy(() -> index.metadata("taxonomy_rule"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Can't read resource: index");
+  }
+}
@@ -33,6 +33,7 @@ import org.sonar.api.rule.RuleScope;
 import org.sonar.api.rule.RuleStatus;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.api.server.rule.Context;
 import org.sonar.api.server.rule.RuleParamType;
 import org.sonar.api.server.rule.RulesDefinition.NewRepository;
 import org.sonar.api.server.rule.RulesDefinition;
@@ -277,6 +278,89 @@ public class RuleMetadataLoaderTest {
     assertThat(rule.ruleDescriptionSections()).hasSize(5);
   }
 
+  @Test
+  public void deferred_descriptions_are_read_on_first_access() throws IOException {
+    ruleMetadataLoader = new RuleMetadataLoader(RESOURCE_FOLDER, SONAR_RUNTIME_9_9);
+    LazyRuleDescriptions descriptions = ruleMetadataLoader.deferDescriptions();
+    assertThat(ruleMetadataLoader.deferDescriptions()).isSameAs(descriptions);
+    ruleMetadataLoader.addRulesByRuleKey(newRepository, Arrays.asList("S100", "S102"));
+    newRepository.done();
+
+    RulesDefinition.Rule rule = context.repository(RULE_REPOSITORY_KEY).rule("S102");
+    assertThat(rule.name()).isEqualTo("Avoid doing assignments in the condition part of if/while/for statements");
+    assertThat(rule.htmlDescription()).isEqualTo(LazyRuleDescriptions.DEFERRED_HTML_DESCRIPTION);
+    assertThat(rule.ruleDescriptionSections()).isEmpty();
+
+    String expectedHtmlDescription = Files.readString(Paths.get("src/test/resources/org/sonarsource/analyzer/commons/S102_fallback.html"));
+    assertThat(descriptions.htmlDescription("S102")).isEqualTo(expectedHtmlDescription);
+    assertThat(descriptions.descriptionSections("S102")).hasSize(5);
+    assertThat(descriptions.descriptionSections("S100")).isEmpty();
+    assertThat(descriptions.htmlDescription("S100")).isEqualTo("<p>description S100</p>");
+  }
+
+  @Test
+  public void deferred_education_sections_depend_on_the_runtime() {
+    ruleMetadataLoader = new RuleMetadataLoader(RESOURCE_FOLDER, SONAR_RUNTIME_9_3);
+    LazyRuleDescriptions descriptions = ruleMetadataLoader.deferDescriptions();
+
+    assertThat(descriptions.htmlDescription("S102")).isNotEmpty();
+    assertThat(descriptions.descriptionSections("S102")).isEmpty();
+    assertThatThrownBy(() -> descriptions.htmlDescription("unknown"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Can't read resource: org/sonarsource/analyzer/commons/unknown.html");
+  }
+
+  @Test
+  public void descriptions_can_not_be_deferred_without_resource_folder() {
+    RuleMetadataLoader loader = new RuleMetadataLoader(SONAR_RUNTIME_9_9);
+    assertThatThrownBy(loader::deferDescriptions)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Resource folder is required to defer rule descriptions");
+  }
+
+  @Test
+  public void load_rules_from_the_rule_metadata_index() {
+    List<String> ruleKeys = Arrays.asList("S100", "S102", "S110", "S123", "taxonomy_rule");
+    new RuleMetadataLoader(RESOURCE_FOLDER, SONAR_RUNTIME_13_3).addRulesByRuleKey(newRepository, ruleKeys);
+    newRepository.done();
+    NewRepository indexedRepository = context.createRepository("indexed", "magic");
+    // the "indexed" folder only contains the rule-metadata.index compiled from RESOURCE_FOLDER
+    new RuleMetadataLoader(RESOURCE_FOLDER + "/indexed", SONAR_RUNTIME_13_3).addRulesByRuleKey(indexedRepository, ruleKeys);
+    indexedRepository.done();
+
+    for (String ruleKey : ruleKeys) {
+      RulesDefinition.Rule expected = context.repository(RULE_REPOSITORY_KEY).rule(ruleKey);
+      RulesDefinition.Rule rule = context.repository("indexed").rule(ruleKey);
+      assertThat(rule.name()).isEqualTo(expected.name());
+      assertThat(rule.htmlDescription()).isEqualTo(expected.htmlDescription());
+      assertThat(rule.ruleDescriptionSections()).hasSameSizeAs(expected.ruleDescriptionSections());
+      for (int i = 0; i < rule.ruleDescriptionSections().size(); i++) {
+        assertThat(rule.ruleDescriptionSections().get(i).getKey()).isEqualTo(expected.ruleDescriptionSections().get(i).getKey());
+        assertThat(rule.ruleDescriptionSections().get(i).getHtmlContent()).isEqualTo(expected.ruleDescriptionSections().get(i).getHtmlContent());
+        assertThat(rule.ruleDescriptionSections().get(i).getContext().map(Context::getKey))
+          .isEqualTo(expected.ruleDescriptionSections().get(i).getContext().map(Context::getKey));
+      }
+      assertThat(rule.severity()).isEqualTo(expected.severity());
+      assertThat(rule.type()).isEqualTo(expected.type());
+      assertThat(rule.status()).isEqualTo(expected.status());
+      assertThat(rule.tags()).isEqualTo(expected.tags());
+      assertThat(rule.securityStandards()).isEqualTo(expected.securityStandards());
+      assertThat(rule.defaultImpacts()).isEqualTo(expected.defaultImpacts());
+      assertThat(rule.debtRemediationFunction()).isEqualTo(expected.debtRemediationFunction());
+      assertThat(rule.gapDescription()).isEqualTo(expected.gapDescription());
+    }
+  }
+
+  @Test
+  public void rules_missing_from_the_rule_metadata_index_are_read_from_their_files() {
+    ruleMetadataLoader = new RuleMetadataLoader(RESOURCE_FOLDER + "/indexed", SONAR_RUNTIME_9_3);
+    List<String> ruleKeys = singletonList("unknown_rule");
+
+    assertThatThrownBy(() -> ruleMetadataLoader.addRulesByRuleKey(newRepository, ruleKeys))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Can't read resource: org/sonarsource/analyzer/commons/indexed/unknown_rule.html");
+  }
+
   @Test
   public void load_rule_S110() {
     @Rule(key = "S110")
@@ -746,6 +830,39 @@ public class RuleMetadataLoaderTest {
     }
   }
 
+  @Test
+  public void rules_are_added_in_order_and_the_first_error_is_reported() {
+    List<String> ruleKeys = Arrays.asList("S100", "S110", "rule_missing_title", "notvalid", "S123");
+
+    assertThatThrownBy(() -> ruleMetadataLoader.addRulesByRuleKey(newRepository, ruleKeys))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Invalid property: title");
+    assertThat(newRepository.rules()).extracting(RulesDefinition.NewRule::key).containsExactlyInAnyOrder("S100", "S110", "rule_missing_title");
+  }
+
+  @Test
+  public void rules_loaded_together_are_the_same_as_rules_loaded_one_by_one() {
+    List<String> ruleKeys = List.of("S100", "S102", "S110", "S123", "S2092");
+    ruleMetadataLoader = new RuleMetadataLoader(RESOURCE_FOLDER, SONAR_RUNTIME_9_9);
+    ruleMetadataLoader.addRulesByRuleKey(newRepository, ruleKeys);
+    newRepository.done();
+    for (String ruleKey : ruleKeys) {
+      NewRepository repository = context.createRepository(ruleKey, "magic");
+      ruleMetadataLoader.addRulesByRuleKey(repository, singletonList(ruleKey));
+      repository.done();
+    }
+
+    for (String ruleKey : ruleKeys) {
+      RulesDefinition.Rule expected = context.repository(ruleKey).rule(ruleKey);
+      RulesDefinition.Rule rule = context.repository(RULE_REPOSITORY_KEY).rule(ruleKey);
+      assertThat(rule.name()).isEqualTo(expected.name());
+      assertThat(rule.htmlDescription()).isEqualTo(expected.htmlDescription());
+      assertThat(rule.ruleDescriptionSections()).hasSameSizeAs(expected.ruleDescriptionSections());
+      assertThat(rule.tags()).isEqualTo(expected.tags());
+      assertThat(rule.securityStandards()).isEqualTo(expected.securityStandards());
+    }
+  }
+
   @Test
   public void test_invalid_json_string_array() {
     @Rule(key = "rule_wrong_tag")
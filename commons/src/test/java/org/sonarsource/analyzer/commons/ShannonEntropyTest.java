@@ -16,6 +16,8 @@
  */
 package org.sonarsource.analyzer.commons;
 
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.assertj.core.data.Offset;
 import org.junit.Test;
 
@@ -48,4 +50,66 @@ public class ShannonEntropyTest {
     assertThat(ShannonEntropy.calculate("06c6d5715a1ede6c51fc39ff67fd647f740b656d")).isEqualTo(3.552655, WITHIN_5);
     assertThat(ShannonEntropy.calculate("qAhEMdXy/MPwEuDlhh7O0AFBuzGvNy7AxpL3sX3q")).isEqualTo(4.684183, WITHIN_5);
   }
+
+  @Test
+  public void calculate_non_ascii() {
+    assertThat(ShannonEntropy.calculate("éé")).isEqualTo(0.0d);
+    assertThat(ShannonEntropy.calculate("aéaé")).isEqualTo(1.0d);
+    assertThat(ShannonEntropy.calculate("żółćżółćżółćżółćżółćżółćżółćżółćżółć")).isEqualTo(2.0d, WITHIN_5);
+  }
+
+  @Test
+  public void calculate_uniform_distributions_exactly() {
+    for (int k = 0; k <= 10; k++) {
+      StringBuilder distinct = new StringBuilder();
+      for (int i = 0; i < (1 << k); i++) {
+        distinct.append((char) ('!' + i));
+      }
+      String str = distinct.toString();
+      assertThat(ShannonEntropy.calculate(str)).isEqualTo(k);
+      assertThat(ShannonEntropy.calculate(str + str + str)).isEqualTo(k);
+      assertThat(ShannonEntropy.calculate(str)).isEqualTo(streamEntropy(str));
+    }
+  }
+
+  @Test
+  public void calculate_same_as_stream_implementation() {
+    String[] strings = {
+      "ab",
+      "0000000000000000000011111111111111111111",
+      "0000011111222223333344444555556666677777",
+      "0123456789abcdef0123456789abcdef01234567",
+      "0123456789ABCDabcdefghijklmnopqrstuvwxyz",
+      "0040878d3579659158d09ad09b6a9849d18e0e22",
+      "06c6d5715a1ede6c51fc39ff67fd647f740b656d",
+      "qAhEMdXy/MPwEuDlhh7O0AFBuzGvNy7AxpL3sX3q",
+      "aéaé",
+      "żółćżółćżółćżółćżółćżółćżółćżółćżółć"};
+    for (String str : strings) {
+      assertThat(ShannonEntropy.calculate(str)).as(str).isEqualTo(streamEntropy(str));
+    }
+  }
+
+  // former implementation of ShannonEntropy.calculate
+  private static double streamEntropy(String str) {
+    int length = str.length();
+    return str.chars()
+      .boxed()
+      .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+      .values()
+      .stream()
+      .map(Long::doubleValue)
+      .mapToDouble(count -> count / length)
+      .map(frequency -> -frequency * Math.log(frequency))
+      .sum() / Math.log(2.0d);
+  }
+
+  @Test
+  public void histogram() {
+    ShannonEntropy.Histogram histogram = new ShannonEntropy.Histogram();
+    assertThat(histogram.entropy()).isEqualTo(0.0d);
+    "0123456789abcdef0123456789abcdef01234567".chars().forEach(ch -> histogram.add((char) ch));
+    assertThat(histogram.length()).isEqualTo(40);
+    assertThat(histogram.entropy()).isEqualTo(ShannonEntropy.calculate("0123456789abcdef0123456789abcdef01234567"));
+  }
 }
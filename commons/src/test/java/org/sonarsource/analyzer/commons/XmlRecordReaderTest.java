@@ -0,0 +1,94 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class XmlRecordReaderTest {
+
+  private static final String CHECKSTYLE = """
+    <?xml version="1.0" encoding="UTF-8"?>
+    <checkstyle version="8.0">
+      <file name="src/a.js">
+        <error line="1" column="2" severity="error" message="first &amp; only" source="no-eval"/>
+      </file>
+      <file name="src/b.js"/>
+      <file name="src/c.js">
+        <error line="3" message="second" source="eqeqeq"/>
+        <error message="third" source="semi"><![CDATA[<detail>]]> and <b>more</b></error>
+      </file>
+    </checkstyle>
+    """;
+
+  @Test
+  void records_are_read_in_order_with_their_ancestors() throws IOException {
+    List<XmlRecordReader.Element> errors = read(CHECKSTYLE, "error");
+
+    assertThat(errors).extracting(XmlRecordReader.Element::name).containsOnly("error");
+    assertThat(errors).extracting(error -> error.attribute("message")).containsExactly("first & only", "second", "third");
+    assertThat(errors).extracting(error -> error.parent().attribute("name")).containsExactly("src/a.js", "src/c.js", "src/c.js");
+
+    XmlRecordReader.Element first = errors.get(0);
+    assertThat(first.attributes()).containsExactly(
+      Map.entry("line", "1"), Map.entry("column", "2"), Map.entry("severity", "error"), Map.entry("message", "first & only"), Map.entry("source", "no-eval"));
+    assertThat(first.attribute("unknown")).isNull();
+    assertThat(first.text()).isEmpty();
+    assertThat(first.parent().parent().name()).isEqualTo("checkstyle");
+    assertThat(first.parent().parent().attribute("version")).isEqualTo("8.0");
+    assertThat(first.parent().parent().parent()).isNull();
+
+    assertThat(errors.get(2).text()).isEqualTo("<detail> and more");
+  }
+
+  @Test
+  void nested_records_are_part_of_the_outer_record() throws IOException {
+    List<XmlRecordReader.Element> records = read("<a><b id=\"1\">x<b id=\"2\">y</b>z</b><b id=\"3\"/></a>", "b");
+
+    assertThat(records).extracting(b -> b.attribute("id")).containsExactly("1", "3");
+    assertThat(records.get(0).text()).isEqualTo("xyz");
+    assertThat(records.get(0).parent().attributes()).isEmpty();
+    assertThat(read("<b/>", "b").get(0).parent()).isNull();
+    assertThat(read(CHECKSTYLE, "unknown")).isEmpty();
+  }
+
+  @Test
+  void invalid_xml() {
+    assertThatThrownBy(() -> read("<checkstyle><file>", "error"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Could not parse XML");
+    assertThatThrownBy(() -> read("<!DOCTYPE a [<!ENTITY e SYSTEM \"file:///etc/passwd\">]><a><b>&e;</b></a>", "b"))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static List<XmlRecordReader.Element> read(String xml, String recordName) throws IOException {
+    List<XmlRecordReader.Element> records = new ArrayList<>();
+    try (InputStream input = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))) {
+      XmlRecordReader.read(input, recordName, records::add);
+    }
+    return records;
+  }
+}
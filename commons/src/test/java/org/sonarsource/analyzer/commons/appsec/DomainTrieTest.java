@@ -0,0 +1,77 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonarsource.analyzer.commons.appsec.DomainTrie.EXACT;
+import static org.sonarsource.analyzer.commons.appsec.DomainTrie.SUBDOMAINS;
+
+class DomainTrieTest {
+
+  private static final DomainTrie TRIE = new DomainTrie()
+    .add("localhost", EXACT)
+    .add("Example.com", EXACT | SUBDOMAINS)
+    .add("svc.cluster.local", SUBDOMAINS)
+    .add("test", SUBDOMAINS);
+
+  @Test
+  void exact() {
+    assertThat(matches("localhost")).isTrue();
+    assertThat(matches("LocalHost")).isTrue();
+    assertThat(matches("example.com")).isTrue();
+    assertThat(matches("svc.cluster.local")).isFalse();
+    assertThat(matches("cluster.local")).isFalse();
+    assertThat(matches("test")).isFalse();
+    assertThat(matches("")).isFalse();
+  }
+
+  @Test
+  void subdomains() {
+    assertThat(matches("api.example.com")).isTrue();
+    assertThat(matches("a.b.EXAMPLE.COM")).isTrue();
+    assertThat(matches(".example.com")).isTrue();
+    assertThat(matches("vault.svc.cluster.local")).isTrue();
+    assertThat(matches("db.myapi.test")).isTrue();
+    assertThat(matches("www.localhost")).isFalse();
+  }
+
+  @Test
+  void lookalikes() {
+    assertThat(matches("notexample.com")).isFalse();
+    assertThat(matches("example.com.evil.com")).isFalse();
+    assertThat(matches("example.com.")).isFalse();
+    assertThat(matches("localhost.evil.com")).isFalse();
+    assertThat(matches("evil.svc-cluster.local")).isFalse();
+    // only ASCII letters are case-insensitive
+    assertThat(matches("ſvc.teſt")).isFalse();
+  }
+
+  @Test
+  void slice() {
+    String authority = "user@api.example.com:8080";
+    assertThat(TRIE.matches(authority, 5, 20)).isTrue();
+    assertThat(TRIE.matches(authority, 5, 21)).isFalse();
+    assertThat(TRIE.matches(authority, 0, 20)).isTrue();
+    assertThat(TRIE.matches(authority, 9, 16)).isFalse();
+  }
+
+  private static boolean matches(String host) {
+    return TRIE.matches(host, 0, host.length());
+  }
+}
@@ -252,6 +252,18 @@ class IpAddressClassifierTest {
     assertThat(IpAddressClassifier.isAddressRangeReserved(start, end)).isTrue();
   }
 
+  @Test
+  void isAddressRangeReservedShouldRejectValuesOutsideIpv4Range() {
+    assertThat(IpAddressClassifier.isAddressRangeReserved(0xF0000000L, 0x100000000L)).isFalse();
+    assertThat(IpAddressClassifier.isAddressRangeReserved(-1L, 0L)).isFalse();
+  }
+
+  @Test
+  void isAddressRangeReservedShouldRecognizeSingleAddress() {
+    long address = IpAddressClassifier.parseIpv4SingleAddress("127.0.0.1").orElseThrow();
+    assertThat(IpAddressClassifier.isAddressRangeReserved(address, address)).isTrue();
+  }
+
   @Test
   void isAddressRangeReservedShouldThrowOnInvertedRange() {
     long start = IpAddressClassifier.parseIpv4SingleAddress("10.0.0.100").orElseThrow();
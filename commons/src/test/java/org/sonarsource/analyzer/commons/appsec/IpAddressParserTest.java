@@ -0,0 +1,255 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpAddressParserTest {
+
+  @Test
+  void ipv4() {
+    IpAddressParser parser = IpAddressParser.parse("192.168.1.254", 0, 13);
+    assertThat(parser).isNotNull();
+    assertThat(parser.isIpv6()).isFalse();
+    assertThat(parser.high()).isZero();
+    assertThat(parser.low()).isEqualTo(0xC0A801FEL);
+    assertThat(parser.prefixLength()).isEqualTo(32);
+
+    assertThat(IpAddressParser.parseIpv4Address("0.0.0.0", 0, 7)).isZero();
+    assertThat(IpAddressParser.parseIpv4Address("255.255.255.255", 0, 15)).isEqualTo(0xFFFFFFFFL);
+    assertThat(IpAddressParser.parseIpv4Address("10.0.0.1/8", 0, 10)).isNegative();
+    assertThat(IpAddressParser.parseIpv4Address("10.0.0.1/8", 0, 8)).isEqualTo(0x0A000001L);
+  }
+
+  @Test
+  void ipv6() {
+    assertIpv6("::", 0L, 0L);
+    assertIpv6("::1", 0L, 1L);
+    assertIpv6("1::", 0x0001000000000000L, 0L);
+    assertIpv6("2001:DB8::ff00:42:8329", 0x20010DB800000000L, 0x0000FF0000428329L);
+    assertIpv6("1:2:3:4:5:6:7:8", 0x0001000200030004L, 0x0005000600070008L);
+    assertIpv6("1:2:3:4::6:7:8", 0x0001000200030004L, 0x0000000600070008L);
+    assertIpv6("1:2:3:4:5::", 0x0001000200030004L, 0x0005000000000000L);
+    assertIpv6("::2:3:4:5:6:7:8", 0x0000000200030004L, 0x0005000600070008L);
+    assertIpv6("64:ff9b::192.0.2.33", 0x0064FF9B00000000L, 0x00000000C0000221L);
+    assertIpv6("1:2:3:4:5:6:10.0.0.1", 0x0001000200030004L, 0x000500060A000001L);
+  }
+
+  @Test
+  void prefix() {
+    IpAddressParser ipv4 = IpAddressParser.parse("10.0.0.0/008", 0, 12);
+    assertThat(ipv4).isNotNull();
+    assertThat(ipv4.prefixLength()).isEqualTo(8);
+    IpAddressParser ipv6 = IpAddressParser.parse("fe80::/10", 0, 9);
+    assertThat(ipv6).isNotNull();
+    assertThat(ipv6.prefixLength()).isEqualTo(10);
+    assertThat(parse("0.0.0.0/0")).isNotNull();
+    assertThat(parse("::/128")).isNotNull();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+    "", "1", "1.2.3", "1.2.3.4.5", "1.2.3.", ".1.2.3", "1..2.3", "01.2.3.4", "1.2.3.256", "1.2.3.1000", "+1.2.3.4", "1.2.3.4 ",
+    "1.2.3.4/", "1.2.3.4/33", "1.2.3.4/-1", "1.2.3.4/+8", "1.2.3.4/8/8", "1.2.3.4/a", "localhost", "1.2.3.4%eth0",
+    ":", ":::", "1:", ":1", "::1:", "1:::2", "1::2::3", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::",
+    "::1:2:3:4:5:6:7:8", "12345::", "::fffff", "g::", "1:2:3:4:5:6:7:1.2.3.4", "::1.2.3.4:1", "::1.2.3", "::01.2.3.4",
+    "::/129", "::/", "[::1]", "::1%eth0", "fe80::1 "
+  })
+  void invalid(String text) {
+    assertThat(parse(text)).as(text).isNull();
+  }
+
+  @Test
+  void slice() {
+    String text = "http://[2001:db8::1]:8080/";
+    IpAddressParser parser = IpAddressParser.parse(text, 8, 19);
+    assertThat(parser).isNotNull();
+    assertThat(parser.high()).isEqualTo(0x20010DB800000000L);
+    assertThat(parser.low()).isEqualTo(1L);
+    assertThat(IpAddressParser.parse(text, 7, 19)).isNull();
+    assertThat(IpAddressParser.parse(text, 8, 20)).isNull();
+    assertThat(IpAddressParser.parseIpv4Address("x10.0.0.1x", 1, 9)).isEqualTo(0x0A000001L);
+  }
+
+  @Test
+  void ipv4_same_as_reference() {
+    String alphabet = "0123456789.";
+    Random random = new Random(29);
+    for (int i = 0; i < 50_000; i++) {
+      String text = randomString(random, alphabet, 16);
+      long expected = referenceIpv4(text);
+      assertThat(IpAddressParser.parseIpv4Address(text, 0, text.length())).as(text).isEqualTo(expected);
+      IpAddressParser parser = parse(text);
+      assertThat(parser == null ? -1L : parser.low()).as(text).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void ipv6_same_as_inet_address() {
+    Random random = new Random(29);
+    for (int i = 0; i < 20_000; i++) {
+      assertSameAsInetAddress(randomIpv6(random));
+    }
+  }
+
+  @Test
+  void garbage_same_as_inet_address() {
+    String alphabet = "0123:::..fFa";
+    Random random = new Random(29);
+    for (int i = 0; i < 50_000; i++) {
+      assertSameAsInetAddress(randomString(random, alphabet, 20));
+    }
+  }
+
+  private static void assertSameAsInetAddress(String text) {
+    if (text.indexOf(':') < 0 || !isComparableWithInetAddress(text)) {
+      // plain IPv4 addresses are compared with the reference in ipv4_same_as_reference
+      return;
+    }
+    byte[] expected = inetAddressBytes(text);
+    IpAddressParser parser = parse(text);
+    if (expected == null) {
+      assertThat(parser).as(text).isNull();
+    } else {
+      assertThat(parser).as(text).isNotNull();
+      assertThat(parser.isIpv6()).isTrue();
+      byte[] actual = ByteBuffer.allocate(16).putLong(parser.high()).putLong(parser.low()).array();
+      assertThat(actual).as(text).isEqualTo(expected);
+    }
+  }
+
+  /**
+   * The JDK is more lenient on some points, those inputs are not compared: groups of more than 4 digits with leading
+   * zeros, and embedded IPv4 octets with leading zeros.
+   */
+  private static boolean isComparableWithInetAddress(String text) {
+    int digits = 0;
+    boolean previousIsSeparator = true;
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (ch == ':' || ch == '.') {
+        digits = 0;
+        previousIsSeparator = true;
+      } else {
+        if (previousIsSeparator && ch == '0' && i + 1 < text.length() && Character.isLetterOrDigit(text.charAt(i + 1)) && text.indexOf('.') >= 0) {
+          return false;
+        }
+        digits++;
+        previousIsSeparator = false;
+        if (digits > 4) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Nullable
+  private static byte[] inetAddressBytes(String text) {
+    InetAddress address;
+    try {
+      // brackets force the literal parsing, without DNS lookup
+      address = InetAddress.getByName("[" + text + "]");
+    } catch (UnknownHostException e) {
+      return null;
+    }
+    byte[] bytes = address.getAddress();
+    if (address instanceof Inet4Address) {
+      // IPv4-mapped addresses are returned as IPv4 addresses
+      return ByteBuffer.allocate(16).putLong(0L).putInt(0xFFFF).put(bytes).array();
+    }
+    return bytes;
+  }
+
+  private static String randomIpv6(Random random) {
+    int groups = random.nextInt(10);
+    int compressAt = random.nextInt(groups + 3) - 1;
+    boolean embeddedIpv4 = random.nextInt(4) == 0;
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < groups; i++) {
+      if (i == compressAt) {
+        text.append("::");
+      } else if (i > 0) {
+        text.append(':');
+      }
+      text.append(Integer.toHexString(random.nextInt(random.nextBoolean() ? 0x10 : 0x10000)));
+    }
+    if (compressAt >= groups) {
+      text.append("::");
+    }
+    if (embeddedIpv4) {
+      if (text.length() > 0 && text.charAt(text.length() - 1) != ':') {
+        text.append(':');
+      }
+      text.append(random.nextInt(256)).append('.').append(random.nextInt(256)).append('.')
+        .append(random.nextInt(256)).append('.').append(random.nextInt(256));
+    }
+    return text.toString();
+  }
+
+  private static String randomString(Random random, String alphabet, int maxLength) {
+    StringBuilder text = new StringBuilder();
+    int length = random.nextInt(maxLength);
+    for (int i = 0; i < length; i++) {
+      text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return text.toString();
+  }
+
+  private static long referenceIpv4(String text) {
+    String[] octets = text.split("\\.", -1);
+    if (octets.length != 4) {
+      return -1L;
+    }
+    long address = 0L;
+    for (String octet : octets) {
+      if (octet.isEmpty() || octet.length() > 3 || (octet.length() > 1 && octet.startsWith("0"))) {
+        return -1L;
+      }
+      int value = Integer.parseInt(octet);
+      if (value > 255) {
+        return -1L;
+      }
+      address = (address << 8) | value;
+    }
+    return address;
+  }
+
+  private static void assertIpv6(String text, long high, long low) {
+    IpAddressParser parser = parse(text);
+    assertThat(parser).as(text).isNotNull();
+    assertThat(parser.isIpv6()).isTrue();
+    assertThat(parser.high()).as(text).isEqualTo(high);
+    assertThat(parser.low()).as(text).isEqualTo(low);
+    assertThat(parser.prefixLength()).isEqualTo(128);
+  }
+
+  @Nullable
+  private static IpAddressParser parse(String text) {
+    return IpAddressParser.parse(text, 0, text.length());
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpLiteralTest {
+
+  @Test
+  void parse_once() {
+    IpLiteral ip = IpLiteral.parse("10.1.2.0/24");
+    assertThat(ip.isParseable()).isTrue();
+    assertThat(ip.isIpv6()).isFalse();
+    assertThat(ip.prefixLength()).isEqualTo(24);
+    assertThat(ip.isReserved()).isTrue();
+    assertThat(ip.isPrivate()).isTrue();
+    assertThat(ip.isLoopback()).isFalse();
+    assertThat(ip.isDocumentation()).isFalse();
+
+    IpLiteral ipv6 = IpLiteral.parse("fe80::1");
+    assertThat(ipv6.isIpv6()).isTrue();
+    assertThat(ipv6.prefixLength()).isEqualTo(128);
+    assertThat(ipv6.isLinkLocal()).isTrue();
+    assertThat(ipv6.isPrivate()).isFalse();
+
+    IpLiteral straddling = IpLiteral.parse("10.0.0.0/7");
+    assertThat(straddling.isReserved()).isFalse();
+    assertThat(straddling.isInternetRoutable()).isTrue();
+    assertThat(straddling.isPrivate()).isFalse();
+  }
+
+  @Test
+  void unparseable() {
+    IpLiteral ip = IpLiteral.parse("bogus");
+    assertThat(ip.isParseable()).isFalse();
+    assertThat(ip.prefixLength()).isZero();
+    assertThat(ip.isReserved()).isFalse();
+    assertThat(ip.isInternetRoutable()).isFalse();
+    assertThat(ip.isUnrestrictedCidr()).isFalse();
+    assertThat(ip.isAnyAddress()).isFalse();
+    assertThat(ip.isLoopback()).isFalse();
+  }
+
+  @Test
+  void parse_slice() {
+    String text = "host=127.0.0.1/8;";
+    IpLiteral ip = IpLiteral.parse(text, 5, 16);
+    assertThat(ip.isParseable()).isTrue();
+    assertThat(ip.prefixLength()).isEqualTo(8);
+    assertThat(ip.isLoopback()).isTrue();
+    assertThat(IpLiteral.parse(text, 0, 16).isParseable()).isFalse();
+    assertThat(IpLiteral.parse(text, 5, 17).isParseable()).isFalse();
+  }
+
+  @Test
+  void embedded_ipv4() {
+    IpLiteral ip = IpLiteral.parse("64:ff9b::192.0.2.33");
+    assertThat(ip.isParseable()).isTrue();
+    assertThat(ip.isIpv6()).isTrue();
+    // IPv4-mapped addresses stay unsupported
+    assertThat(IpLiteral.parse("::ffff:10.0.0.1").isParseable()).isFalse();
+    assertThat(IpLiteral.parse("::ffff:a00:1").isParseable()).isFalse();
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpPrefixTrieTest {
+
+  @Test
+  void empty_trie() {
+    assertThat(new IpPrefixTrie().flagsContaining(0L, 0L, 128)).isZero();
+  }
+
+  @Test
+  void nested_and_sibling_prefixes() {
+    IpPrefixTrie trie = new IpPrefixTrie()
+      .add(0x0A00_0000_0000_0000L, 0L, 8, 1)
+      .add(0x0A01_0000_0000_0000L, 0L, 16, 2)
+      .add(0x0B00_0000_0000_0000L, 0L, 8, 4)
+      .add(0x0A01_0000_0000_0000L, 0L, 16, 8)
+      .add(0L, 0L, 0, 16)
+      .add(0L, 1L, 128, 32);
+    assertThat(trie.flagsContaining(0x0A01_0203_0000_0000L, 0L, 32)).isEqualTo(1 | 2 | 8 | 16);
+    assertThat(trie.flagsContaining(0x0A02_0203_0000_0000L, 0L, 32)).isEqualTo(1 | 16);
+    assertThat(trie.flagsContaining(0x0B01_0203_0000_0000L, 0L, 32)).isEqualTo(4 | 16);
+    assertThat(trie.flagsContaining(0x0A00_0000_0000_0000L, 0L, 7)).isEqualTo(16);
+    assertThat(trie.flagsContaining(0L, 1L, 128)).isEqualTo(16 | 32);
+    assertThat(trie.flagsContaining(0L, 0L, 127)).isEqualTo(16);
+  }
+
+  @Test
+  void same_result_as_linear_scan() {
+    Random random = new Random(42);
+    List<long[]> prefixes = new ArrayList<>();
+    IpPrefixTrie trie = new IpPrefixTrie();
+    for (int i = 0; i < 30; i++) {
+      // few distinct leading bits, so prefixes share long paths
+      long high = random.nextLong() & 0xF0F0_0000_0000_0000L;
+      long low = random.nextLong();
+      int length = random.nextInt(129);
+      prefixes.add(new long[] {high, low, length});
+      trie.add(high, low, length, 1 << i);
+    }
+    for (int i = 0; i < 10_000; i++) {
+      long[] base = prefixes.get(random.nextInt(prefixes.size()));
+      long high = random.nextBoolean() ? base[0] : (base[0] ^ (1L << random.nextInt(64)));
+      long low = random.nextBoolean() ? base[1] : random.nextLong();
+      int length = random.nextInt(129);
+      int expected = 0;
+      for (int j = 0; j < prefixes.size(); j++) {
+        long[] prefix = prefixes.get(j);
+        int prefixLength = (int) prefix[2];
+        if (prefixLength <= length && IpPrefixTrie.commonPrefixLength(prefix[0], prefix[1], high, low) >= prefixLength) {
+          expected |= 1 << j;
+        }
+      }
+      assertThat(trie.flagsContaining(high, low, length)).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void masks() {
+    assertThat(IpPrefixTrie.maskHigh(-1L, 0)).isZero();
+    assertThat(IpPrefixTrie.maskHigh(-1L, 4)).isEqualTo(0xF000_0000_0000_0000L);
+    assertThat(IpPrefixTrie.maskHigh(-1L, 100)).isEqualTo(-1L);
+    assertThat(IpPrefixTrie.maskLow(-1L, 64)).isZero();
+    assertThat(IpPrefixTrie.maskLow(-1L, 68)).isEqualTo(0xF000_0000_0000_0000L);
+    assertThat(IpPrefixTrie.maskLow(-1L, 128)).isEqualTo(-1L);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.appsec;
+
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.sonarsource.analyzer.commons.EntropyDetector;
+import org.sonarsource.analyzer.commons.HumanLanguageDetector;
+import org.sonarsource.analyzer.commons.ShannonEntropy;
+import org.sonarsource.analyzer.commons.appsec.SecretCandidateEvaluator.Outcome;
+import org.sonarsource.analyzer.commons.appsec.SecretCandidateEvaluator.Verdict;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecretCandidateEvaluatorTest {
+
+  private static final double HUMAN_LANGUAGE_THRESHOLD = 1.5d;
+  private static final EntropyDetector ENTROPY_DETECTOR = new EntropyDetector(3);
+  private static final SecretCandidateEvaluator EVALUATOR = new SecretCandidateEvaluator(ENTROPY_DETECTOR, HUMAN_LANGUAGE_THRESHOLD);
+
+  @Test
+  void outcomes() {
+    assertThat(EVALUATOR.evaluate("abc").outcome()).isEqualTo(Outcome.KNOWN_NON_SECRET);
+    assertThat(EVALUATOR.evaluate("letmein").outcome()).isEqualTo(Outcome.KNOWN_NON_SECRET);
+    assertThat(EVALUATOR.evaluate("xxxxxxxxxxxxxxxxxxxxxxxx").outcome()).isEqualTo(Outcome.LOW_ENTROPY);
+    assertThat(EVALUATOR.evaluate("This is an english sentence").outcome()).isEqualTo(Outcome.HUMAN_LANGUAGE);
+    assertThat(EVALUATOR.evaluate("${Xk9Lm2Qp7Rs4Tv1Wz0}").outcome()).isEqualTo(Outcome.KNOWN_NON_SECRET);
+    assertThat(EVALUATOR.evaluate("Xk9Lm2Qp7Rs4Tv1Wz0").outcome()).isEqualTo(Outcome.SECRET_CANDIDATE);
+  }
+
+  @Test
+  void scores() {
+    Verdict verdict = EVALUATOR.evaluate("Xk9Lm2Qp7Rs4Tv1Wz0");
+    assertThat(verdict.isSecretCandidate()).isTrue();
+    assertThat(verdict.entropy()).isEqualTo(ShannonEntropy.calculate("Xk9Lm2Qp7Rs4Tv1Wz0"));
+    assertThat(verdict.humanLanguageScore()).isEqualTo(HumanLanguageDetector.humanLanguageScore("Xk9Lm2Qp7Rs4Tv1Wz0"));
+  }
+
+  @Test
+  void short_values_with_line_terminators_go_through_skip_patterns() {
+    assertThat(EVALUATOR.evaluate("a\nb").outcome()).isEqualTo(Outcome.LOW_ENTROPY);
+    SecretCandidateEvaluator noEntropyRequirement = new SecretCandidateEvaluator(new EntropyDetector(0), Double.POSITIVE_INFINITY);
+    assertThat(noEntropyRequirement.evaluate("a\nb").outcome()).isEqualTo(Outcome.SECRET_CANDIDATE);
+    assertThat(noEntropyRequirement.evaluate("ab ").outcome()).isEqualTo(Outcome.KNOWN_NON_SECRET);
+  }
+
+  static Stream<String> knownNonSecrets() {
+    return SecretClassifierTest.KNOWN_NON_SECRETS.stream();
+  }
+
+  @ParameterizedTest
+  @MethodSource("knownNonSecrets")
+  void known_non_secrets_are_never_candidates(String value) {
+    assertThat(EVALUATOR.evaluate(value).isSecretCandidate()).isFalse();
+  }
+
+  @Test
+  void same_result_as_separate_checks() {
+    String alphabet = "abcdefXYZ0123456789${}()<>_-/.:@%`\n é";
+    Random random = new Random(42);
+    for (int i = 0; i < 20_000; i++) {
+      StringBuilder text = new StringBuilder();
+      int length = random.nextInt(30);
+      for (int j = 0; j < length; j++) {
+        text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      assertSameResultAsSeparateChecks(text.toString());
+    }
+    SecretClassifierTest.KNOWN_NON_SECRETS.forEach(SecretCandidateEvaluatorTest::assertSameResultAsSeparateChecks);
+  }
+
+  private static void assertSameResultAsSeparateChecks(String value) {
+    boolean expected = !SecretClassifier.isKnownNonSecret(value)
+      && ENTROPY_DETECTOR.hasEnoughEntropy(value)
+      && HumanLanguageDetector.humanLanguageScore(value) <= HUMAN_LANGUAGE_THRESHOLD;
+    assertThat(EVALUATOR.evaluate(value).isSecretCandidate()).as(value).isEqualTo(expected);
+  }
+}
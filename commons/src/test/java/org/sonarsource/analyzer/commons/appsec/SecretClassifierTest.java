@@ -17,6 +17,7 @@
 package org.sonarsource.analyzer.commons.appsec;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
@@ -229,6 +230,48 @@ class SecretClassifierTest {
     assertThat(SecretClassifier.isKnownNonSecret(null, SecretClassifier.Context.empty())).isFalse();
   }
 
+  @ParameterizedTest
+  @MethodSource("knownNonSecrets")
+  void prefilteredMatchingShouldFindTheSamePatterns(String value) {
+    boolean unfiltered = SecretClassifier.allPatterns().stream().anyMatch(pattern -> pattern.matcher(value).find());
+    assertThat(SecretClassifier.matchesSkipPattern(value)).isEqualTo(unfiltered);
+    assertThat(SecretClassifier.matchesSkipPattern(value.toUpperCase(Locale.ROOT))).isEqualTo(
+      SecretClassifier.allPatterns().stream().anyMatch(pattern -> pattern.matcher(value.toUpperCase(Locale.ROOT)).find()));
+  }
+
+  @Test
+  void leadingChar() {
+    assertThat(SecretClassifier.leadingChar("^your")).isEqualTo('y');
+    assertThat(SecretClassifier.leadingChar("^Read")).isEqualTo('r');
+    assertThat(SecretClassifier.leadingChar("^\\$\\(")).isEqualTo('$');
+    assertThat(SecretClassifier.leadingChar("^`[^`]++`$")).isEqualTo('`');
+    assertThat(SecretClassifier.leadingChar("^__.+__$")).isEqualTo('_');
+    // not anchored
+    assertThat(SecretClassifier.leadingChar("your")).isEqualTo(-1);
+    assertThat(SecretClassifier.leadingChar("^")).isEqualTo(-1);
+    // top level alternative
+    assertThat(SecretClassifier.leadingChar("^a|b")).isEqualTo(-1);
+    assertThat(SecretClassifier.leadingChar("^a(b|c)")).isEqualTo('a');
+    assertThat(SecretClassifier.leadingChar("^a[|]")).isEqualTo('a');
+    assertThat(SecretClassifier.leadingChar("^a\\|")).isEqualTo('a');
+    // optional leading character
+    assertThat(SecretClassifier.leadingChar("^%?\\{")).isEqualTo(-1);
+    assertThat(SecretClassifier.leadingChar("^a*")).isEqualTo(-1);
+    assertThat(SecretClassifier.leadingChar("^\\{{2,}")).isEqualTo(-1);
+    // not a literal
+    assertThat(SecretClassifier.leadingChar("^.{0,5}$")).isEqualTo(-1);
+    assertThat(SecretClassifier.leadingChar("^(my)?pass")).isEqualTo(-1);
+    assertThat(SecretClassifier.leadingChar("^\\d")).isEqualTo(-1);
+    assertThat(SecretClassifier.leadingChar("^\\")).isEqualTo(-1);
+    assertThat(SecretClassifier.leadingChar("^é")).isEqualTo(-1);
+  }
+
+  @Test
+  void exactMatchShouldIgnoreCaseAndLongValues() {
+    assertThat(SecretClassifier.isExactMatch("ChangeMe")).isTrue();
+    assertThat(SecretClassifier.isExactMatch("changeme-but-longer")).isFalse();
+  }
+
   @Test
   void emptyContextShouldBeSingleton() {
     assertThat(SecretClassifier.Context.empty()).isSameAs(SecretClassifier.Context.empty());
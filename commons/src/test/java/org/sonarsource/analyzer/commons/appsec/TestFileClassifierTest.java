@@ -16,7 +16,11 @@
  */
 package org.sonarsource.analyzer.commons.appsec;
 
+import com.sonarsource.scanner.engine.sensor.test.fixtures.SensorContextTester;
 import com.sonarsource.scanner.engine.sensor.test.fixtures.TestInputFileBuilder;
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.function.Predicate;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
@@ -177,4 +181,42 @@ class TestFileClassifierTest {
 
     assertThat(logTester.logs(Level.WARN)).isEmpty();
   }
+
+  @Test
+  void shouldClassifyWholeFileSystem() {
+    var context = SensorContextTester.create(new File("."));
+    for (int i = 0; i < 100; i++) {
+      context.fileSystem().add(file("src/main/java/Foo" + i + ".java"));
+      context.fileSystem().add(file("src/main/java/Foo" + i + "Test.java"));
+      context.fileSystem().add(file("src/test/java/Bar" + i + ".java"));
+    }
+    var classifier = classifier(config());
+    var testFiles = classifier.testFiles(context.fileSystem());
+
+    assertThat(testFiles)
+      .hasSize(200)
+      .allMatch(classifier::looksLikeTestFile)
+      .noneMatch(inputFile -> inputFile.filename().matches("Foo\\d+\\.java"));
+    assertThat(logTester.logs(Level.WARN)).hasSize(1);
+    assertThat(classifier(config("sonar.tests", "src/test")).testFiles(context.fileSystem())).isEmpty();
+  }
+
+  @Test
+  void shouldCallDetectorOnCallingThreadWhenClassifyingWholeFileSystem() {
+    var context = SensorContextTester.create(new File("."));
+    for (int i = 0; i < 100; i++) {
+      context.fileSystem().add(file("src/main/java/Foo" + i + ".java"));
+      context.fileSystem().add(file("src/test/java/Bar" + i + ".java"));
+    }
+    // not thread-safe on purpose
+    Set<Thread> detectorThreads = new HashSet<>();
+    Predicate<TestFileClassifier.Context> detector = ctx -> {
+      detectorThreads.add(Thread.currentThread());
+      return false;
+    };
+    var classifier = TestFileClassifier.of(config(), detector, GLOBS);
+
+    assertThat(classifier.testFiles(context.fileSystem())).hasSize(100);
+    assertThat(detectorThreads).containsExactly(Thread.currentThread());
+  }
 }
@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
@@ -560,6 +561,137 @@ public class AVLTreeTest {
     assertThat(count.get()).isEqualTo(5);
   }
 
+  @Test
+  public void size() {
+    Random random = new Random(42);
+    AVLTree<Object, Object> t = AVLTree.create();
+    Set<Object> expected = new HashSet<>();
+    assertThat(t.size()).isZero();
+    for (int i = 0; i < 2000; i++) {
+      // few distinct hash codes, to have buckets
+      Key key = new Key(random.nextInt(50), "k" + random.nextInt(150));
+      Object existing = existingKey(t, key);
+      if (random.nextInt(3) == 0) {
+        t = t.remove(existing);
+        expected.remove(existing);
+      } else {
+        t = t.put(existing, "v" + random.nextInt(3));
+        expected.add(existing);
+      }
+      assertThat(t.size()).isEqualTo(expected.size());
+      assertThat(t.size()).isEqualTo(Counter.countMap(t));
+    }
+    PMap<Object, Object> other = t.remove(existingKey(t, new Key(0, "k0"))).put("other", "v");
+    assertThat(t.union(other, (v1, v2) -> v1).size()).isEqualTo(Counter.countMap(t.union(other, (v1, v2) -> v1)));
+    assertThat(t.intersect(other, (v1, v2) -> v1).size()).isEqualTo(Counter.countMap(t.intersect(other, (v1, v2) -> v1)));
+    assertThat(t.difference(other).size()).isEqualTo(Counter.countMap(t.difference(other)));
+    assertThat(t.keySet().size()).isEqualTo(t.size());
+  }
+
+  @Test
+  public void trees_of_different_sizes_are_not_equal() {
+    // same hash code: (31 * 1 ^ 1) + (31 * 2 ^ 2) + (31 * 0 ^ 4) == 30 + 60 + 4 == (31 * 0 ^ 0) + (31 * 3 ^ 3)
+    AVLTree<Integer, Integer> t1 = AVLTree.<Integer, Integer>create().put(1, 1).put(2, 2).put(0, 4);
+    AVLTree<Integer, Integer> t2 = AVLTree.<Integer, Integer>create().put(0, 0).put(3, 3);
+    assertThat(t1.hashCode()).isEqualTo(t2.hashCode());
+    assertThat(t1.size()).isEqualTo(3);
+    assertThat(t2.size()).isEqualTo(2);
+    assertThat(t1).isNotEqualTo(t2);
+  }
+
+  @Test
+  public void builder_should_produce_same_trees_as_successive_updates() {
+    Random random = new Random(42);
+    AVLTree<Object, Object> expected = AVLTree.create();
+    AVLTree.Builder<Object, Object> builder = AVLTree.create().toBuilder();
+    List<AVLTree<Object, Object>> built = new ArrayList<>();
+    List<String> builtToString = new ArrayList<>();
+    for (int batch = 0; batch < 50; batch++) {
+      for (int i = 0; i < 200; i++) {
+        // few distinct hash codes, to have buckets
+        Key key = new Key(random.nextInt(100), "k" + random.nextInt(300));
+        Object existing = existingKey(expected, key);
+        if (random.nextInt(3) == 0) {
+          expected = expected.remove(existing);
+          builder.remove(existing);
+        } else {
+          String value = "v" + random.nextInt(3);
+          expected = expected.put(existing, value);
+          builder.put(existing, value);
+        }
+        assertThat(builder.get(existing)).isEqualTo(expected.get(existing));
+      }
+      AVLTree<Object, Object> t = builder.build();
+      assertThat(t).isEqualTo(expected).hasSameHashCodeAs(expected);
+      assertThat(t.size()).isEqualTo(expected.size());
+      assertBalanced(t);
+      assertPersistentNodes(t);
+      built.add(t);
+      builtToString.add(t.toString());
+    }
+    // trees returned by the builder are not modified by further updates
+    for (int i = 0; i < built.size(); i++) {
+      assertThat(built.get(i)).hasToString(builtToString.get(i));
+    }
+  }
+
+  @Test
+  public void builder_from_tree() {
+    AVLTree<Integer, Object> t = AVLTree.create();
+    for (int i = 0; i < 100; i++) {
+      t = t.add(i);
+    }
+    assertThat(t.toBuilder().build()).isSameAs(t);
+    AVLTree.Builder<Integer, Object> builder = t.toBuilder();
+    for (int i = 0; i < 100; i += 2) {
+      builder.remove(i).add(1000 + i);
+    }
+    AVLTree<Integer, Object> updated = builder.build();
+    assertThat(Counter.countSet(t)).isEqualTo(100);
+    assertThat(Counter.countSet(updated)).isEqualTo(100);
+    assertThat(updated.contains(1)).isTrue();
+    assertThat(updated.contains(2)).isFalse();
+    assertThat(updated.contains(1002)).isTrue();
+    assertThat(builder.contains(1002)).isTrue();
+    assertBalanced(updated);
+    assertThat(builder.put(7, 7).build().get(7)).isEqualTo(7);
+    assertThat(updated.get(7)).isEqualTo(7);
+    assertThatThrownBy(() -> builder.put(null, 1)).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> builder.put(1, null)).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> builder.remove(null)).isInstanceOf(NullPointerException.class);
+  }
+
+  /**
+   * Nodes modified in place by a builder are copied by build(), into nodes whose fields are final.
+   */
+  private static void assertPersistentNodes(AVLTree<?, ?> t) {
+    if (!t.isEmpty()) {
+      assertThat(t).isInstanceOf(AVLTree.Node.class);
+      assertPersistentNodes(t.left());
+      assertPersistentNodes(t.right());
+    }
+  }
+
+  private static Object existingKey(PMap<Object, Object> map, Key key) {
+    Object[] existing = {key};
+    map.forEach((k, v) -> {
+      if (k.hashCode() == key.hashCode() && k.toString().equals(key.toString())) {
+        existing[0] = k;
+      }
+    });
+    return existing[0];
+  }
+
+  private static void assertBalanced(AVLTree<?, ?> t) {
+    if (t.isEmpty()) {
+      return;
+    }
+    assertBalanced(t.left());
+    assertBalanced(t.right());
+    assertThat(t.height()).isEqualTo(Math.max(t.left().height(), t.right().height()) + 1);
+    assertThat(Math.abs(t.left().height() - t.right().height())).isLessThanOrEqualTo(2);
+  }
+
   static class Weird {
     private final int hashCode;
 
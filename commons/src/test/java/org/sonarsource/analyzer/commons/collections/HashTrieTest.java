@@ -0,0 +1,298 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+public class HashTrieTest {
+
+  private static final class Key {
+    private final int hashCode;
+    private final String toString;
+
+    private Key(int hashCode, String toString) {
+      this.hashCode = hashCode;
+      this.toString = toString;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      return toString;
+    }
+  }
+
+  @Test
+  public void test_empty() {
+    HashTrie<String, String> t = HashTrie.create();
+    assertThat(t.isEmpty()).isTrue();
+    assertThat(t.size()).isZero();
+    assertThat(t.get("k")).isNull();
+    assertThat(t.remove("k")).isSameAs(t);
+    assertThat(t).hasToString("");
+    assertThat(t.hashCode()).isZero();
+    assertThat(t.iterator().hasNext()).isFalse();
+    assertThatThrownBy(() -> t.iterator().next()).isInstanceOf(NoSuchElementException.class);
+    assertThat(t.put("k", "v").remove("k")).isSameAs(t);
+    assertThatThrownBy(() -> t.put(null, "v")).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> t.put("k", null)).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> t.get(null)).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> t.remove(null)).isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void no_change() {
+    for (int size : new int[] {3, 100}) {
+      HashTrie<Integer, String> t = HashTrie.create();
+      for (int i = 0; i < size; i++) {
+        t = t.put(i, "v" + i);
+      }
+      assertThat(t.put(1, "v1")).isSameAs(t);
+      assertThat(t.put(1, new String("v1"))).isSameAs(t);
+      assertThat(t.remove(-1)).isSameAs(t);
+      assertThat(t.add(1)).isNotSameAs(t);
+      assertThat(t.put(1, "other").get(1)).isEqualTo("other");
+      assertThat(t.put(1, "other").size()).isEqualTo(size);
+    }
+  }
+
+  @Test
+  public void order_depends_on_hash_codes_only() {
+    List<Integer> keys = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      keys.add(i * 7919);
+    }
+    HashTrie<Integer, Integer> expected = null;
+    Random random = new Random(42);
+    for (int attempt = 0; attempt < 10; attempt++) {
+      Collections.shuffle(keys, random);
+      HashTrie<Integer, Integer> t = HashTrie.create();
+      for (Integer key : keys) {
+        t = t.put(key, key).put(-key - 1, key);
+      }
+      for (Integer key : keys) {
+        t = t.remove(-key - 1);
+      }
+      if (expected == null) {
+        expected = t;
+      }
+      assertThat(t).isEqualTo(expected).hasSameHashCodeAs(expected).hasToString(expected.toString());
+      assertThat(t.keySet()).containsExactlyElementsOf(expected.keySet());
+    }
+  }
+
+  @Test
+  public void small_maps_have_the_order_of_tries() {
+    HashTrie<Integer, Integer> small = HashTrie.create();
+    for (int i = HashTrie.SMALL_MAP_MAX_SIZE - 1; i >= 0; i--) {
+      small = small.put((i + 1) << 5, i).put(i, i);
+    }
+    // the 16 entries are a trie, removing 8 of them makes it a flat array again
+    HashTrie<Integer, Integer> flat = small;
+    for (int i = 0; i < HashTrie.SMALL_MAP_MAX_SIZE; i++) {
+      flat = flat.remove((i + 1) << 5);
+    }
+    HashTrie<Integer, Integer> built = HashTrie.create();
+    for (int i = 0; i < HashTrie.SMALL_MAP_MAX_SIZE; i++) {
+      built = built.put(i, i);
+    }
+    assertThat(flat).hasToString(built.toString()).isEqualTo(built);
+    assertThat(flat.size()).isEqualTo(HashTrie.SMALL_MAP_MAX_SIZE);
+    assertThat(small.toString()).startsWith(" 0->0 32->0 64->1");
+  }
+
+  @Test
+  public void collisions() {
+    Key k1 = new Key(42, "k1");
+    Key k2 = new Key(42, "k2");
+    Key k3 = new Key(42, "k3");
+    for (int otherKeys : new int[] {0, 20}) {
+      HashTrie<Object, Object> base = HashTrie.create();
+      for (int i = 0; i < otherKeys; i++) {
+        base = base.put(i, i);
+      }
+      HashTrie<Object, Object> t = base.put(k1, "v1").put(k2, "v2");
+      HashTrie<Object, Object> t2 = base.put(k2, "v2").put(k1, "v1");
+      assertThat(t).isEqualTo(t2).hasSameHashCodeAs(t2);
+      assertThat(t.get(k1)).isEqualTo("v1");
+      assertThat(t.get(k2)).isEqualTo("v2");
+      assertThat(t.get(k3)).isNull();
+      assertThat(t.remove(k3)).isSameAs(t);
+      assertThat(t.put(k1, "v1")).isSameAs(t);
+      assertThat(t.put(k1, "new").get(k1)).isEqualTo("new");
+      assertThat(t.put(k3, "v3").remove(k3)).isEqualTo(t);
+      assertThat(t.remove(k1).remove(k2)).isEqualTo(base);
+      assertThat(t.remove(k1).get(k2)).isEqualTo("v2");
+      assertThat(t.put(k3, "v3").size()).isEqualTo(otherKeys + 3);
+    }
+  }
+
+  @Test
+  public void hash_codes_differing_in_the_last_bits() {
+    HashTrie<Object, Object> t = HashTrie.create();
+    List<Key> keys = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      keys.add(new Key(i << 30 | 7, "a" + i));
+      keys.add(new Key(i << 30 | 7, "b" + i));
+      keys.add(new Key(Integer.MIN_VALUE | i, "c" + i));
+    }
+    for (Key key : keys) {
+      t = t.put(key, key.toString());
+    }
+    assertThat(t.size()).isEqualTo(120);
+    for (Key key : keys) {
+      assertThat(t.get(key)).isEqualTo(key.toString());
+    }
+    for (Key key : keys) {
+      t = t.remove(key);
+      assertThat(t.get(key)).isNull();
+    }
+    assertThat(t.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void same_content_as_hash_map() {
+    Random random = new Random(1);
+    Map<Object, Object> expected = new HashMap<>();
+    HashTrie<Object, Object> t = HashTrie.create();
+    for (int i = 0; i < 20_000; i++) {
+      // few distinct hash codes, to have collisions and deep tries
+      Key key = new Key(random.nextInt(64) * 0x01010101, "k" + random.nextInt(300));
+      Object existing = expected.keySet().stream().filter(k -> k.toString().equals(key.toString()) && k.hashCode() == key.hashCode()).findFirst().orElse(key);
+      if (random.nextInt(3) == 0) {
+        expected.remove(existing);
+        t = t.remove(existing);
+      } else {
+        String value = "v" + random.nextInt(3);
+        expected.put(existing, value);
+        t = t.put(existing, value);
+      }
+      assertThat(t.size()).isEqualTo(expected.size());
+    }
+    Map<Object, Object> actual = new HashMap<>();
+    t.forEach(actual::put);
+    assertThat(actual).isEqualTo(expected);
+    Map<Object, Object> fromEntries = new HashMap<>();
+    t.entries().forEach(e -> fromEntries.put(e.getKey(), e.getValue()));
+    assertThat(fromEntries).isEqualTo(expected);
+    for (Map.Entry<Object, Object> e : expected.entrySet()) {
+      assertThat(t.get(e.getKey())).isEqualTo(e.getValue());
+    }
+  }
+
+  @Test
+  public void builder_should_produce_same_tries_as_successive_updates() {
+    Random random = new Random(42);
+    HashTrie<Object, Object> expected = HashTrie.create();
+    HashTrie.Builder<Object, Object> builder = HashTrie.create().toBuilder();
+    List<HashTrie<Object, Object>> built = new ArrayList<>();
+    List<String> builtToString = new ArrayList<>();
+    for (int batch = 0; batch < 200; batch++) {
+      // batches of various sizes, to go through the small map size in both directions
+      int batchSize = random.nextInt(batch % 2 == 0 ? 5 : 200);
+      for (int i = 0; i < batchSize; i++) {
+        Key key = new Key(random.nextInt(64) * 0x01010101, "k" + random.nextInt(100));
+        Object existing = existingKey(expected, key);
+        if (random.nextInt(batch % 4 < 2 ? 2 : 4) == 0) {
+          expected = expected.remove(existing);
+          builder.remove(existing);
+        } else {
+          String value = "v" + random.nextInt(3);
+          expected = expected.put(existing, value);
+          builder.add(existing).put(existing, value);
+        }
+        assertThat(builder.get(existing)).isEqualTo(expected.get(existing));
+        assertThat(builder.contains(existing)).isEqualTo(expected.contains(existing));
+      }
+      HashTrie<Object, Object> t = builder.build();
+      assertThat(builder.build()).isSameAs(t);
+      // same canonical structure, so same order
+      assertThat(t).isEqualTo(expected).hasToString(expected.toString());
+      assertThat(t.size()).isEqualTo(expected.size());
+      built.add(t);
+      builtToString.add(t.toString());
+    }
+    for (int i = 0; i < built.size(); i++) {
+      assertThat(built.get(i)).hasToString(builtToString.get(i));
+    }
+  }
+
+  @Test
+  public void builder_from_trie() {
+    HashTrie<Integer, Object> t = HashTrie.create();
+    for (int i = 0; i < 100; i++) {
+      t = t.add(i);
+    }
+    assertThat(t.toBuilder().build()).isSameAs(t);
+    assertThat(t.toBuilder().add(1).remove(-1).build()).isSameAs(t);
+    HashTrie.Builder<Integer, Object> builder = t.toBuilder();
+    for (int i = 0; i < 95; i++) {
+      builder.remove(i);
+    }
+    HashTrie<Integer, Object> small = builder.build();
+    assertThat(small.size()).isEqualTo(5);
+    HashTrie<Integer, Object> expected = HashTrie.<Integer, Object>create().add(99).add(98).add(97).add(96).add(95);
+    assertThat(small).isEqualTo(expected).hasToString(expected.toString());
+    assertThat(t.size()).isEqualTo(100);
+    assertThat(builder.remove(95).remove(96).remove(97).remove(98).remove(99).build()).isSameAs(HashTrie.create());
+    assertThatThrownBy(() -> builder.put(null, 1)).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> builder.put(1, null)).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> builder.add(null)).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> builder.remove(null)).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> builder.get(null)).isInstanceOf(NullPointerException.class);
+  }
+
+  private static Object existingKey(PMap<Object, Object> map, Key key) {
+    Object[] existing = {key};
+    map.forEach((k, v) -> {
+      if (k.hashCode() == key.hashCode() && k.toString().equals(key.toString())) {
+        existing[0] = k;
+      }
+    });
+    return existing[0];
+  }
+
+  @Test
+  public void set_and_map_views() {
+    HashTrie<String, String> t = HashTrie.<String, String>create().add("a").add("b");
+    assertThat(t.contains("a")).isTrue();
+    assertThat(t.contains("c")).isFalse();
+    assertThat(t.keySet()).isSameAs(t);
+    assertThat(t.stream()).containsExactlyInAnyOrder("a", "b");
+    List<String> visited = new ArrayList<>();
+    t.forEach((String e) -> visited.add(e));
+    assertThat(visited).containsExactlyInAnyOrder("a", "b");
+    assertThat(t.entries()).containsExactlyInAnyOrder(entry("a", "a"), entry("b", "b"));
+    assertThat(t).isNotEqualTo(AVLTree.create().add("a").add("b")).isNotEqualTo("a").isNotEqualTo(t.add("c"));
+    assertThat(t.hashCode()).isEqualTo(AVLTree.create().add("a").add("b").hashCode());
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IntTrieTest {
+
+  @Test
+  public void test_empty() {
+    IntTrie<String> t = IntTrie.create();
+    assertThat(t.isEmpty()).isTrue();
+    assertThat(t.size()).isZero();
+    assertThat(t.get(0)).isNull();
+    assertThat(t.remove(0)).isSameAs(t);
+    assertThat(t).hasToString("");
+    assertThat(t.hashCode()).isZero();
+    assertThat(t).isEqualTo(IntTrie.create()).isNotEqualTo(t.put(0, "a"));
+  }
+
+  @Test
+  public void test() {
+    IntTrie<String> t = IntTrie.<String>create()
+      .put(3, "c")
+      .put(-1, "minus")
+      .put(1, "a")
+      .put(Integer.MAX_VALUE, "max")
+      .put(Integer.MIN_VALUE, "min")
+      .put(0, "zero");
+    assertThat(t).hasToString(" -2147483648->min -1->minus 0->zero 1->a 3->c 2147483647->max");
+    assertThat(t.size()).isEqualTo(6);
+    assertThat(t.get(-1)).isEqualTo("minus");
+    assertThat(t.get(Integer.MIN_VALUE)).isEqualTo("min");
+    assertThat(t.get(2)).isNull();
+    assertThat(t.containsKey(3)).isTrue();
+    assertThat(t.containsKey(-3)).isFalse();
+
+    assertThat(t.put(3, "c")).isSameAs(t);
+    assertThat(t.remove(2)).isSameAs(t);
+    assertThat(t.remove(-2)).isSameAs(t);
+    IntTrie<String> updated = t.put(3, "C").remove(-1);
+    assertThat(updated).hasToString(" -2147483648->min 0->zero 1->a 3->C 2147483647->max");
+    assertThat(t).hasToString(" -2147483648->min -1->minus 0->zero 1->a 3->c 2147483647->max");
+
+    List<Integer> keys = new ArrayList<>();
+    t.forEach((int key) -> keys.add(key));
+    assertThat(keys).containsExactly(Integer.MIN_VALUE, -1, 0, 1, 3, Integer.MAX_VALUE);
+    assertThatThrownBy(() -> t.put(4, null)).isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void same_results_as_tree_map() {
+    Random random = new Random(42);
+    for (int bound : new int[] {10, 1000, Integer.MAX_VALUE}) {
+      IntTrie<Integer> t = IntTrie.create();
+      Map<Integer, Integer> expected = new TreeMap<>();
+      List<IntTrie<Integer>> versions = new ArrayList<>();
+      List<String> versionsToString = new ArrayList<>();
+      for (int i = 0; i < 3000; i++) {
+        int key = bound == Integer.MAX_VALUE ? random.nextInt() : (random.nextInt(2 * bound) - bound);
+        if (random.nextInt(3) == 0) {
+          t = t.remove(key);
+          expected.remove(key);
+        } else {
+          int value = random.nextInt(3);
+          t = t.put(key, value);
+          expected.put(key, value);
+        }
+        assertThat(t.get(key)).isEqualTo(expected.get(key));
+        assertThat(t.size()).isEqualTo(expected.size());
+        if (i % 100 == 0) {
+          versions.add(t);
+          versionsToString.add(t.toString());
+        }
+      }
+      Map<Integer, Integer> actual = new TreeMap<>();
+      List<Integer> keys = new ArrayList<>();
+      t.forEach((int key, Integer value) -> {
+        actual.put(key, value);
+        keys.add(key);
+      });
+      assertThat(actual).isEqualTo(expected);
+      assertThat(keys).isSorted();
+
+      // same structure whatever the order of construction
+      IntTrie<Integer> rebuilt = IntTrie.create();
+      for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+        rebuilt = rebuilt.put(entry.getKey(), entry.getValue());
+      }
+      assertThat(rebuilt).isEqualTo(t).hasSameHashCodeAs(t).hasToString(t.toString());
+
+      // previous versions are not modified
+      for (int i = 0; i < versions.size(); i++) {
+        assertThat(versions.get(i)).hasToString(versionsToString.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void test_set() {
+    IntPSet set = PCollections.emptyIntSet().add(2).add(-5).add(7);
+    assertThat(set).hasToString(" -5 2 7");
+    assertThat(set.add(2)).isSameAs(set);
+    assertThat(set.contains(-5)).isTrue();
+    assertThat(set.contains(5)).isFalse();
+    assertThat(set.remove(-5)).isEqualTo(PCollections.emptyIntSet().add(7).add(2));
+    assertThat(set.size()).isEqualTo(3);
+    assertThat(set.hashCode()).isEqualTo(31 * 2 + 31 * -5 + 31 * 7);
+
+    IntPMap<String> map = PCollections.<String>emptyIntMap().put(1, "a").put(2, "b");
+    assertThat(map.keySet().contains(2)).isTrue();
+    assertThat(map.keySet().size()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import org.junit.Test;
+import org.sonarsource.analyzer.commons.collections.PCollections.Implementation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InternerTest {
+
+  @Test
+  public void equal_values_are_interned_as_same_instance() {
+    for (Implementation implementation : Implementation.values()) {
+      Interner<PMap<String, Integer>> interner = new Interner<>();
+      PMap<String, Integer> empty = PCollections.emptyMap(implementation);
+      PMap<String, Integer> map = interner.intern(empty.put("a", 1).put("b", 2));
+      PMap<String, Integer> sameEntries = empty.put("b", 2).put("a", 1);
+      assertThat(sameEntries).isNotSameAs(map);
+      assertThat(interner.intern(sameEntries)).isSameAs(map);
+      assertThat(interner.intern(map.put("a", 1))).isSameAs(map);
+
+      PMap<String, Integer> other = empty.put("a", 1);
+      assertThat(interner.intern(other)).isSameAs(other);
+      assertThat(interner.intern(other.put("b", 2))).isSameAs(map);
+      PMap<String, Integer> changed = interner.intern(map.put("b", 3));
+      assertThat(changed).isNotSameAs(map).isNotEqualTo(map);
+      assertThat(interner.size()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void sets_and_maps() {
+    Interner<Object> interner = new Interner<>();
+    Object set = interner.intern(PSet.of("a", "b"));
+    assertThat(interner.intern(PSet.of("b", "a"))).isSameAs(set);
+    assertThat(interner.intern(PCollections.emptySet(Implementation.HASH_TRIE).add("a").add("b"))).isNotSameAs(set);
+    assertThat(interner.intern(PCollections.emptyMap())).isSameAs(PCollections.emptySet());
+  }
+}
@@ -28,4 +28,23 @@ public class PCollectionsTest {
     assertThat(PCollections.emptySet()).isEqualTo(AVLTree.create());
     assertThat(PCollections.emptyStack()).isEqualTo(SinglyLinkedList.EMPTY);
   }
+
+  @Test
+  public void test_builders() {
+    assertThat(PCollections.<String, Integer>mapBuilder().put("a", 1).put("b", 2).remove("b").build()).isEqualTo(PMap.of("a", 1));
+    assertThat(PCollections.<String>setBuilder().add("a").add("b").remove("b").build()).isEqualTo(PSet.of("a"));
+    assertThat(PCollections.<String, Integer>mapBuilder(PCollections.Implementation.HASH_TRIE).put("a", 1).build()).isEqualTo(HashTrie.create().put("a", 1));
+    assertThat(PCollections.<String>setBuilder(PCollections.Implementation.HASH_TRIE).add("a").build()).isEqualTo(HashTrie.create().add("a"));
+    assertThat(PCollections.mapBuilder().build()).isSameAs(PCollections.emptyMap());
+    assertThat(PCollections.setBuilder(PCollections.Implementation.AVL_TREE).build()).isSameAs(AVLTree.create());
+  }
+
+  @Test
+  public void test_implementations() {
+    assertThat(PCollections.emptyMap(PCollections.Implementation.AVL_TREE)).isSameAs(AVLTree.create());
+    assertThat(PCollections.emptySet(PCollections.Implementation.AVL_TREE)).isSameAs(AVLTree.create());
+    assertThat(PCollections.emptyMap(PCollections.Implementation.HASH_TRIE)).isSameAs(HashTrie.create());
+    assertThat(PCollections.emptySet(PCollections.Implementation.HASH_TRIE)).isSameAs(HashTrie.create());
+    assertThat(PCollections.<String, Integer>emptyMap(PCollections.Implementation.HASH_TRIE).put("a", 1).get("a")).isEqualTo(1);
+  }
 }
@@ -0,0 +1,171 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PersistentVectorTest {
+
+  @Test
+  public void test_empty() {
+    PVector<String> v = PCollections.emptyVector();
+    assertThat(v.isEmpty()).isTrue();
+    assertThat(v.size()).isZero();
+    assertThat(v).isEmpty();
+    assertThat(v).hasToString("[]");
+    assertThat(v.hashCode()).isEqualTo(List.of().hashCode());
+    assertThat(v.subList(0, 0)).isSameAs(v);
+    assertThatThrownBy(v::removeLast).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(v::last).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> v.get(0)).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThatThrownBy(() -> v.iterator().next()).isInstanceOf(NoSuchElementException.class);
+  }
+
+  @Test
+  public void test() {
+    PVector<String> v = PCollections.<String>emptyVector().append("a").append("b").append("c");
+    assertThat(v).containsExactly("a", "b", "c");
+    assertThat(v).hasToString("[a, b, c]");
+    assertThat(v.get(1)).isEqualTo("b");
+    assertThat(v.last()).isEqualTo("c");
+    assertThat(v.size()).isEqualTo(3);
+    assertThat(v.set(1, "b")).isSameAs(v);
+    assertThat(v.set(1, "B")).containsExactly("a", "B", "c");
+    assertThat(v.removeLast()).containsExactly("a", "b");
+    assertThat(v.removeLast().removeLast().removeLast()).isSameAs(PCollections.emptyVector());
+    assertThat(v).containsExactly("a", "b", "c");
+    assertThat(v.stream().collect(Collectors.joining())).isEqualTo("abc");
+    assertThat(v.hashCode()).isEqualTo(List.of("a", "b", "c").hashCode());
+    assertThat(v).isEqualTo(PCollections.<String>emptyVector().append("a").append("b").append("c"))
+      .isNotEqualTo(v.removeLast())
+      .isNotEqualTo(v.set(2, "d"))
+      .isNotEqualTo(List.of("a", "b", "c"));
+    assertThatThrownBy(() -> v.get(3)).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThatThrownBy(() -> v.get(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThatThrownBy(() -> v.set(3, "d")).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThatThrownBy(() -> v.append(null)).isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void same_results_as_array_list() {
+    Random random = new Random(42);
+    PVector<Integer> v = PCollections.emptyVector();
+    List<Integer> expected = new ArrayList<>();
+    List<PVector<Integer>> versions = new ArrayList<>();
+    List<List<Integer>> versionsContent = new ArrayList<>();
+    // grows to 3 levels, then shrinks back
+    for (int i = 0; i < 80_000; i++) {
+      int operation = random.nextInt(10);
+      if (operation == 0 && !expected.isEmpty()) {
+        int index = random.nextInt(expected.size());
+        v = v.set(index, -i);
+        expected.set(index, -i);
+      } else if ((i < 40_000 ? operation < 3 : operation < 8) && !expected.isEmpty()) {
+        v = v.removeLast();
+        expected.remove(expected.size() - 1);
+      } else {
+        v = v.append(i);
+        expected.add(i);
+      }
+      assertThat(v.size()).isEqualTo(expected.size());
+      if (!expected.isEmpty()) {
+        int index = random.nextInt(expected.size());
+        assertThat(v.get(index)).isEqualTo(expected.get(index));
+        assertThat(v.last()).isEqualTo(expected.get(expected.size() - 1));
+      }
+      if (i % 4000 == 0) {
+        assertThat(v).containsExactlyElementsOf(expected);
+        assertThat(v.hashCode()).isEqualTo(expected.hashCode());
+        versions.add(v);
+        versionsContent.add(new ArrayList<>(expected));
+      }
+    }
+    // previous versions are not modified
+    for (int i = 0; i < versions.size(); i++) {
+      assertThat(versions.get(i)).containsExactlyElementsOf(versionsContent.get(i));
+    }
+  }
+
+  @Test
+  public void sub_lists() {
+    PVector<Integer> v = PCollections.emptyVector();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      v = v.append(i);
+      expected.add(i);
+    }
+    assertThat(v.subList(0, 2000)).isSameAs(v);
+    assertThat(v.subList(10, 10)).isEmpty();
+    assertThatThrownBy(() -> PCollections.emptyVector().append(1).subList(0, 2)).isInstanceOf(IndexOutOfBoundsException.class);
+
+    Random random = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      int from = random.nextInt(2000);
+      int to = from + random.nextInt(2001 - from);
+      PVector<Integer> subList = v.subList(from, to);
+      List<Integer> expectedSubList = new ArrayList<>(expected.subList(from, to));
+      assertThat(subList).containsExactlyElementsOf(expectedSubList);
+      assertThat(subList.size()).isEqualTo(to - from);
+      for (int j = 0; j < 50; j++) {
+        int operation = random.nextInt(3);
+        if (operation == 0 && !expectedSubList.isEmpty()) {
+          subList = subList.removeLast();
+          expectedSubList.remove(expectedSubList.size() - 1);
+        } else if (operation == 1 && !expectedSubList.isEmpty()) {
+          int index = random.nextInt(expectedSubList.size());
+          subList = subList.set(index, -j);
+          expectedSubList.set(index, -j);
+        } else {
+          subList = subList.append(-j);
+          expectedSubList.add(-j);
+        }
+      }
+      assertThat(subList).containsExactlyElementsOf(expectedSubList);
+      int index = expectedSubList.size() / 2;
+      assertThat(subList.subList(index, expectedSubList.size())).containsExactlyElementsOf(expectedSubList.subList(index, expectedSubList.size()));
+    }
+    // the vector is not modified by the updates of its sub lists
+    assertThat(v).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  public void iterator() {
+    PVector<Integer> v = PCollections.emptyVector();
+    for (int i = 0; i < 100; i++) {
+      v = v.append(i);
+    }
+    Iterator<Integer> iterator = v.subList(30, 70).iterator();
+    for (int i = 30; i < 70; i++) {
+      assertThat(iterator.hasNext()).isTrue();
+      assertThat(iterator.next()).isEqualTo(i);
+    }
+    assertThat(iterator.hasNext()).isFalse();
+    assertThatThrownBy(iterator::next).isInstanceOf(NoSuchElementException.class);
+    List<Integer> elements = new ArrayList<>();
+    v.subList(31, 65).forEach(elements::add);
+    assertThat(elements).hasSize(34).startsWith(31).endsWith(64);
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * SonarSource Analyzers Commons
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.analyzer.commons.collections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import org.junit.Test;
+import org.sonarsource.analyzer.commons.collections.PCollections.Implementation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class SetOperationTest {
+
+  private static final BinaryOperator<String> CONCAT = (value, otherValue) -> value + "|" + otherValue;
+
+  private static int equalsCalls = 0;
+
+  private static final class Key {
+    private final int hashCode;
+    private final String name;
+
+    private Key(int hashCode, String name) {
+      this.hashCode = hashCode;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      equalsCalls++;
+      return obj instanceof Key other && hashCode == other.hashCode && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  @Test
+  public void same_results_as_java_collections() {
+    for (Implementation implementation : Implementation.values()) {
+      Random random = new Random(42);
+      for (int i = 0; i < 300; i++) {
+        PMap<Key, String> map = randomMap(implementation, PCollections.emptyMap(implementation), random, random.nextInt(60));
+        PMap<Key, String> other = random.nextBoolean()
+          ? randomMap(implementation, PCollections.emptyMap(implementation), random, random.nextInt(60))
+          : randomMap(implementation, map, random, random.nextInt(10));
+        checkMapOperations(implementation, map, other);
+        checkMapOperations(implementation, other, map);
+        checkSetOperations(implementation, map.keySet(), other.keySet());
+      }
+    }
+  }
+
+  private static PMap<Key, String> randomMap(Implementation implementation, PMap<Key, String> initial, Random random, int updates) {
+    PMap<Key, String> map = initial;
+    for (int i = 0; i < updates; i++) {
+      // few distinct hash codes, to have collisions
+      Key key = new Key(random.nextInt(40) * 0x01010101, "k" + random.nextInt(80));
+      map = random.nextInt(4) == 0 ? map.remove(key) : map.put(key, "v" + random.nextInt(3));
+    }
+    return map;
+  }
+
+  private static void checkMapOperations(Implementation implementation, PMap<Key, String> map, PMap<Key, String> other) {
+    Map<Key, String> first = toMap(map);
+    Map<Key, String> second = toMap(other);
+
+    Map<Key, String> union = new HashMap<>(first);
+    second.forEach((key, value) -> union.merge(key, value, (v1, v2) -> v1.equals(v2) ? v1 : CONCAT.apply(v1, v2)));
+    assertSameMap(implementation, map.union(other, CONCAT), union);
+
+    Map<Key, String> intersection = new HashMap<>();
+    first.forEach((key, value) -> {
+      String otherValue = second.get(key);
+      if (otherValue != null) {
+        intersection.put(key, value.equals(otherValue) ? value : CONCAT.apply(value, otherValue));
+      }
+    });
+    assertSameMap(implementation, map.intersect(other, CONCAT), intersection);
+
+    Map<Key, String> difference = new HashMap<>(first);
+    difference.keySet().removeAll(second.keySet());
+    assertSameMap(implementation, map.difference(other), difference);
+
+    List<Object> expectedDiff = new ArrayList<>();
+    Set<Key> keys = new HashSet<>(first.keySet());
+    keys.addAll(second.keySet());
+    for (Key key : keys) {
+      if (!Objects.equals(first.get(key), second.get(key))) {
+        expectedDiff.add(tuple(key, first.get(key), second.get(key)));
+      }
+    }
+    List<Object> diff = new ArrayList<>();
+    map.diff(other, (key, value, otherValue) -> diff.add(tuple(key, value, otherValue)));
+    assertThat(diff).containsExactlyInAnyOrderElementsOf(expectedDiff);
+  }
+
+  private static void assertSameMap(Implementation implementation, PMap<Key, String> actual, Map<Key, String> expected) {
+    assertThat(toMap(actual)).isEqualTo(expected);
+    PMap<Key, String> built = PCollections.emptyMap(implementation);
+    for (Map.Entry<Key, String> entry : expected.entrySet()) {
+      built = built.put(entry.getKey(), entry.getValue());
+    }
+    assertThat(actual).isEqualTo(built).hasSameHashCodeAs(built);
+    if (actual instanceof HashTrie<Key, String> trie) {
+      assertThat(trie.size()).isEqualTo(expected.size());
+    } else {
+      assertBalanced((AVLTree<?, ?>) actual);
+    }
+  }
+
+  private static void checkSetOperations(Implementation implementation, PSet<Key> set, PSet<Key> other) {
+    Set<Key> first = toSet(set);
+    Set<Key> second = toSet(other);
+
+    Set<Key> union = new HashSet<>(first);
+    union.addAll(second);
+    assertThat(toSet(set.union(other))).isEqualTo(union);
+    Set<Key> intersection = new HashSet<>(first);
+    intersection.retainAll(second);
+    assertThat(toSet(set.intersect(other))).isEqualTo(intersection);
+    Set<Key> difference = new HashSet<>(first);
+    difference.removeAll(second);
+    assertThat(toSet(set.difference(other))).isEqualTo(difference);
+
+    Set<Key> onlyInOther = new HashSet<>(second);
+    onlyInOther.removeAll(first);
+    List<Key> actualOnlyInThis = new ArrayList<>();
+    List<Key> actualOnlyInOther = new ArrayList<>();
+    set.diff(other, actualOnlyInThis::add, actualOnlyInOther::add);
+    assertThat(actualOnlyInThis).containsExactlyInAnyOrderElementsOf(difference);
+    assertThat(actualOnlyInOther).containsExactlyInAnyOrderElementsOf(onlyInOther);
+  }
+
+  @Test
+  public void shared_structure_is_skipped() {
+    for (Implementation implementation : Implementation.values()) {
+      PMap<Key, String> map = PCollections.emptyMap(implementation);
+      for (int i = 0; i < 10_000; i++) {
+        map = map.put(new Key(i * 7919, "k" + i), "v");
+      }
+      PMap<Key, String> other = map
+        .put(new Key(42 * 7919, "k42"), "changed")
+        .remove(new Key(43 * 7919, "k43"))
+        .put(new Key(-1, "new"), "v");
+
+      equalsCalls = 0;
+      List<Object> diff = new ArrayList<>();
+      map.diff(other, (key, value, otherValue) -> diff.add(tuple(key.toString(), value, otherValue)));
+      assertThat(diff).containsExactlyInAnyOrder(tuple("k42", "v", "changed"), tuple("k43", "v", null), tuple("new", null, "v"));
+      assertThat(equalsCalls).as(implementation.name()).isLessThan(100);
+
+      equalsCalls = 0;
+      PMap<Key, String> union = map.union(other, CONCAT);
+      assertThat(union.get(new Key(42 * 7919, "k42"))).isEqualTo("v|changed");
+      assertThat(union.get(new Key(43 * 7919, "k43"))).isEqualTo("v");
+      PMap<Key, String> intersection = map.intersect(other, CONCAT);
+      assertThat(intersection.get(new Key(43 * 7919, "k43"))).isNull();
+      assertThat(intersection.get(new Key(-1, "new"))).isNull();
+      PMap<Key, String> difference = other.difference(map);
+      assertThat(toMap(difference)).hasSize(1);
+      assertThat(equalsCalls).as(implementation.name()).isLessThan(1000);
+
+      assertThat(map.union(map.remove(new Key(7919, "k1")), CONCAT)).isSameAs(map);
+      assertThat(map.intersect(map.put(new Key(-1, "new"), "v"), CONCAT)).isEqualTo(map);
+      assertThat(map.difference(map.remove(new Key(7919, "k1")))).isEqualTo(PCollections.emptyMap(implementation).put(new Key(7919, "k1"), "v"));
+      assertThat(map.union(map, CONCAT)).isSameAs(map);
+      assertThat(map.intersect(map, CONCAT)).isSameAs(map);
+      assertThat(map.difference(map)).isSameAs(PCollections.emptyMap(implementation));
+      assertThat(map.difference(PCollections.emptyMap(implementation))).isSameAs(map);
+      assertThat(map.keySet().union(PCollections.emptySet(implementation))).isSameAs(map);
+    }
+  }
+
+  @Test
+  public void shared_nodes_dropped_by_difference_are_not_visited() {
+    HashTrie<Key, String> map = HashTrie.create();
+    for (int i = 0; i < 10_000; i++) {
+      map = map.put(new Key(i * 7919, "k" + i), "v");
+    }
+    HashTrie<Key, String> other = map.put(new Key(-1, "new"), "v");
+
+    HashTrie.Combiner combiner = new HashTrie.Combiner(SetOperation.DIFFERENCE, null);
+    HashTrie<Key, String> difference = other.combine(map, combiner);
+    assertThat(toMap(difference)).containsOnlyKeys(new Key(-1, "new"));
+    assertThat(difference.size()).isEqualTo(1);
+    assertThat(combiner.countedEntries).isLessThan(10);
+
+    HashTrie<Key, String> larger = map;
+    for (int i = 0; i < 100; i++) {
+      larger = larger.put(new Key(-i - 1, "new" + i), "v");
+    }
+    combiner = new HashTrie.Combiner(SetOperation.DIFFERENCE, null);
+    difference = larger.combine(map, combiner);
+    assertThat(difference.size()).isEqualTo(100);
+    assertThat(toMap(difference)).hasSize(100);
+    assertThat(combiner.countedEntries).isLessThanOrEqualTo(100);
+  }
+
+  @Test
+  public void different_implementations() {
+    PMap<String, String> avlTree = PMap.of("a", "1", "b", "2");
+    PMap<String, String> hashTrie = PCollections.<String, String>emptyMap(Implementation.HASH_TRIE).put("b", "3").put("c", "4");
+    assertThat(toMap(avlTree.union(hashTrie, CONCAT))).isEqualTo(Map.of("a", "1", "b", "2|3", "c", "4"));
+    assertThat(toMap(hashTrie.union(avlTree, CONCAT))).isEqualTo(Map.of("a", "1", "b", "3|2", "c", "4"));
+    assertThat(toMap(avlTree.intersect(hashTrie, CONCAT))).isEqualTo(Map.of("b", "2|3"));
+    assertThat(toMap(hashTrie.difference(avlTree))).isEqualTo(Map.of("c", "4"));
+    List<Object> diff = new ArrayList<>();
+    avlTree.diff(hashTrie, (key, value, otherValue) -> diff.add(tuple(key, value, otherValue)));
+    assertThat(diff).containsExactlyInAnyOrder(tuple("a", "1", null), tuple("b", "2", "3"), tuple("c", null, "4"));
+
+    PSet<String> avlSet = PSet.of("a", "b");
+    PSet<String> trieSet = PCollections.<String>emptySet(Implementation.HASH_TRIE).add("b").add("c");
+    assertThat(avlSet.union(trieSet)).containsExactlyInAnyOrder("a", "b", "c");
+    assertThat(trieSet.intersect(avlSet)).containsExactly("b");
+    assertThat(trieSet.difference(avlSet)).containsExactly("c");
+    List<String> onlyInThis = new ArrayList<>();
+    List<String> onlyInOther = new ArrayList<>();
+    avlSet.diff(trieSet, onlyInThis::add, onlyInOther::add);
+    assertThat(onlyInThis).containsExactly("a");
+    assertThat(onlyInOther).containsExactly("c");
+  }
+
+  private static <K, V> Map<K, V> toMap(PMap<K, V> map) {
+    Map<K, V> result = new HashMap<>();
+    map.forEach(result::put);
+    return result;
+  }
+
+  private static <E> Set<E> toSet(PSet<E> set) {
+    Set<E> result = new HashSet<>();
+    set.forEach(result::add);
+    return result;
+  }
+
+  private static void assertBalanced(AVLTree<?, ?> t) {
+    if (t.isEmpty()) {
+      return;
+    }
+    assertBalanced(t.left());
+    assertBalanced(t.right());
+    assertThat(t.height()).isEqualTo(Math.max(t.left().height(), t.right().height()) + 1);
+    assertThat(Math.abs(t.left().height() - t.right().height())).isLessThanOrEqualTo(2);
+  }
+}